@@ -17,7 +17,6 @@ package org.kie.kogito.events.rm;
 
 import java.util.Collection;
 import java.util.Optional;
-import java.util.TimeZone;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
@@ -25,13 +24,12 @@ import javax.inject.Singleton;
 
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.kie.kogito.event.DataEvent;
+import org.kie.kogito.event.DataEventEncoder;
 import org.kie.kogito.event.EventPublisher;
+import org.kie.kogito.services.event.impl.DataEventEncoders;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.util.StdDateFormat;
-
 import io.smallrye.reactive.messaging.annotations.Channel;
 import io.smallrye.reactive.messaging.annotations.Emitter;
 
@@ -41,20 +39,23 @@ public class ReactiveMessagingEventPublisher implements EventPublisher {
     private static final String UI_TOPIC_NAME = "kogito-usertaskinstances-events";
     private static final String VI_TOPIC_NAME = "kogito-variables-events";
     
+    public static final String JSON_ENCODING = DataEventEncoders.JSON_ENCODING;
+    public static final String PROTOBUF_ENCODING = DataEventEncoders.PROTOBUF_ENCODING;
+    
     private static final Logger logger = LoggerFactory.getLogger(ReactiveMessagingEventPublisher.class);
-    private ObjectMapper json = new ObjectMapper();
+    private DataEventEncoder<?> encoder;
     
     @Inject
     @Channel(PI_TOPIC_NAME)
-    Emitter<String> processInstancesEventsEmitter;
+    Emitter<Object> processInstancesEventsEmitter;
     
     @Inject
     @Channel(UI_TOPIC_NAME)
-    Emitter<String> userTasksEventsEmitter;
+    Emitter<Object> userTasksEventsEmitter;
     
     @Inject
     @Channel(VI_TOPIC_NAME)
-    Emitter<String> variablesEventsEmitter;
+    Emitter<Object> variablesEventsEmitter;
     
     @Inject
     @ConfigProperty(name = "kogito.events.processinstances.enabled")
@@ -68,9 +69,14 @@ public class ReactiveMessagingEventPublisher implements EventPublisher {
     @ConfigProperty(name = "kogito.events.variables.enabled")
     Optional<Boolean> variablesEvents;
     
+    @Inject
+    @ConfigProperty(name = "kogito.events.encoding")
+    Optional<String> encoding;
+    
     @PostConstruct
     public void configure() {
-        json.setDateFormat(new StdDateFormat().withColonInTimeZone(true).withTimeZone(TimeZone.getDefault()));
+        encoder = createEncoder(encoding.orElse(JSON_ENCODING));
+        logger.debug("Events are going to be published as {}", encoder.contentType());
     }
     
     @Override
@@ -98,20 +104,28 @@ public class ReactiveMessagingEventPublisher implements EventPublisher {
     }
 
     
-    protected void publishToTopic(DataEvent<?> event, Emitter<String> emitter, String topic) {
+    protected void publishToTopic(DataEvent<?> event, Emitter<Object> emitter, String topic) {
         if (emitter.isRequested()) {
             logger.debug("Emitter {} is not ready to send messages", topic);
         }
         
         logger.debug("About to publish event {} to topic {}", event, topic);
         try {
-            String eventString = json.writeValueAsString(event);
-            logger.debug("Event payload '{}'", eventString);
+            Object payload = encoder.encode(event);
+            if (payload instanceof String) {
+                logger.debug("Event payload '{}'", payload);
+            } else {
+                logger.debug("Event payload of {} bytes with schema fingerprint {}", ((byte[]) payload).length, encoder.schemaFingerprint());
+            }
 
-            emitter.send(eventString);
+            emitter.send(payload);
             logger.debug("Successfully published event {} to topic {}", event, topic);
         } catch (Exception e) {
             logger.error("Error while publishing event to topic {} for event {}", topic, event, e);
         }  
     }
+    
+    protected DataEventEncoder<?> createEncoder(String encoding) {
+        return DataEventEncoders.create(encoding);
+    }
 }
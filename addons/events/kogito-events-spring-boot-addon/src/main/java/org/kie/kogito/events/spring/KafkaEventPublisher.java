@@ -15,11 +15,14 @@
 
 package org.kie.kogito.events.spring;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
-import java.util.TimeZone;
 
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.kie.kogito.event.DataEvent;
+import org.kie.kogito.event.DataEventEncoder;
 import org.kie.kogito.event.EventPublisher;
+import org.kie.kogito.services.event.impl.DataEventEncoders;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,9 +30,6 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.util.StdDateFormat;
-
 @Component
 public class KafkaEventPublisher implements EventPublisher {
     
@@ -37,12 +37,18 @@ public class KafkaEventPublisher implements EventPublisher {
     private static final String UI_TOPIC_NAME = "kogito-usertaskinstances-events";
     private static final String VI_TOPIC_NAME = "kogito-variables-events";
     
+    public static final String JSON_ENCODING = DataEventEncoders.JSON_ENCODING;
+    public static final String PROTOBUF_ENCODING = DataEventEncoders.PROTOBUF_ENCODING;
+    
+    public static final String CONTENT_TYPE_HEADER = "content-type";
+    public static final String SCHEMA_FINGERPRINT_HEADER = "kogito-schema-fingerprint";
+    
     private static final Logger logger = LoggerFactory.getLogger(KafkaEventPublisher.class);
 
-    private ObjectMapper json = new ObjectMapper();
+    private final DataEventEncoder<?> encoder;
     
     @Autowired
-    private KafkaTemplate<String, String> eventsEmitter;
+    private KafkaTemplate<String, Object> eventsEmitter;
     
     @Value("${kogito.events.processinstances.enabled:true}")
     private boolean processInstancesEvents;
@@ -53,8 +59,8 @@ public class KafkaEventPublisher implements EventPublisher {
     @Value("${kogito.events.variables.enabled:true}")
     private boolean variablesEvents;
         
-    public KafkaEventPublisher() {
-        json.setDateFormat(new StdDateFormat().withColonInTimeZone(true).withTimeZone(TimeZone.getDefault()));
+    public KafkaEventPublisher(@Value("${kogito.events.encoding:" + JSON_ENCODING + "}") String encoding) {
+        this.encoder = createEncoder(encoding);
     }
     
     @Override
@@ -80,16 +86,31 @@ public class KafkaEventPublisher implements EventPublisher {
         }
     }
     
-    protected void publishToTopic(DataEvent<?> event, KafkaTemplate<String, String> emitter, String topic) {
+    protected void publishToTopic(DataEvent<?> event, KafkaTemplate<String, Object> emitter, String topic) {
         logger.debug("About to publish event {} to Kafka topic {}", event, topic);
         try {
-            String eventString = json.writeValueAsString(event);
-            logger.debug("Event payload '{}'", eventString);
-            
-            eventsEmitter.send(topic, eventString);
+            Object payload = encoder.encode(event);
+            String fingerprint = encoder.schemaFingerprint();
+            if (fingerprint == null) {
+                logger.debug("Event payload '{}'", payload);
+                
+                eventsEmitter.send(topic, payload);
+            } else {
+                logger.debug("Event payload of {} bytes with schema fingerprint {}", ((byte[]) payload).length, fingerprint);
+                
+                ProducerRecord<String, Object> record = new ProducerRecord<>(topic, payload);
+                record.headers()
+                        .add(CONTENT_TYPE_HEADER, encoder.contentType().getBytes(StandardCharsets.UTF_8))
+                        .add(SCHEMA_FINGERPRINT_HEADER, fingerprint.getBytes(StandardCharsets.UTF_8));
+                eventsEmitter.send(record);
+            }
             logger.debug("Successfully published event {} to topic {}", event, topic);
         } catch (Exception e) {
             logger.error("Error while publishing event to Kafka topic {} for event {}", topic, event, e);
         }        
     }
+    
+    protected DataEventEncoder<?> createEncoder(String encoding) {
+        return DataEventEncoders.create(encoding);
+    }
 }
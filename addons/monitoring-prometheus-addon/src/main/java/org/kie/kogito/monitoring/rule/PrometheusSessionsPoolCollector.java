@@ -0,0 +1,94 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.monitoring.rule;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CounterMetricFamily;
+import io.prometheus.client.GaugeMetricFamily;
+import org.drools.core.impl.AbstractKieSessionsPool;
+import org.drools.core.impl.KnowledgeBaseImpl;
+import org.drools.core.impl.StatefulSessionPool;
+import org.kie.api.KieBase;
+import org.kie.api.runtime.KieSessionsPool;
+
+/**
+ * Exposes the statistics of the sessions pool of a kie base configured with a
+ * {@link org.kie.api.conf.SessionsPoolOption}. It has to be registered explicitly, e.g.
+ * <code>new PrometheusSessionsPoolCollector("my-kbase", kieBase).register()</code>
+ */
+public class PrometheusSessionsPoolCollector extends Collector {
+
+    private static final double NANOSECONDS_PER_SECOND = 1_000_000_000.0;
+
+    private static final List<String> LABEL_NAMES = Collections.singletonList("identifier");
+
+    private final String identifier;
+    private final KieBase kieBase;
+
+    public PrometheusSessionsPoolCollector(String identifier, KieBase kieBase) {
+        this.identifier = identifier;
+        this.kieBase = kieBase;
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        long size = 0;
+        long available = 0;
+        long acquireCount = 0;
+        long acquireTime = 0;
+        long resetCount = 0;
+        long resetTime = 0;
+
+        for (StatefulSessionPool pool : getPools()) {
+            size += pool.getSize();
+            available += pool.getAvailable();
+            acquireCount += pool.getAcquireCount();
+            acquireTime += pool.getAcquireTimeNanos();
+            resetCount += pool.getResetCount();
+            resetTime += pool.getResetTimeNanos();
+        }
+
+        List<String> labels = Collections.singletonList(identifier);
+        List<MetricFamilySamples> samples = new ArrayList<>();
+        samples.add(new GaugeMetricFamily("drl_sessions_pool_size", "Sessions created by the pool", LABEL_NAMES)
+                            .addMetric(labels, size));
+        samples.add(new GaugeMetricFamily("drl_sessions_pool_available", "Sessions available in the pool", LABEL_NAMES)
+                            .addMetric(labels, available));
+        samples.add(new CounterMetricFamily("drl_sessions_pool_acquire_total", "Sessions taken from the pool", LABEL_NAMES)
+                            .addMetric(labels, acquireCount));
+        samples.add(new CounterMetricFamily("drl_sessions_pool_acquire_seconds_total", "Time spent taking sessions from the pool", LABEL_NAMES)
+                            .addMetric(labels, acquireTime / NANOSECONDS_PER_SECOND));
+        samples.add(new CounterMetricFamily("drl_sessions_pool_reset_total", "Sessions reset when released to the pool", LABEL_NAMES)
+                            .addMetric(labels, resetCount));
+        samples.add(new CounterMetricFamily("drl_sessions_pool_reset_seconds_total", "Time spent resetting sessions released to the pool", LABEL_NAMES)
+                            .addMetric(labels, resetTime / NANOSECONDS_PER_SECOND));
+        return samples;
+    }
+
+    private Iterable<StatefulSessionPool> getPools() {
+        if (kieBase instanceof KnowledgeBaseImpl) {
+            KieSessionsPool sessionsPool = ((KnowledgeBaseImpl) kieBase).getSessionsPool();
+            if (sessionsPool instanceof AbstractKieSessionsPool) {
+                return ((AbstractKieSessionsPool) sessionsPool).getStatefulSessionPools();
+            }
+        }
+        return Collections.emptyList();
+    }
+}
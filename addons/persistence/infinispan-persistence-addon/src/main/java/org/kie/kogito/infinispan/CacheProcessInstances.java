@@ -15,55 +15,214 @@
 
 package org.kie.kogito.infinispan;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import org.infinispan.client.hotrod.RemoteCache;
+import org.infinispan.client.hotrod.MetadataValue;
 import org.infinispan.client.hotrod.RemoteCacheManager;
+import org.infinispan.commons.util.CloseableIterator;
 import org.infinispan.protostream.MessageMarshaller;
 import org.kie.kogito.process.MutableProcessInstances;
 import org.kie.kogito.process.Process;
 import org.kie.kogito.process.ProcessInstance;
+import org.kie.kogito.process.ProcessInstanceConflictException;
 import org.kie.kogito.process.ProcessInstanceDuplicatedException;
 import org.kie.kogito.process.impl.AbstractProcessInstance;
 import org.kie.kogito.process.impl.marshalling.ProcessInstanceMarshaller;
+import org.kie.kogito.uow.WorkUnit;
 
+/**
+ * Process instances store backed by a remote Infinispan cache.
+ * <p>
+ * When batched writes are enabled, creates, updates and removes are not sent to the cache right away
+ * but collected per thread in a {@link CacheWriteBatch} and flushed when the unit of work performs
+ * {@link #flushWork()}. Failures of the flush are thrown from the unit of work end.
+ * <p>
+ * When a near cache size is given, the stored form of instances recently loaded or written by this node
+ * is kept in a {@link ProcessInstanceNearCache}, so that finding them needs no remote call. Every call
+ * still unmarshalls its own instance.
+ * <p>
+ * When delta compaction is set, updates of an instance only write what changed since its last write
+ * as a delta stored under {@code <id>#delta-<snapshot id>-<n>}, where the snapshot id identifies the snapshot
+ * the delta applies to. After the given number of deltas, the next update writes a full snapshot again and
+ * only then removes the deltas of the previous one, which no longer match it. A delta is never overwritten:
+ * when another node already stored the same one, the update fails with a {@link ProcessInstanceConflictException}.
+ * Loading an instance fetches its snapshot and then all its deltas at once.
+ */
 @SuppressWarnings({"rawtypes"})
 public class CacheProcessInstances implements MutableProcessInstances {
+    
+    private static final String DELTA_SEPARATOR = "#delta-";
         
     private final RemoteCache<String, byte[]> cache;
     private ProcessInstanceMarshaller marshaller;
     
     private org.kie.kogito.process.Process<?> process;
     
+    private final boolean batchWrites;
+    private final ThreadLocal<CacheWriteBatch> currentBatch = new ThreadLocal<>();
+    private final WorkUnit<?> flushWork = new FlushWorkUnit();
+    
+    private final ProcessInstanceNearCache nearCache;
+    
+    private final int deltaCompaction;
+    
     public CacheProcessInstances(Process<?> process, RemoteCacheManager cacheManager, String templateName, String proto, MessageMarshaller<?>...marshallers) {
+        this(process, cacheManager, templateName, false, proto, marshallers);
+    }
+    
+    public CacheProcessInstances(Process<?> process, RemoteCacheManager cacheManager, String templateName, boolean batchWrites, String proto, MessageMarshaller<?>...marshallers) {
+        this(process, cacheManager, templateName, batchWrites, 0, proto, marshallers);
+    }
+    
+    public CacheProcessInstances(Process<?> process, RemoteCacheManager cacheManager, String templateName, boolean batchWrites, int nearCacheSize, String proto, MessageMarshaller<?>...marshallers) {
+        this(process, cacheManager, templateName, batchWrites, nearCacheSize, 0, proto, marshallers);
+    }
+    
+    public CacheProcessInstances(Process<?> process, RemoteCacheManager cacheManager, String templateName, boolean batchWrites, int nearCacheSize, int deltaCompaction, String proto, MessageMarshaller<?>...marshallers) {
         this.process = process;    
         this.cache = cacheManager.administration().getOrCreateCache(process.id() + "_store", ignoreNullOrEmpty(templateName));
+        this.batchWrites = batchWrites;
+        this.deltaCompaction = deltaCompaction;
         
         this.marshaller = new ProcessInstanceMarshaller(new ProtoStreamObjectMarshallingStrategy(proto, marshallers));
+        
+        if (nearCacheSize > 0) {
+            this.nearCache = new ProcessInstanceNearCache(nearCacheSize, this::resolveKey);
+            this.cache.addClientListener(nearCache);
+        } else {
+            this.nearCache = null;
+        }
     }
 
     
     @Override
     public Optional<? extends ProcessInstance> findById(String id) {
-        byte[] data = cache.get(resolveId(id));
-        if (data == null) {
+        List<byte[]> parts = loadParts(resolveId(id));
+        if (parts == null) {
             return Optional.empty();
         }
         
-        return (Optional<? extends ProcessInstance>) Optional.of(marshaller.unmarshallProcessInstance(data, process));
+        return (Optional<? extends ProcessInstance>) Optional.of(marshaller.unmarshallProcessInstance(parts, process));
+    }
+    
+    /**
+     * Returns the near cache of this store
+     * @return near cache or null when near caching is disabled
+     */
+    public ProcessInstanceNearCache nearCache() {
+        return nearCache;
     }
 
     
     @Override
     public Collection<? extends ProcessInstance> values() {
+        if (deltaCompaction > 0) {
+            // deltas need to be skipped and loaded along with their snapshot
+            List<String> keys = new ArrayList<>();
+            try (CloseableIterator<String> it = cache.keySet().iterator()) {
+                while (it.hasNext()) {
+                    String key = it.next();
+                    if (!isDeltaKey(key)) {
+                        keys.add(key);
+                    }
+                }
+            }
+            return load(keys);
+        }
         return (Collection<? extends ProcessInstance>) cache.values()
                 .parallelStream()
                 .map(data -> marshaller.unmarshallProcessInstance(data, process))
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Returns the instances of the requested page, ordered by their resolved id. Only the keys of the cache
+     * are iterated, keeping no more than {@code size} of them; every page before the requested one takes
+     * one more iteration, {@link #valuesAfter(String, int)} should be preferred to walk through many pages.
+     */
+    @Override
+    public Collection<? extends ProcessInstance> values(int page, int size) {
+        if (size <= 0 || page < 0) {
+            return Collections.emptyList();
+        }
+        String after = null;
+        for (int i = 0; i < page; i++) {
+            List<String> skipped = keysAfter(after, size);
+            if (skipped.size() < size) {
+                return Collections.emptyList();
+            }
+            after = skipped.get(skipped.size() - 1);
+        }
+        return load(keysAfter(after, size));
+    }
+    
+    /**
+     * Returns the instances following the given one, ordered by their resolved id. Only the keys of the cache
+     * are iterated once, keeping no more than {@code size} of them; the instances of the page are then fetched
+     * in a single round trip and unmarshalled.
+     */
+    @Override
+    public Collection<? extends ProcessInstance> valuesAfter(String id, int size) {
+        if (size <= 0) {
+            return Collections.emptyList();
+        }
+        return load(keysAfter(id == null ? null : resolveId(id), size));
+    }
+    
+    /**
+     * Returns the smallest keys of process instances greater than the given one, sorted
+     */
+    protected List<String> keysAfter(String after, int size) {
+        PriorityQueue<String> smallest = new PriorityQueue<>(Comparator.reverseOrder());
+        try (CloseableIterator<String> keys = cache.keySet().iterator()) {
+            while (keys.hasNext()) {
+                String key = keys.next();
+                if ((deltaCompaction > 0 && isDeltaKey(key)) || (after != null && key.compareTo(after) <= 0)) {
+                    continue;
+                }
+                if (smallest.size() < size) {
+                    smallest.add(key);
+                } else if (key.compareTo(smallest.peek()) < 0) {
+                    smallest.poll();
+                    smallest.add(key);
+                }
+            }
+        }
+        List<String> sorted = new ArrayList<>(smallest);
+        Collections.sort(sorted);
+        return sorted;
+    }
+    
+    private List<ProcessInstance> load(List<String> keys) {
+        Map<String, byte[]> values = cache.getAll(new LinkedHashSet<>(keys));
+        List<ProcessInstance> instances = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            byte[] data = values.get(key);
+            if (data == null) {
+                // removed in the meantime
+                continue;
+            }
+            List<byte[]> parts = new ArrayList<>();
+            parts.add(data);
+            instances.add(marshaller.unmarshallProcessInstance(loadParts(key, parts), process));
+        }
+        return instances;
+    }
+    
     @Override
     public void update(String id, ProcessInstance instance) {
         updateStorage(id, instance, false);
@@ -71,7 +230,31 @@ public class CacheProcessInstances implements MutableProcessInstances {
 
     @Override
     public void remove(String id) {
-        cache.remove(resolveId(id));
+        String resolvedId = resolveId(id);
+        // there can be more deltas than the compaction allows when they were written with a larger one
+        List<byte[]> parts = deltaCompaction > 0 ? loadParts(resolvedId) : null;
+        int deltas = parts == null ? 0 : parts.size() - 1;
+        String snapshotId = deltas > 0 ? ProcessInstanceMarshaller.snapshotId(parts.get(0)) : null;
+        if (batchWrites) {
+            CacheWriteBatch batch = batch();
+            batch.remove(resolvedId);
+            for (int i = 1; i <= deltas; i++) {
+                batch.remove(deltaKey(resolvedId, snapshotId, i));
+            }
+        } else {
+            cache.remove(resolvedId);
+            if (deltas > 0) {
+                removeDeltas(resolvedId, snapshotId, deltas);
+            }
+        }
+        if (nearCache != null) {
+            nearCache.invalidate(resolvedId);
+        }
+    }
+    
+    @Override
+    public WorkUnit<?> flushWork() {
+        return batchWrites ? flushWork : null;
     }
 
     protected String ignoreNullOrEmpty(String value) {
@@ -93,31 +276,291 @@ public class CacheProcessInstances implements MutableProcessInstances {
     protected void updateStorage(String id, ProcessInstance instance, boolean checkDuplicates) {
         if (isActive(instance)) {
             String resolvedId = resolveId(id);
-            byte[] data = marshaller.marhsallProcessInstance(instance);
+            int deltas = deltaCompaction > 0 && !checkDuplicates ? marshaller.deltaCount(instance) : -1;
+            boolean delta = deltas >= 0 && deltas < deltaCompaction;
+            // the snapshot the stored deltas apply to, marshalling a new snapshot replaces it
+            String snapshotId = deltas > 0 || delta ? marshaller.baseSnapshotId(instance) : null;
+            byte[] data = delta ? marshaller.marshallProcessInstanceDelta(instance) : marshaller.marhsallProcessInstance(instance);
+            
+            if (nearCache != null && !batchWrites) {
+                // announced before writing so that no event of these writes is taken for a foreign one,
+                // batched writes are announced when flushed
+                nearCache.expectWrites(resolvedId, delta ? 1 : 1 + Math.max(deltas, 0));
+            }
+            try {
+                if (delta) {
+                    insert(id, deltaKey(resolvedId, snapshotId, deltas + 1), data);
+                } else {
+                    writeSnapshot(id, resolvedId, data, checkDuplicates);
+                    if (deltas > 0) {
+                        // compaction, the replaced deltas no longer match the stored snapshot and are removed once it is written
+                        removeDeltas(resolvedId, snapshotId, deltas);
+                    }
+                }
+            } catch (RuntimeException e) {
+                if (nearCache != null) {
+                    nearCache.invalidate(resolvedId);
+                }
+                if (deltas >= 0) {
+                    // tracked state is ahead of the stored one, reload the instance when used again
+                    detach(resolvedId, instance);
+                }
+                throw e;
+            }
             
+            if (nearCache != null) {
+                Runnable cached = delta ? () -> nearCache.deltaWritten(resolvedId, deltas + 1, data) : () -> nearCache.written(resolvedId, data, 0);
+                if (batchWrites) {
+                    // the near cache only learns about the write once it reached the remote cache
+                    batch().onFlushed(cached);
+                } else {
+                    cached.run();
+                }
+            }
+            detach(resolvedId, instance);
+        }
+    }
+    
+    protected void writeSnapshot(String id, String resolvedId, byte[] data, boolean checkDuplicates) {
+        if (batchWrites) {
             if (checkDuplicates) {
-                byte[] existing = cache.putIfAbsent(resolvedId, data);
-                if (existing != null) {
+                CacheWriteBatch batch = batch();
+                if (batch.get(resolvedId) != null) {
+                    // already created earlier in the same unit of work
                     throw new ProcessInstanceDuplicatedException(id);
                 }
+                batch.create(id, resolvedId, data);
             } else {
-                cache.put(resolvedId, data);
+                batch().update(resolvedId, data);
             }
-            
-            ((AbstractProcessInstance<?>) instance).internalRemoveProcessInstance(() -> {
-                byte[] reloaded = cache.get(resolvedId);
-                if (reloaded != null) {
-                    return ((AbstractProcessInstance<?>)marshaller.unmarshallProcessInstance(reloaded, process, (AbstractProcessInstance<?>) instance)).internalGetProcessInstance();                    
-                }
-                
-                return null;
-            });
+        } else if (checkDuplicates) {
+            byte[] existing = cache.putIfAbsent(resolvedId, data);
+            if (existing != null) {
+                throw new ProcessInstanceDuplicatedException(id);
+            }
+        } else {
+            cache.put(resolvedId, data);
+        }
+    }
+    
+    /**
+     * Stores data under given key, failing when another writer already stored it
+     */
+    protected void insert(String id, String key, byte[] data) {
+        if (batchWrites) {
+            batch().insert(key, id, data);
+        } else if (cache.putIfAbsent(key, data) != null) {
+            throw new ProcessInstanceConflictException(id);
         }
     }
+    
+    protected void removeDeltas(String resolvedId, String snapshotId, int deltas) {
+        if (batchWrites) {
+            CacheWriteBatch batch = batch();
+            for (int i = 1; i <= deltas; i++) {
+                batch.removeLast(deltaKey(resolvedId, snapshotId, i));
+            }
+        } else {
+            List<CompletableFuture<?>> removed = new ArrayList<>(deltas);
+            for (int i = 1; i <= deltas; i++) {
+                removed.add(cache.removeAsync(deltaKey(resolvedId, snapshotId, i)));
+            }
+            CompletableFuture.allOf(removed.toArray(new CompletableFuture[removed.size()])).join();
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void detach(String resolvedId, ProcessInstance instance) {
+        ((AbstractProcessInstance<?>) instance).internalRemoveProcessInstance(() -> {
+            List<byte[]> reloaded = loadParts(resolvedId);
+            if (reloaded != null) {
+                return ((AbstractProcessInstance<?>)marshaller.unmarshallProcessInstance(reloaded, process, (AbstractProcessInstance<?>) instance)).internalGetProcessInstance();                    
+            }
+            
+            return null;
+        });
+    }
 
 
     @Override
     public boolean exists(String id) {
-        return cache.containsKey(id);
+        String resolvedId = resolveId(id);
+        // creates and removes of the current unit of work are not in the cache yet
+        CacheWriteBatch batch = currentBatch.get();
+        if (batch != null && batch.contains(resolvedId)) {
+            return batch.get(resolvedId) != null;
+        }
+        return cache.containsKey(resolvedId);
+    }
+    
+    protected byte[] load(String resolvedId) {
+        CacheWriteBatch batch = currentBatch.get();
+        if (batch != null && batch.contains(resolvedId)) {
+            return batch.get(resolvedId);
+        }
+        return cache.get(resolvedId);
+    }
+    
+    /**
+     * Loads the snapshot of the process instance followed by all its deltas, from the near cache when possible
+     * @param resolvedId resolved id of the process instance
+     * @return snapshot and deltas, or null if the process instance does not exist
+     */
+    protected List<byte[]> loadParts(String resolvedId) {
+        if (nearCache == null || hasPendingWrites(resolvedId)) {
+            // writes pending in the batch of this unit of work are only seen by it and never cached
+            if (deltaCompaction <= 0) {
+                byte[] data = load(resolvedId);
+                return data == null ? null : Collections.singletonList(data);
+            }
+            List<byte[]> parts = loadParts(resolvedId, new ArrayList<>());
+            return parts.isEmpty() ? null : parts;
+        }
+        
+        List<byte[]> cached = nearCache.get(resolvedId);
+        if (cached != null) {
+            return cached;
+        }
+        if (deltaCompaction > 0) {
+            List<byte[]> parts = loadParts(resolvedId, new ArrayList<>());
+            if (parts.isEmpty()) {
+                return null;
+            }
+            nearCache.loaded(resolvedId, parts, -1);
+            return parts;
+        }
+        MetadataValue<byte[]> value = cache.getWithMetadata(resolvedId);
+        if (value == null) {
+            return null;
+        }
+        List<byte[]> parts = Collections.singletonList(value.getValue());
+        nearCache.loaded(resolvedId, parts, value.getVersion());
+        return parts;
+    }
+    
+    /**
+     * Completes given parts of the process instance with the following ones, loading the snapshot first
+     * when missing and then fetching as many deltas of it as the compaction allows in a single round trip
+     */
+    protected List<byte[]> loadParts(String resolvedId, List<byte[]> parts) {
+        if (deltaCompaction <= 0) {
+            return parts;
+        }
+        if (parts.isEmpty()) {
+            byte[] snapshot = load(resolvedId);
+            if (snapshot == null) {
+                return parts;
+            }
+            parts.add(snapshot);
+        }
+        String snapshotId = ProcessInstanceMarshaller.snapshotId(parts.get(0));
+        CacheWriteBatch batch = currentBatch.get();
+        while (true) {
+            int from = parts.size();
+            Set<String> keys = new LinkedHashSet<>();
+            for (int i = from; i < from + deltaCompaction; i++) {
+                keys.add(deltaKey(resolvedId, snapshotId, i));
+            }
+            Map<String, byte[]> values = new HashMap<>();
+            if (batch != null) {
+                for (Iterator<String> it = keys.iterator(); it.hasNext();) {
+                    String key = it.next();
+                    if (batch.contains(key)) {
+                        values.put(key, batch.get(key));
+                        it.remove();
+                    }
+                }
+            }
+            if (!keys.isEmpty()) {
+                values.putAll(cache.getAll(keys));
+            }
+            for (int i = from; i < from + deltaCompaction; i++) {
+                byte[] part = values.get(deltaKey(resolvedId, snapshotId, i));
+                if (part == null) {
+                    return parts;
+                }
+                parts.add(part);
+            }
+            // even more deltas than the compaction allows, written with a larger one
+        }
+    }
+    
+    private boolean hasPendingWrites(String resolvedId) {
+        CacheWriteBatch batch = currentBatch.get();
+        return batch != null && batch.keys().stream().anyMatch(key -> resolveKey(key).equals(resolvedId));
+    }
+    
+    protected String deltaKey(String resolvedId, String snapshotId, int delta) {
+        return resolvedId + DELTA_SEPARATOR + snapshotId + "-" + delta;
+    }
+    
+    protected boolean isDeltaKey(String key) {
+        return key.contains(DELTA_SEPARATOR);
+    }
+    
+    /**
+     * Returns the resolved id of the process instance stored under given key
+     */
+    protected String resolveKey(String key) {
+        int index = key.lastIndexOf(DELTA_SEPARATOR);
+        return index < 0 ? key : key.substring(0, index);
+    }
+    
+    protected CacheWriteBatch batch() {
+        CacheWriteBatch batch = currentBatch.get();
+        if (batch == null) {
+            batch = new CacheWriteBatch();
+            currentBatch.set(batch);
+        }
+        return batch;
+    }
+    
+    private class FlushWorkUnit implements WorkUnit<Object> {
+
+        @Override
+        public Object data() {
+            return process.id();
+        }
+
+        @Override
+        public void perform() {
+            CacheWriteBatch batch = currentBatch.get();
+            if (batch == null) {
+                return;
+            }
+            currentBatch.remove();
+            Set<String> keys = batch.keys();
+            if (nearCache != null) {
+                // every key of the batch is written once, whatever number of updates it collected
+                keys.forEach(key -> nearCache.expectWrites(resolveKey(key), 1));
+            }
+            try {
+                batch.flush(cache);
+            } catch (RuntimeException e) {
+                invalidate(keys);
+                throw e;
+            }
+        }
+
+        @Override
+        public void abort() {
+            CacheWriteBatch batch = currentBatch.get();
+            currentBatch.remove();
+            if (batch != null) {
+                invalidate(batch.keys());
+            }
+        }
+        
+        private void invalidate(Set<String> keys) {
+            if (nearCache != null) {
+                keys.forEach(key -> nearCache.invalidate(resolveKey(key)));
+            }
+        }
+
+        @Override
+        public Integer priority() {
+            // right after process instance work units
+            return 20;
+        }
     }
 }
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.kogito.infinispan;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.infinispan.client.hotrod.RemoteCache;
+import org.kie.kogito.process.ProcessInstanceConflictException;
+import org.kie.kogito.process.ProcessInstanceDuplicatedException;
+
+/**
+ * Collects the writes of process instances done within a single unit of work and
+ * flushes them to the remote cache at once using the async HotRod API.
+ * <p>
+ * Only the last write of every key is kept so the outcome for each key is the same
+ * as if the writes were performed one by one. Removes registered with {@link #removeLast(String)}
+ * are only sent once every other write of the batch completed successfully.
+ * <p>
+ * Actions registered with {@link #onFlushed(Runnable)}, such as updates of a near cache, only run
+ * once every write of the batch completed successfully.
+ */
+public class CacheWriteBatch {
+
+    private final Map<String, Write> writes = new LinkedHashMap<>();
+    private final List<Runnable> flushed = new ArrayList<>();
+
+    public void create(String id, String resolvedId, byte[] data) {
+        writes.put(resolvedId, new Write(Operation.CREATE, id, data));
+    }
+
+    public void update(String resolvedId, byte[] data) {
+        Write existing = writes.get(resolvedId);
+        if (existing != null && existing.operation == Operation.CREATE) {
+            // keep duplicate detection of the instance created in this batch
+            writes.put(resolvedId, new Write(Operation.CREATE, existing.id, data));
+        } else {
+            writes.put(resolvedId, new Write(Operation.UPDATE, resolvedId, data));
+        }
+    }
+
+    public void remove(String resolvedId) {
+        writes.put(resolvedId, new Write(Operation.REMOVE, resolvedId, null));
+    }
+
+    /**
+     * Stores data under given key unless another writer stored it first
+     * @param key key to write
+     * @param id id of the process instance the key belongs to
+     * @param data data to store
+     */
+    public void insert(String key, String id, byte[] data) {
+        writes.put(key, new Write(Operation.INSERT, id, data));
+    }
+
+    /**
+     * Removes given key once all other writes of this batch are successfully performed
+     * @param key key to remove
+     */
+    public void removeLast(String key) {
+        writes.put(key, new Write(Operation.REMOVE_LAST, key, null));
+    }
+
+    /**
+     * Registers an action to run after all writes of this batch are successfully flushed, it is dropped
+     * when the flush fails or the batch is never flushed
+     * @param action action to run
+     */
+    public void onFlushed(Runnable action) {
+        flushed.add(action);
+    }
+
+    /**
+     * Returns true if this batch holds a pending write for given process instance
+     * @param resolvedId resolved id of the process instance
+     * @return true if there is a pending create, update or remove for the instance
+     */
+    public boolean contains(String resolvedId) {
+        return writes.containsKey(resolvedId);
+    }
+
+    /**
+     * Returns data of the pending write of given process instance
+     * @param resolvedId resolved id of the process instance
+     * @return pending data or null if the process instance is going to be removed
+     */
+    public byte[] get(String resolvedId) {
+        Write write = writes.get(resolvedId);
+        return write == null ? null : write.data;
+    }
+
+    public Set<String> keys() {
+        return new LinkedHashSet<>(writes.keySet());
+    }
+
+    public boolean isEmpty() {
+        return writes.isEmpty();
+    }
+
+    public int size() {
+        return writes.size();
+    }
+
+    /**
+     * Sends all collected writes to the cache and waits for them to complete. Updates are sent
+     * with a single putAll while creates and removes are pipelined as individual async operations.
+     * Removes that must happen last are only sent once all of them succeeded.
+     *
+     * @param cache remote cache to write to
+     * @throws ProcessInstanceDuplicatedException in case any of the created process instances already exists
+     * @throws ProcessInstanceConflictException in case any of the inserted keys was already stored by another writer
+     */
+    public void flush(RemoteCache<String, byte[]> cache) {
+        List<Runnable> actions = new ArrayList<>(flushed);
+        flushed.clear();
+        if (writes.isEmpty()) {
+            actions.forEach(Runnable::run);
+            return;
+        }
+        Map<String, byte[]> updates = new LinkedHashMap<>();
+        List<CompletableFuture<?>> pending = new ArrayList<>();
+        List<String> duplicates = new ArrayList<>();
+        List<String> conflicts = new ArrayList<>();
+        List<String> removedLast = new ArrayList<>();
+
+        for (Map.Entry<String, Write> entry : writes.entrySet()) {
+            Write write = entry.getValue();
+            switch (write.operation) {
+                case CREATE:
+                    pending.add(cache.putIfAbsentAsync(entry.getKey(), write.data).thenAccept(existing -> {
+                        if (existing != null) {
+                            synchronized (duplicates) {
+                                duplicates.add(write.id);
+                            }
+                        }
+                    }));
+                    break;
+                case INSERT:
+                    pending.add(cache.putIfAbsentAsync(entry.getKey(), write.data).thenAccept(existing -> {
+                        if (existing != null) {
+                            synchronized (conflicts) {
+                                conflicts.add(write.id);
+                            }
+                        }
+                    }));
+                    break;
+                case UPDATE:
+                    updates.put(entry.getKey(), write.data);
+                    break;
+                case REMOVE:
+                    pending.add(cache.removeAsync(entry.getKey()));
+                    break;
+                case REMOVE_LAST:
+                    removedLast.add(entry.getKey());
+                    break;
+            }
+        }
+        if (!updates.isEmpty()) {
+            pending.add(cache.putAllAsync(updates));
+        }
+        writes.clear();
+
+        join(pending);
+        if (!duplicates.isEmpty()) {
+            throw new ProcessInstanceDuplicatedException(duplicates.get(0));
+        }
+        if (!conflicts.isEmpty()) {
+            throw new ProcessInstanceConflictException(conflicts.get(0));
+        }
+        if (!removedLast.isEmpty()) {
+            List<CompletableFuture<?>> removed = new ArrayList<>(removedLast.size());
+            removedLast.forEach(key -> removed.add(cache.removeAsync(key)));
+            join(removed);
+        }
+        actions.forEach(Runnable::run);
+    }
+
+    private static void join(List<CompletableFuture<?>> pending) {
+        try {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture[pending.size()])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private enum Operation {
+        CREATE,
+        UPDATE,
+        REMOVE,
+        INSERT,
+        REMOVE_LAST
+    }
+
+    private static class Write {
+
+        private final Operation operation;
+        private final String id;
+        private final byte[] data;
+
+        Write(Operation operation, String id, byte[] data) {
+            this.operation = operation;
+            this.id = id;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.kogito.infinispan;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.infinispan.client.hotrod.annotation.ClientCacheEntryCreated;
+import org.infinispan.client.hotrod.annotation.ClientCacheEntryExpired;
+import org.infinispan.client.hotrod.annotation.ClientCacheEntryModified;
+import org.infinispan.client.hotrod.annotation.ClientCacheEntryRemoved;
+import org.infinispan.client.hotrod.annotation.ClientCacheFailover;
+import org.infinispan.client.hotrod.annotation.ClientListener;
+import org.infinispan.client.hotrod.event.ClientCacheEntryCreatedEvent;
+import org.infinispan.client.hotrod.event.ClientCacheEntryExpiredEvent;
+import org.infinispan.client.hotrod.event.ClientCacheEntryModifiedEvent;
+import org.infinispan.client.hotrod.event.ClientCacheEntryRemovedEvent;
+import org.infinispan.client.hotrod.event.ClientCacheFailoverEvent;
+
+/**
+ * Size bounded, least recently used cache of marshalled process instances kept next to
+ * the remote cache. Entries are tagged with the version of the remote entry they were
+ * loaded from and are invalidated by HotRod client events whenever the remote entry changes
+ * to a version this node did not write.
+ * <p>
+ * Only the stored form of a process instance is cached, as its snapshot followed by its deltas,
+ * so every caller unmarshalls its own instance and changes that are never written, e.g. by an
+ * aborted unit of work, cannot leak to other callers.
+ * <p>
+ * When a process instance is stored under several keys, the key resolver maps every remote key
+ * to the resolved id of the process instance it belongs to.
+ */
+@ClientListener
+public class ProcessInstanceNearCache {
+
+    private static final long UNKNOWN_VERSION = -1;
+
+    private final Map<String, Entry> entries;
+    private final Function<String, String> keyResolver;
+    // number of events expected for writes performed by this node, per key
+    private final Map<String, Integer> ownWrites = new HashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ProcessInstanceNearCache(int maxSize) {
+        this(maxSize, Function.identity());
+    }
+
+    public ProcessInstanceNearCache(int maxSize, Function<String, String> keyResolver) {
+        this.keyResolver = keyResolver;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the stored form of the process instance
+     * @param resolvedId resolved id of the process instance
+     * @return unmodifiable list of the snapshot followed by the deltas, or null if not cached
+     */
+    public synchronized List<byte[]> get(String resolvedId) {
+        Entry entry = entries.get(resolvedId);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.parts;
+    }
+
+    /**
+     * Caches instance loaded from the remote cache
+     * @param resolvedId resolved id of the process instance
+     * @param parts snapshot followed by the deltas of the process instance
+     * @param version version of the remote entry the instance was loaded from
+     */
+    public synchronized void loaded(String resolvedId, List<byte[]> parts, long version) {
+        entries.put(resolvedId, new Entry(parts, version));
+    }
+
+    /**
+     * Caches snapshot written by this node, the remote event caused by the write will not invalidate it
+     * @param resolvedId resolved id of the process instance
+     * @param data written snapshot
+     */
+    public void written(String resolvedId, byte[] data) {
+        written(resolvedId, data, 1);
+    }
+
+    /**
+     * Caches snapshot written by this node using given number of remote writes, the remote events
+     * caused by those writes will not invalidate it
+     * @param resolvedId resolved id of the process instance
+     * @param data written snapshot
+     * @param writes number of remote writes, zero if they are going to be announced by {@link #expectWrites(String, int)}
+     */
+    public synchronized void written(String resolvedId, byte[] data, int writes) {
+        entries.put(resolvedId, new Entry(Collections.singletonList(data), UNKNOWN_VERSION));
+        expectWrites(resolvedId, writes);
+    }
+
+    /**
+     * Appends delta written by this node to the cached parts of the process instance. The entry is dropped
+     * when it does not hold exactly the parts the delta applies to.
+     * @param resolvedId resolved id of the process instance
+     * @param delta number of the written delta, starting at 1
+     * @param data written delta
+     */
+    public synchronized void deltaWritten(String resolvedId, int delta, byte[] data) {
+        Entry entry = entries.get(resolvedId);
+        if (entry == null) {
+            return;
+        }
+        if (entry.parts.size() != delta) {
+            entries.remove(resolvedId);
+            invalidations.incrementAndGet();
+            return;
+        }
+        List<byte[]> parts = new ArrayList<>(delta + 1);
+        parts.addAll(entry.parts);
+        parts.add(data);
+        entries.put(resolvedId, new Entry(parts, UNKNOWN_VERSION));
+    }
+
+    /**
+     * Announces remote writes this node is about to perform for given process instance
+     * @param resolvedId resolved id of the process instance
+     * @param writes number of remote writes
+     */
+    public synchronized void expectWrites(String resolvedId, int writes) {
+        if (writes > 0) {
+            ownWrites.merge(resolvedId, writes, Integer::sum);
+        }
+    }
+
+    public synchronized void invalidate(String resolvedId) {
+        if (entries.remove(resolvedId) != null) {
+            invalidations.incrementAndGet();
+        }
+        ownWrites.remove(resolvedId);
+    }
+
+    public synchronized void clear() {
+        invalidations.addAndGet(entries.size());
+        entries.clear();
+        ownWrites.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    @ClientCacheEntryCreated
+    public void onCreated(ClientCacheEntryCreatedEvent<String> event) {
+        changed(keyResolver.apply(event.getKey()), event.getVersion());
+    }
+
+    @ClientCacheEntryModified
+    public void onModified(ClientCacheEntryModifiedEvent<String> event) {
+        changed(keyResolver.apply(event.getKey()), event.getVersion());
+    }
+
+    @ClientCacheEntryRemoved
+    public void onRemoved(ClientCacheEntryRemovedEvent<String> event) {
+        String resolvedId = keyResolver.apply(event.getKey());
+        if (resolvedId.equals(event.getKey())) {
+            invalidate(resolvedId);
+        } else {
+            // one of the additional keys of a process instance that still exists
+            changed(resolvedId, UNKNOWN_VERSION);
+        }
+    }
+
+    @ClientCacheEntryExpired
+    public void onExpired(ClientCacheEntryExpiredEvent<String> event) {
+        invalidate(keyResolver.apply(event.getKey()));
+    }
+
+    @ClientCacheFailover
+    public void onFailover(ClientCacheFailoverEvent event) {
+        // events might have been missed
+        clear();
+    }
+
+    protected synchronized void changed(String resolvedId, long version) {
+        Integer pending = ownWrites.get(resolvedId);
+        if (pending != null) {
+            // event caused by a write of this node, remember the version it produced
+            if (pending > 1) {
+                ownWrites.put(resolvedId, pending - 1);
+            } else {
+                ownWrites.remove(resolvedId);
+            }
+            Entry entry = entries.get(resolvedId);
+            if (entry != null) {
+                entry.version = version;
+            }
+            return;
+        }
+        Entry entry = entries.get(resolvedId);
+        if (entry != null && entry.version != version) {
+            entries.remove(resolvedId);
+            invalidations.incrementAndGet();
+        }
+    }
+
+    private static class Entry {
+
+        private final List<byte[]> parts;
+        private long version;
+
+        Entry(List<byte[]> parts, long version) {
+            this.parts = Collections.unmodifiableList(parts);
+            this.version = version;
+        }
+    }
+}
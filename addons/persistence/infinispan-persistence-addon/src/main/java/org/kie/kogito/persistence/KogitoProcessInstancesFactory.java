@@ -38,7 +38,7 @@ public abstract class KogitoProcessInstancesFactory implements ProcessInstancesF
     
     public CacheProcessInstances createProcessInstances(Process<?> process) {
         List<?> marshallers = marshallers();
-        return new CacheProcessInstances(process, cacheManager, template(), proto(), marshallers.toArray(new MessageMarshaller<?>[marshallers.size()]));
+        return new CacheProcessInstances(process, cacheManager, template(), batchWrites(), nearCacheSize(), deltaCompaction(), proto(), marshallers.toArray(new MessageMarshaller<?>[marshallers.size()]));
     }
     
     public String proto() {
@@ -52,4 +52,16 @@ public abstract class KogitoProcessInstancesFactory implements ProcessInstancesF
     public String template() {
         return null;
     }
+    
+    public boolean batchWrites() {
+        return false;
+    }
+    
+    public int nearCacheSize() {
+        return 0;
+    }
+    
+    public int deltaCompaction() {
+        return 0;
+    }
 }
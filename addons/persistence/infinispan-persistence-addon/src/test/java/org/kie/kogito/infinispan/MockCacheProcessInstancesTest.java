@@ -23,16 +23,26 @@ import static org.kie.api.runtime.process.ProcessInstance.STATE_ERROR;
 
 import static org.mockito.Mockito.*;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import org.drools.core.io.impl.ClassPathResource;
 import org.infinispan.client.hotrod.RemoteCache;
 import org.infinispan.client.hotrod.RemoteCacheManager;
 import org.infinispan.client.hotrod.RemoteCacheManagerAdmin;
+import org.infinispan.client.hotrod.impl.MetadataValueImpl;
+import org.infinispan.commons.util.CloseableIteratorSetAdapter;
 import org.jbpm.process.instance.impl.Action;
 import org.jbpm.workflow.core.DroolsAction;
 import org.jbpm.workflow.core.WorkflowProcess;
@@ -43,13 +53,24 @@ import org.kie.api.definition.process.Node;
 import org.kie.api.runtime.process.ProcessContext;
 import org.kie.kogito.auth.SecurityPolicy;
 import org.kie.kogito.persistence.KogitoProcessInstancesFactory;
+import org.kie.kogito.process.ProcessConfig;
 import org.kie.kogito.process.ProcessError;
 import org.kie.kogito.process.ProcessInstance;
+import org.kie.kogito.process.ProcessInstanceConflictException;
+import org.kie.kogito.process.ProcessInstanceDuplicatedException;
 import org.kie.kogito.process.ProcessInstanceNotFoundException;
 import org.kie.kogito.process.WorkItem;
 import org.kie.kogito.process.bpmn2.BpmnProcess;
 import org.kie.kogito.process.bpmn2.BpmnVariables;
+import org.kie.kogito.process.impl.CachedWorkItemHandlerConfig;
+import org.kie.kogito.process.impl.DefaultProcessEventListenerConfig;
+import org.kie.kogito.process.impl.StaticProcessConfig;
 import org.kie.kogito.services.identity.StaticIdentityProvider;
+import org.kie.kogito.services.uow.CollectingUnitOfWorkFactory;
+import org.kie.kogito.services.uow.DefaultUnitOfWorkManager;
+import org.kie.kogito.uow.UnitOfWork;
+import org.kie.kogito.uow.UnitOfWorkManager;
+import org.mockito.InOrder;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
@@ -85,10 +106,35 @@ public class MockCacheProcessInstancesTest {
             public Object answer(InvocationOnMock invocation) throws Throwable {
                 Object key = invocation.getArgument(0, Object.class);
                 Object value = invocation.getArgument(1, Object.class);
-                return mockCache.put(key, value);
+                return mockCache.putIfAbsent(key, value);
+            }
+        });
+        
+        when(cache.putIfAbsentAsync(any(), any())).then(invocation -> CompletableFuture.completedFuture(mockCache.putIfAbsent(invocation.getArgument(0), invocation.getArgument(1))));
+        when(cache.putAllAsync(any())).then(invocation -> {
+            mockCache.putAll(invocation.getArgument(0));
+            return CompletableFuture.completedFuture(null);
+        });
+        when(cache.removeAsync(any())).then(invocation -> CompletableFuture.completedFuture(mockCache.remove(invocation.getArgument(0, Object.class))));
+        when(cache.remove(any())).then(invocation -> mockCache.remove(invocation.getArgument(0, Object.class)));
+        when(cache.getAll(any())).then(invocation -> {
+            Map<Object, Object> values = new HashMap<>();
+            for (Object key : invocation.getArgument(0, Set.class)) {
+                Object value = mockCache.get(key);
+                if (value != null) {
+                    values.put(key, value);
+                }
             }
+            return values;
         });
         
+        when(cache.getWithMetadata(any())).then(invocation -> {
+            Object value = mockCache.get(invocation.getArgument(0, Object.class));
+            return value == null ? null : new MetadataValueImpl<>(0, -1, 0, -1, value.hashCode(), value);
+        });
+        when(cache.containsKey(any())).then(invocation -> mockCache.containsKey(invocation.getArgument(0, Object.class)));
+        when(cache.keySet()).then(invocation -> new CloseableIteratorSetAdapter<>(new HashSet<>(mockCache.keySet())));
+        
         when(cache.get(any())).then(new Answer<Object>() {
 
             @Override
@@ -121,6 +167,314 @@ public class MockCacheProcessInstancesTest {
         assertThat(processInstance.status()).isEqualTo(STATE_COMPLETED);
     }
     
+    @Test
+    public void testBasicFlowWithBatchedWrites() {
+        
+        BpmnProcess process = (BpmnProcess) BpmnProcess.from(new ClassPathResource("BPMN2-UserTask.bpmn2")).get(0);
+        process.setProcessInstancesFactory(new CacheProcessInstancesFactory(cacheManager, true));
+        process.configure();
+                                     
+        ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(Collections.singletonMap("test", "test")));
+
+        processInstance.start();
+        assertThat(processInstance.status()).isEqualTo(STATE_ACTIVE);
+        assertThat(mockCache).hasSize(1);
+
+        WorkItem workItem = processInstance.workItems(SecurityPolicy.of(new StaticIdentityProvider("john"))).get(0);
+        assertThat(workItem).isNotNull();
+        processInstance.completeWorkItem(workItem.getId(), null, SecurityPolicy.of(new StaticIdentityProvider("john")));
+        assertThat(processInstance.status()).isEqualTo(STATE_COMPLETED);
+        assertThat(mockCache).isEmpty();
+    }
+    
+    @Test
+    public void testPendingWritesOfBatch() {
+        
+        UnitOfWorkManager unitOfWorkManager = new DefaultUnitOfWorkManager(new CollectingUnitOfWorkFactory());
+        ProcessConfig config = new StaticProcessConfig(new CachedWorkItemHandlerConfig(), new DefaultProcessEventListenerConfig(), unitOfWorkManager, null);
+        BpmnProcess process = (BpmnProcess) BpmnProcess.from(new ClassPathResource("BPMN2-UserTask.bpmn2"), config).get(0);
+        process.setProcessInstancesFactory(new CacheProcessInstancesFactory(cacheManager, true));
+        process.configure();
+        CacheProcessInstances instances = (CacheProcessInstances) process.instances();
+        
+        UnitOfWork unitOfWork = unitOfWorkManager.newUnitOfWork();
+        unitOfWork.start();
+        ProcessInstance<BpmnVariables> created = process.createInstance(BpmnVariables.create(Collections.singletonMap("test", "test")));
+        created.start();
+        // created within the unit of work, pending in its batch
+        instances.create(created.id(), created);
+        assertThat(mockCache).isEmpty();
+        assertThat(instances.exists(created.id())).isTrue();
+        assertThatThrownBy(() -> instances.create(created.id(), created)).isInstanceOf(ProcessInstanceDuplicatedException.class);
+        unitOfWork.abort();
+        assertThat(instances.exists(created.id())).isFalse();
+        
+        unitOfWork = unitOfWorkManager.newUnitOfWork();
+        unitOfWork.start();
+        ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(Collections.singletonMap("test", "test")));
+        processInstance.start();
+        unitOfWork.end();
+        assertThat(mockCache).hasSize(1);
+        assertThat(instances.exists(processInstance.id())).isTrue();
+        
+        unitOfWork = unitOfWorkManager.newUnitOfWork();
+        unitOfWork.start();
+        processInstance.abort();
+        instances.remove(processInstance.id());
+        assertThat(instances.exists(processInstance.id())).isFalse();
+        unitOfWork.abort();
+        assertThat(instances.exists(processInstance.id())).isTrue();
+    }
+    
+    @Test
+    public void testNearCache() {
+        
+        BpmnProcess process = (BpmnProcess) BpmnProcess.from(new ClassPathResource("BPMN2-UserTask.bpmn2")).get(0);
+        process.setProcessInstancesFactory(new CacheProcessInstancesFactory(cacheManager, false, 10));
+        process.configure();
+        ProcessInstanceNearCache nearCache = ((CacheProcessInstances) process.instances()).nearCache();
+                                     
+        ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(Collections.singletonMap("test", "test")));
+        processInstance.start();
+        assertThat(processInstance.status()).isEqualTo(STATE_ACTIVE);
+        
+        Optional<? extends ProcessInstance<BpmnVariables>> loaded = process.instances().findById(processInstance.id());
+        assertThat(loaded).isPresent();
+        // every caller gets its own instance unmarshalled from the cached form
+        assertThat(loaded.get()).isNotSameAs(processInstance);
+        assertThat(loaded.get().variables().toMap()).containsEntry("test", "test");
+        assertThat(nearCache.getHits()).isEqualTo(1);
+        
+        WorkItem workItem = processInstance.workItems(SecurityPolicy.of(new StaticIdentityProvider("john"))).get(0);
+        processInstance.completeWorkItem(workItem.getId(), null, SecurityPolicy.of(new StaticIdentityProvider("john")));
+        assertThat(processInstance.status()).isEqualTo(STATE_COMPLETED);
+        assertThat(nearCache.size()).isZero();
+        assertThat(process.instances().findById(processInstance.id())).isNotPresent();
+    }
+    
+    @Test
+    public void testNearCacheWithAbortedUnitOfWork() {
+        
+        UnitOfWorkManager unitOfWorkManager = new DefaultUnitOfWorkManager(new CollectingUnitOfWorkFactory());
+        ProcessConfig config = new StaticProcessConfig(new CachedWorkItemHandlerConfig(), new DefaultProcessEventListenerConfig(), unitOfWorkManager, null);
+        BpmnProcess process = (BpmnProcess) BpmnProcess.from(new ClassPathResource("BPMN2-UserTask.bpmn2"), config).get(0);
+        process.setProcessInstancesFactory(new CacheProcessInstancesFactory(cacheManager, true, 10));
+        process.configure();
+        ProcessInstanceNearCache nearCache = ((CacheProcessInstances) process.instances()).nearCache();
+        
+        UnitOfWork unitOfWork = unitOfWorkManager.newUnitOfWork();
+        unitOfWork.start();
+        ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(Collections.singletonMap("test", "test")));
+        processInstance.start();
+        unitOfWork.end();
+        assertThat(nearCache.size()).isEqualTo(1);
+        
+        unitOfWork = unitOfWorkManager.newUnitOfWork();
+        unitOfWork.start();
+        ProcessInstance<BpmnVariables> loaded = process.instances().findById(processInstance.id()).get();
+        loaded.updateVariables(BpmnVariables.create(Collections.singletonMap("test", "changed")));
+        assertThat(loaded.variables().toMap()).containsEntry("test", "changed");
+        unitOfWork.abort();
+        
+        // changes of the aborted unit of work are not visible to later callers
+        assertThat(process.instances().findById(processInstance.id()).get().variables().toMap()).containsEntry("test", "test");
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testNearCacheWithPendingBatch() throws Exception {
+        
+        UnitOfWorkManager unitOfWorkManager = new DefaultUnitOfWorkManager(new CollectingUnitOfWorkFactory());
+        ProcessConfig config = new StaticProcessConfig(new CachedWorkItemHandlerConfig(), new DefaultProcessEventListenerConfig(), unitOfWorkManager, null);
+        BpmnProcess process = (BpmnProcess) BpmnProcess.from(new ClassPathResource("BPMN2-UserTask.bpmn2"), config).get(0);
+        process.setProcessInstancesFactory(new CacheProcessInstancesFactory(cacheManager, true, 10));
+        process.configure();
+        CacheProcessInstances instances = (CacheProcessInstances) process.instances();
+        ProcessInstanceNearCache nearCache = instances.nearCache();
+        
+        UnitOfWork unitOfWork = unitOfWorkManager.newUnitOfWork();
+        unitOfWork.start();
+        ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(Collections.singletonMap("test", "test")));
+        processInstance.start();
+        unitOfWork.end();
+        assertThat(nearCache.size()).isEqualTo(1);
+        
+        RemoteCache<Object, Object> cache = cacheManager.administration().getOrCreateCache("", "");
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("cache unavailable"));
+        when(cache.putAllAsync(any())).thenReturn(failed);
+        
+        unitOfWork = unitOfWorkManager.newUnitOfWork();
+        unitOfWork.start();
+        ProcessInstance<BpmnVariables> loaded = process.instances().findById(processInstance.id()).get();
+        loaded.updateVariables(BpmnVariables.create(Collections.singletonMap("test", "changed")));
+        instances.update(loaded.id(), loaded);
+        // the queued write is only seen by its own unit of work
+        assertThat(process.instances().findById(processInstance.id()).get().variables().toMap()).containsEntry("test", "changed");
+        assertThat(CompletableFuture.supplyAsync(() -> process.instances().findById(processInstance.id()).get().variables().toMap()).get())
+                .containsEntry("test", "test");
+        assertThatThrownBy(unitOfWork::end).isInstanceOf(IllegalStateException.class);
+        
+        // the failed write never reached the near cache
+        assertThat(nearCache.size()).isZero();
+        assertThat(process.instances().findById(processInstance.id()).get().variables().toMap()).containsEntry("test", "test");
+    }
+    
+    @Test
+    public void testDeltaPersistence() {
+        
+        BpmnProcess process = (BpmnProcess) BpmnProcess.from(new ClassPathResource("BPMN2-UserTask.bpmn2")).get(0);
+        process.setProcessInstancesFactory(new CacheProcessInstancesFactory(cacheManager, false, 0, 2));
+        process.configure();
+        
+        ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(Collections.singletonMap("test", "test")));
+        processInstance.start();
+        assertThat(processInstance.status()).isEqualTo(STATE_ACTIVE);
+        String deltaPrefix = processInstance.id() + "#delta-";
+        
+        processInstance.updateVariables(BpmnVariables.create(Collections.singletonMap("test", "changed")));
+        assertThat(mockCache.keySet()).anyMatch(key -> ((String) key).startsWith(deltaPrefix));
+        assertThat(process.instances().findById(processInstance.id()).get().variables().toMap()).containsEntry("test", "changed");
+        
+        for (int i = 0; i < 3; i++) {
+            processInstance.updateVariables(BpmnVariables.create(Collections.singletonMap("test", "value" + i)));
+        }
+        // compacted at least once
+        assertThat(mockCache.keySet().stream().filter(key -> ((String) key).startsWith(deltaPrefix))).hasSizeLessThanOrEqualTo(2);
+        assertThat(process.instances().findById(processInstance.id()).get().variables().toMap()).containsEntry("test", "value2");
+        assertThat(process.instances().values()).hasSize(1);
+        assertThat(process.instances().values(0, 10)).hasSize(1);
+        
+        WorkItem workItem = processInstance.workItems(SecurityPolicy.of(new StaticIdentityProvider("john"))).get(0);
+        processInstance.completeWorkItem(workItem.getId(), null, SecurityPolicy.of(new StaticIdentityProvider("john")));
+        assertThat(processInstance.status()).isEqualTo(STATE_COMPLETED);
+        assertThat(mockCache).isEmpty();
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testCompactionWritesSnapshotBeforeRemovingDeltas() {
+        
+        BpmnProcess process = (BpmnProcess) BpmnProcess.from(new ClassPathResource("BPMN2-UserTask.bpmn2")).get(0);
+        process.setProcessInstancesFactory(new CacheProcessInstancesFactory(cacheManager, false, 0, 1));
+        process.configure();
+        RemoteCache<Object, Object> cache = cacheManager.administration().getOrCreateCache("", "");
+        
+        ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(Collections.singletonMap("test", "test")));
+        processInstance.start();
+        processInstance.updateVariables(BpmnVariables.create(Collections.singletonMap("test", "delta")));
+        String deltaPrefix = processInstance.id() + "#delta-";
+        assertThat(mockCache.keySet().stream().filter(key -> ((String) key).startsWith(deltaPrefix))).hasSize(1);
+        
+        clearInvocations(cache);
+        processInstance.updateVariables(BpmnVariables.create(Collections.singletonMap("test", "compacted")));
+        // the deltas of the replaced snapshot stay readable until the new snapshot is stored
+        InOrder inOrder = inOrder(cache);
+        inOrder.verify(cache).put(any(), any());
+        inOrder.verify(cache).removeAsync(argThat(key -> ((String) key).startsWith(deltaPrefix)));
+        assertThat(mockCache.keySet().stream().filter(key -> ((String) key).startsWith(deltaPrefix))).isEmpty();
+        assertThat(process.instances().findById(processInstance.id()).get().variables().toMap()).containsEntry("test", "compacted");
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testConcurrentDeltasConflict() {
+        
+        for (boolean batchWrites : new boolean[] {false, true}) {
+            BpmnProcess process = (BpmnProcess) BpmnProcess.from(new ClassPathResource("BPMN2-UserTask.bpmn2")).get(0);
+            process.setProcessInstancesFactory(new CacheProcessInstancesFactory(cacheManager, false, 0, 5));
+            process.configure();
+            
+            ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(Collections.singletonMap("test", "test")));
+            processInstance.start();
+            
+            // two nodes loaded the same state, both write their first delta on top of it
+            CacheProcessInstances instances = new CacheProcessInstancesFactory(cacheManager, batchWrites, 0, 5).createProcessInstances(process);
+            ProcessInstance<BpmnVariables> first = (ProcessInstance<BpmnVariables>) instances.findById(processInstance.id()).get();
+            ProcessInstance<BpmnVariables> second = (ProcessInstance<BpmnVariables>) instances.findById(processInstance.id()).get();
+            first.updateVariables(BpmnVariables.create(Collections.singletonMap("test", "first")));
+            instances.update(first.id(), first);
+            if (batchWrites) {
+                instances.flushWork().perform();
+            }
+            second.updateVariables(BpmnVariables.create(Collections.singletonMap("test", "second")));
+            assertThatThrownBy(() -> {
+                instances.update(second.id(), second);
+                if (batchWrites) {
+                    instances.flushWork().perform();
+                }
+            }).isInstanceOf(ProcessInstanceConflictException.class);
+            
+            ProcessInstance<BpmnVariables> loaded = (ProcessInstance<BpmnVariables>) instances.findById(processInstance.id()).get();
+            assertThat(loaded.variables().toMap()).containsEntry("test", "first");
+            mockCache.clear();
+        }
+    }
+    
+    @Test
+    public void testRemoveDeltasBeyondCompaction() {
+        
+        for (boolean batchWrites : new boolean[] {false, true}) {
+            BpmnProcess process = (BpmnProcess) BpmnProcess.from(new ClassPathResource("BPMN2-UserTask.bpmn2")).get(0);
+            process.setProcessInstancesFactory(new CacheProcessInstancesFactory(cacheManager, false, 0, 3));
+            process.configure();
+            
+            ProcessInstance<BpmnVariables> processInstance = process.createInstance(BpmnVariables.create(Collections.singletonMap("test", "test")));
+            processInstance.start();
+            for (int i = 0; i < 3; i++) {
+                processInstance.updateVariables(BpmnVariables.create(Collections.singletonMap("test", "value" + i)));
+            }
+            String deltaPrefix = processInstance.id() + "#delta-";
+            assertThat(mockCache.keySet().stream().filter(key -> ((String) key).startsWith(deltaPrefix))).hasSize(3);
+            
+            // compaction lowered since the deltas were written
+            CacheProcessInstances instances = new CacheProcessInstancesFactory(cacheManager, batchWrites, 0, 1).createProcessInstances(process);
+            instances.remove(processInstance.id());
+            if (batchWrites) {
+                instances.flushWork().perform();
+            }
+            assertThat(mockCache).isEmpty();
+        }
+    }
+    
+    @Test
+    public void testPagedValues() {
+        
+        BpmnProcess process = (BpmnProcess) BpmnProcess.from(new ClassPathResource("BPMN2-UserTask.bpmn2")).get(0);
+        process.setProcessInstancesFactory(new CacheProcessInstancesFactory(cacheManager));
+        process.configure();
+        
+        for (int i = 0; i < 3; i++) {
+            process.createInstance(BpmnVariables.create(Collections.singletonMap("test", "test"))).start();
+        }
+        
+        assertThat(process.instances().values(0, 2)).hasSize(2);
+        assertThat(process.instances().values(1, 2)).hasSize(1);
+        assertThat(process.instances().values(2, 2)).isEmpty();
+        assertThat(process.instances().values(0, 0)).isEmpty();
+        
+        // pages are ordered by id, so together they hold every instance exactly once
+        List<String> paged = new ArrayList<>();
+        for (int page = 0; page < 3; page++) {
+            process.instances().values(page, 1).forEach(pi -> paged.add(pi.id()));
+        }
+        List<String> all = process.instances().values().stream().map(pi -> pi.id()).sorted().collect(Collectors.toList());
+        assertThat(paged).containsExactlyElementsOf(all);
+        
+        // the same pages requested with the id of the last instance of the previous one
+        List<String> continued = new ArrayList<>();
+        String after = null;
+        for (int page = 0; page < 3; page++) {
+            Collection<? extends ProcessInstance<BpmnVariables>> instances = process.instances().valuesAfter(after, 1);
+            assertThat(instances).hasSize(1);
+            after = instances.iterator().next().id();
+            continued.add(after);
+        }
+        assertThat(continued).containsExactlyElementsOf(all);
+        assertThat(process.instances().valuesAfter(after, 1)).isEmpty();
+        assertThat(process.instances().valuesAfter(all.get(0), 5)).extracting(pi -> pi.id()).containsExactlyElementsOf(all.subList(1, 3));
+    }
+    
     @Test
     public void testBasicFlowNoActors() {
         
@@ -228,8 +582,42 @@ public class MockCacheProcessInstancesTest {
     
     private class CacheProcessInstancesFactory extends KogitoProcessInstancesFactory {
         
+        private final boolean batchWrites;
+        private final int nearCacheSize;
+        private final int deltaCompaction;
+        
         CacheProcessInstancesFactory(RemoteCacheManager cacheManager) {
+            this(cacheManager, false);
+        }
+        
+        CacheProcessInstancesFactory(RemoteCacheManager cacheManager, boolean batchWrites) {
+            this(cacheManager, batchWrites, 0);
+        }
+        
+        CacheProcessInstancesFactory(RemoteCacheManager cacheManager, boolean batchWrites, int nearCacheSize) {
+            this(cacheManager, batchWrites, nearCacheSize, 0);
+        }
+        
+        CacheProcessInstancesFactory(RemoteCacheManager cacheManager, boolean batchWrites, int nearCacheSize, int deltaCompaction) {
             super(cacheManager);
+            this.batchWrites = batchWrites;
+            this.nearCacheSize = nearCacheSize;
+            this.deltaCompaction = deltaCompaction;
+        }
+        
+        @Override
+        public boolean batchWrites() {
+            return batchWrites;
+        }
+        
+        @Override
+        public int nearCacheSize() {
+            return nearCacheSize;
+        }
+        
+        @Override
+        public int deltaCompaction() {
+            return deltaCompaction;
         }
 
         @Override
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.kogito.predictions.smile;
+
+/**
+ * {@link TrainingDataStore} keeping its columns in preallocated heap arrays.
+ */
+public class HeapTrainingDataStore extends TrainingDataStore {
+
+    private final double[][] columns;
+    private final int[] labels;
+
+    public HeapTrainingDataStore(int numAttributes, int capacity) {
+        super(numAttributes, capacity);
+        this.columns = new double[numAttributes][capacity];
+        this.labels = new int[capacity];
+    }
+
+    @Override
+    protected double readFeature(int column, int slot) {
+        return columns[column][slot];
+    }
+
+    @Override
+    protected void writeFeature(int column, int slot, double value) {
+        columns[column][slot] = value;
+    }
+
+    @Override
+    protected int readLabel(int slot) {
+        return labels[slot];
+    }
+
+    @Override
+    protected void writeLabel(int slot, int label) {
+        labels[slot] = label;
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.kogito.predictions.smile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link TrainingDataStore} keeping its columns in a memory-mapped file, so that a large
+ * training window does not add to heap pressure. The file starts with a header holding the
+ * layout and the position of the ring buffer, followed by one region per feature column and
+ * by the labels region. Observations stored in an existing file with the same layout are
+ * kept, so the training window survives restarts.
+ * <p>
+ * The observations hold the indexes of the values of nominal attributes, so the dictionaries
+ * mapping the values to their indexes are kept as well, in a file next to the mapped one with
+ * the {@value #VALUES_SUFFIX} suffix. Each value is appended to it as soon as it gets an index.
+ */
+public class MappedTrainingDataStore extends TrainingDataStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedTrainingDataStore.class);
+
+    private static final int MAGIC = 0x4b545244;
+    private static final int HEADER_BYTES = 32;
+    private static final int HEAD_OFFSET = 12;
+    private static final int SIZE_OFFSET = 16;
+    private static final int SEQUENCE_OFFSET = 24;
+
+    public static final String VALUES_SUFFIX = ".values";
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final DoubleBuffer[] columns;
+    private final IntBuffer labels;
+    private final FileChannel valuesChannel;
+    private final List<List<String>> values;
+
+    public MappedTrainingDataStore(int numAttributes, int capacity, Path file) {
+        super(numAttributes, capacity);
+        final long columnBytes = (long) capacity * Double.BYTES;
+        final long totalBytes = HEADER_BYTES + columnBytes * numAttributes + (long) capacity * Integer.BYTES;
+        if (totalBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Training data store of " + totalBytes + " bytes exceeds the maximum mappable size");
+        }
+        final boolean existing;
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            existing = channel.size() >= HEADER_BYTES;
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, totalBytes);
+            this.columns = new DoubleBuffer[numAttributes];
+            for (int column = 0; column < numAttributes; column++) {
+                columns[column] = region(buffer, HEADER_BYTES + column * columnBytes, columnBytes).asDoubleBuffer();
+            }
+            this.labels = region(buffer, HEADER_BYTES + numAttributes * columnBytes, (long) capacity * Integer.BYTES).asIntBuffer();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to map training data store file " + file, e);
+        }
+        boolean restored = existing && restore(numAttributes, capacity);
+        if (existing && !restored) {
+            logger.warn("Training data store file {} has a different layout, its observations are discarded", file);
+        }
+        final Path valuesFile = file.resolveSibling(file.getFileName() + VALUES_SUFFIX);
+        this.values = new ArrayList<>(numAttributes + 1);
+        try {
+            if (restored && !Files.exists(valuesFile)) {
+                logger.warn("Training data store file {} has no values file {}, its observations are discarded", file, valuesFile);
+                restored = false;
+            }
+            this.valuesChannel = FileChannel.open(valuesFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (restored) {
+                readValues(numAttributes);
+            } else {
+                valuesChannel.truncate(0);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open training data values file " + valuesFile, e);
+        }
+        if (!restored) {
+            restoreState(0, 0, 0);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, numAttributes);
+            buffer.putInt(8, capacity);
+            writeState(0, 0, 0);
+        }
+    }
+
+    private boolean restore(int numAttributes, int capacity) {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != numAttributes || buffer.getInt(8) != capacity) {
+            return false;
+        }
+        try {
+            restoreState(buffer.getInt(HEAD_OFFSET), buffer.getInt(SIZE_OFFSET), buffer.getLong(SEQUENCE_OFFSET));
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Loads the dictionaries, ignoring an incomplete last value left by a process stopped while appending it
+     */
+    private void readValues(int numAttributes) throws IOException {
+        for (int column = 0; column <= numAttributes; column++) {
+            values.add(new ArrayList<>());
+        }
+        final ByteBuffer content = ByteBuffer.allocate((int) valuesChannel.size());
+        while (content.hasRemaining() && valuesChannel.read(content, content.position()) >= 0) {
+            // read the whole file
+        }
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(content.array(), 0, content.position()));
+        long valid = 0;
+        try {
+            while (valid < content.position()) {
+                final int column = in.readInt();
+                final String value = in.readUTF();
+                if (column < 0 || column > numAttributes) {
+                    break;
+                }
+                values.get(column).add(value);
+                valid = content.position() - in.available();
+            }
+        } catch (EOFException e) {
+            logger.warn("Ignoring the incomplete last value of the training data values file");
+        }
+        valuesChannel.truncate(valid);
+        valuesChannel.position(valid);
+    }
+
+    private static ByteBuffer region(ByteBuffer buffer, long offset, long length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position((int) offset);
+        duplicate.limit((int) (offset + length));
+        return duplicate.slice();
+    }
+
+    @Override
+    protected double readFeature(int column, int slot) {
+        return columns[column].get(slot);
+    }
+
+    @Override
+    protected void writeFeature(int column, int slot, double value) {
+        columns[column].put(slot, value);
+    }
+
+    @Override
+    protected int readLabel(int slot) {
+        return labels.get(slot);
+    }
+
+    @Override
+    protected void writeLabel(int slot, int label) {
+        labels.put(slot, label);
+    }
+
+    @Override
+    protected void writeState(int head, int size, long sequence) {
+        buffer.putInt(HEAD_OFFSET, head);
+        buffer.putInt(SIZE_OFFSET, size);
+        buffer.putLong(SEQUENCE_OFFSET, sequence);
+    }
+
+    @Override
+    protected void writeValue(int column, String value) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(column);
+            out.writeUTF(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final ByteBuffer entry = ByteBuffer.wrap(bytes.toByteArray());
+        try {
+            while (entry.hasRemaining()) {
+                valuesChannel.write(entry);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write training data value " + value, e);
+        }
+    }
+
+    @Override
+    public List<String> getValues(int column) {
+        return column < values.size() ? Collections.unmodifiableList(values.get(column)) : Collections.emptyList();
+    }
+
+    @Override
+    protected void release() {
+        try {
+            buffer.force();
+            channel.close();
+            valuesChannel.force(false);
+            valuesChannel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            unmap(buffer);
+        }
+    }
+
+    /**
+     * Unmaps the buffer right away instead of waiting for it to be garbage collected, which keeps
+     * the file mapped (and locked on some platforms) for an unbounded time. The buffer and its
+     * views must not be accessed afterwards.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner;
+            try {
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            } catch (NoSuchMethodException e) {
+                invokeCleaner = null;
+            }
+            if (invokeCleaner != null) {
+                final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            } else {
+                // Java 8
+                final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                final Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.debug("Unable to unmap training data store, it is released when garbage collected", e);
+        }
+    }
+}
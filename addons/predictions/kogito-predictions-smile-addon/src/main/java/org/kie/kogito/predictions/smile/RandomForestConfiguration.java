@@ -20,10 +20,16 @@ import java.util.Map;
 
 public class RandomForestConfiguration {
 
+    public static final int DEFAULT_MAX_OBSERVATIONS = 10000;
+
     private String outcomeName;
     private AttributeType outcomeType;
     private double confidenceThreshold;
     private int numTrees;
+    private int retrainObservations = 1;
+    private long retrainInterval;
+    private int maxObservations = DEFAULT_MAX_OBSERVATIONS;
+    private String trainingDataFile;
     private Map<String, AttributeType> inputFeatures = new HashMap<>();
 
     public int getNumTrees() {
@@ -73,6 +79,60 @@ public class RandomForestConfiguration {
         this.confidenceThreshold = confidenceThreshold;
     }
 
+    /**
+     * Returns the number of new observations that triggers a background retrain of the model
+     *
+     * @return The number of observations, or 0 to disable observation based retraining
+     */
+    public int getRetrainObservations() {
+        return retrainObservations;
+    }
+
+    public void setRetrainObservations(int retrainObservations) {
+        this.retrainObservations = retrainObservations;
+    }
+
+    /**
+     * Returns the maximum age of the model before it is retrained in the background,
+     * provided new observations are available
+     *
+     * @return The retrain interval in seconds, or 0 to disable time based retraining
+     */
+    public long getRetrainInterval() {
+        return retrainInterval;
+    }
+
+    public void setRetrainInterval(long retrainInterval) {
+        this.retrainInterval = retrainInterval;
+    }
+
+    /**
+     * Returns the size of the sliding window of observations used for training,
+     * older observations are discarded once it is full
+     *
+     * @return The maximum number of observations kept
+     */
+    public int getMaxObservations() {
+        return maxObservations;
+    }
+
+    public void setMaxObservations(int maxObservations) {
+        this.maxObservations = maxObservations;
+    }
+
+    /**
+     * Returns the path of the file used to memory-map training data instead of keeping it on heap
+     *
+     * @return The training data file path, or {@code null} to keep training data on heap
+     */
+    public String getTrainingDataFile() {
+        return trainingDataFile;
+    }
+
+    public void setTrainingDataFile(String trainingDataFile) {
+        this.trainingDataFile = trainingDataFile;
+    }
+
     public Map<String, AttributeType> getInputFeatures() {
         return inputFeatures;
     }
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.predictions.smile;
+
+import smile.classification.RandomForest;
+
+/**
+ * Immutable snapshot of a trained random forest together with the
+ * information needed to run inference against it.
+ */
+public class RandomForestModel {
+
+    private final RandomForest forest;
+    private final int[] classLabels;
+    private final long observations;
+    private final long trainedAt;
+
+    public RandomForestModel(RandomForest forest, int[] classLabels, long observations) {
+        this.forest = forest;
+        this.classLabels = classLabels;
+        this.observations = observations;
+        this.trainedAt = System.currentTimeMillis();
+    }
+
+    public RandomForest getForest() {
+        return forest;
+    }
+
+    /**
+     * Returns the number of distinct outcomes the model was trained with
+     *
+     * @return The number of classes known to the model
+     */
+    public int getNumClasses() {
+        return classLabels.length;
+    }
+
+    /**
+     * Maps a class index predicted by the forest back to the encoded outcome label
+     *
+     * @param classIndex The predicted class index
+     * @return The encoded outcome label
+     */
+    public int getClassLabel(int classIndex) {
+        return classLabels[classIndex];
+    }
+
+    /**
+     * Returns the total number of observations received when the model was trained
+     *
+     * @return The number of observations at training time
+     */
+    public long getObservations() {
+        return observations;
+    }
+
+    public long getTrainedAt() {
+        return trainedAt;
+    }
+
+    /**
+     * Returns the time elapsed since this model was trained
+     *
+     * @return The model age in milliseconds
+     */
+    public long getAge() {
+        return System.currentTimeMillis() - trainedAt;
+    }
+}
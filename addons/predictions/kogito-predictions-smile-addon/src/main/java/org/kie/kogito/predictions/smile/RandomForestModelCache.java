@@ -0,0 +1,208 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.predictions.smile;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds the currently trained {@link RandomForestModel} and rebuilds it in the background
+ * according to the configured retrain policy. A new model replaces the previous one atomically,
+ * so callers of {@link #get()} never wait for training once the first model is available.
+ * <p>
+ * A retrain is triggered when at least {@code retrainObservations} new observations arrived since
+ * the current model was built, or when there is any new observation and the current model is older
+ * than {@code retrainInterval} seconds. Only one retrain runs at a time.
+ */
+public class RandomForestModelCache implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RandomForestModelCache.class);
+
+    private final Supplier<RandomForestModel> trainer;
+    private final int retrainObservations;
+    private final long retrainIntervalMillis;
+    private final ExecutorService executor;
+
+    private final AtomicReference<RandomForestModel> model = new AtomicReference<>();
+    private final AtomicLong observations = new AtomicLong();
+    private final AtomicBoolean retraining = new AtomicBoolean();
+
+    private final AtomicLong retrainCount = new AtomicLong();
+    private volatile long lastRetrainDuration;
+
+    public RandomForestModelCache(Supplier<RandomForestModel> trainer, int retrainObservations, long retrainIntervalSeconds) {
+        this(trainer, retrainObservations, retrainIntervalSeconds, 0);
+    }
+
+    /**
+     * @param observations The number of observations already in the training data, e.g. restored from a previous run,
+     *                     which the observations of the trained models are compared with
+     */
+    public RandomForestModelCache(Supplier<RandomForestModel> trainer, int retrainObservations, long retrainIntervalSeconds, long observations) {
+        this.trainer = trainer;
+        this.observations.set(observations);
+        this.retrainObservations = retrainObservations;
+        this.retrainIntervalMillis = TimeUnit.SECONDS.toMillis(retrainIntervalSeconds);
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "kogito-predictions-retrain");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Records that a new observation was added to the training data, possibly triggering
+     * a background retrain.
+     */
+    public void observationAdded() {
+        observations.incrementAndGet();
+        RandomForestModel current = model.get();
+        if (current != null && isStale(current)) {
+            scheduleRetrain();
+        }
+    }
+
+    /**
+     * Returns the current model. The very first model is trained on the calling thread,
+     * any later one is built in the background while the previous model keeps being served.
+     *
+     * @return The current model or {@code null} if there is not enough data to train one
+     */
+    public RandomForestModel get() {
+        RandomForestModel current = model.get();
+        if (current == null) {
+            return trainInitialModel();
+        }
+        if (isStale(current)) {
+            scheduleRetrain();
+        }
+        return current;
+    }
+
+    /**
+     * Returns the number of observations received since the current model was trained
+     *
+     * @return The number of observations not yet reflected in the model
+     */
+    public long getPendingObservations() {
+        RandomForestModel current = model.get();
+        return observations.get() - (current == null ? 0 : current.getObservations());
+    }
+
+    /**
+     * Returns the age of the current model
+     *
+     * @return The model age in milliseconds, or -1 if no model has been trained yet
+     */
+    public long getModelAge() {
+        RandomForestModel current = model.get();
+        return current == null ? -1 : current.getAge();
+    }
+
+    /**
+     * Returns how long the last retrain took
+     *
+     * @return The duration of the last retrain in milliseconds
+     */
+    public long getLastRetrainDuration() {
+        return lastRetrainDuration;
+    }
+
+    public long getRetrainCount() {
+        return retrainCount.get();
+    }
+
+    public boolean isRetraining() {
+        return retraining.get();
+    }
+
+    /**
+     * Stops the background retrain thread. The current model keeps being served, but it is
+     * no longer retrained.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    @Override
+    public void close() {
+        shutdown();
+    }
+
+    protected boolean isStale(RandomForestModel current) {
+        long pending = observations.get() - current.getObservations();
+        if (pending <= 0) {
+            return false;
+        }
+        return (retrainObservations > 0 && pending >= retrainObservations)
+                || (retrainIntervalMillis > 0 && current.getAge() >= retrainIntervalMillis);
+    }
+
+    private synchronized RandomForestModel trainInitialModel() {
+        RandomForestModel current = model.get();
+        if (current == null) {
+            current = retrain();
+        }
+        return current;
+    }
+
+    private void scheduleRetrain() {
+        if (executor.isShutdown()) {
+            return;
+        }
+        if (retraining.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        retrain();
+                    } catch (Exception e) {
+                        logger.error("Unable to retrain prediction model", e);
+                    } finally {
+                        retraining.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // shut down concurrently, keep serving the current model
+                retraining.set(false);
+            }
+        }
+    }
+
+    private RandomForestModel retrain() {
+        long start = System.currentTimeMillis();
+        RandomForestModel trained = trainer.get();
+        if (trained != null) {
+            lastRetrainDuration = System.currentTimeMillis() - start;
+            retrainCount.incrementAndGet();
+            model.set(trained);
+            logger.debug("Prediction model retrained with {} observations in {} ms", trained.getObservations(), lastRetrainDuration);
+        }
+        return trained;
+    }
+}
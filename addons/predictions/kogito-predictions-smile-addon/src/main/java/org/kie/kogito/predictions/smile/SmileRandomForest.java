@@ -1,13 +1,12 @@
 package org.kie.kogito.predictions.smile;
 
+import java.nio.file.Paths;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
 
 import org.kie.api.runtime.process.WorkItem;
 import org.kie.kogito.prediction.api.PredictionOutcome;
@@ -17,36 +16,45 @@ import org.slf4j.LoggerFactory;
 
 import smile.classification.RandomForest;
 import smile.data.Attribute;
-import smile.data.AttributeDataset;
 import smile.data.NominalAttribute;
 import smile.data.NumericAttribute;
 import smile.data.StringAttribute;
 
-public class SmileRandomForest extends AbstractPredictionEngine implements PredictionService {
+/**
+ * {@link PredictionService} backed by a Smile random forest. The service owns a background retrain
+ * thread and, depending on the configuration, a memory-mapped training data file: it must be closed
+ * together with the component that created it, e.g. as the dispose or destroy method of the bean producing it.
+ */
+public class SmileRandomForest extends AbstractPredictionEngine implements PredictionService, AutoCloseable {
 
     public static final String IDENTIFIER = "SMILERandomForest";
     private static final String UNABLE_PARSE_TEXT = "Unable to parse text";
     private static final Logger logger = LoggerFactory.getLogger(SmileRandomForest.class);
     
     
-    private final AttributeDataset dataset;
+    private final TrainingDataStore trainingData;
     private final Map<String, Attribute> smileAttributes;
+    private final Attribute[] attributes;
     private final Attribute outcomeAttribute;
     private final AttributeType outcomeAttributeType;
     private final int numAttributes;
     private final int numberTrees;
+    private final RandomForestModelCache modelCache;
+    // number of values in the dictionary of each nominal attribute, the outcome last
+    private final int[] dictionarySizes;
     protected List<String> attributeNames = new ArrayList<>();
     
-    private Set<String> outcomeSet = new HashSet<>();
     private static final int MINIMUM_OBSERVATIONS = 1200;
-    private int observations = 0;
 
     public SmileRandomForest(RandomForestConfiguration configuration) {
         this(configuration.getInputFeatures(),
                 configuration.getOutcomeName(),
                 configuration.getOutcomeType(),
                 configuration.getConfidenceThreshold(),
-                configuration.getNumTrees());
+                configuration.getNumTrees(),
+                configuration.getRetrainObservations(),
+                configuration.getRetrainInterval(),
+                createTrainingDataStore(configuration));
     }
 
     public SmileRandomForest(Map<String, AttributeType> inputFeatures,
@@ -54,6 +62,18 @@ public class SmileRandomForest extends AbstractPredictionEngine implements Predi
                              AttributeType outputFeatureType,
                              double confidenceThreshold,
                              int numberTrees) {
+        this(inputFeatures, outputFeatureName, outputFeatureType, confidenceThreshold, numberTrees, 1, 0,
+             new HeapTrainingDataStore(inputFeatures.size(), RandomForestConfiguration.DEFAULT_MAX_OBSERVATIONS));
+    }
+
+    public SmileRandomForest(Map<String, AttributeType> inputFeatures,
+                             String outputFeatureName,
+                             AttributeType outputFeatureType,
+                             double confidenceThreshold,
+                             int numberTrees,
+                             int retrainObservations,
+                             long retrainInterval,
+                             TrainingDataStore trainingData) {
         super(inputFeatures, outputFeatureName, outputFeatureType, confidenceThreshold);
         this.numberTrees = numberTrees;
         smileAttributes = new HashMap<>();
@@ -64,12 +84,59 @@ public class SmileRandomForest extends AbstractPredictionEngine implements Predi
             attributeNames.add(name);
         }
         numAttributes = smileAttributes.size();
+        attributes = new Attribute[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            attributes[i] = smileAttributes.get(attributeNames.get(i));
+        }
         outcomeAttribute = createAttribute(outputFeatureName, outputFeatureType);
         outcomeAttributeType = outputFeatureType;
-        
-        dataset = new AttributeDataset("dataset", smileAttributes.values().toArray(new Attribute[numAttributes]), outcomeAttribute);
+
+        this.trainingData = trainingData;
+        dictionarySizes = new int[numAttributes + 1];
+        restoreDictionaries();
+        modelCache = new RandomForestModelCache(this::trainModel, retrainObservations, retrainInterval, trainingData.getSequence());
+    }
+
+
+    private static TrainingDataStore createTrainingDataStore(RandomForestConfiguration configuration) {
+        final int numAttributes = configuration.getInputFeatures().size();
+        if (configuration.getTrainingDataFile() != null) {
+            return new MappedTrainingDataStore(numAttributes, configuration.getMaxObservations(), Paths.get(configuration.getTrainingDataFile()));
+        }
+        return new HeapTrainingDataStore(numAttributes, configuration.getMaxObservations());
+    }
+
+    /**
+     * Gives the values of the nominal attributes back the indexes they had when the restored observations were stored
+     */
+    private void restoreDictionaries() {
+        for (int column = 0; column <= numAttributes; column++) {
+            final Attribute attribute = column < numAttributes ? attributes[column] : outcomeAttribute;
+            for (String value : trainingData.getValues(column)) {
+                try {
+                    if ((int) attribute.valueOf(value) != dictionarySizes[column]) {
+                        throw new IllegalStateException("Value " + value + " of attribute " + attribute.getName() + " appears twice in the restored dictionary");
+                    }
+                } catch (ParseException e) {
+                    throw new IllegalStateException("Unable to restore value " + value + " of attribute " + attribute.getName(), e);
+                }
+                dictionarySizes[column]++;
+            }
+        }
     }
 
+    /**
+     * Encodes a value of an attribute, recording it in the training data when it is added to the dictionary of the attribute.
+     * Must be invoked holding the lock of the attribute.
+     */
+    private double encode(int column, Attribute attribute, String value) throws ParseException {
+        final double encoded = attribute.valueOf(value);
+        if (!(attribute instanceof NumericAttribute) && (int) encoded == dictionarySizes[column]) {
+            dictionarySizes[column]++;
+            trainingData.addValue(column, value);
+        }
+        return encoded;
+    }
 
     protected Attribute createAttribute(String name, AttributeType type) {
         if (type == AttributeType.NOMINAL || type == AttributeType.BOOLEAN) {
@@ -94,29 +161,51 @@ public class SmileRandomForest extends AbstractPredictionEngine implements Predi
     }
 
     /**
-     * Add the data provided as a map to a Smile {@link smile.data.Dataset}.
+     * Add the data provided as a map to the bounded {@link TrainingDataStore}.
      *
      * @param data    A map containing the input attribute names as keys and the attribute values as values.
      * @param outcome The value of the outcome (output data).
      */
     public void addData(Map<String, Object> data, Object outcome) {
-        final double[] features = new double[numAttributes];
-        int i = 0;
-        for (Entry<String, Attribute> entry : smileAttributes.entrySet()) {
-            try {
-                features[i] = smileAttributes.get(entry.getKey()).valueOf(data.get(entry.getKey()).toString());
-            } catch (ParseException e) {
-                logger.error(UNABLE_PARSE_TEXT, e);
-            }
-            i++;
-        }
+        final double[] features = buildFeatures(data);
+        final int label;
         try {
-            final String outcomeStr = outcome.toString();
-            outcomeSet.add(outcomeStr);
-            dataset.add(features, outcomeAttribute.valueOf(outcomeStr));
+            synchronized (outcomeAttribute) {
+                label = (int) encode(numAttributes, outcomeAttribute, outcome.toString());
+            }
         } catch (ParseException e) {
             logger.error(UNABLE_PARSE_TEXT, e);
+            return;
+        }
+        trainingData.add(features, label);
+        modelCache.observationAdded();
+    }
+
+    /**
+     * Train a new random forest from a snapshot of the current training data.
+     *
+     * @return The trained model or {@code null} if fewer than two distinct outcomes are available
+     */
+    protected RandomForestModel trainModel() {
+        final TrainingDataSnapshot snapshot = trainingData.snapshot();
+        if (snapshot.getNumClasses() < 2) {
+            return null;
         }
+        final RandomForest forest = new RandomForest(attributes, snapshot.getFeatures(), snapshot.getClassIndexes(), this.numberTrees);
+        return new RandomForestModel(forest, snapshot.getClassLabels(), snapshot.getSequence());
+    }
+
+    public TrainingDataStore getTrainingData() {
+        return trainingData;
+    }
+
+    /**
+     * Returns the cache holding the trained model, which exposes retrain metrics
+     *
+     * @return The model cache
+     */
+    public RandomForestModelCache getModelCache() {
+        return modelCache;
     }
 
     /**
@@ -127,12 +216,14 @@ public class SmileRandomForest extends AbstractPredictionEngine implements Predi
      */
     protected double[] buildFeatures(Map<String, Object> data) {
         final double[] features = new double[numAttributes];
-        for (int i = 0; i < numAttributes; i++) {
-            final String attrName = attributeNames.get(i);
-            try {
-                features[i] = smileAttributes.get(attrName).valueOf(data.get(attrName).toString());
-            } catch (ParseException e) {
-                logger.error(UNABLE_PARSE_TEXT, e);
+        synchronized (attributes) {
+            for (int i = 0; i < numAttributes; i++) {
+                final String attrName = attributeNames.get(i);
+                try {
+                    features[i] = encode(i, attributes[i], data.get(attrName).toString());
+                } catch (ParseException e) {
+                    logger.error(UNABLE_PARSE_TEXT, e);
+                }
             }
         }
         return features;
@@ -158,24 +249,27 @@ public class SmileRandomForest extends AbstractPredictionEngine implements Predi
     @Override
     public PredictionOutcome predict(WorkItem task, Map<String, Object> inputData) {
         logger.debug("Predicting with input data: {}", inputData);
-        RandomForest model = null;
+        final long observations = trainingData.getSequence();
         if (observations > MINIMUM_OBSERVATIONS) {
             this.confidenceThreshold = 0.75;
         }
 
         Map<String, Object> outcomes = new HashMap<>();
-        if (outcomeSet.size() >= 2) {
-            model = new RandomForest(dataset, this.numberTrees);
+        final RandomForestModel model = modelCache.get();
+        if (model != null) {
             final double[] features = buildFeatures(inputData);
-            final double[] posteriori = new double[outcomeSet.size()];
-            double prediction = model.predict(features, posteriori);
+            final double[] posteriori = new double[model.getNumClasses()];
+            final int prediction = model.getForest().predict(features, posteriori);
 
-            String predictionStr = dataset.responseAttribute().toString(prediction);
+            String predictionStr;
+            synchronized (outcomeAttribute) {
+                predictionStr = outcomeAttribute.toString(model.getClassLabel(prediction));
+            }
             outcomes.put(outcomeAttribute.getName(), convertValue(predictionStr, outcomeAttributeType));
-            final double confidence = posteriori[(int) prediction];
+            final double confidence = posteriori[prediction];
             outcomes.put("confidence", confidence);
 
-            logger.debug("task id {}, total {} observations, prediction = {}, confidence = {} (threshold = {})", task.getId(), this.observations, predictionStr, confidence, this.confidenceThreshold);
+            logger.debug("task id {}, total {} observations, prediction = {}, confidence = {} (threshold = {})", task.getId(), observations, predictionStr, confidence, this.confidenceThreshold);
 
             return new PredictionOutcome(confidence, this.confidenceThreshold, outcomes);
         } else {
@@ -195,8 +289,16 @@ public class SmileRandomForest extends AbstractPredictionEngine implements Predi
     public void train(WorkItem task, Map<String, Object> inputData, Map<String, Object> outputData) {
         logger.debug("Training with input data: {}", inputData);
         logger.debug("Training with output data: {}", outputData);
-        this.observations += 1;
 
         addData(inputData, outputData.get(outcomeAttribute.getName()));
     }
+
+    /**
+     * Stops the background retraining and releases the training data store.
+     */
+    @Override
+    public void close() {
+        modelCache.shutdown();
+        trainingData.close();
+    }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.kogito.predictions.smile;
+
+import java.util.Arrays;
+
+/**
+ * Row oriented copy of the observations held by a {@link TrainingDataStore}.
+ * <p>
+ * Outcome labels are remapped to the dense range {@code 0..k-1} required by Smile classifiers,
+ * since the sliding window may no longer contain every outcome ever observed.
+ * {@link #getClassLabel(int)} maps a class index back to the original outcome label.
+ */
+public class TrainingDataSnapshot {
+
+    private final double[][] features;
+    private final int[] classIndexes;
+    private final int[] classLabels;
+    private final long sequence;
+
+    public TrainingDataSnapshot(double[][] features, int[] labels, long sequence) {
+        this.features = features;
+        this.sequence = sequence;
+        this.classLabels = Arrays.stream(labels).distinct().sorted().toArray();
+        this.classIndexes = new int[labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            classIndexes[i] = Arrays.binarySearch(classLabels, labels[i]);
+        }
+    }
+
+    public double[][] getFeatures() {
+        return features;
+    }
+
+    /**
+     * Returns the class index of each observation, in the range {@code 0..getNumClasses()-1}
+     *
+     * @return The class indexes, one per observation
+     */
+    public int[] getClassIndexes() {
+        return classIndexes;
+    }
+
+    public int[] getClassLabels() {
+        return classLabels;
+    }
+
+    public int getNumClasses() {
+        return classLabels.length;
+    }
+
+    /**
+     * Returns the total number of observations added to the store when this snapshot was taken
+     *
+     * @return The store sequence at snapshot time
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int size() {
+        return features.length;
+    }
+}
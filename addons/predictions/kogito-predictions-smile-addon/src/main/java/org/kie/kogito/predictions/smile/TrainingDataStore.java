@@ -0,0 +1,221 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.kogito.predictions.smile;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bounded store for training observations. Features are kept column by column as primitive
+ * doubles in a ring buffer, so once the store is full the oldest observation is overwritten
+ * by the newest one and memory usage stays constant.
+ * <p>
+ * All operations are thread safe: observations can be added concurrently while a snapshot
+ * is taken for training.
+ */
+public abstract class TrainingDataStore implements Closeable {
+
+    protected final int numAttributes;
+    protected final int capacity;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int head;
+    private int size;
+    private long sequence;
+    private boolean closed;
+
+    protected TrainingDataStore(int numAttributes, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Training data store capacity must be positive, was " + capacity);
+        }
+        this.numAttributes = numAttributes;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds an observation, evicting the oldest one if the store is full.
+     *
+     * @param features The encoded features, one value per attribute
+     * @param label    The encoded outcome
+     * @return The total number of observations added so far
+     */
+    public long add(double[] features, int label) {
+        if (features.length != numAttributes) {
+            throw new IllegalArgumentException("Expected " + numAttributes + " features, got " + features.length);
+        }
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            for (int column = 0; column < numAttributes; column++) {
+                writeFeature(column, head, features[column]);
+            }
+            writeLabel(head, label);
+            head = (head + 1) % capacity;
+            if (size < capacity) {
+                size++;
+            }
+            sequence++;
+            writeState(head, size, sequence);
+            return sequence;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the observations currently in the window, oldest first, into a row oriented
+     * snapshot suitable for training.
+     *
+     * @return A consistent snapshot of the store
+     */
+    public TrainingDataSnapshot snapshot() {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            final double[][] features = new double[size][numAttributes];
+            final int[] labels = new int[size];
+            final int start = size < capacity ? 0 : head;
+            for (int row = 0; row < size; row++) {
+                final int slot = (start + row) % capacity;
+                for (int column = 0; column < numAttributes; column++) {
+                    features[row][column] = readFeature(column, slot);
+                }
+                labels[row] = readLabel(slot);
+            }
+            return new TrainingDataSnapshot(features, labels, sequence);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the total number of observations added to the store, including evicted ones
+     *
+     * @return The number of observations added so far
+     */
+    public long getSequence() {
+        lock.readLock().lock();
+        try {
+            return sequence;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records the value of a nominal column that was encoded with the next index of its dictionary, so that
+     * the encoding of the observations can be restored together with them. The labels are column {@code numAttributes}.
+     *
+     * @param column The column of the value
+     * @param value  The value added to the dictionary of the column
+     */
+    public void addValue(int column, String value) {
+        lock.writeLock().lock();
+        try {
+            if (!closed) {
+                writeValue(column, value);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the values of the dictionary of a nominal column recorded by a previous run, in index order
+     *
+     * @param column The column, {@code numAttributes} for the labels
+     * @return The values of the restored dictionary, empty if none was restored
+     */
+    public List<String> getValues(int column) {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Releases the resources held by the store, which cannot be used afterwards.
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (!closed) {
+                closed = true;
+                release();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the position of the ring buffer, for stores whose content was loaded from a previous run.
+     * Must be invoked by the subclass constructor only.
+     */
+    protected void restoreState(int head, int size, long sequence) {
+        if (head < 0 || head >= capacity || size < 0 || size > capacity || sequence < size) {
+            throw new IllegalArgumentException("Invalid training data store state: head " + head + ", size " + size + ", sequence " + sequence);
+        }
+        this.head = head;
+        this.size = size;
+        this.sequence = sequence;
+    }
+
+    /**
+     * Invoked after each added observation, while holding the write lock, with the new position of the ring buffer
+     */
+    protected void writeState(int head, int size, long sequence) {
+        // not kept by default
+    }
+
+    /**
+     * Invoked for each value added to the dictionary of a nominal column, while holding the write lock
+     */
+    protected void writeValue(int column, String value) {
+        // not kept by default
+    }
+
+    protected void release() {
+        // nothing to release by default
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Training data store is closed");
+        }
+    }
+
+    protected abstract double readFeature(int column, int slot);
+
+    protected abstract void writeFeature(int column, int slot, double value);
+
+    protected abstract int readLabel(int slot);
+
+    protected abstract void writeLabel(int slot, int label);
+}
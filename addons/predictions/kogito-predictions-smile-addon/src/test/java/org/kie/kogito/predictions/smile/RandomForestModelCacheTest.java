@@ -0,0 +1,101 @@
+package org.kie.kogito.predictions.smile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class RandomForestModelCacheTest {
+
+    private final AtomicLong observations = new AtomicLong();
+    private final AtomicInteger trainings = new AtomicInteger();
+
+    private RandomForestModel train() {
+        trainings.incrementAndGet();
+        return new RandomForestModel(null, new int[]{0, 1}, observations.get());
+    }
+
+    private void observe(RandomForestModelCache cache, int count) {
+        for (int i = 0; i < count; i++) {
+            observations.incrementAndGet();
+            cache.observationAdded();
+        }
+    }
+
+    private void awaitRetrain(RandomForestModelCache cache) throws InterruptedException {
+        for (int i = 0; i < 100 && cache.getPendingObservations() > 0; i++) {
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    public void testInitialModelIsTrainedOnFirstGet() {
+        RandomForestModelCache cache = new RandomForestModelCache(this::train, 10, 0);
+        observe(cache, 3);
+        assertThat(trainings.get()).isZero();
+
+        RandomForestModel model = cache.get();
+        assertThat(model.getObservations()).isEqualTo(3);
+        assertThat(cache.get()).isSameAs(model);
+        assertThat(trainings.get()).isEqualTo(1);
+        assertThat(cache.getRetrainCount()).isEqualTo(1);
+        cache.shutdown();
+    }
+
+    @Test
+    public void testRetrainAfterObservationThreshold() throws InterruptedException {
+        RandomForestModelCache cache = new RandomForestModelCache(this::train, 5, 0);
+        observe(cache, 2);
+        RandomForestModel initial = cache.get();
+
+        observe(cache, 4);
+        assertThat(cache.get()).isSameAs(initial);
+        assertThat(cache.getPendingObservations()).isEqualTo(4);
+
+        observe(cache, 1);
+        awaitRetrain(cache);
+        assertThat(cache.get()).isNotSameAs(initial);
+        assertThat(cache.get().getObservations()).isEqualTo(7);
+        assertThat(cache.getRetrainCount()).isEqualTo(2);
+        cache.shutdown();
+    }
+
+    @Test
+    public void testObservationsOfRestoredTrainingData() throws InterruptedException {
+        observations.set(100);
+        RandomForestModelCache cache = new RandomForestModelCache(this::train, 5, 0, observations.get());
+        RandomForestModel initial = cache.get();
+        assertThat(initial.getObservations()).isEqualTo(100);
+        assertThat(cache.getPendingObservations()).isZero();
+
+        observe(cache, 5);
+        awaitRetrain(cache);
+        assertThat(cache.get().getObservations()).isEqualTo(105);
+        assertThat(cache.getRetrainCount()).isEqualTo(2);
+        cache.shutdown();
+    }
+
+    @Test
+    public void testNoModelWithoutEnoughData() {
+        RandomForestModelCache cache = new RandomForestModelCache(() -> null, 1, 0);
+        assertThat(cache.get()).isNull();
+        assertThat(cache.getModelAge()).isEqualTo(-1);
+        cache.shutdown();
+    }
+
+    @Test
+    public void testNoRetrainAfterClose() {
+        RandomForestModelCache cache = new RandomForestModelCache(this::train, 1, 0);
+        observe(cache, 2);
+        RandomForestModel model = cache.get();
+        cache.close();
+        assertThat(cache.isShutdown()).isTrue();
+
+        observe(cache, 3);
+        assertThat(cache.get()).isSameAs(model);
+        assertThat(cache.isRetraining()).isFalse();
+        assertThat(trainings.get()).isEqualTo(1);
+    }
+}
@@ -9,6 +9,7 @@ import java.util.Map;
 
 import org.drools.core.io.impl.ClassPathResource;
 import org.jbpm.process.instance.impl.humantask.HumanTaskWorkItemHandler;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.kie.kogito.Model;
@@ -57,6 +58,11 @@ public class SmileRandomForestPredictionTest {
         }
     }
     
+    @AfterEach
+    public void close() {
+        ((SmileRandomForest) predictionService).close();
+    }
+
     @Test
     public void testUserTaskWithPredictionService() {
         
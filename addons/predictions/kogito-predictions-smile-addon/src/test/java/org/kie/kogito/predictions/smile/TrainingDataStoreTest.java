@@ -0,0 +1,171 @@
+package org.kie.kogito.predictions.smile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TrainingDataStoreTest {
+
+    @Test
+    public void testSlidingWindowEvictsOldestObservations() {
+        TrainingDataStore store = new HeapTrainingDataStore(2, 3);
+        for (int i = 0; i < 5; i++) {
+            store.add(new double[]{i, i * 10}, i % 2 == 0 ? 4 : 7);
+        }
+
+        TrainingDataSnapshot snapshot = store.snapshot();
+        assertThat(snapshot.size()).isEqualTo(3);
+        assertThat(snapshot.getSequence()).isEqualTo(5);
+        assertThat(snapshot.getFeatures()[0]).containsExactly(2, 20);
+        assertThat(snapshot.getFeatures()[2]).containsExactly(4, 40);
+        assertThat(snapshot.getClassLabels()).containsExactly(4, 7);
+        assertThat(snapshot.getClassIndexes()).containsExactly(0, 1, 0);
+    }
+
+    @Test
+    public void testMappedStore(@TempDir Path tempDir) {
+        try (TrainingDataStore store = new MappedTrainingDataStore(1, 2, tempDir.resolve("training.dat"))) {
+            store.add(new double[]{1.5}, 0);
+            store.add(new double[]{2.5}, 1);
+            store.add(new double[]{3.5}, 1);
+
+            TrainingDataSnapshot snapshot = store.snapshot();
+            assertThat(snapshot.size()).isEqualTo(2);
+            assertThat(snapshot.getFeatures()[0]).containsExactly(2.5);
+            assertThat(snapshot.getFeatures()[1]).containsExactly(3.5);
+            assertThat(snapshot.getNumClasses()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void testMappedStoreKeepsObservationsOnReopen(@TempDir Path tempDir) {
+        Path file = tempDir.resolve("training.dat");
+        try (TrainingDataStore store = new MappedTrainingDataStore(1, 2, file)) {
+            store.add(new double[]{1.5}, 0);
+            store.add(new double[]{2.5}, 1);
+            store.add(new double[]{3.5}, 1);
+        }
+        try (TrainingDataStore store = new MappedTrainingDataStore(1, 2, file)) {
+            assertThat(store.size()).isEqualTo(2);
+            assertThat(store.getSequence()).isEqualTo(3);
+            store.add(new double[]{4.5}, 0);
+
+            TrainingDataSnapshot snapshot = store.snapshot();
+            assertThat(snapshot.getFeatures()[0]).containsExactly(3.5);
+            assertThat(snapshot.getFeatures()[1]).containsExactly(4.5);
+        }
+    }
+
+    @Test
+    public void testMappedStoreKeepsValuesOnReopen(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("training.dat");
+        try (TrainingDataStore store = new MappedTrainingDataStore(1, 2, file)) {
+            store.addValue(0, "red");
+            store.addValue(1, "yes");
+            store.addValue(0, "blue");
+            store.add(new double[]{1}, 0);
+        }
+        // a value cut while it was appended
+        Files.write(file.resolveSibling("training.dat" + MappedTrainingDataStore.VALUES_SUFFIX), new byte[]{0, 0, 0, 0, 0}, StandardOpenOption.APPEND);
+        try (TrainingDataStore store = new MappedTrainingDataStore(1, 2, file)) {
+            assertThat(store.getValues(0)).containsExactly("red", "blue");
+            assertThat(store.getValues(1)).containsExactly("yes");
+            store.addValue(1, "no");
+        }
+        try (TrainingDataStore store = new MappedTrainingDataStore(1, 2, file)) {
+            assertThat(store.getValues(0)).containsExactly("red", "blue");
+            assertThat(store.getValues(1)).containsExactly("yes", "no");
+        }
+        try (TrainingDataStore store = new MappedTrainingDataStore(2, 2, file)) {
+            assertThat(store.getValues(0)).isEmpty();
+        }
+    }
+
+    @Test
+    public void testMappedStoreWithoutValuesIsReset(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("training.dat");
+        try (TrainingDataStore store = new MappedTrainingDataStore(1, 2, file)) {
+            store.addValue(0, "red");
+            store.add(new double[]{0}, 0);
+        }
+        Files.delete(file.resolveSibling("training.dat" + MappedTrainingDataStore.VALUES_SUFFIX));
+        try (TrainingDataStore store = new MappedTrainingDataStore(1, 2, file)) {
+            assertThat(store.size()).isZero();
+            assertThat(store.getValues(0)).isEmpty();
+        }
+    }
+
+    @Test
+    public void testEncodingOfNominalAttributesSurvivesRestart(@TempDir Path tempDir) {
+        Path file = tempDir.resolve("training.dat");
+        Map<String, AttributeType> inputFeatures = Collections.singletonMap("color", AttributeType.NOMINAL);
+        try (SmileRandomForest forest = new SmileRandomForest(inputFeatures, "output", AttributeType.NOMINAL, 0.7, 1, 1, 0,
+                                                              new MappedTrainingDataStore(1, 10, file))) {
+            forest.addData(Collections.singletonMap("color", "red"), "yes");
+            forest.addData(Collections.singletonMap("color", "blue"), "no");
+        }
+        try (SmileRandomForest forest = new SmileRandomForest(inputFeatures, "output", AttributeType.NOMINAL, 0.7, 1, 1, 0,
+                                                              new MappedTrainingDataStore(1, 10, file))) {
+            // the values seen first after the restart keep the indexes the stored observations refer to
+            forest.addData(Collections.singletonMap("color", "blue"), "no");
+            forest.addData(Collections.singletonMap("color", "green"), "yes");
+
+            TrainingDataSnapshot snapshot = forest.getTrainingData().snapshot();
+            assertThat(snapshot.getFeatures()).containsExactly(new double[]{0}, new double[]{1}, new double[]{1}, new double[]{2});
+            assertThat(snapshot.getClassLabels()).containsExactly(0, 1);
+            assertThat(snapshot.getClassIndexes()).containsExactly(0, 1, 1, 0);
+        }
+    }
+
+    @Test
+    public void testMappedStoreWithDifferentLayoutIsReset(@TempDir Path tempDir) {
+        Path file = tempDir.resolve("training.dat");
+        try (TrainingDataStore store = new MappedTrainingDataStore(1, 2, file)) {
+            store.add(new double[]{1.5}, 0);
+        }
+        try (TrainingDataStore store = new MappedTrainingDataStore(2, 4, file)) {
+            assertThat(store.size()).isZero();
+            assertThat(store.getSequence()).isZero();
+        }
+    }
+
+    @Test
+    public void testClosedStoreRejectsAccess(@TempDir Path tempDir) {
+        TrainingDataStore store = new MappedTrainingDataStore(1, 2, tempDir.resolve("training.dat"));
+        store.close();
+        store.close();
+        assertThatThrownBy(() -> store.add(new double[]{1}, 0)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(store::snapshot).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void testConcurrentAdds() throws InterruptedException {
+        TrainingDataStore store = new HeapTrainingDataStore(1, 1000);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    store.add(new double[]{i}, 0);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(store.getSequence()).isEqualTo(2000);
+        assertThat(store.size()).isEqualTo(1000);
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.event;
+
+import java.io.IOException;
+
+/**
+ * Converts data events into their wire format before they are handed over to
+ * the messaging infrastructure by an {@link EventPublisher}.
+ * 
+ * Schema based encodings expose fingerprint of the schema they were written with
+ * so consumers can select matching schema to decode the payload.
+ *
+ * @param <T> type of the encoded payload e.g. <code>String</code> or <code>byte[]</code>
+ */
+public interface DataEventEncoder<T> {
+
+    /**
+     * Encodes given event
+     * @param event event to be encoded
+     * @return encoded event
+     * @throws IOException in case event cannot be encoded
+     */
+    T encode(DataEvent<?> event) throws IOException;
+    
+    /**
+     * Returns content type of the encoded payload e.g. application/json
+     * @return content type of the payload
+     */
+    String contentType();
+    
+    /**
+     * Returns fingerprint of the schema used to encode events
+     * @return schema fingerprint or null in case encoding is self describing
+     */
+    String schemaFingerprint();
+}
@@ -17,6 +17,8 @@ package org.kie.kogito.process;
 
 import java.util.UUID;
 
+import org.kie.kogito.uow.WorkUnit;
+
 public interface MutableProcessInstances<T> extends ProcessInstances<T> {
     
     boolean exists(String id);
@@ -31,6 +33,17 @@ public interface MutableProcessInstances<T> extends ProcessInstances<T> {
         return instance.status() == ProcessInstance.STATE_ACTIVE || instance.status() == ProcessInstance.STATE_ERROR;        
     }
     
+    /**
+     * Returns work that stores the changes collected by this instance store during the current unit of work.
+     * Stores that defer writes until the end of the unit of work return it so it is performed once
+     * all process instances of that unit of work have been created, updated or removed.
+     *
+     * @return work unit writing deferred changes or null when changes are written immediately
+     */
+    default WorkUnit<?> flushWork() {
+        return null;
+    }
+    
     default String resolveId(String id) {
         try {            
             return UUID.fromString(id).toString();
@@ -16,12 +16,46 @@
 package org.kie.kogito.process;
 
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 public interface ProcessInstances<T> {
 
     Optional<? extends ProcessInstance<T>> findById(String i);
 
     Collection<? extends ProcessInstance<T>> values();
+    
+    /**
+     * Returns single page of process instances. Implementations backed by a remote store
+     * are expected to load only the instances of the requested page.
+     * 
+     * @param page zero based page number
+     * @param size maximum number of process instances in the page
+     * @return process instances of the given page
+     */
+    default Collection<? extends ProcessInstance<T>> values(int page, int size) {
+        return values().stream()
+                .skip((long) page * size)
+                .limit(size)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the process instances following the given one, ordered by id. Unlike {@link #values(int, int)},
+     * the cost of a page does not depend on the number of pages before it, so the id of the last instance
+     * of a page is the preferred way of requesting the next one.
+     * 
+     * @param id id the returned process instances follow, null for the first page
+     * @param size maximum number of process instances in the page
+     * @return process instances with an id greater than the given one
+     */
+    default Collection<? extends ProcessInstance<T>> valuesAfter(String id, int size) {
+        return values().stream()
+                .filter(pi -> id == null || pi.id().compareTo(id) > 0)
+                .sorted(Comparator.comparing(pi -> pi.id()))
+                .limit(size)
+                .collect(Collectors.toList());
+    }
 
 }
@@ -16,6 +16,8 @@
 
 package org.kie.kogito.rules;
 
+import java.util.Collection;
+
 import org.kie.api.runtime.rule.FactHandle;
 
 public interface DataProcessor<T> {
@@ -26,6 +28,10 @@ public interface DataProcessor<T> {
 
     FactHandle insert( DataHandle handle, T object);
 
+    default void insertAll(Collection<? extends T> objects) {
+        objects.forEach( this::insert );
+    }
+
     void update(DataHandle handle, T object);
 
     void delete(DataHandle handle);
@@ -21,6 +21,11 @@ import org.kie.api.internal.utils.ServiceRegistry;
 public interface DataSource<T> {
     void subscribe(DataProcessor<T> subscriber);
 
+    /**
+     * Stops notifying the given subscriber of changes of this data source
+     */
+    void unsubscribe(DataProcessor<T> subscriber);
+
     interface Factory {
         <T> DataStream<T> createStream();
         <T> DataStore<T> createStore();
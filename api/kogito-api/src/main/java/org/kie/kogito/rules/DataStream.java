@@ -16,6 +16,15 @@
 
 package org.kie.kogito.rules;
 
+import java.util.Collection;
+
 public interface DataStream<T> extends DataSource<T> {
     void append( T value );
+
+    /**
+     * Appends all the given values, subscribers receive them as a single batch when they support it
+     */
+    default void appendAll( Collection<? extends T> values ) {
+        values.forEach( this::append );
+    }
 }
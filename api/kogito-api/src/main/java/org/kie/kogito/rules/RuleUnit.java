@@ -15,13 +15,37 @@
 
 package org.kie.kogito.rules;
 
-import java.util.UUID;
+import java.util.List;
+import java.util.function.Function;
+
+import org.kie.api.runtime.rule.QueryResultsRow;
 
 public interface RuleUnit<T extends RuleUnitData> {
 
+    /**
+     * Creates an anonymous instance of this unit, that is not registered and cannot be
+     * looked up by name
+     */
     default RuleUnitInstance<T> createInstance(T data) {
-        return createInstance( data, UUID.randomUUID().toString() );
+        return createInstance( data, null );
     }
 
+    /**
+     * Creates an instance of this unit, registered with the given name unless it is null
+     */
     RuleUnitInstance<T> createInstance(T data, String name);
+
+    /**
+     * Executes the given query statelessly: an anonymous instance is created for the given data, the
+     * rules are fired, the rows of the query results are converted with the given mapper and the instance
+     * is disposed before returning
+     */
+    default <R> List<R> executeQuery(T data, Function<QueryResultsRow, R> mapper, String query, Object... arguments) {
+        RuleUnitInstance<T> instance = createInstance( data );
+        try {
+            return instance.executeQuery( mapper, query, arguments );
+        } finally {
+            instance.dispose();
+        }
+    }
 }
@@ -17,7 +17,9 @@ package org.kie.kogito.rules;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
+import org.kie.api.runtime.rule.QueryResultsRow;
 import org.kie.api.time.SessionClock;
 
 public interface RuleUnitInstance<T extends RuleUnitData> {
@@ -28,5 +30,17 @@ public interface RuleUnitInstance<T extends RuleUnitData> {
 
     List<Map<String, Object>> executeQuery(String query, Object... arguments);
 
+    /**
+     * Fires the rules and executes the given query, converting each row of the results with the given mapper
+     * instead of copying it into a map
+     */
+    <R> List<R> executeQuery(Function<QueryResultsRow, R> mapper, String query, Object... arguments);
+
     <T extends SessionClock> T getClock();
+
+    /**
+     * Releases the resources held by this instance, the instance cannot be used anymore afterwards.
+     * When the unit is configured with a sessions pool, the underlying session is returned to the pool.
+     */
+    void dispose();
 }
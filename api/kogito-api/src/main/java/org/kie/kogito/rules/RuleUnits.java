@@ -23,5 +23,10 @@ public interface RuleUnits {
 
     void register(String name, RuleUnitInstance<?> unitInstance);
 
+    /**
+     * Removes the given instance registered with the given name, if it is still the registered one
+     */
+    void unregister(String name, RuleUnitInstance<?> unitInstance);
+
     RuleUnitInstance<?> getRegisteredInstance(String name);
 }
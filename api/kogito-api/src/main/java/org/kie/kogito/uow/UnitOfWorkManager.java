@@ -47,4 +47,16 @@ public interface UnitOfWorkManager {
      * @return event manager instance
      */
     EventManager eventManager();
+    
+    /**
+     * Runs given action with given unit of work as the current one of this execution context and restores
+     * the previous one afterwards. It hands a unit of work over to other threads doing work on its behalf.
+     * Managers that do not associate units of work with execution context only run the action.
+     * 
+     * @param unitOfWork unit of work to be current while the action runs
+     * @param action action to be run
+     */
+    default void runInUnitOfWork(UnitOfWork unitOfWork, Runnable action) {
+        action.run();
+    }
 }
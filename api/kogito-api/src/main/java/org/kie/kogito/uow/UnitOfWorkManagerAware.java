@@ -0,0 +1,30 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.uow;
+
+/**
+ * Implemented by components, such as work item handlers, that need the unit of work manager
+ * of the application they are configured in, typically to do work outside of the engine thread.
+ *
+ */
+public interface UnitOfWorkManagerAware {
+
+    /**
+     * Sets the unit of work manager of the application
+     * @param unitOfWorkManager unit of work manager to be used
+     */
+    void setUnitOfWorkManager(UnitOfWorkManager unitOfWorkManager);
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kogito.services.event.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.kie.kogito.event.DataEvent;
+import org.kie.kogito.event.EventPublisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishes events on dedicated threads instead of the thread ending the unit of work.
+ * <p>
+ * Events are put on a bounded queue and taken from it by publisher threads in batches of up to
+ * {@code maxBatchSize} events, possibly coming from several units of work, that are given to every
+ * publisher at once. What happens when the queue is full is decided by the {@link OverflowPolicy}.
+ * <p>
+ * Events are published in the order they were submitted only when a single publisher thread is used.
+ * <p>
+ * Queued events are drained before the JVM exits, for at most {@link #SHUTDOWN_TIMEOUT_MILLIS}, unless
+ * {@link #shutdown(long, TimeUnit)} was invoked before.
+ */
+public class AsyncEventPublishing implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncEventPublishing.class);
+
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+
+    public static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+
+    public enum OverflowPolicy {
+        /**
+         * Caller waits for space in the queue
+         */
+        BLOCK,
+        /**
+         * Submitted events that do not fit in the queue are dropped
+         */
+        DROP_NEWEST,
+        /**
+         * Oldest queued events are dropped to make space for submitted ones
+         */
+        DROP_OLDEST,
+        /**
+         * Caller publishes the oldest queued events until the submitted ones fit, keeping the order
+         * of events when a single publisher thread is used
+         */
+        CALLER_DRAINS
+    }
+
+    private final Collection<EventPublisher> publishers;
+    private final BlockingQueue<QueuedEvent> queue;
+    private final int maxBatchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final List<Thread> threads = new ArrayList<>();
+    // taking and publishing a batch happens under this lock when there is a single publisher thread,
+    // so that a caller draining the queue does not overtake it
+    private final Lock orderLock;
+    private final Thread shutdownHook = new Thread(() -> shutdown(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS), "kogito-event-publisher-shutdown");
+    private volatile boolean running = true;
+
+    private final AtomicLong publishedEvents = new AtomicLong();
+    private final AtomicLong publishedBatches = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    public AsyncEventPublishing(Collection<EventPublisher> publishers, int queueCapacity, int threadCount, int maxBatchSize, OverflowPolicy overflowPolicy) {
+        if (queueCapacity < 1 || threadCount < 1 || maxBatchSize < 1) {
+            throw new IllegalArgumentException("Queue capacity, thread count and batch size must be positive");
+        }
+        this.publishers = publishers;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.orderLock = threadCount == 1 ? new ReentrantLock() : null;
+
+        for (int i = 0; i < threadCount; i++) {
+            Thread thread = new Thread(this::run, "kogito-event-publisher-" + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Queues events for publishing
+     * @param events events to be published
+     */
+    public void submit(Collection<DataEvent<?>> events) {
+        long now = System.nanoTime();
+        if (!running) {
+            // shut down in the meantime, publish what is left in the queue first to keep the order
+            try {
+                while (publishNextBatch(0)) {
+                    // drained one more batch
+                }
+            } catch (InterruptedException e) {
+                interrupted(e);
+            }
+            publish(new ArrayList<>(events), now);
+            return;
+        }
+        for (DataEvent<?> event : events) {
+            QueuedEvent queued = new QueuedEvent(event, now);
+            if (queue.offer(queued)) {
+                continue;
+            }
+            try {
+                switch (overflowPolicy) {
+                    case BLOCK:
+                        queue.put(queued);
+                        break;
+                    case DROP_NEWEST:
+                        droppedEvents.incrementAndGet();
+                        break;
+                    case DROP_OLDEST:
+                        while (!queue.offer(queued)) {
+                            if (queue.poll() != null) {
+                                droppedEvents.incrementAndGet();
+                            }
+                        }
+                        break;
+                    case CALLER_DRAINS:
+                        while (!queue.offer(queued)) {
+                            publishNextBatch(0);
+                        }
+                        break;
+                }
+            } catch (InterruptedException e) {
+                interrupted(e);
+            }
+        }
+    }
+
+    /**
+     * Stops accepting events and waits for the queued ones to be published
+     * @param timeout maximum time to wait
+     * @param unit unit of the timeout
+     * @return true if all queued events were published within the timeout
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) {
+        running = false;
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // JVM already shutting down, the hook waits for the queue as well
+            }
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Thread thread : threads) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                break;
+            }
+            try {
+                thread.join(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return queue.isEmpty();
+    }
+
+    /**
+     * Shuts down waiting at most {@link #SHUTDOWN_TIMEOUT_MILLIS} for queued events to be published
+     */
+    @Override
+    public void close() {
+        if (!shutdown(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            logger.warn("{} events were not published before shutdown", queue.size());
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getQueueCapacity() {
+        return queue.size() + queue.remainingCapacity();
+    }
+
+    public long getPublishedEvents() {
+        return publishedEvents.get();
+    }
+
+    public long getPublishedBatches() {
+        return publishedBatches.get();
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    public long getFailedBatches() {
+        return failedBatches.get();
+    }
+
+    /**
+     * Returns the average time between submitting the oldest event of a batch and handing the batch to the publishers
+     * @return average publish latency in milliseconds
+     */
+    public double getAveragePublishLatency() {
+        long batches = publishedBatches.get();
+        return batches == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalLatency.get()) / 1000.0 / batches;
+    }
+
+    /**
+     * Returns the longest time between submitting an event and handing it to the publishers
+     * @return maximum publish latency in milliseconds
+     */
+    public long getMaxPublishLatency() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLatency.get());
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            try {
+                publishNextBatch(POLL_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Takes up to {@code maxBatchSize} events from the head of the queue and publishes them
+     * @param timeoutMillis how long to wait for an event when the queue is empty
+     * @return false if the queue was empty
+     */
+    private boolean publishNextBatch(long timeoutMillis) throws InterruptedException {
+        if (orderLock != null) {
+            orderLock.lockInterruptibly();
+        }
+        try {
+            QueuedEvent first = queue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            if (first == null) {
+                return false;
+            }
+            List<QueuedEvent> batch = new ArrayList<>(maxBatchSize);
+            batch.add(first);
+            queue.drainTo(batch, maxBatchSize - 1);
+
+            List<DataEvent<?>> events = new ArrayList<>(batch.size());
+            long oldest = first.submitted;
+            for (QueuedEvent queued : batch) {
+                events.add(queued.event);
+                oldest = Math.min(oldest, queued.submitted);
+            }
+            publish(events, oldest);
+            return true;
+        } finally {
+            if (orderLock != null) {
+                orderLock.unlock();
+            }
+        }
+    }
+
+    private static void interrupted(InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting to publish events", e);
+    }
+
+    private void publish(List<DataEvent<?>> events, long submitted) {
+        long latency = System.nanoTime() - submitted;
+        totalLatency.addAndGet(latency);
+        maxLatency.accumulateAndGet(latency, Math::max);
+        publishedBatches.incrementAndGet();
+
+        Collection<DataEvent<?>> published = Collections.unmodifiableList(events);
+        for (EventPublisher publisher : publishers) {
+            try {
+                publisher.publish(published);
+            } catch (Exception e) {
+                failedBatches.incrementAndGet();
+                logger.error("Unable to publish {} events with {}", events.size(), publisher, e);
+            }
+        }
+        publishedEvents.addAndGet(events.size());
+    }
+
+    private static class QueuedEvent {
+
+        private final DataEvent<?> event;
+        private final long submitted;
+
+        QueuedEvent(DataEvent<?> event, long submitted) {
+            this.event = event;
+            this.submitted = submitted;
+        }
+    }
+}
@@ -16,20 +16,32 @@
 package org.kie.kogito.services.event.impl;
 
 import java.util.Collection;
-import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
 
 import org.kie.kogito.Addons;
 import org.kie.kogito.event.DataEvent;
 import org.kie.kogito.event.EventBatch;
 import org.kie.kogito.event.EventManager;
 import org.kie.kogito.event.EventPublisher;
+import org.kie.kogito.services.event.impl.AsyncEventPublishing.OverflowPolicy;
 
+/**
+ * Event manager that publishes events of a batch to all publishers, either right away on the thread
+ * ending the unit of work or, once {@link #enableAsyncPublishing(int, int, int, OverflowPolicy)}
+ * was called, on dedicated publisher threads. Generated applications enable async publishing when
+ * <code>kogito.events.async.queue-capacity</code> is configured, together with the optional
+ * <code>kogito.events.async.threads</code>, <code>kogito.events.async.batch-size</code> and
+ * <code>kogito.events.async.overflow-policy</code> properties.
+ */
 public class BaseEventManager implements EventManager {
 
     private String service;
     private Addons addons;
-    private Set<EventPublisher> publishers = new LinkedHashSet<>();
+    // publishers are used by publisher threads as well
+    private Set<EventPublisher> publishers = new CopyOnWriteArraySet<>();
+    private volatile AsyncEventPublishing asyncPublishing;
     
     @Override
     public EventBatch newBatch() {
@@ -44,9 +56,54 @@ public class BaseEventManager implements EventManager {
         }
         Collection<DataEvent<?>> events = batch.events();
         
+        AsyncEventPublishing async = asyncPublishing;
+        if (async != null) {
+            async.submit(events);
+            return;
+        }
         publishers.forEach(p -> p.publish(events));
     }
 
+    /**
+     * Moves publishing of events off the thread ending the unit of work to dedicated publisher threads.
+     * Events are still converted on the calling thread, publishers get them serialized and sent in the background.
+     * @param queueCapacity maximum number of events waiting to be published
+     * @param threads number of publisher threads, events are published in order only with a single thread
+     * @param maxBatchSize maximum number of events given to publishers at once
+     * @param overflowPolicy what to do with events that do not fit in the queue
+     * @return async publishing, giving access to its metrics
+     */
+    public synchronized AsyncEventPublishing enableAsyncPublishing(int queueCapacity, int threads, int maxBatchSize, OverflowPolicy overflowPolicy) {
+        if (asyncPublishing != null) {
+            throw new IllegalStateException("Async publishing of events is already enabled");
+        }
+        asyncPublishing = new AsyncEventPublishing(publishers, queueCapacity, threads, maxBatchSize, overflowPolicy);
+        return asyncPublishing;
+    }
+
+    /**
+     * Returns async publishing of events
+     * @return async publishing or null if events are published synchronously
+     */
+    public AsyncEventPublishing asyncPublishing() {
+        return asyncPublishing;
+    }
+
+    /**
+     * Switches back to synchronous publishing, waiting for events already queued to be published
+     * @param timeout maximum time to wait
+     * @param unit unit of the timeout
+     * @return true if all queued events were published
+     */
+    public synchronized boolean disableAsyncPublishing(long timeout, TimeUnit unit) {
+        AsyncEventPublishing async = asyncPublishing;
+        if (async == null) {
+            return true;
+        }
+        asyncPublishing = null;
+        return async.shutdown(timeout, unit);
+    }
+
     @Override
     public void addPublisher(EventPublisher publisher) {
         this.publishers.add(publisher);
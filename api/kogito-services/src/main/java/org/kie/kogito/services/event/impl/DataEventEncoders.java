@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.services.event.impl;
+
+import java.io.UncheckedIOException;
+
+import org.kie.kogito.event.DataEventEncoder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Creates encoders of events based on the configured encoding, shared by all event publishers.
+ */
+public final class DataEventEncoders {
+
+    public static final String JSON_ENCODING = "json";
+    public static final String PROTOBUF_ENCODING = "protobuf";
+
+    private DataEventEncoders() {
+    }
+
+    /**
+     * Creates encoder for given encoding
+     * @param encoding either <code>json</code> or <code>protobuf</code>, case insensitive
+     * @return encoder of events
+     * @throws IllegalArgumentException in case encoding is not supported
+     */
+    public static DataEventEncoder<?> create(String encoding) {
+        JsonDataEventEncoder jsonEncoder = new JsonDataEventEncoder();
+        if (JSON_ENCODING.equalsIgnoreCase(encoding)) {
+            return jsonEncoder;
+        } else if (PROTOBUF_ENCODING.equalsIgnoreCase(encoding)) {
+            ObjectMapper json = jsonEncoder.getObjectMapper();
+            return new ProtobufDataEventEncoder(value -> {
+                try {
+                    return json.writeValueAsBytes(value);
+                } catch (JsonProcessingException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        throw new IllegalArgumentException("Unknown events encoding '" + encoding + "', supported are " + JSON_ENCODING + " and " + PROTOBUF_ENCODING);
+    }
+}
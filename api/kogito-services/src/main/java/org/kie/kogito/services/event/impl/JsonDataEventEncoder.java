@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.services.event.impl;
+
+import java.io.IOException;
+import java.util.TimeZone;
+
+import org.kie.kogito.event.DataEvent;
+import org.kie.kogito.event.DataEventEncoder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.StdDateFormat;
+
+/**
+ * Default encoder that writes events as JSON strings.
+ */
+public class JsonDataEventEncoder implements DataEventEncoder<String> {
+
+    public static final String CONTENT_TYPE = "application/json";
+    
+    private final ObjectMapper json;
+    
+    public JsonDataEventEncoder() {
+        this.json = new ObjectMapper();
+        json.setDateFormat(new StdDateFormat().withColonInTimeZone(true).withTimeZone(TimeZone.getDefault()));
+    }
+    
+    public ObjectMapper getObjectMapper() {
+        return json;
+    }
+    
+    @Override
+    public String encode(DataEvent<?> event) throws IOException {
+        return json.writeValueAsString(event);
+    }
+
+    @Override
+    public String contentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public String schemaFingerprint() {
+        return null;
+    }
+}
@@ -17,9 +17,10 @@ package org.kie.kogito.services.event.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -43,13 +44,26 @@ import org.kie.kogito.services.event.UserTaskInstanceDataEvent;
 import org.kie.kogito.services.event.VariableInstanceDataEvent;
 
 
+/**
+ * Batch of process related events collected during single unit of work.
+ * <p>
+ * Raw events are folded as they are appended instead of being replayed when the batch
+ * is consumed. Node instances are indexed by their id per process instance, user tasks by
+ * work item id, so the cost of the batch stays linear in the number of appended events.
+ * Process instance and user task bodies are still built when <code>events</code> is called
+ * so they reflect the state at the end of the unit of work, while variables are copied
+ * once per process instance so published events are not affected by later changes.
+ */
 public class ProcessInstanceEventBatch implements EventBatch {
         
     public static final String TRACKED = "tracked";
     
     private final String service;
     private Addons addons;
-    private List<ProcessEvent> rawEvents = new ArrayList<>();
+    
+    private Map<String, ProcessInstanceEntry> processInstances = new LinkedHashMap<>();
+    private Map<String, ProcessWorkItemTransitionEvent> userTaskInstances = new LinkedHashMap<>();
+    private Set<VariableInstanceEventBody> variables = new LinkedHashSet<>();
 
     public ProcessInstanceEventBatch(String service, Addons addons) {
         this.service = service;
@@ -58,43 +72,47 @@ public class ProcessInstanceEventBatch implements EventBatch {
 
     @Override
     public void append(Object rawEvent) {
-        if (rawEvent instanceof ProcessEvent) {
-            rawEvents.add((ProcessEvent) rawEvent);
+        if (!(rawEvent instanceof ProcessEvent)) {
+            return;
+        }
+        ProcessEvent event = (ProcessEvent) rawEvent;
+        ProcessInstanceEntry entry = processInstances.computeIfAbsent(event.getProcessInstance().getId(), key -> new ProcessInstanceEntry(event));
+        
+        if (event instanceof ProcessNodeTriggeredEvent) {
+            
+            handleProcessNodeTriggeredEvent((ProcessNodeTriggeredEvent) event, entry.nodeInstances);
+        } else if (event instanceof ProcessNodeLeftEvent) {
+            
+            handleProcessNodeLeftEvent((ProcessNodeLeftEvent) event, entry.nodeInstances);
+        } else if (event instanceof ProcessCompletedEvent) {
+            
+            entry.completed = (ProcessCompletedEvent) event;
+        } else if (event instanceof ProcessWorkItemTransitionEvent) {
+            
+            handleProcessWorkItemTransitionEvent((ProcessWorkItemTransitionEvent) event, userTaskInstances);
+        } else if (event instanceof ProcessVariableChangedEvent) {
+            
+            handleProcessVariableChangedEvent((ProcessVariableChangedEvent) event, variables);
         }
     }
 
     @Override
     public Collection<DataEvent<?>> events() {
-        Map<String, ProcessInstanceEventBody> processInstances = new LinkedHashMap<>();
-        Map<String, UserTaskInstanceEventBody> userTaskInstances = new LinkedHashMap<>();
-        Set<VariableInstanceEventBody> variables = new LinkedHashSet<>();
+        Collection<DataEvent<?>> processedEvents = new ArrayList<>(processInstances.size() + userTaskInstances.size() + variables.size());
         
-        for (ProcessEvent event : rawEvents) {
-            ProcessInstanceEventBody body = processInstances.computeIfAbsent(event.getProcessInstance().getId(), key -> create(event));
-            
-            if (event instanceof ProcessNodeTriggeredEvent) {
-                
-                handleProcessNodeTriggeredEvent((ProcessNodeTriggeredEvent) event, body);
-            } else if (event instanceof ProcessNodeLeftEvent) {
-                
-                handleProcessNodeLeftEvent((ProcessNodeLeftEvent) event, body);
-            } else if (event instanceof ProcessCompletedEvent) {
-                
-                handleProcessCompletedEvent((ProcessCompletedEvent) event, body);
-            } else if (event instanceof ProcessWorkItemTransitionEvent) {
-                
-                handleProcessWorkItemTransitionEvent((ProcessWorkItemTransitionEvent) event, userTaskInstances);
-            } else if (event instanceof ProcessVariableChangedEvent) {
-                
-                handleProcessVariableChangedEvent((ProcessVariableChangedEvent) event, variables);
+        for (ProcessInstanceEntry entry : processInstances.values()) {
+            ProcessInstanceEventBody body = create(entry.event);
+            ProcessInstanceEventBody.Builder builder = body.update();
+            entry.nodeInstances.values().forEach(builder::nodeInstance);
+            if (entry.completed != null) {
+                handleProcessCompletedEvent(entry.completed, body);
             }
-            
+            processedEvents.add(new ProcessInstanceDataEvent(extractProcessId(body.metaData()), addons.toString(), body.metaData(), body));
+        }
+        for (ProcessWorkItemTransitionEvent event : userTaskInstances.values()) {
+            UserTaskInstanceEventBody body = createUserTask(event);
+            processedEvents.add(new UserTaskInstanceDataEvent(extractProcessId(body.metaData()), addons.toString(), body.metaData(), body));
         }
-        
-        Collection<DataEvent<?>> processedEvents = new ArrayList<>();
-                
-        processInstances.values().stream().map(pi -> new ProcessInstanceDataEvent(extractProcessId(pi.metaData()), addons.toString(), pi.metaData(), pi)).forEach(processedEvents::add);
-        userTaskInstances.values().stream().map(pi -> new UserTaskInstanceDataEvent(extractProcessId(pi.metaData()), addons.toString(), pi.metaData(), pi)).forEach(processedEvents::add);
         variables.stream().map(pi -> new VariableInstanceDataEvent(extractProcessId(pi.metaData()), addons.toString(), pi.metaData(), pi)).forEach(processedEvents::add);
         
         return processedEvents;
@@ -107,28 +125,25 @@ public class ProcessInstanceEventBatch implements EventBatch {
         .state(event.getProcessInstance().getState());
     }
     
-    protected void handleProcessNodeTriggeredEvent(ProcessNodeTriggeredEvent event, ProcessInstanceEventBody body) {
-
-        NodeInstanceEventBody nodeInstanceBody = create((ProcessNodeEvent)event);
-        if (!body.getNodeInstances().contains(nodeInstanceBody)) {
-            // add it only if it does not exist
-            body.update().nodeInstance(nodeInstanceBody);
-        }
+    protected void handleProcessNodeTriggeredEvent(ProcessNodeTriggeredEvent event, Map<String, NodeInstanceEventBody> nodeInstances) {
+        // add it only if it does not exist
+        nodeInstances.computeIfAbsent(event.getNodeInstance().getId(), id -> create((ProcessNodeEvent) event));
     }
     
-    protected void handleProcessNodeLeftEvent(ProcessNodeLeftEvent event, ProcessInstanceEventBody body) {
+    protected void handleProcessNodeLeftEvent(ProcessNodeLeftEvent event, Map<String, NodeInstanceEventBody> nodeInstances) {
         NodeInstanceEventBody nodeInstanceBody = create((ProcessNodeEvent)event);
         // if it's already there, remove it
-        body.getNodeInstances().remove(nodeInstanceBody);
+        nodeInstances.remove(nodeInstanceBody.getId());
         // and add it back as the node left event has latest information
-        body.update().nodeInstance(nodeInstanceBody); 
+        nodeInstances.put(nodeInstanceBody.getId(), nodeInstanceBody); 
     }
     
-    protected void handleProcessWorkItemTransitionEvent(ProcessWorkItemTransitionEvent workItemTransitionEvent, Map<String, UserTaskInstanceEventBody> userTaskInstances) {
+    protected void handleProcessWorkItemTransitionEvent(ProcessWorkItemTransitionEvent workItemTransitionEvent, Map<String, ProcessWorkItemTransitionEvent> userTaskInstances) {
         
         WorkItem workItem = workItemTransitionEvent.getWorkItem();
         if (workItem instanceof HumanTaskWorkItem && workItemTransitionEvent.isTransitioned()) {
-            userTaskInstances.putIfAbsent(workItem.getId(), createUserTask(workItemTransitionEvent));                    
+            // body is created when batch is consumed so it carries the latest state of the work item
+            userTaskInstances.putIfAbsent(workItem.getId(), workItemTransitionEvent);                    
         }
     }
     
@@ -180,7 +195,7 @@ public class ProcessInstanceEventBatch implements EventBatch {
                 .endDate(pi.getEndDate())
                 .state(pi.getState())
                 .businessKey(pi.getCorrelationKey())
-                .variables(pi.getVariables());
+                .variables(snapshot(pi.getVariables()));
         
         if (pi.getState() == ProcessInstance.STATE_ERROR) {
             eventBuilder.error(ProcessErrorEventBody.create()
@@ -232,6 +247,13 @@ public class ProcessInstanceEventBatch implements EventBatch {
         return eventBuilder.build();
     }
     
+    protected Map<String, Object> snapshot(Map<String, Object> variables) {
+        if (variables == null) {
+            return null;
+        }
+        return Collections.unmodifiableMap(new HashMap<>(variables));
+    }
+    
     protected String extractProcessId(Map<String, String> metadata) {
         String processId = metadata.get(ProcessInstanceEventBody.PROCESS_ID_META_DATA);
         if (processId.contains(".")) {
@@ -240,4 +262,15 @@ public class ProcessInstanceEventBatch implements EventBatch {
 
         return service + "/" + processId;
     }
+    
+    private static class ProcessInstanceEntry {
+        
+        private final ProcessEvent event;
+        private final Map<String, NodeInstanceEventBody> nodeInstances = new LinkedHashMap<>();
+        private ProcessCompletedEvent completed;
+        
+        private ProcessInstanceEntry(ProcessEvent event) {
+            this.event = event;
+        }
+    }
 }
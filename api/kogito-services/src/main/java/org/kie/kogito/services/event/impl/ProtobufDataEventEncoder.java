@@ -0,0 +1,286 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.services.event.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import org.kie.kogito.event.AbstractDataEvent;
+import org.kie.kogito.event.DataEvent;
+import org.kie.kogito.event.DataEventEncoder;
+import org.kie.kogito.services.event.AbstractProcessDataEvent;
+import org.kie.kogito.services.event.UserTaskInstanceDataEvent;
+import org.kie.kogito.services.event.VariableInstanceDataEvent;
+
+/**
+ * Encodes process instance, user task instance and variable instance events in protobuf
+ * binary format as described by <code>META-INF/kogito-events.proto</code>.
+ * <p>
+ * Every event carries fingerprint of the schema so consumers can pick the right schema
+ * to decode it. Variable values and task parameters that are not strings, numbers, booleans
+ * or dates are encoded with the given value encoder (usually JSON) as there is no schema
+ * known for them upfront.
+ */
+public class ProtobufDataEventEncoder implements DataEventEncoder<byte[]> {
+
+    public static final String CONTENT_TYPE = "application/protobuf";
+    public static final String SCHEMA_RESOURCE = "META-INF/kogito-events.proto";
+
+    private static final long FINGERPRINT = fingerprint(SCHEMA_RESOURCE);
+    private static final String FINGERPRINT_HEX = String.format("%016x", FINGERPRINT);
+
+    private final Function<Object, byte[]> valueEncoder;
+
+    /**
+     * Creates new encoder
+     * @param valueEncoder encoder used for values without a dedicated protobuf type, it may throw 
+     * <code>UncheckedIOException</code> in case value cannot be encoded
+     */
+    public ProtobufDataEventEncoder(Function<Object, byte[]> valueEncoder) {
+        this.valueEncoder = valueEncoder;
+    }
+
+    @Override
+    public byte[] encode(DataEvent<?> event) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(512);
+        CodedOutputStream out = CodedOutputStream.newInstance(buffer);
+        try {
+            writeEvent(out, event);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    @Override
+    public String contentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public String schemaFingerprint() {
+        return FINGERPRINT_HEX;
+    }
+
+    protected void writeEvent(CodedOutputStream out, DataEvent<?> event) throws IOException {
+        out.writeFixed64(1, FINGERPRINT);
+        writeString(out, 2, event.getSpecversion());
+        writeString(out, 3, event.getId());
+        writeString(out, 4, event.getSource());
+        writeString(out, 5, event.getType());
+        writeString(out, 6, event.getTime());
+        if (event instanceof AbstractDataEvent) {
+            AbstractDataEvent<?> dataEvent = (AbstractDataEvent<?>) event;
+            writeString(out, 7, dataEvent.getKogitoProcessinstanceId());
+            writeString(out, 8, dataEvent.getKogitoRootProcessinstanceId());
+            writeString(out, 9, dataEvent.getKogitoProcessId());
+            writeString(out, 10, dataEvent.getKogitoRootProcessId());
+            writeString(out, 11, dataEvent.getKogitoAddons());
+        }
+        if (event instanceof AbstractProcessDataEvent) {
+            AbstractProcessDataEvent<?> processEvent = (AbstractProcessDataEvent<?>) event;
+            writeString(out, 12, processEvent.getKogitoParentProcessinstanceId());
+            writeString(out, 13, processEvent.getKogitoProcessinstanceState());
+            writeString(out, 14, processEvent.getKogitoReferenceId());
+        } else if (event instanceof UserTaskInstanceDataEvent) {
+            UserTaskInstanceDataEvent userTaskEvent = (UserTaskInstanceDataEvent) event;
+            writeString(out, 15, userTaskEvent.getKogitoUserTaskinstanceId());
+            writeString(out, 16, userTaskEvent.getKogitoUserTaskinstanceState());
+        } else if (event instanceof VariableInstanceDataEvent) {
+            writeString(out, 17, ((VariableInstanceDataEvent) event).getKogitoVariableName());
+        }
+
+        Object data = event.getData();
+        if (data instanceof ProcessInstanceEventBody) {
+            writeMessage(out, 20, nested -> writeProcessInstance(nested, (ProcessInstanceEventBody) data));
+        } else if (data instanceof UserTaskInstanceEventBody) {
+            writeMessage(out, 21, nested -> writeUserTaskInstance(nested, (UserTaskInstanceEventBody) data));
+        } else if (data instanceof VariableInstanceEventBody) {
+            writeMessage(out, 22, nested -> writeVariableInstance(nested, (VariableInstanceEventBody) data));
+        } else if (data != null) {
+            throw new IllegalArgumentException("Unsupported type of event data " + data.getClass().getName());
+        }
+    }
+
+    protected void writeProcessInstance(CodedOutputStream out, ProcessInstanceEventBody body) throws IOException {
+        writeString(out, 1, body.getId());
+        writeString(out, 2, body.getParentInstanceId());
+        writeString(out, 3, body.getRootInstanceId());
+        writeString(out, 4, body.getProcessId());
+        writeString(out, 5, body.getRootProcessId());
+        writeString(out, 6, body.getProcessName());
+        writeDate(out, 7, body.getStartDate());
+        writeDate(out, 8, body.getEndDate());
+        if (body.getState() != null) {
+            out.writeInt32(9, body.getState());
+        }
+        writeString(out, 10, body.getBusinessKey());
+        ProcessErrorEventBody error = body.getError();
+        if (error != null) {
+            writeMessage(out, 11, nested -> {
+                writeString(nested, 1, error.getNodeDefinitionId());
+                writeString(nested, 2, error.getErrorMessage());
+            });
+        }
+        for (NodeInstanceEventBody nodeInstance : body.getNodeInstances()) {
+            writeMessage(out, 12, nested -> writeNodeInstance(nested, nodeInstance));
+        }
+        writeValues(out, 13, body.getVariables());
+        writeStrings(out, 14, body.getRoles());
+    }
+
+    protected void writeNodeInstance(CodedOutputStream out, NodeInstanceEventBody body) throws IOException {
+        writeString(out, 1, body.getId());
+        writeString(out, 2, body.getNodeId());
+        writeString(out, 3, body.getNodeDefinitionId());
+        writeString(out, 4, body.getNodeName());
+        writeString(out, 5, body.getNodeType());
+        writeDate(out, 6, body.getTriggerTime());
+        writeDate(out, 7, body.getLeaveTime());
+    }
+
+    protected void writeUserTaskInstance(CodedOutputStream out, UserTaskInstanceEventBody body) throws IOException {
+        writeString(out, 1, body.getId());
+        writeString(out, 2, body.getTaskName());
+        writeString(out, 3, body.getTaskDescription());
+        writeString(out, 4, body.getTaskPriority());
+        writeString(out, 5, body.getReferenceName());
+        writeDate(out, 6, body.getStartDate());
+        writeDate(out, 7, body.getCompleteDate());
+        writeString(out, 8, body.getState());
+        writeString(out, 9, body.getActualOwner());
+        writeStrings(out, 10, body.getPotentialUsers());
+        writeStrings(out, 11, body.getPotentialGroups());
+        writeStrings(out, 12, body.getExcludedUsers());
+        writeStrings(out, 13, body.getAdminUsers());
+        writeStrings(out, 14, body.getAdminGroups());
+        writeValues(out, 15, body.getInputs());
+        writeValues(out, 16, body.getOutputs());
+        writeString(out, 17, body.getProcessInstanceId());
+        writeString(out, 18, body.getRootProcessInstanceId());
+        writeString(out, 19, body.getProcessId());
+        writeString(out, 20, body.getRootProcessId());
+    }
+
+    protected void writeVariableInstance(CodedOutputStream out, VariableInstanceEventBody body) throws IOException {
+        writeString(out, 1, body.getVariableName());
+        writeMessage(out, 2, nested -> writeValue(nested, body.getVariableValue()));
+        writeMessage(out, 3, nested -> writeValue(nested, body.getVariablePreviousValue()));
+        writeDate(out, 4, body.getChangeDate());
+        writeString(out, 5, body.getChangedByNodeId());
+        writeString(out, 6, body.getChangedByNodeName());
+        writeString(out, 7, body.getChangedByNodeType());
+        writeString(out, 8, body.getChangedByUser());
+        writeString(out, 9, body.getProcessInstanceId());
+        writeString(out, 10, body.getRootProcessInstanceId());
+        writeString(out, 11, body.getProcessId());
+        writeString(out, 12, body.getRootProcessId());
+    }
+
+    protected void writeValue(CodedOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof String) {
+            out.writeString(1, (String) value);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeSInt64(2, ((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeDouble(3, ((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            out.writeBool(4, (Boolean) value);
+        } else if (value instanceof Date) {
+            out.writeInt64(5, ((Date) value).getTime());
+        } else {
+            out.writeByteArray(6, valueEncoder.apply(value));
+        }
+    }
+
+    private void writeValues(CodedOutputStream out, int field, Map<String, Object> values) throws IOException {
+        if (values == null) {
+            return;
+        }
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            writeMessage(out, field, nested -> {
+                writeString(nested, 1, entry.getKey());
+                writeMessage(nested, 2, value -> writeValue(value, entry.getValue()));
+            });
+        }
+    }
+
+    private static void writeString(CodedOutputStream out, int field, String value) throws IOException {
+        if (value != null) {
+            out.writeString(field, value);
+        }
+    }
+
+    private static void writeStrings(CodedOutputStream out, int field, Collection<String> values) throws IOException {
+        if (values != null) {
+            for (String value : values) {
+                writeString(out, field, value);
+            }
+        }
+    }
+
+    private static void writeDate(CodedOutputStream out, int field, Date value) throws IOException {
+        if (value != null) {
+            out.writeInt64(field, value.getTime());
+        }
+    }
+
+    private static void writeMessage(CodedOutputStream out, int field, MessageWriter writer) throws IOException {
+        ByteString.Output buffer = ByteString.newOutput();
+        CodedOutputStream nested = CodedOutputStream.newInstance(buffer);
+        writer.write(nested);
+        nested.flush();
+        out.writeBytes(field, buffer.toByteString());
+    }
+
+    private static long fingerprint(String resource) {
+        try (InputStream schema = ProtobufDataEventEncoder.class.getClassLoader().getResourceAsStream(resource)) {
+            if (schema == null) {
+                throw new IllegalStateException("Unable to find events schema " + resource);
+            }
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] chunk = new byte[4096];
+            int read;
+            while ((read = schema.read(chunk)) != -1) {
+                digest.update(chunk, 0, read);
+            }
+            return ByteBuffer.wrap(digest.digest()).getLong();
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Unable to compute fingerprint of events schema " + resource, e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface MessageWriter {
+
+        void write(CodedOutputStream out) throws IOException;
+    }
+}
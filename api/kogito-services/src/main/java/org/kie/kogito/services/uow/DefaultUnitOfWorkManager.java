@@ -64,6 +64,21 @@ public class DefaultUnitOfWorkManager implements UnitOfWorkManager {
         return new ManagedUnitOfWork(factory.create(eventManager), this::associate, this::dissociate, this::dissociate);
     }
     
+    @Override
+    public void runInUnitOfWork(UnitOfWork unitOfWork, Runnable action) {
+        UnitOfWork previous = currentUnitOfWork.get();
+        currentUnitOfWork.set(unitOfWork);
+        try {
+            action.run();
+        } finally {
+            if (previous == null) {
+                currentUnitOfWork.remove();
+            } else {
+                currentUnitOfWork.set(previous);
+            }
+        }
+    }
+    
     protected void associate(UnitOfWork unit) {
         currentUnitOfWork.set(unit);
     }
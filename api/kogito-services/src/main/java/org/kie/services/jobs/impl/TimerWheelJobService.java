@@ -0,0 +1,436 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.services.jobs.impl;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.kie.api.runtime.process.ProcessInstance;
+import org.kie.api.runtime.process.ProcessRuntime;
+import org.kie.kogito.jobs.JobDescription;
+import org.kie.kogito.jobs.JobsService;
+import org.kie.kogito.jobs.ProcessInstanceJobDescription;
+import org.kie.kogito.jobs.ProcessJobDescription;
+import org.kie.kogito.services.uow.UnitOfWorkExecutor;
+import org.kie.kogito.uow.UnitOfWorkManager;
+import org.kie.services.time.TimerInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In memory {@link JobsService} meant for a large number of timers. Jobs are kept in a hierarchical
+ * timing wheel: scheduling and cancelling only enqueue the job, while a single ticker thread moves
+ * the jobs into the wheel and collects the ones expiring at every tick. The expired jobs are then
+ * fired in batches by a pool of workers, sharded by process (instance) id so that the timers of a
+ * given process instance are always fired in order by the same worker.
+ */
+public class TimerWheelJobService implements JobsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TimerWheelJobService.class);
+
+    public static final long DEFAULT_TICK_MILLIS = 10;
+
+    private static final int WHEEL_BITS = 8;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA = (1L << (WHEEL_BITS * LEVELS)) - 1;
+
+    protected final ProcessRuntime processRuntime;
+    protected final UnitOfWorkManager unitOfWorkManager;
+
+    protected final ConcurrentHashMap<String, TimerEntry> scheduledJobs = new ConcurrentHashMap<>();
+
+    private final long tickNanos;
+    private final ExecutorService[] workers;
+
+    private final Bucket[][] wheel = new Bucket[LEVELS][WHEEL_SIZE];
+    private final Queue<TimerEntry> pendingEntries = new ConcurrentLinkedQueue<>();
+    private final Queue<TimerEntry> cancelledEntries = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile boolean stopped;
+    private volatile long startTime;
+    private Thread ticker;
+
+    // next tick to be processed, only accessed by the ticker thread
+    private long currentTick;
+
+    public TimerWheelJobService(ProcessRuntime processRuntime, UnitOfWorkManager unitOfWorkManager) {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_TICK_MILLIS, processRuntime, unitOfWorkManager);
+    }
+
+    public TimerWheelJobService(int threadPoolSize, ProcessRuntime processRuntime, UnitOfWorkManager unitOfWorkManager) {
+        this(threadPoolSize, DEFAULT_TICK_MILLIS, processRuntime, unitOfWorkManager);
+    }
+
+    /**
+     * @param threadPoolSize number of workers firing the expired jobs
+     * @param tickMillis resolution of the timers, jobs are fired at the first tick following their expiration time
+     */
+    public TimerWheelJobService(int threadPoolSize, long tickMillis, ProcessRuntime processRuntime, UnitOfWorkManager unitOfWorkManager) {
+        if (threadPoolSize <= 0) {
+            throw new IllegalArgumentException("Thread pool size must be positive: " + threadPoolSize);
+        }
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive: " + tickMillis);
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.processRuntime = processRuntime;
+        this.unitOfWorkManager = unitOfWorkManager;
+
+        this.workers = new ExecutorService[threadPoolSize];
+        for (int i = 0; i < threadPoolSize; i++) {
+            String name = "jobs-timer-worker-" + i;
+            workers[i] = Executors.newSingleThreadExecutor(r -> newDaemonThread(r, name));
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                wheel[level][i] = new Bucket();
+            }
+        }
+    }
+
+    @Override
+    public String scheduleProcessJob(ProcessJobDescription description) {
+        TimerEntry entry = new TimerEntry(description.id(), description.processId(), description.processId(), -1, false);
+        schedule(entry, description);
+        return description.id();
+    }
+
+    @Override
+    public String scheduleProcessInstanceJob(ProcessInstanceJobDescription description) {
+        String id = description.id();
+        long timerId = Long.parseLong(id.substring(id.lastIndexOf('_') + 1));
+        TimerEntry entry = new TimerEntry(id, description.processInstanceId(), description.processInstanceId(), timerId, true);
+        schedule(entry, description);
+        return id;
+    }
+
+    @Override
+    public boolean cancelJob(String id) {
+        TimerEntry entry = scheduledJobs.remove(id);
+        if (entry != null && entry.cancel()) {
+            cancelledEntries.offer(entry);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Stops the ticker and the workers, the jobs not fired yet are discarded and
+     * scheduling new ones fails with an {@link IllegalStateException}
+     */
+    public void shutdown() {
+        stopped = true;
+        if (ticker != null) {
+            ticker.interrupt();
+        }
+        for (ExecutorService worker : workers) {
+            worker.shutdownNow();
+        }
+        scheduledJobs.clear();
+    }
+
+    protected long calculateDelay(JobDescription description) {
+        return Duration.between(ZonedDateTime.now(), description.expirationTime().get()).toMillis();
+    }
+
+    private void schedule(TimerEntry entry, JobDescription description) {
+        checkNotStopped(entry);
+        start();
+        Long repeatInterval = description.expirationTime().repeatInterval();
+        if (repeatInterval != null) {
+            entry.repeatIntervalNanos = TimeUnit.MILLISECONDS.toNanos(repeatInterval);
+            Integer repeatLimit = description.expirationTime().repeatLimit();
+            entry.limit = repeatLimit == null ? -1 : repeatLimit;
+        }
+        entry.deadline = System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(Math.max(0, calculateDelay(description)));
+        scheduledJobs.put(entry.id, entry);
+        pendingEntries.offer(entry);
+        if (stopped) {
+            // shut down meanwhile, the job would never fire
+            scheduledJobs.remove(entry.id, entry);
+            checkNotStopped(entry);
+        }
+    }
+
+    private void checkNotStopped(TimerEntry entry) {
+        if (stopped) {
+            throw new IllegalStateException("Job service is shut down, job " + entry.id + " cannot be scheduled");
+        }
+    }
+
+    private void start() {
+        if (started.compareAndSet(false, true)) {
+            startTime = System.nanoTime();
+            ticker = newDaemonThread(this::runTicker, "jobs-timer-wheel");
+            ticker.start();
+        }
+    }
+
+    private void runTicker() {
+        List<List<TimerEntry>> batches = new ArrayList<>(workers.length);
+        for (int i = 0; i < workers.length; i++) {
+            batches.add(new ArrayList<>());
+        }
+
+        while (!stopped) {
+            long sleepNanos = startTime + currentTick * tickNanos - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                continue;
+            }
+
+            removeCancelledEntries();
+            cascade();
+            transferPendingEntries();
+            expire(batches);
+            currentTick++;
+        }
+    }
+
+    private void removeCancelledEntries() {
+        TimerEntry entry;
+        while ((entry = cancelledEntries.poll()) != null) {
+            if (entry.bucket != null) {
+                entry.bucket.remove(entry);
+            }
+        }
+    }
+
+    private void transferPendingEntries() {
+        TimerEntry entry;
+        while ((entry = pendingEntries.poll()) != null) {
+            if (!entry.isCancelled()) {
+                add(entry);
+            }
+        }
+    }
+
+    /**
+     * Moves the jobs of the next slot of the upper levels down to the lower ones,
+     * every time the level below completes a round
+     */
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            if ((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) != 0) {
+                return;
+            }
+            Bucket bucket = wheel[level][slotOf(currentTick, level)];
+            for (TimerEntry entry = bucket.clear(); entry != null; ) {
+                TimerEntry next = entry.next;
+                entry.next = null;
+                add(entry);
+                entry = next;
+            }
+        }
+    }
+
+    private void add(TimerEntry entry) {
+        long deadlineTick = (entry.deadline + tickNanos - 1) / tickNanos;
+        long delta = deadlineTick - currentTick;
+        if (delta < 0) {
+            deadlineTick = currentTick;
+            delta = 0;
+        } else if (delta > MAX_DELTA) {
+            // too far in the future, it will be placed again when cascading from the top level
+            deadlineTick = currentTick + MAX_DELTA;
+            delta = MAX_DELTA;
+        }
+        int level = 0;
+        while (delta >= (1L << (WHEEL_BITS * (level + 1)))) {
+            level++;
+        }
+        wheel[level][slotOf(deadlineTick, level)].add(entry);
+    }
+
+    private static int slotOf(long tick, int level) {
+        return (int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+    }
+
+    private void expire(List<List<TimerEntry>> batches) {
+        long now = (currentTick + 1) * tickNanos;
+        Bucket bucket = wheel[0][slotOf(currentTick, 0)];
+        for (TimerEntry entry = bucket.clear(); entry != null; ) {
+            TimerEntry next = entry.next;
+            entry.next = null;
+            if (entry.deadline >= now) {
+                add(entry);
+            } else if (!entry.isCancelled()) {
+                batches.get(Math.floorMod(entry.shardKey.hashCode(), workers.length)).add(entry);
+            }
+            entry = next;
+        }
+
+        for (int i = 0; i < workers.length; i++) {
+            List<TimerEntry> batch = batches.get(i);
+            if (!batch.isEmpty()) {
+                List<TimerEntry> expired = new ArrayList<>(batch);
+                workers[i].execute(() -> fire(expired));
+                batch.clear();
+            }
+        }
+    }
+
+    private void fire(List<TimerEntry> expired) {
+        for (TimerEntry entry : expired) {
+            if (entry.isCancelled()) {
+                continue;
+            }
+            boolean completed = true;
+            try {
+                completed = entry.processInstanceJob ? signalProcessInstance(entry) : startProcess(entry);
+            } catch (Exception e) {
+                logger.error("Error while firing job {}", entry.id, e);
+            } finally {
+                if (!completed && entry.repeatIntervalNanos > 0 && !entry.isCancelled()) {
+                    entry.deadline += entry.repeatIntervalNanos;
+                    pendingEntries.offer(entry);
+                } else {
+                    scheduledJobs.remove(entry.id, entry);
+                }
+            }
+        }
+    }
+
+    private boolean signalProcessInstance(TimerEntry entry) {
+        return UnitOfWorkExecutor.executeInUnitOfWork(unitOfWorkManager, () -> {
+            ProcessInstance pi = processRuntime.getProcessInstance(entry.target);
+            if (pi == null) {
+                // since owning process instance does not exist cancel timers
+                return true;
+            }
+            entry.limit--;
+            pi.signalEvent("timerTriggered", TimerInstance.with(entry.timerId, entry.id, entry.limit));
+            return entry.limit == 0;
+        });
+    }
+
+    private boolean startProcess(TimerEntry entry) {
+        UnitOfWorkExecutor.executeInUnitOfWork(unitOfWorkManager, () -> {
+            ProcessInstance pi = processRuntime.createProcessInstance(entry.target, null);
+            if (pi != null) {
+                processRuntime.startProcessInstance(pi.getId(), "timer");
+            }
+            return null;
+        });
+        entry.limit--;
+        return entry.limit == 0;
+    }
+
+    private static Thread newDaemonThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    protected static class TimerEntry {
+
+        private static final int WAITING = 0;
+        private static final int CANCELLED = 1;
+
+        private final String id;
+        private final String target;
+        private final String shardKey;
+        private final long timerId;
+        private final boolean processInstanceJob;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        private long deadline;
+        private long repeatIntervalNanos;
+        private int limit = -1;
+
+        // wheel position, only accessed by the ticker thread
+        private Bucket bucket;
+        private TimerEntry prev;
+        private TimerEntry next;
+
+        private TimerEntry(String id, String target, String shardKey, long timerId, boolean processInstanceJob) {
+            this.id = id;
+            this.target = target;
+            this.shardKey = shardKey;
+            this.timerId = timerId;
+            this.processInstanceJob = processInstanceJob;
+        }
+
+        private boolean cancel() {
+            return state.compareAndSet(WAITING, CANCELLED);
+        }
+
+        private boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+    }
+
+    private static class Bucket {
+
+        private TimerEntry head;
+
+        private void add(TimerEntry entry) {
+            entry.bucket = this;
+            entry.prev = null;
+            entry.next = head;
+            if (head != null) {
+                head.prev = entry;
+            }
+            head = entry;
+        }
+
+        private void remove(TimerEntry entry) {
+            if (entry.prev != null) {
+                entry.prev.next = entry.next;
+            } else {
+                head = entry.next;
+            }
+            if (entry.next != null) {
+                entry.next.prev = entry.prev;
+            }
+            entry.bucket = null;
+            entry.prev = null;
+            entry.next = null;
+        }
+
+        /**
+         * Detaches all the entries of this bucket and returns the first of them, still linked to each other
+         */
+        private TimerEntry clear() {
+            TimerEntry first = head;
+            for (TimerEntry entry = first; entry != null; entry = entry.next) {
+                entry.bucket = null;
+                entry.prev = null;
+            }
+            head = null;
+            return first;
+        }
+    }
+}
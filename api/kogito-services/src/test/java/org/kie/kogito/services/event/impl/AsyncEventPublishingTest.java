@@ -0,0 +1,187 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kogito.services.event.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.kie.kogito.event.AbstractDataEvent;
+import org.kie.kogito.event.DataEvent;
+import org.kie.kogito.event.EventBatch;
+import org.kie.kogito.event.EventPublisher;
+import org.kie.kogito.services.event.impl.AsyncEventPublishing.OverflowPolicy;
+
+public class AsyncEventPublishingTest {
+
+    @Test
+    public void testEventsArePublishedInBackground() throws Exception {
+        BlockingPublisher publisher = new BlockingPublisher();
+        AsyncEventPublishing publishing = new AsyncEventPublishing(Collections.singletonList(publisher), 10, 1, 5, OverflowPolicy.BLOCK);
+
+        publishing.submit(events(1));
+        assertThat(publisher.started.await(5, TimeUnit.SECONDS)).isTrue();
+        // publisher is busy, next submissions are queued and do not wait for it
+        publishing.submit(events(3));
+        publishing.submit(events(2));
+        assertThat(publishing.getQueueDepth()).isEqualTo(5);
+
+        publisher.release.countDown();
+        assertThat(publishing.shutdown(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(publisher.published()).hasSize(6);
+        // events of both units of work were published as one batch
+        assertThat(publisher.batchSizes()).containsExactly(1, 5);
+        assertThat(publishing.getPublishedEvents()).isEqualTo(6);
+        assertThat(publishing.getPublishedBatches()).isEqualTo(2);
+        assertThat(publishing.getQueueDepth()).isZero();
+    }
+
+    @Test
+    public void testOverflowDropsNewestEvents() throws Exception {
+        BlockingPublisher publisher = new BlockingPublisher();
+        AsyncEventPublishing publishing = new AsyncEventPublishing(Collections.singletonList(publisher), 2, 1, 5, OverflowPolicy.DROP_NEWEST);
+
+        publishing.submit(events(1));
+        assertThat(publisher.started.await(5, TimeUnit.SECONDS)).isTrue();
+        publishing.submit(events(4));
+        assertThat(publishing.getDroppedEvents()).isEqualTo(2);
+
+        publisher.release.countDown();
+        assertThat(publishing.shutdown(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(publisher.published()).hasSize(3);
+    }
+
+    @Test
+    public void testOverflowDrainedByCallerInOrder() throws Exception {
+        BlockingPublisher publisher = new BlockingPublisher();
+        publisher.release.countDown();
+        AsyncEventPublishing publishing = new AsyncEventPublishing(Collections.singletonList(publisher), 1, 1, 2, OverflowPolicy.CALLER_DRAINS);
+
+        List<DataEvent<?>> submitted = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Collection<DataEvent<?>> events = events(3);
+            submitted.addAll(events);
+            publishing.submit(events);
+        }
+
+        assertThat(publishing.shutdown(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(publisher.published()).containsExactlyElementsOf(submitted);
+        assertThat(publishing.getDroppedEvents()).isZero();
+    }
+
+    @Test
+    public void testCloseDrainsQueue() throws Exception {
+        BlockingPublisher publisher = new BlockingPublisher();
+        AsyncEventPublishing publishing = new AsyncEventPublishing(Collections.singletonList(publisher), 10, 1, 5, OverflowPolicy.BLOCK);
+
+        publishing.submit(events(1));
+        assertThat(publisher.started.await(5, TimeUnit.SECONDS)).isTrue();
+        publishing.submit(events(3));
+        publisher.release.countDown();
+        publishing.close();
+
+        assertThat(publisher.published()).hasSize(4);
+        assertThat(publishing.getQueueDepth()).isZero();
+
+        // events submitted after close are published by the caller
+        publishing.submit(events(2));
+        assertThat(publisher.published()).hasSize(6);
+    }
+
+    @Test
+    public void testEventManagerPublishesAsync() throws Exception {
+        BlockingPublisher publisher = new BlockingPublisher();
+        publisher.release.countDown();
+        BaseEventManager eventManager = new BaseEventManager();
+        eventManager.addPublisher(publisher);
+        AsyncEventPublishing publishing = eventManager.enableAsyncPublishing(10, 1, 10, OverflowPolicy.BLOCK);
+        assertThat(eventManager.asyncPublishing()).isSameAs(publishing);
+
+        eventManager.publish(new EventBatch() {
+
+            @Override
+            public void append(Object rawEvent) {
+            }
+
+            @Override
+            public Collection<DataEvent<?>> events() {
+                return AsyncEventPublishingTest.events(2);
+            }
+        });
+        assertThat(eventManager.disableAsyncPublishing(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(eventManager.asyncPublishing()).isNull();
+        assertThat(publisher.published()).hasSize(2);
+    }
+
+    private static Collection<DataEvent<?>> events(int count) {
+        List<DataEvent<?>> events = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            events.add(new AbstractDataEvent<String>("TestEvent", "test", "data" + i, null, null, null, null, null) {
+            });
+        }
+        return events;
+    }
+
+    private static class BlockingPublisher implements EventPublisher {
+
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final List<Collection<DataEvent<?>>> batches = new ArrayList<>();
+
+        @Override
+        public void publish(DataEvent<?> event) {
+            publish(Arrays.asList(event));
+        }
+
+        @Override
+        public void publish(Collection<DataEvent<?>> events) {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (batches) {
+                batches.add(new ArrayList<>(events));
+            }
+        }
+
+        List<DataEvent<?>> published() {
+            List<DataEvent<?>> published = new ArrayList<>();
+            synchronized (batches) {
+                batches.forEach(published::addAll);
+            }
+            return published;
+        }
+
+        List<Integer> batchSizes() {
+            List<Integer> sizes = new ArrayList<>();
+            synchronized (batches) {
+                batches.forEach(batch -> sizes.add(batch.size()));
+            }
+            return sizes;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.services.event.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+public class DataEventEncodersTest {
+
+    @Test
+    public void testCreateEncoders() {
+        assertThat(DataEventEncoders.create("json")).isInstanceOf(JsonDataEventEncoder.class);
+        assertThat(DataEventEncoders.create("JSON").contentType()).isEqualTo(JsonDataEventEncoder.CONTENT_TYPE);
+        assertThat(DataEventEncoders.create("protobuf")).isInstanceOf(ProtobufDataEventEncoder.class);
+    }
+
+    @Test
+    public void testUnknownEncoding() {
+        assertThatThrownBy(() -> DataEventEncoders.create("xml"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("xml");
+    }
+}
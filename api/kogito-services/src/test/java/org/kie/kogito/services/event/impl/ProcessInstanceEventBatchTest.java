@@ -0,0 +1,221 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.services.event.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.kie.api.definition.process.Node;
+import org.kie.api.definition.process.Process;
+import org.kie.api.event.process.ProcessCompletedEvent;
+import org.kie.api.event.process.ProcessNodeLeftEvent;
+import org.kie.api.event.process.ProcessNodeTriggeredEvent;
+import org.kie.api.event.process.ProcessVariableChangedEvent;
+import org.kie.api.event.process.ProcessWorkItemTransitionEvent;
+import org.kie.api.runtime.process.HumanTaskWorkItem;
+import org.kie.api.runtime.process.NodeInstance;
+import org.kie.api.runtime.process.ProcessInstance;
+import org.kie.api.runtime.process.WorkflowProcessInstance;
+import org.kie.kogito.Addons;
+import org.kie.kogito.event.DataEvent;
+import org.kie.kogito.services.event.ProcessInstanceDataEvent;
+import org.kie.kogito.services.event.UserTaskInstanceDataEvent;
+import org.kie.kogito.services.event.VariableInstanceDataEvent;
+
+public class ProcessInstanceEventBatchTest {
+
+    @Test
+    public void testNodeInstancesFoldedById() {
+        WorkflowProcessInstance pi = processInstance("1");
+        NodeInstance start = nodeInstance("n1", null);
+        NodeInstance task = nodeInstance("n2", null);
+        Date leaveTime = new Date();
+        NodeInstance leftTask = nodeInstance("n2", leaveTime);
+
+        ProcessInstanceEventBatch batch = new ProcessInstanceEventBatch("http://localhost:8080", Addons.EMTPY);
+        batch.append(triggered(pi, start));
+        batch.append(triggered(pi, task));
+        // triggered again, first event wins
+        batch.append(triggered(pi, task));
+        batch.append(left(pi, leftTask));
+
+        Collection<DataEvent<?>> events = batch.events();
+        assertThat(events).hasSize(1);
+
+        ProcessInstanceEventBody body = ((ProcessInstanceDataEvent) events.iterator().next()).getData();
+        assertThat(body.getId()).isEqualTo("1");
+        assertThat(body.getNodeInstances()).extracting(NodeInstanceEventBody::getId).containsExactlyInAnyOrder("n1", "n2");
+        // node left event carries the latest information
+        assertThat(body.getNodeInstances())
+                .filteredOn(ni -> ni.getId().equals("n2"))
+                .extracting(NodeInstanceEventBody::getLeaveTime)
+                .containsExactly(leaveTime);
+    }
+
+    @Test
+    public void testOneEventPerProcessInstance() {
+        WorkflowProcessInstance first = processInstance("1");
+        WorkflowProcessInstance second = processInstance("2");
+
+        ProcessInstanceEventBatch batch = new ProcessInstanceEventBatch("http://localhost:8080", Addons.EMTPY);
+        batch.append(triggered(first, nodeInstance("n1", null)));
+        batch.append(triggered(second, nodeInstance("n2", null)));
+        batch.append(triggered(first, nodeInstance("n3", null)));
+        // not a process event
+        batch.append("ignored");
+
+        List<ProcessInstanceEventBody> bodies = batch.events().stream()
+                .map(event -> ((ProcessInstanceDataEvent) event).getData())
+                .collect(Collectors.toList());
+        assertThat(bodies).extracting(ProcessInstanceEventBody::getId).containsExactly("1", "2");
+        assertThat(bodies.get(0).getNodeInstances()).extracting(NodeInstanceEventBody::getId).containsExactlyInAnyOrder("n1", "n3");
+        assertThat(bodies.get(1).getNodeInstances()).extracting(NodeInstanceEventBody::getId).containsExactly("n2");
+    }
+
+    @Test
+    public void testCompletedProcessInstance() {
+        WorkflowProcessInstance pi = processInstance("1");
+        ProcessCompletedEvent completed = mock(ProcessCompletedEvent.class);
+        when(completed.getProcessInstance()).thenReturn(pi);
+
+        ProcessInstanceEventBatch batch = new ProcessInstanceEventBatch("http://localhost:8080", Addons.EMTPY);
+        batch.append(triggered(pi, nodeInstance("n1", null)));
+        batch.append(completed);
+
+        Date endDate = new Date();
+        when(pi.getState()).thenReturn(ProcessInstance.STATE_COMPLETED);
+        when(pi.getEndDate()).thenReturn(endDate);
+
+        ProcessInstanceEventBody body = ((ProcessInstanceDataEvent) batch.events().iterator().next()).getData();
+        assertThat(body.getState()).isEqualTo(ProcessInstance.STATE_COMPLETED);
+        assertThat(body.getEndDate()).isEqualTo(endDate);
+    }
+
+    @Test
+    public void testVariablesAreCopied() {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("name", "john");
+        WorkflowProcessInstance pi = processInstance("1");
+        when(pi.getVariables()).thenReturn(variables);
+
+        ProcessInstanceEventBatch batch = new ProcessInstanceEventBatch("http://localhost:8080", Addons.EMTPY);
+        batch.append(triggered(pi, nodeInstance("n1", null)));
+
+        ProcessInstanceEventBody body = ((ProcessInstanceDataEvent) batch.events().iterator().next()).getData();
+        variables.put("name", "mary");
+        assertThat(body.getVariables()).containsEntry("name", "john");
+    }
+
+    @Test
+    public void testOnlyTrackedVariablesPublished() {
+        WorkflowProcessInstance pi = processInstance("1");
+
+        ProcessInstanceEventBatch batch = new ProcessInstanceEventBatch("http://localhost:8080", Addons.EMTPY);
+        batch.append(variableChanged(pi, "tracked", "a", true));
+        batch.append(variableChanged(pi, "untracked", "b", false));
+        batch.append(variableChanged(pi, "tracked", "c", true));
+
+        List<VariableInstanceEventBody> variables = batch.events().stream()
+                .filter(VariableInstanceDataEvent.class::isInstance)
+                .map(event -> ((VariableInstanceDataEvent) event).getData())
+                .collect(Collectors.toList());
+        assertThat(variables).extracting(VariableInstanceEventBody::getVariableValue).containsExactly("a", "c");
+    }
+
+    @Test
+    public void testUserTaskPublishedOnceWithLatestState() {
+        WorkflowProcessInstance pi = processInstance("1");
+        HumanTaskWorkItem workItem = mock(HumanTaskWorkItem.class);
+        when(workItem.getId()).thenReturn("w1");
+        when(workItem.getPhaseStatus()).thenReturn("Ready");
+
+        ProcessInstanceEventBatch batch = new ProcessInstanceEventBatch("http://localhost:8080", Addons.EMTPY);
+        batch.append(workItemTransition(pi, workItem, true));
+        // not transitioned yet, ignored
+        batch.append(workItemTransition(pi, mock(HumanTaskWorkItem.class), false));
+        batch.append(workItemTransition(pi, workItem, true));
+        when(workItem.getPhaseStatus()).thenReturn("Completed");
+
+        List<UserTaskInstanceEventBody> tasks = batch.events().stream()
+                .filter(UserTaskInstanceDataEvent.class::isInstance)
+                .map(event -> ((UserTaskInstanceDataEvent) event).getData())
+                .collect(Collectors.toList());
+        assertThat(tasks).hasSize(1);
+        assertThat(tasks.get(0).getId()).isEqualTo("w1");
+        assertThat(tasks.get(0).getState()).isEqualTo("Completed");
+    }
+
+    private static WorkflowProcessInstance processInstance(String id) {
+        Process process = mock(Process.class);
+        when(process.getMetaData()).thenReturn(Collections.emptyMap());
+
+        WorkflowProcessInstance pi = mock(WorkflowProcessInstance.class);
+        when(pi.getId()).thenReturn(id);
+        when(pi.getProcessId()).thenReturn("travels");
+        when(pi.getProcess()).thenReturn(process);
+        when(pi.getState()).thenReturn(ProcessInstance.STATE_ACTIVE);
+        return pi;
+    }
+
+    private static NodeInstance nodeInstance(String id, Date leaveTime) {
+        NodeInstance ni = mock(NodeInstance.class);
+        when(ni.getId()).thenReturn(id);
+        when(ni.getNode()).thenReturn(mock(Node.class));
+        when(ni.getLeaveTime()).thenReturn(leaveTime);
+        return ni;
+    }
+
+    private static ProcessNodeTriggeredEvent triggered(ProcessInstance pi, NodeInstance ni) {
+        ProcessNodeTriggeredEvent event = mock(ProcessNodeTriggeredEvent.class);
+        when(event.getProcessInstance()).thenReturn(pi);
+        when(event.getNodeInstance()).thenReturn(ni);
+        return event;
+    }
+
+    private static ProcessNodeLeftEvent left(ProcessInstance pi, NodeInstance ni) {
+        ProcessNodeLeftEvent event = mock(ProcessNodeLeftEvent.class);
+        when(event.getProcessInstance()).thenReturn(pi);
+        when(event.getNodeInstance()).thenReturn(ni);
+        return event;
+    }
+
+    private static ProcessVariableChangedEvent variableChanged(ProcessInstance pi, String name, Object value, boolean tracked) {
+        ProcessVariableChangedEvent event = mock(ProcessVariableChangedEvent.class);
+        when(event.getProcessInstance()).thenReturn(pi);
+        when(event.getVariableId()).thenReturn(name);
+        when(event.getNewValue()).thenReturn(value);
+        when(event.hasTag(ProcessInstanceEventBatch.TRACKED)).thenReturn(tracked);
+        return event;
+    }
+
+    private static ProcessWorkItemTransitionEvent workItemTransition(ProcessInstance pi, HumanTaskWorkItem workItem, boolean transitioned) {
+        ProcessWorkItemTransitionEvent event = mock(ProcessWorkItemTransitionEvent.class);
+        when(event.getProcessInstance()).thenReturn(pi);
+        when(event.getWorkItem()).thenReturn(workItem);
+        when(event.isTransitioned()).thenReturn(transitioned);
+        return event;
+    }
+}
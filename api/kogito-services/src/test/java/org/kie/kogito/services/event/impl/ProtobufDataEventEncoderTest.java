@@ -0,0 +1,129 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.services.event.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import org.junit.jupiter.api.Test;
+import org.kie.kogito.event.AbstractDataEvent;
+import org.kie.kogito.services.event.ProcessInstanceDataEvent;
+import org.kie.kogito.services.event.VariableInstanceDataEvent;
+
+public class ProtobufDataEventEncoderTest {
+
+    private ProtobufDataEventEncoder encoder = new ProtobufDataEventEncoder(value -> value.toString().getBytes(StandardCharsets.UTF_8));
+
+    @Test
+    public void testEncodeProcessInstanceEvent() throws Exception {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("name", "john");
+        variables.put("age", 30);
+        variables.put("person", new StringBuilder("complex"));
+        ProcessInstanceEventBody body = ProcessInstanceEventBody.create()
+                .id("pi-1")
+                .processId("travels")
+                .processName("Travels")
+                .startDate(new Date(1000L))
+                .state(1)
+                .variables(variables)
+                .nodeInstance(NodeInstanceEventBody.create().id("ni-1").nodeName("Start").triggerTime(new Date(1000L)).build())
+                .build();
+
+        byte[] encoded = encoder.encode(new ProcessInstanceDataEvent("travels", "", body.metaData(), body));
+
+        CodedInputStream input = CodedInputStream.newInstance(encoded);
+        assertThat(input.readTag()).isEqualTo(WireFormat.makeTag(1, WireFormat.WIRETYPE_FIXED64));
+        assertThat(String.format("%016x", input.readFixed64())).isEqualTo(encoder.schemaFingerprint());
+
+        Map<Integer, Object> event = readFields(encoded);
+        assertThat(event.get(5)).isEqualTo("ProcessInstanceEvent");
+        assertThat(event.get(7)).isEqualTo("pi-1");
+
+        Map<Integer, Object> processInstance = readFields((byte[]) event.get(20));
+        assertThat(processInstance.get(1)).isEqualTo("pi-1");
+        assertThat(processInstance.get(4)).isEqualTo("travels");
+        assertThat(processInstance.get(6)).isEqualTo("Travels");
+
+        Map<Integer, Object> nodeInstance = readFields((byte[]) processInstance.get(12));
+        assertThat(nodeInstance.get(1)).isEqualTo("ni-1");
+        assertThat(nodeInstance.get(4)).isEqualTo("Start");
+    }
+
+    @Test
+    public void testEncodeVariableValues() throws Exception {
+        VariableInstanceEventBody body = VariableInstanceEventBody.create()
+                .processInstanceId("pi-1")
+                .processId("travels")
+                .variableName("person")
+                .variableValue(new StringBuilder("new"))
+                .variablePreviousValue(5L)
+                .build();
+
+        byte[] encoded = encoder.encode(new VariableInstanceDataEvent("travels", "", body.metaData(), body));
+
+        Map<Integer, Object> event = readFields(encoded);
+        assertThat(event.get(17)).isEqualTo("person");
+        Map<Integer, Object> variable = readFields((byte[]) event.get(22));
+        assertThat(variable.get(1)).isEqualTo("person");
+        assertThat(readFields((byte[]) variable.get(2)).get(6)).isEqualTo("new");
+
+        CodedInputStream previous = CodedInputStream.newInstance((byte[]) variable.get(3));
+        assertThat(previous.readTag()).isEqualTo(WireFormat.makeTag(2, WireFormat.WIRETYPE_VARINT));
+        assertThat(previous.readSInt64()).isEqualTo(5L);
+    }
+
+    @Test
+    public void testUnsupportedData() {
+        assertThatThrownBy(() -> encoder.encode(new AbstractDataEvent<String>("Custom", "", "data", null, null, null, null, null) {}))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /*
+     * Reads first occurrence of every length delimited field as string when it is valid UTF-8 without
+     * control characters, as bytes otherwise, skips all other fields
+     */
+    private Map<Integer, Object> readFields(byte[] data) throws Exception {
+        Map<Integer, Object> fields = new HashMap<>();
+        CodedInputStream input = CodedInputStream.newInstance(data);
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            if (WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+                byte[] value = input.readByteArray();
+                fields.putIfAbsent(WireFormat.getTagFieldNumber(tag), isText(value) ? new String(value, StandardCharsets.UTF_8) : value);
+            } else {
+                input.skipField(tag);
+            }
+        }
+        return fields;
+    }
+
+    private boolean isText(byte[] value) {
+        for (byte b : value) {
+            if (b >= 0 && b < 0x20) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -19,6 +19,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -133,4 +134,25 @@ public class DefaultUnitOfWorkManagerTest {
         assertThat(counter.get()).isEqualTo(1);
         assertThat(picounter.get()).isEqualTo(0);
     }
+    
+    @Test
+    public void testRunInUnitOfWorkOnOtherThread() throws Exception {
+        
+        UnitOfWork unit = unitOfWorkManager.newUnitOfWork();
+        unit.start();
+        
+        AtomicReference<UnitOfWork> seen = new AtomicReference<>();
+        Thread thread = new Thread(() -> unitOfWorkManager.runInUnitOfWork(unit, () -> seen.set(unitOfWorkManager.currentUnitOfWork())));
+        thread.start();
+        thread.join();
+        assertThat(seen.get()).isSameAs(unit);
+        
+        // previous unit of work is restored
+        UnitOfWork other = unitOfWorkManager.newUnitOfWork();
+        unitOfWorkManager.runInUnitOfWork(other, () -> seen.set(unitOfWorkManager.currentUnitOfWork()));
+        assertThat(seen.get()).isSameAs(other);
+        assertThat(unitOfWorkManager.currentUnitOfWork()).isSameAs(((ManagedUnitOfWork) unit).delegate());
+        unit.end();
+        assertThat(unitOfWorkManager.currentUnitOfWork()).isInstanceOf(PassThroughUnitOfWork.class);
+    }
 }
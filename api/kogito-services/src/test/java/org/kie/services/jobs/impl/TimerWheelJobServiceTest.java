@@ -0,0 +1,137 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.services.jobs.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kie.api.runtime.process.ProcessInstance;
+import org.kie.api.runtime.process.ProcessRuntime;
+import org.kie.kogito.jobs.DurationExpirationTime;
+import org.kie.kogito.jobs.ProcessInstanceJobDescription;
+import org.kie.kogito.jobs.ProcessJobDescription;
+import org.kie.kogito.services.uow.CollectingUnitOfWorkFactory;
+import org.kie.kogito.services.uow.DefaultUnitOfWorkManager;
+import org.kie.services.time.TimerInstance;
+
+public class TimerWheelJobServiceTest {
+
+    private final Map<String, AtomicInteger> triggered = new ConcurrentHashMap<>();
+    private final Map<String, List<Long>> triggeredTimerIds = new ConcurrentHashMap<>();
+
+    private CountDownLatch latch;
+    private TimerWheelJobService jobService;
+
+    @BeforeEach
+    public void setup() {
+        jobService = new TimerWheelJobService(4, 5, processRuntime(), new DefaultUnitOfWorkManager(new CollectingUnitOfWorkFactory()));
+    }
+
+    @AfterEach
+    public void cleanup() {
+        jobService.shutdown();
+    }
+
+    @Test
+    public void testAllTimersAreFired() throws Exception {
+        int timers = 1000;
+        latch = new CountDownLatch(timers);
+        for (int i = 0; i < timers; i++) {
+            jobService.scheduleProcessInstanceJob(ProcessInstanceJobDescription.of(i, DurationExpirationTime.after(i % 50), "pi" + (i % 20), "process"));
+        }
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(triggered.values().stream().mapToInt(AtomicInteger::get).sum()).isEqualTo(timers);
+        // timer id is taken from the job id
+        assertThat(triggeredTimerIds.get("pi0")).hasSize(50).allMatch(timerId -> timerId % 20 == 0);
+    }
+
+    @Test
+    public void testCancelledTimersAreNotFired() throws Exception {
+        latch = new CountDownLatch(1);
+        List<String> cancelled = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            cancelled.add(jobService.scheduleProcessInstanceJob(ProcessInstanceJobDescription.of(i, DurationExpirationTime.after(100), "cancelled", "process")));
+        }
+        jobService.scheduleProcessInstanceJob(ProcessInstanceJobDescription.of(100, DurationExpirationTime.after(200), "fired", "process"));
+
+        for (String id : cancelled) {
+            assertThat(jobService.cancelJob(id)).isTrue();
+        }
+        assertThat(jobService.cancelJob(cancelled.get(0))).isFalse();
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(triggered).containsOnlyKeys("fired");
+    }
+
+    @Test
+    public void testRepeatableTimerFiredUpToLimit() throws Exception {
+        latch = new CountDownLatch(3);
+        jobService.scheduleProcessInstanceJob(ProcessInstanceJobDescription.of(1, DurationExpirationTime.repeat(10, 20L, 3), "repeat", "process"));
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        // give it a chance to fire once more if it was not removed
+        Thread.sleep(100);
+        assertThat(triggered.get("repeat").get()).isEqualTo(3);
+        assertThat(jobService.scheduledJobs).isEmpty();
+    }
+
+    @Test
+    public void testSchedulingAfterShutdownFails() {
+        jobService.shutdown();
+
+        assertThatThrownBy(() -> jobService.scheduleProcessInstanceJob(ProcessInstanceJobDescription.of(1, DurationExpirationTime.after(10), "pi", "process")))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> jobService.scheduleProcessJob(ProcessJobDescription.of(DurationExpirationTime.after(10), 1, "process")))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(jobService.scheduledJobs).isEmpty();
+    }
+
+    private ProcessRuntime processRuntime() {
+        return (ProcessRuntime) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ProcessRuntime.class}, (proxy, method, args) -> {
+            if (method.getName().equals("getProcessInstance")) {
+                return processInstance((String) args[0]);
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    private ProcessInstance processInstance(String id) {
+        return (ProcessInstance) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ProcessInstance.class}, (proxy, method, args) -> {
+            if (method.getName().equals("signalEvent")) {
+                TimerInstance timer = (TimerInstance) args[1];
+                triggered.computeIfAbsent(id, k -> new AtomicInteger()).incrementAndGet();
+                triggeredTimerIds.computeIfAbsent(id, k -> new ArrayList<>()).add(timer.getTimerId());
+                latch.countDown();
+                return null;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+}
@@ -52,12 +52,16 @@ import org.slf4j.LoggerFactory;
 public class ObjectTypeNodeCompiler {
     private static final String NEWLINE = "\n";
     private static final String PACKAGE_NAME = "org.drools.core.reteoo.compiled";
-    private static final String BINARY_PACKAGE_NAME = PACKAGE_NAME.replace('.', '/');
     /**
      * This field hold the fully qualified class name that the {@link ObjectTypeNode} is representing.
      */
     private String className;
 
+    /**
+     * This field will hold the package of the generated class
+     */
+    private String packageName;
+
     /**
      * This field will hold the "simple" name of the generated class
      */
@@ -74,25 +78,35 @@ public class ObjectTypeNodeCompiler {
 
 
     private ObjectTypeNodeCompiler(ObjectTypeNode objectTypeNode) {
+        this(objectTypeNode, PACKAGE_NAME, UUID.randomUUID().toString().replace("-", ""));
+    }
+
+    private ObjectTypeNodeCompiler(ObjectTypeNode objectTypeNode, String packageName, String classNameSuffix) {
         this.objectTypeNode = objectTypeNode;
+        this.packageName = packageName;
 
         ClassObjectType classObjectType = (ClassObjectType) objectTypeNode.getObjectType();
         this.className = classObjectType.getClassName().replace("$", ".");
         final String classObjectTypeName = classObjectType.getClassName().replace('.', '_');
-        final String randomId = UUID.randomUUID().toString().replace("-", "");
         generatedClassSimpleName = String.format("Compiled%sNetwork%d%s"
                 , classObjectTypeName
                 , objectTypeNode.getId()
-                , randomId);
+                , classNameSuffix);
     }
 
     public static class SourceGenerated {
         public final String source;
         public final IndexableConstraint indexableConstraint;
+        public final String className;
 
         public SourceGenerated(String source, IndexableConstraint indexableConstraint) {
+            this(source, indexableConstraint, null);
+        }
+
+        public SourceGenerated(String source, IndexableConstraint indexableConstraint, String className) {
             this.source = source;
             this.indexableConstraint = indexableConstraint;
+            this.className = className;
         }
     }
 
@@ -127,14 +141,14 @@ public class ObjectTypeNodeCompiler {
         // end of class
         builder.append("}").append(NEWLINE);
 
-        return new SourceGenerated(builder.toString(), parser.getIndexableConstraint());
+        return new SourceGenerated(builder.toString(), parser.getIndexableConstraint(), getName());
     }
 
     /**
      * This method will output the package statement, followed by the opening of the class declaration
      */
     private void createClassDeclaration() {
-        builder.append("package ").append(PACKAGE_NAME).append(";").append(NEWLINE);
+        builder.append("package ").append(packageName).append(";").append(NEWLINE);
         builder.append("public class ").append(generatedClassSimpleName).append(" extends ").
                 append(CompiledNetwork.class.getName()).append("{ ").append(NEWLINE);
 
@@ -205,7 +219,7 @@ public class ObjectTypeNodeCompiler {
      * @return binary name of generated class
      */
     private String getBinaryName() {
-        return BINARY_PACKAGE_NAME + "/" + generatedClassSimpleName + ".class";
+        return getBinaryPackageName() + "/" + generatedClassSimpleName + ".class";
     }
 
     /**
@@ -214,15 +228,35 @@ public class ObjectTypeNodeCompiler {
      * @return binary name of generated class
      */
     private String getSourceName() {
-        return BINARY_PACKAGE_NAME + "/" + generatedClassSimpleName + ".java";
+        return getBinaryPackageName() + "/" + generatedClassSimpleName + ".java";
     }
 
     private String getPackageName() {
-        return PACKAGE_NAME;
+        return packageName;
+    }
+
+    private String getBinaryPackageName() {
+        return packageName.replace('.', '/');
     }
 
     private static final JavaCompiler JAVA_COMPILER = JavaCompilerFactory.INSTANCE.loadCompiler(JavaDialectConfiguration.CompilerType.NATIVE, "1.8");
 
+    /**
+     * Generates the source of a {@link CompiledNetwork} for the specified {@link ObjectTypeNode} without compiling it,
+     * so that it can be compiled ahead of time together with the rest of the application. The name of the generated
+     * class only depends on the given package, the class of the node and its id.
+     *
+     * @param objectTypeNode OTN we are generating a compiled network for
+     * @param packageName    package of the generated class
+     * @return source of the generated class, its fully qualified name is available as {@link SourceGenerated#className}
+     */
+    public static SourceGenerated generateSource(ObjectTypeNode objectTypeNode, String packageName) {
+        if (objectTypeNode == null) {
+            throw new IllegalArgumentException("ObjectTypeNode cannot be null!");
+        }
+        return new ObjectTypeNodeCompiler(objectTypeNode, packageName, "").generateSource();
+    }
+
     /**
      * Creates a {@link CompiledNetwork} for the specified {@link ObjectTypeNode}. The {@link PackageBuilder} is used
      * to compile the generated source and load the class.
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.compiler.command;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.drools.compiler.command.PropagationListTest.Checker;
+import org.drools.compiler.command.PropagationListTest.TestEntry;
+import org.drools.compiler.oopath.RecursiveQueryBenchmark.BenchmarkResult;
+import org.drools.core.common.InternalWorkingMemory;
+import org.drools.core.phreak.LockFreePropagationList;
+import org.drools.core.phreak.PropagationList;
+import org.drools.core.phreak.SynchronizedPropagationList;
+import org.kie.api.runtime.KieSession;
+import org.kie.internal.utils.KieHelper;
+
+/**
+ * Compares the synchronized and the lock-free propagation lists with an increasing number of threads
+ * adding entries while the engine thread keeps flushing them.
+ */
+public class PropagationListBenchmark {
+
+    private static final int ENTRIES_NR = 4_000_000;
+
+    public static void main( String[] args ) throws Exception {
+        KieSession ksession = new KieHelper().build().newKieSession();
+        InternalWorkingMemory wm = (InternalWorkingMemory) ksession;
+
+        for (int threads = 1; threads <= 32; threads *= 2) {
+            System.out.println( "-------------------------------------" );
+            System.out.println( "Running with " + threads + " producer threads" );
+            runTest( "Synchronized", SynchronizedPropagationList::new, wm, threads );
+            runTest( "Lock-free", LockFreePropagationList::new, wm, threads );
+        }
+
+        ksession.dispose();
+    }
+
+    private static void runTest( String name, Function<InternalWorkingMemory, PropagationList> factory, InternalWorkingMemory wm, int threads ) throws Exception {
+        // warmup
+        for (int i = 0; i < 3; i++) {
+            execTest( factory.apply( wm ), threads );
+            System.gc();
+        }
+
+        BenchmarkResult result = new BenchmarkResult( name );
+        for (int i = 0; i < 10; i++) {
+            result.accumulate( execTest( factory.apply( wm ), threads ) );
+            System.gc();
+        }
+
+        System.out.println( result );
+    }
+
+    private static long execTest( PropagationList propagationList, int threads ) throws Exception {
+        int entriesPerThread = ENTRIES_NR / threads;
+        Checker checker = new Checker( threads );
+        CountDownLatch start = new CountDownLatch( 1 );
+        AtomicInteger running = new AtomicInteger( threads );
+
+        for (int i = 0; i < threads; i++) {
+            int producer = i;
+            Thread thread = new Thread( () -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException( e );
+                }
+                for (int j = 0; j < entriesPerThread; j++) {
+                    propagationList.addEntry( new TestEntry( checker, producer, j ) );
+                }
+                running.decrementAndGet();
+            } );
+            thread.setDaemon( true );
+            thread.start();
+        }
+
+        long startTime = System.nanoTime();
+        start.countDown();
+        while (running.get() > 0) {
+            propagationList.flush();
+        }
+        propagationList.flush();
+        return System.nanoTime() - startTime;
+    }
+}
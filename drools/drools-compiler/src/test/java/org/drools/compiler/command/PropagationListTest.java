@@ -17,16 +17,28 @@ package org.drools.compiler.command;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.drools.core.RuleBaseConfiguration;
 import org.drools.core.common.InternalWorkingMemory;
+import org.drools.core.phreak.LockFreePropagationList;
 import org.drools.core.phreak.PropagationEntry;
 import org.drools.core.phreak.PropagationList;
 import org.drools.core.phreak.SynchronizedPropagationList;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import org.kie.api.KieServices;
+import org.kie.api.io.ResourceType;
+import org.kie.api.runtime.KieSession;
+import org.kie.internal.utils.KieHelper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class PropagationListTest {
 
@@ -93,6 +105,86 @@ public class PropagationListTest {
         }
     }
 
+    @Test
+    public void testLockFreePropagationListKeepsInsertionOrder() throws Exception {
+        final int OBJECT_NR = 10000;
+        final int THREAD_NR = 8;
+
+        final KieSession ksession = new KieHelper().build().newKieSession();
+        final ExecutorService executor = Executors.newFixedThreadPool(THREAD_NR);
+        try {
+            final Checker checker = new Checker(THREAD_NR);
+            final PropagationList propagationList = new LockFreePropagationList((InternalWorkingMemory) ksession);
+            final CompletionService<Boolean> ecs = new ExecutorCompletionService<Boolean>(executor);
+            for (int i = 0; i < THREAD_NR; i++) {
+                ecs.submit(getTask(OBJECT_NR, checker, propagationList, i));
+            }
+
+            // flush while the producers are still adding entries
+            int done = 0;
+            while (done < THREAD_NR) {
+                propagationList.flush();
+                if (ecs.poll() != null) {
+                    done++;
+                }
+            }
+            propagationList.flush();
+
+            assertTrue(propagationList.isEmpty());
+            for (int i = 0; i < THREAD_NR; i++) {
+                assertEquals(OBJECT_NR, checker.counters[i]);
+            }
+        } finally {
+            executor.shutdownNow();
+            ksession.dispose();
+        }
+    }
+
+    @Test
+    public void testFireUntilHaltWithLockFreePropagationList() throws Exception {
+        final int OBJECT_NR = 1000;
+        final int THREAD_NR = 4;
+
+        final String drl =
+                "global java.util.concurrent.atomic.AtomicInteger counter;\n" +
+                "global java.util.concurrent.CountDownLatch latch;\n" +
+                "rule R when\n" +
+                "  Integer()\n" +
+                "then\n" +
+                "  counter.incrementAndGet();\n" +
+                "  latch.countDown();\n" +
+                "end\n";
+
+        final RuleBaseConfiguration conf = (RuleBaseConfiguration) KieServices.Factory.get().newKieBaseConfiguration();
+        conf.setLockFreePropagationList(true);
+        final KieSession ksession = new KieHelper().addContent(drl, ResourceType.DRL).build(conf).newKieSession();
+        assertTrue(((InternalWorkingMemory) ksession).getAgenda().getPropagationList() instanceof LockFreePropagationList);
+
+        final AtomicInteger counter = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(OBJECT_NR * THREAD_NR);
+        ksession.setGlobal("counter", counter);
+        ksession.setGlobal("latch", latch);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(THREAD_NR + 1);
+        try {
+            executor.submit(() -> ksession.fireUntilHalt());
+            for (int i = 0; i < THREAD_NR; i++) {
+                executor.submit(() -> {
+                    for (int j = 0; j < OBJECT_NR; j++) {
+                        ksession.insert(j);
+                    }
+                });
+            }
+
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            assertEquals(OBJECT_NR * THREAD_NR, counter.get());
+        } finally {
+            ksession.halt();
+            executor.shutdownNow();
+            ksession.dispose();
+        }
+    }
+
     private void analyzeResults(final long[] results) {
         long min = results[0];
         long max = results[0];
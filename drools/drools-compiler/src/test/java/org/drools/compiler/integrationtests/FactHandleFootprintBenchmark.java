@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.compiler.integrationtests;
+
+import org.drools.core.RuleBaseConfiguration;
+import org.kie.api.KieBase;
+import org.kie.api.KieServices;
+import org.kie.api.io.ResourceType;
+import org.kie.api.runtime.KieSession;
+import org.kie.internal.utils.KieHelper;
+
+/**
+ * Measures the heap retained by a session for each inserted fact, so that the fact handle layout
+ * can be compared across versions running this same benchmark.
+ * The facts are preallocated and the retained memory is sampled after a full gc, so the
+ * result only accounts for the fact handles, their tuples and the node memories.
+ */
+public class FactHandleFootprintBenchmark {
+
+    private static final String DRL =
+            "rule R1 when\n" +
+            "  Integer( this > 0 )\n" +
+            "then\n" +
+            "end\n" +
+            "rule R2 when\n" +
+            "  String( length > 0 )\n" +
+            "then\n" +
+            "end\n";
+
+    private static final int FACTS_NR = 500_000;
+
+    public static void main( String[] args ) {
+        for (int i = 0; i < 3; i++) {
+            System.out.println( "-------------------------------------" );
+            runTest( "Single thread evaluation", getKieBase( false ) );
+            runTest( "Multithread evaluation", getKieBase( true ) );
+        }
+    }
+
+    private static KieBase getKieBase( boolean multithread ) {
+        RuleBaseConfiguration conf = (RuleBaseConfiguration) KieServices.Factory.get().newKieBaseConfiguration();
+        conf.setMultithreadEvaluation( multithread );
+        return new KieHelper().addContent( DRL, ResourceType.DRL ).build( conf );
+    }
+
+    private static void runTest( String name, KieBase kbase ) {
+        Object[] facts = new Object[FACTS_NR];
+        for (int i = 0; i < FACTS_NR; i++) {
+            facts[i] = i % 2 == 0 ? Integer.valueOf( i + 1 ) : "fact" + i;
+        }
+
+        KieSession ksession = kbase.newKieSession();
+        ksession.insert( "warmup" );
+        ksession.fireAllRules();
+
+        long before = usedMemory();
+        for (Object fact : facts) {
+            ksession.insert( fact );
+        }
+        ksession.fireAllRules();
+        long after = usedMemory();
+
+        System.out.println( name + ": " + ( ( after - before ) / FACTS_NR ) + " bytes per fact" );
+        ksession.dispose();
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep( 100 );
+            } catch (InterruptedException e) {
+                throw new RuntimeException( e );
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.compiler.integrationtests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.drools.compiler.integrationtests.RangeIndexTest.Range;
+import org.drools.compiler.integrationtests.RangeIndexTest.Value;
+import org.drools.compiler.oopath.RecursiveQueryBenchmark.BenchmarkResult;
+import org.drools.core.RuleBaseConfiguration;
+import org.kie.api.KieBase;
+import org.kie.api.KieServices;
+import org.kie.api.io.ResourceType;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.FactHandle;
+import org.kie.internal.utils.KieHelper;
+
+/**
+ * Compares a not node constrained on a range, like <code>not Value( value &gt; $lo, value &lt; $hi )</code>,
+ * evaluated with the range index and with the single comparison index.
+ */
+public class RangeIndexBenchmark {
+
+    private static final String DRL =
+            "import " + Range.class.getCanonicalName() + ";\n" +
+            "import " + Value.class.getCanonicalName() + ";\n" +
+            "rule R when\n" +
+            "  $r : Range( $lo : lo, $hi : hi )\n" +
+            "  not Value( value > $lo, value < $hi )\n" +
+            "then\n" +
+            "end\n";
+
+    private static final int VALUE_DOMAIN = 1_000_000;
+    private static final int RANGE_WIDTH = 100;
+
+    public static void main( String[] args ) {
+        int n = 1000;
+        for (int i = 0; i < 5; i++) {
+            System.out.println( "-------------------------------------" );
+            System.out.println( "Running with " + n  + " ranges and values" );
+            System.out.println( "Range index" );
+            runTest( getKieBase( true ), n );
+            System.out.println( "Comparison index" );
+            runTest( getKieBase( false ), n );
+
+            n *= 2;
+            System.gc();
+        }
+    }
+
+    private static void runTest( KieBase kbase, int n ) {
+        // warmup
+        for (int i = 0; i < 3; i++) {
+            execTest( kbase, n );
+            System.gc();
+        }
+
+        BenchmarkResult batch = new BenchmarkResult( "Batch" );
+        for (int i = 0; i < 10; i++) {
+            batch.accumulate( execTest( kbase, n ) );
+            System.gc();
+        }
+
+        System.out.println( batch );
+    }
+
+    private static KieBase getKieBase( boolean rangeIndex ) {
+        RuleBaseConfiguration conf = (RuleBaseConfiguration) KieServices.Factory.get().newKieBaseConfiguration();
+        conf.setRangeIndex( rangeIndex );
+        return new KieHelper().addContent( DRL, ResourceType.DRL ).build( conf );
+    }
+
+    public static long execTest( KieBase kbase, int n ) {
+        Random random = new Random( 0 );
+        KieSession ksession = kbase.newKieSession();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            int lo = random.nextInt( VALUE_DOMAIN );
+            ksession.insert( new Range( i, lo, lo + RANGE_WIDTH ) );
+        }
+        List<FactHandle> values = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            values.add( ksession.insert( new Value( random.nextInt( VALUE_DOMAIN ) ) ) );
+        }
+        ksession.fireAllRules();
+
+        // moving the values around forces the blocked ranges to look for a new blocker
+        for (FactHandle fh : values) {
+            Value value = (Value) ksession.getObject( fh );
+            value.setValue( random.nextInt( VALUE_DOMAIN ) );
+            ksession.update( fh, value );
+        }
+        ksession.fireAllRules();
+        long result = System.nanoTime() - start;
+
+        ksession.dispose();
+        return result;
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.compiler.integrationtests;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.drools.core.RuleBaseConfiguration;
+import org.drools.core.common.InternalWorkingMemory;
+import org.drools.core.reteoo.BetaMemory;
+import org.drools.core.reteoo.BetaNode;
+import org.drools.core.reteoo.ObjectTypeNode;
+import org.drools.core.util.index.LeftTupleIndexRangeRBTree;
+import org.drools.core.util.index.RightTupleIndexRangeRBTree;
+import org.drools.core.util.index.TupleIndexRBTree;
+import org.drools.core.util.index.TupleList;
+import org.junit.jupiter.api.Test;
+import org.kie.api.KieBase;
+import org.kie.api.KieServices;
+import org.kie.api.io.ResourceType;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.FactHandle;
+import org.kie.internal.utils.KieHelper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RangeIndexTest {
+
+    public static class Range {
+        private final int id;
+        private int lo;
+        private int hi;
+
+        public Range( int id, int lo, int hi ) {
+            this.id = id;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public int getLo() {
+            return lo;
+        }
+
+        public void setLo( int lo ) {
+            this.lo = lo;
+        }
+
+        public int getHi() {
+            return hi;
+        }
+
+        public void setHi( int hi ) {
+            this.hi = hi;
+        }
+    }
+
+    public static class Value {
+        private int value;
+
+        public Value( int value ) {
+            this.value = value;
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+        public void setValue( int value ) {
+            this.value = value;
+        }
+    }
+
+    private static final String NOT_DRL =
+            "import " + Range.class.getCanonicalName() + ";\n" +
+            "import " + Value.class.getCanonicalName() + ";\n" +
+            "global java.util.List list;\n" +
+            "rule R when\n" +
+            "  $r : Range( $lo : lo, $hi : hi )\n" +
+            "  not Value( value > $lo, value < $hi )\n" +
+            "then\n" +
+            "  list.add( $r.getId() );\n" +
+            "end\n";
+
+    private static final String EXISTS_DRL =
+            "import " + Range.class.getCanonicalName() + ";\n" +
+            "import " + Value.class.getCanonicalName() + ";\n" +
+            "global java.util.List list;\n" +
+            "rule R when\n" +
+            "  $r : Range( $lo : lo, $hi : hi )\n" +
+            "  exists Value( value <= $hi, value >= $lo )\n" +
+            "then\n" +
+            "  list.add( $r.getId() );\n" +
+            "end\n";
+
+    private static final String JOIN_DRL =
+            "import " + Range.class.getCanonicalName() + ";\n" +
+            "import " + Value.class.getCanonicalName() + ";\n" +
+            "global java.util.List list;\n" +
+            "rule R when\n" +
+            "  $r : Range( $lo : lo, $hi : hi )\n" +
+            "  $v : Value( value >= $lo, value < $hi )\n" +
+            "then\n" +
+            "  list.add( $r.getId() * 100 + $v.getValue() );\n" +
+            "end\n";
+
+    private static final String JOIN_COMPARISON_DRL =
+            "import " + Range.class.getCanonicalName() + ";\n" +
+            "import " + Value.class.getCanonicalName() + ";\n" +
+            "global java.util.List list;\n" +
+            "rule R when\n" +
+            "  $r : Range( $hi : hi )\n" +
+            "  $v : Value( value > $hi )\n" +
+            "then\n" +
+            "  list.add( $r.getId() * 100 + $v.getValue() );\n" +
+            "end\n";
+
+    @Test
+    public void testRangeIndexMemories() {
+        KieSession ksession = getKieBase( NOT_DRL, true ).newKieSession();
+        BetaMemory bm = getBetaMemory( ksession );
+        assertTrue( bm.getLeftTupleMemory() instanceof LeftTupleIndexRangeRBTree );
+        assertTrue( bm.getRightTupleMemory() instanceof RightTupleIndexRangeRBTree );
+        ksession.dispose();
+
+        ksession = getKieBase( NOT_DRL, false ).newKieSession();
+        bm = getBetaMemory( ksession );
+        assertTrue( bm.getLeftTupleMemory() instanceof TupleIndexRBTree );
+        assertTrue( bm.getRightTupleMemory() instanceof TupleIndexRBTree );
+        ksession.dispose();
+    }
+
+    @Test
+    public void testJoinIndexMemories() {
+        KieSession ksession = getKieBase( JOIN_DRL, true ).newKieSession();
+        BetaMemory bm = getBetaMemory( ksession );
+        assertTrue( bm.getLeftTupleMemory() instanceof LeftTupleIndexRangeRBTree );
+        assertTrue( bm.getRightTupleMemory() instanceof RightTupleIndexRangeRBTree );
+        ksession.dispose();
+
+        ksession = getKieBase( JOIN_COMPARISON_DRL, true ).newKieSession();
+        bm = getBetaMemory( ksession );
+        assertTrue( bm.getLeftTupleMemory() instanceof TupleIndexRBTree );
+        assertTrue( bm.getRightTupleMemory() instanceof TupleIndexRBTree );
+        ksession.dispose();
+
+        // without the option join nodes are not indexed on comparisons
+        ksession = getKieBase( JOIN_DRL, false ).newKieSession();
+        bm = getBetaMemory( ksession );
+        assertTrue( bm.getLeftTupleMemory() instanceof TupleList );
+        assertTrue( bm.getRightTupleMemory() instanceof TupleList );
+        ksession.dispose();
+    }
+
+    @Test
+    public void testJoinWithRangeIndex() {
+        KieSession ksession = getKieBase( JOIN_DRL, true ).newKieSession();
+        List<Integer> list = new ArrayList<>();
+        ksession.setGlobal( "list", list );
+
+        ksession.insert( new Range( 1, 0, 10 ) );
+        ksession.insert( new Range( 2, 10, 20 ) );
+        ksession.insert( new Range( 3, 5, 15 ) );
+        ksession.insert( new Value( 5 ) );
+        FactHandle fh = ksession.insert( new Value( 10 ) );
+        ksession.insert( new Value( 20 ) );
+
+        ksession.fireAllRules();
+        Collections.sort( list );
+        assertEquals( Arrays.asList( 105, 210, 305, 310 ), list );
+
+        // moving a value to another bucket matches it with other ranges
+        list.clear();
+        ksession.update( fh, new Value( 3 ) );
+        ksession.fireAllRules();
+        assertEquals( Arrays.asList( 103 ), list );
+    }
+
+    @Test
+    public void testNotWithRangeIndex() {
+        KieSession ksession = getKieBase( NOT_DRL, true ).newKieSession();
+        List<Integer> list = new ArrayList<>();
+        ksession.setGlobal( "list", list );
+
+        ksession.insert( new Range( 1, 0, 10 ) );
+        ksession.insert( new Range( 2, 10, 20 ) );
+        ksession.insert( new Range( 3, 5, 15 ) );
+        FactHandle fh = ksession.insert( new Value( 10 ) );
+        ksession.insert( new Value( 20 ) );
+
+        ksession.fireAllRules();
+        Collections.sort( list );
+        // bounds are exclusive, so 10 and 20 only fall in the third range
+        assertEquals( Arrays.asList( 1, 2 ), list );
+
+        list.clear();
+        ksession.delete( fh );
+        ksession.fireAllRules();
+        assertEquals( Arrays.asList( 3 ), list );
+    }
+
+    @Test
+    public void testNotSameResultsWithAndWithoutRangeIndex() {
+        checkSameResults( NOT_DRL );
+    }
+
+    @Test
+    public void testExistsSameResultsWithAndWithoutRangeIndex() {
+        checkSameResults( EXISTS_DRL );
+    }
+
+    @Test
+    public void testJoinSameResultsWithAndWithoutRangeIndex() {
+        checkSameResults( JOIN_DRL );
+    }
+
+    @Test
+    public void testJoinComparisonSameResultsWithAndWithoutRangeIndex() {
+        checkSameResults( JOIN_COMPARISON_DRL );
+    }
+
+    private void checkSameResults( String drl ) {
+        List<Integer> indexed = runRandomScenario( getKieBase( drl, true ) );
+        List<Integer> notIndexed = runRandomScenario( getKieBase( drl, false ) );
+        assertTrue( notIndexed.size() > 0 );
+        assertEquals( notIndexed, indexed );
+    }
+
+    private List<Integer> runRandomScenario( KieBase kbase ) {
+        Random random = new Random( 0 );
+        KieSession ksession = kbase.newKieSession();
+        List<Integer> list = new ArrayList<>();
+        ksession.setGlobal( "list", list );
+        List<Integer> result = new ArrayList<>();
+
+        List<FactHandle> ranges = new ArrayList<>();
+        List<FactHandle> values = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            int lo = random.nextInt( 100 );
+            ranges.add( ksession.insert( new Range( i, lo, lo + random.nextInt( 10 ) ) ) );
+        }
+        for (int i = 0; i < 50; i++) {
+            values.add( ksession.insert( new Value( random.nextInt( 100 ) ) ) );
+        }
+        collect( ksession, list, result );
+
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 10; i++) {
+                FactHandle fh = values.get( random.nextInt( values.size() ) );
+                Value value = (Value) ksession.getObject( fh );
+                value.setValue( random.nextInt( 100 ) );
+                ksession.update( fh, value );
+            }
+            for (int i = 0; i < 10; i++) {
+                FactHandle fh = ranges.get( random.nextInt( ranges.size() ) );
+                Range range = (Range) ksession.getObject( fh );
+                range.setLo( random.nextInt( 100 ) );
+                range.setHi( range.getLo() + random.nextInt( 10 ) );
+                ksession.update( fh, range );
+            }
+            FactHandle removed = values.remove( random.nextInt( values.size() ) );
+            ksession.delete( removed );
+            values.add( ksession.insert( new Value( random.nextInt( 100 ) ) ) );
+            collect( ksession, list, result );
+        }
+
+        ksession.dispose();
+        return result;
+    }
+
+    private void collect( KieSession ksession, List<Integer> list, List<Integer> result ) {
+        ksession.fireAllRules();
+        Collections.sort( list );
+        result.addAll( list );
+        result.add( -1 );
+        list.clear();
+    }
+
+    private KieBase getKieBase( String drl, boolean rangeIndex ) {
+        RuleBaseConfiguration conf = (RuleBaseConfiguration) KieServices.Factory.get().newKieBaseConfiguration();
+        conf.setRangeIndex( rangeIndex );
+        return new KieHelper().addContent( drl, ResourceType.DRL ).build( conf );
+    }
+
+    private BetaMemory getBetaMemory( KieSession ksession ) {
+        ObjectTypeNode otn = LinkingTest.getObjectTypeNode( ksession.getKieBase(), Value.class );
+        BetaNode betaNode = (BetaNode) otn.getObjectSinkPropagator().getSinks()[0];
+        return (BetaMemory) ((InternalWorkingMemory) ksession).getNodeMemory( betaNode );
+    }
+}
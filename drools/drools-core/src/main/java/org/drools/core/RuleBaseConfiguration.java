@@ -96,6 +96,8 @@ import static org.drools.core.util.MemoryUtil.hasPermGen;
  * drools.compositeKeyDepth = &lt;1..3&gt;
  * drools.indexLeftBetaMemory = &lt;true/false&gt;
  * drools.indexRightBetaMemory = &lt;true/false&gt;
+ * drools.rangeIndex = &lt;true/false&gt;
+ * drools.lockFreePropagationList = &lt;true/false&gt;
  * drools.equalityBehavior = &lt;identity|equality&gt;
  * drools.conflictResolver = &lt;qualified class name&gt;
  * drools.consequenceExceptionHandler = &lt;qualified class name&gt;
@@ -120,6 +122,10 @@ public class RuleBaseConfiguration
 
     public static final String DEFAULT_SIGN_ON_SERIALIZATION = "false";
 
+    public static final String RANGE_INDEX_PROPERTY = "drools.rangeIndex";
+
+    public static final String LOCK_FREE_PROPAGATION_LIST_PROPERTY = "drools.lockFreePropagationList";
+
     protected static final transient Logger logger = LoggerFactory.getLogger(RuleBaseConfiguration.class);
 
     private ChainedProperties chainedProperties;
@@ -139,6 +145,8 @@ public class RuleBaseConfiguration
     private int             compositeKeyDepth;
     private boolean         indexLeftBetaMemory;
     private boolean         indexRightBetaMemory;
+    private boolean         rangeIndex;
+    private boolean         lockFreePropagationList;
     private AssertBehaviour assertBehaviour;
     private String          consequenceExceptionHandler;
     private String          ruleBaseUpdateHandler;
@@ -210,6 +218,8 @@ public class RuleBaseConfiguration
         out.writeBoolean(declarativeAgenda);
         out.writeObject(componentFactory);
         out.writeInt(sessionPoolSize);
+        out.writeBoolean(rangeIndex);
+        out.writeBoolean(lockFreePropagationList);
     }
 
     public void readExternal(ObjectInput in) throws IOException,
@@ -242,6 +252,8 @@ public class RuleBaseConfiguration
         declarativeAgenda = in.readBoolean();
         componentFactory = (KieComponentFactory) in.readObject();
         sessionPoolSize = in.readInt();
+        rangeIndex = in.readBoolean();
+        lockFreePropagationList = in.readBoolean();
     }
 
     /**
@@ -313,6 +325,10 @@ public class RuleBaseConfiguration
             setIndexLeftBetaMemory( StringUtils.isEmpty( value ) ? true : Boolean.valueOf(value));
         } else if ( name.equals( IndexRightBetaMemoryOption.PROPERTY_NAME ) ) {
             setIndexRightBetaMemory( StringUtils.isEmpty( value ) ? true : Boolean.valueOf(value));
+        } else if ( name.equals( RANGE_INDEX_PROPERTY ) ) {
+            setRangeIndex( StringUtils.isEmpty( value ) ? false : Boolean.valueOf(value));
+        } else if ( name.equals( LOCK_FREE_PROPAGATION_LIST_PROPERTY ) ) {
+            setLockFreePropagationList( StringUtils.isEmpty( value ) ? false : Boolean.valueOf(value));
         } else if ( name.equals( IndexPrecedenceOption.PROPERTY_NAME ) ) {
             setIndexPrecedenceOption( StringUtils.isEmpty( value ) ? IndexPrecedenceOption.EQUALITY_PRIORITY : IndexPrecedenceOption.determineIndexPrecedence(value));
         } else if ( name.equals( EqualityBehaviorOption.PROPERTY_NAME ) ) {
@@ -366,6 +382,10 @@ public class RuleBaseConfiguration
             return Boolean.toString( isIndexLeftBetaMemory() );
         } else if ( name.equals( IndexRightBetaMemoryOption.PROPERTY_NAME ) ) {
             return Boolean.toString( isIndexRightBetaMemory());
+        } else if ( name.equals( RANGE_INDEX_PROPERTY ) ) {
+            return Boolean.toString( isRangeIndex() );
+        } else if ( name.equals( LOCK_FREE_PROPAGATION_LIST_PROPERTY ) ) {
+            return Boolean.toString( isLockFreePropagationList() );
         } else if ( name.equals( IndexPrecedenceOption.PROPERTY_NAME ) ) {
             return getIndexPrecedenceOption().getValue();
         } else if ( name.equals( EqualityBehaviorOption.PROPERTY_NAME ) ) {
@@ -444,6 +464,10 @@ public class RuleBaseConfiguration
 
         setIndexRightBetaMemory(Boolean.valueOf(this.chainedProperties.getProperty(IndexRightBetaMemoryOption.PROPERTY_NAME, "true")).booleanValue());
 
+        setRangeIndex(Boolean.valueOf(this.chainedProperties.getProperty(RANGE_INDEX_PROPERTY, "false")).booleanValue());
+
+        setLockFreePropagationList(Boolean.valueOf(this.chainedProperties.getProperty(LOCK_FREE_PROPAGATION_LIST_PROPERTY, "false")).booleanValue());
+
         setIndexPrecedenceOption(IndexPrecedenceOption.determineIndexPrecedence(this.chainedProperties.getProperty(IndexPrecedenceOption.PROPERTY_NAME, "equality")));
 
         setAssertBehaviour(AssertBehaviour.determineAssertBehaviour(this.chainedProperties.getProperty(EqualityBehaviorOption.PROPERTY_NAME, "identity")));
@@ -643,6 +667,34 @@ public class RuleBaseConfiguration
         this.indexRightBetaMemory = indexRightBetaMemory;
     }
 
+    /**
+     * Returns true if a pair of opposite comparison constraints on the same field, like
+     * <code>value &gt; $a.low, value &lt; $a.high</code>, can be indexed together
+     * in the memories of not and exists nodes. Join nodes are then indexed on comparison
+     * constraints as well, either on a single one, like <code>amount &gt; $b.limit</code>, or on such a pair.
+     */
+    public boolean isRangeIndex() {
+        return this.rangeIndex;
+    }
+
+    public void setRangeIndex(final boolean rangeIndex) {
+        checkCanChange(); // throws an exception if a change isn't possible;
+        this.rangeIndex = rangeIndex;
+    }
+
+    /**
+     * Returns true if the sessions queue the propagations coming from other threads
+     * in a lock-free list instead of a synchronized one.
+     */
+    public boolean isLockFreePropagationList() {
+        return this.lockFreePropagationList;
+    }
+
+    public void setLockFreePropagationList(final boolean lockFreePropagationList) {
+        checkCanChange(); // throws an exception if a change isn't possible;
+        this.lockFreePropagationList = lockFreePropagationList;
+    }
+
     public IndexPrecedenceOption getIndexPrecedenceOption() {
         return this.indexPrecedenceOption;
     }
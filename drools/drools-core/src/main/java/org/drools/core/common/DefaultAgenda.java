@@ -35,6 +35,7 @@ import org.drools.core.concurrent.SequentialRuleEvaluator;
 import org.drools.core.definitions.rule.impl.RuleImpl;
 import org.drools.core.impl.InternalKnowledgeBase;
 import org.drools.core.phreak.ExecutableEntry;
+import org.drools.core.phreak.LockFreePropagationList;
 import org.drools.core.phreak.PropagationEntry;
 import org.drools.core.phreak.PropagationList;
 import org.drools.core.phreak.RuleAgendaItem;
@@ -248,9 +249,9 @@ public class DefaultAgenda
         this.workingMemory = workingMemory;
         this.mainAgendaGroup = (InternalAgendaGroup) getAgendaGroup( AgendaGroup.MAIN );
 
-        // TODO experimenting parallelzation through multiple agendas now
-        // TODO parallelization with ParallelRuleEvaluator is another (incompatible?) possibility
-        // TODO add a different kbase option if we want to keep this alive
+        // multithread evaluation goes through CompositeDefaultAgenda, with one agenda per partition.
+        // ParallelRuleEvaluator is not an option here: it fires the partitions of this agenda concurrently,
+        // sharing its working memory, and it has no knowledge helper to fire the consequences with
 //        this.ruleEvaluator = workingMemory.getKnowledgeBase().getConfiguration().isMultithreadEvaluation() ?
 //                             new ParallelRuleEvaluator( this ) :
 //                             new SequentialRuleEvaluator( this );
@@ -260,8 +261,11 @@ public class DefaultAgenda
     }
 
     private PropagationList createPropagationList() {
-        return workingMemory.getSessionConfiguration().hasForceEagerActivationFilter() ?
-               new SynchronizedBypassPropagationList( workingMemory ) :
+        if (workingMemory.getSessionConfiguration().hasForceEagerActivationFilter()) {
+            return new SynchronizedBypassPropagationList( workingMemory );
+        }
+        return workingMemory.getKnowledgeBase().getConfiguration().isLockFreePropagationList() ?
+               new LockFreePropagationList( workingMemory ) :
                new SynchronizedPropagationList( workingMemory );
     }
 
@@ -48,6 +48,8 @@ public class DefaultBetaConstraints
 
     private transient boolean           disableIndexing;
 
+    private transient boolean           rangeIndex;
+
     private BetaNodeFieldConstraint[]   constraints;
 
     private IndexPrecedenceOption       indexPrecedenceOption;
@@ -73,6 +75,7 @@ public class DefaultBetaConstraints
         this.constraints = constraints;
         this.disableIndexing = disableIndexing;
         this.indexPrecedenceOption = conf.getIndexPrecedenceOption();
+        this.rangeIndex = conf.isRangeIndex();
     }
 
     public DefaultBetaConstraints cloneIfInUse() {
@@ -84,6 +87,7 @@ public class DefaultBetaConstraints
             DefaultBetaConstraints clone = new DefaultBetaConstraints();
             clone.constraints = clonedConstraints;
             clone.disableIndexing = disableIndexing;
+            clone.rangeIndex = rangeIndex;
             clone.indexPrecedenceOption = indexPrecedenceOption;
             clone.indexed = indexed;
             return clone;
@@ -97,6 +101,7 @@ public class DefaultBetaConstraints
         if ( disableIndexing || (!config.isIndexLeftBetaMemory() && !config.isIndexRightBetaMemory()) ) {
             indexed = 0;
         } else {
+            rangeIndex = config.isRangeIndex();
             int depth = config.getCompositeKeyDepth();
             if ( !compositeAllowed( constraints, betaNodeType ) ) {
                 // UnificationRestrictions cannot be allowed in composite indexes
@@ -109,7 +114,7 @@ public class DefaultBetaConstraints
 
     public void initIndexes(int depth, short betaNodeType) {
         indexed = 0;
-        boolean[] indexable = isIndexableForNode(indexPrecedenceOption, betaNodeType, depth, constraints);
+        boolean[] indexable = isIndexableForNode(indexPrecedenceOption, betaNodeType, depth, constraints, rangeIndex);
         for (boolean i : indexable) {
             if (i) {
                 indexed++;
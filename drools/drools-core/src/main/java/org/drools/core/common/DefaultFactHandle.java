@@ -53,7 +53,7 @@ public class DefaultFactHandle extends AbstractBaseLinkedListNode<DefaultFactHan
     // Instance members
     // ----------------------------------------------------------------------
 
-    private static final long       serialVersionUID = 510l;
+    private static final long       serialVersionUID = 511l;
     /** Handle id. */
 
     static final String     FACT_FORMAT_VERSION = "0";
@@ -67,20 +67,25 @@ public class DefaultFactHandle extends AbstractBaseLinkedListNode<DefaultFactHan
 
     private WorkingMemoryEntryPoint entryPoint;
 
-    private boolean                 disconnected;
+    // disconnected, invalidated and negated flags plus the trait type, packed in a single byte
+    private byte                    flags;
 
-    private TraitTypeEnum           traitType;
-
-    private boolean                 valid = true;
+    protected LinkedTuples          linkedTuples;
 
-    private boolean                 negated;
+    private InternalStoreCallback dataStore;
+    private DataHandle              dataHandle;
 
+    // class name of the object of a handle rebuilt from its external form, which has no object
     private String                  objectClassName;
 
-    protected LinkedTuples          linkedTuples;
+    private static final int        DISCONNECTED = 1;
+    private static final int        INVALID = 1 << 1;
+    private static final int        NEGATED = 1 << 2;
 
-    private InternalStoreCallback dataStore;
-    private DataHandle              dataHandle;
+    // the trait type is stored as its ordinal + 1, leaving 0 for a not yet determined one
+    private static final int        TRAIT_TYPE_SHIFT = 3;
+    private static final int        TRAIT_TYPE_MASK = 0x7 << TRAIT_TYPE_SHIFT;
+    private static final TraitTypeEnum[] TRAIT_TYPES = TraitTypeEnum.values();
 
     // ----------------------------------------------------------------------
     // Constructors
@@ -130,7 +135,7 @@ public class DefaultFactHandle extends AbstractBaseLinkedListNode<DefaultFactHan
         this.recency = recency;
         setObject( object );
         this.identityHashCode = identityHashCode;
-        this.traitType = isTraitOrTraitable ? determineTraitType() : TraitTypeEnum.NON_TRAIT;
+        setTraitType( isTraitOrTraitable ? determineTraitType() : TraitTypeEnum.NON_TRAIT );
     }
 
     public DefaultFactHandle(long id,
@@ -145,8 +150,8 @@ public class DefaultFactHandle extends AbstractBaseLinkedListNode<DefaultFactHan
         setObject( object );
         this.identityHashCode = identityHashCode;
         this.objectHashCode = objectHashCode;
-        this.disconnected = true;
-        this.traitType = TraitTypeEnum.NON_TRAIT;
+        setDisconnected( true );
+        setTraitType( TraitTypeEnum.NON_TRAIT );
     }
 
     // ----------------------------------------------------------------------
@@ -166,15 +171,23 @@ public class DefaultFactHandle extends AbstractBaseLinkedListNode<DefaultFactHan
         this.entryPoint = ( this.entryPoint == null ) ?
                           null :
                           new DisconnectedWorkingMemoryEntryPoint( this.entryPoint.getEntryPointId() );
-        this.disconnected = true;
+        setDisconnected( true );
     }
 
     public boolean isNegated() {
-        return negated;
+        return isSet( NEGATED );
     }
 
     public void setNegated(boolean negated) {
-        this.negated = negated;
+        setFlag( NEGATED, negated );
+    }
+
+    private boolean isSet( int flag ) {
+        return ( flags & flag ) != 0;
+    }
+
+    private void setFlag( int flag, boolean value ) {
+        flags = (byte) ( value ? flags | flag : flags & ~flag );
     }
 
     @Override
@@ -191,11 +204,11 @@ public class DefaultFactHandle extends AbstractBaseLinkedListNode<DefaultFactHan
     }
 
     public boolean isDisconnected() {
-        return disconnected;
+        return isSet( DISCONNECTED );
     }
 
     protected void setDisconnected( boolean disconnected ) {
-        this.disconnected = disconnected;
+        setFlag( DISCONNECTED, disconnected );
     }
 
     public int getObjectHashCode() {
@@ -241,9 +254,9 @@ public class DefaultFactHandle extends AbstractBaseLinkedListNode<DefaultFactHan
                ":" +
                ( ( this.entryPoint != null ) ? this.entryPoint.getEntryPointId() : "null" ) +
                ":" +
-               this.traitType.name() +
+               getTraitType().name() +
                ":" +
-               this.objectClassName;
+               getObjectClassName();
     }
 
     protected String getFormatVersion() {
@@ -279,11 +292,11 @@ public class DefaultFactHandle extends AbstractBaseLinkedListNode<DefaultFactHan
     }
 
     public void invalidate() {
-        valid = false;
+        setFlag( INVALID, true );
     }
 
     public boolean isValid() {
-        return valid;
+        return !isSet( INVALID );
     }
 
     public Object getObject() {
@@ -291,13 +304,12 @@ public class DefaultFactHandle extends AbstractBaseLinkedListNode<DefaultFactHan
     }
 
     public String getObjectClassName() {
-        return this.objectClassName;
+        return this.object != null ? this.object.getClass().getName() : this.objectClassName;
     }
 
     public void setObject( final Object object ) {
         this.object = object;
         if (object != null) {
-            this.objectClassName = object.getClass().getName();
             this.objectHashCode = object.hashCode();
         } else {
             this.objectHashCode = 0;
@@ -305,12 +317,12 @@ public class DefaultFactHandle extends AbstractBaseLinkedListNode<DefaultFactHan
 
         if ( isTraitOrTraitable() ) {
             TraitTypeEnum newType = determineTraitType();
-            if ( ! ( this.traitType == TraitTypeEnum.LEGACY_TRAITABLE && newType != TraitTypeEnum.LEGACY_TRAITABLE ) ) {
+            if ( ! ( getTraitType() == TraitTypeEnum.LEGACY_TRAITABLE && newType != TraitTypeEnum.LEGACY_TRAITABLE ) ) {
                 this.identityHashCode = determineIdentityHashCode( object );
             } else {
                 // we are replacing a non-traitable object with its proxy, so we need to preserve the identity hashcode
             }
-            this.traitType = newType;
+            setTraitType( newType );
         } else {
             this.identityHashCode = determineIdentityHashCode( object );
         }
@@ -339,7 +351,7 @@ public class DefaultFactHandle extends AbstractBaseLinkedListNode<DefaultFactHan
     }
 
     public boolean isTraitOrTraitable() {
-        return traitType != TraitTypeEnum.NON_TRAIT;
+        return getTraitType() != TraitTypeEnum.NON_TRAIT;
     }
 
     public WorkingMemoryEntryPoint getEntryPoint() {
@@ -400,9 +412,9 @@ public class DefaultFactHandle extends AbstractBaseLinkedListNode<DefaultFactHan
 
         clone.objectHashCode = this.objectHashCode;
         clone.identityHashCode = System.identityHashCode( clone.object );
-        clone.disconnected = this.disconnected;
-		clone.traitType = this.traitType;
-        clone.negated = this.negated;
+        clone.setDisconnected( isDisconnected() );
+        clone.setTraitType( getTraitType() );
+        clone.setNegated( isNegated() );
         return clone;
     }
 
@@ -440,9 +452,10 @@ public class DefaultFactHandle extends AbstractBaseLinkedListNode<DefaultFactHan
         handle.setEntryPoint( ( StringUtils.isEmpty( elements[5] ) || "null".equals( elements[5].trim() ) ) ?
                             null :
                             new DisconnectedWorkingMemoryEntryPoint( elements[5].trim() ) );
-        handle.disconnected = true;
-        handle.traitType = elements.length > 6 ? TraitTypeEnum.valueOf( elements[6] ) : TraitTypeEnum.NON_TRAIT;
-        handle.objectClassName = elements.length > 7 ? elements[7] : null;
+        handle.setDisconnected( true );
+        handle.setTraitType( elements.length > 6 ? TraitTypeEnum.valueOf( elements[6] ) : TraitTypeEnum.NON_TRAIT );
+        // the object is not there, its class name is still needed to reconnect the handle and to write it back
+        handle.objectClassName = elements.length > 7 && !"null".equals( elements[7] ) ? elements[7] : null;
     }
 
     private TraitTypeEnum determineTraitType() {
@@ -454,19 +467,22 @@ public class DefaultFactHandle extends AbstractBaseLinkedListNode<DefaultFactHan
     }
 
     public boolean isTraitable() {
+        TraitTypeEnum traitType = getTraitType();
         return traitType == TraitTypeEnum.TRAITABLE || traitType == TraitTypeEnum.WRAPPED_TRAITABLE;
     }
 
     public boolean isTraiting() {
-        return traitType == TraitTypeEnum.TRAIT;
+        return getTraitType() == TraitTypeEnum.TRAIT;
     }
 
     public TraitTypeEnum getTraitType() {
-        return traitType;
+        int ordinal = ( flags & TRAIT_TYPE_MASK ) >>> TRAIT_TYPE_SHIFT;
+        return ordinal == 0 ? null : TRAIT_TYPES[ordinal - 1];
     }
 
     protected void setTraitType( TraitTypeEnum traitType ) {
-        this.traitType = traitType;
+        int ordinal = traitType == null ? 0 : traitType.ordinal() + 1;
+        flags = (byte) ( ( flags & ~TRAIT_TYPE_MASK ) | ( ordinal << TRAIT_TYPE_SHIFT ) );
     }
 
     public boolean isExpired() {
@@ -742,27 +758,42 @@ public class DefaultFactHandle extends AbstractBaseLinkedListNode<DefaultFactHan
         }
     }
 
+    /**
+     * The tuples of the different partitions are kept in separate lists. Usually a fact reaches only few partitions,
+     * so each list is created when the first tuple of its partition is added, the others are left null.
+     */
     public static class CompositeLinkedTuples implements LinkedTuples {
 
         private final SingleLinkedTuples[] partitionedTuples = new SingleLinkedTuples[RuleBasePartitionId.PARALLEL_PARTITIONS_NUMBER];
 
-        public CompositeLinkedTuples() {
-            for (int i = 0; i < partitionedTuples.length; i++) {
-                partitionedTuples[i] = new SingleLinkedTuples();
-            }
-        }
-
         @Override
         public LinkedTuples clone() {
             CompositeLinkedTuples clone = new CompositeLinkedTuples();
             for (int i = 0; i < partitionedTuples.length; i++) {
-                clone.partitionedTuples[i] = partitionedTuples[i].clone();
+                if (partitionedTuples[i] != null) {
+                    clone.partitionedTuples[i] = partitionedTuples[i].clone();
+                }
             }
             return clone;
         }
 
         private LinkedTuples getPartitionTuples(Tuple tuple) {
-            return partitionedTuples[tuple.getTupleSink().getPartitionId().getParallelEvaluationSlot()];
+            return getPartitionTuples( tuple.getTupleSink().getPartitionId().getParallelEvaluationSlot() );
+        }
+
+        private SingleLinkedTuples getPartitionTuples(int partition) {
+            SingleLinkedTuples tuples = partitionedTuples[partition];
+            if (tuples == null) {
+                tuples = new SingleLinkedTuples();
+                partitionedTuples[partition] = tuples;
+            }
+            return tuples;
+        }
+
+        private LinkedTuples detachPartitionTuples(int partition) {
+            SingleLinkedTuples detached = partitionedTuples[partition];
+            partitionedTuples[partition] = null;
+            return detached != null ? detached : new SingleLinkedTuples();
         }
 
         @Override
@@ -810,7 +841,9 @@ public class DefaultFactHandle extends AbstractBaseLinkedListNode<DefaultFactHan
         }
 
         public void clearLeftTuples(int partition) {
-            partitionedTuples[partition].clearLeftTuples();
+            if (partitionedTuples[partition] != null) {
+                partitionedTuples[partition].clearLeftTuples();
+            }
         }
 
         @Override
@@ -821,7 +854,9 @@ public class DefaultFactHandle extends AbstractBaseLinkedListNode<DefaultFactHan
         }
 
         public void clearRightTuples(int partition) {
-            partitionedTuples[partition].clearRightTuples();
+            if (partitionedTuples[partition] != null) {
+                partitionedTuples[partition].clearRightTuples();
+            }
         }
 
         @Override
@@ -832,12 +867,15 @@ public class DefaultFactHandle extends AbstractBaseLinkedListNode<DefaultFactHan
         }
 
         public void forEachRightTuple( int partition, Consumer<RightTuple> rightTupleConsumer ) {
-            partitionedTuples[partition].forEachRightTuple( rightTupleConsumer );
+            if (partitionedTuples[partition] != null) {
+                partitionedTuples[partition].forEachRightTuple( rightTupleConsumer );
+            }
         }
 
         @Override
         public RightTuple findFirstRightTuple( Predicate<RightTuple> rightTuplePredicate ) {
             return Stream.of( partitionedTuples )
+                         .filter( Objects::nonNull )
                          .map( t -> t.findFirstRightTuple( rightTuplePredicate ) )
                          .filter( Objects::nonNull )
                          .findFirst()
@@ -852,12 +890,15 @@ public class DefaultFactHandle extends AbstractBaseLinkedListNode<DefaultFactHan
         }
 
         public void forEachLeftTuple( int partition, Consumer<LeftTuple> leftTupleConsumer ) {
-            partitionedTuples[partition].forEachLeftTuple( leftTupleConsumer );
+            if (partitionedTuples[partition] != null) {
+                partitionedTuples[partition].forEachLeftTuple( leftTupleConsumer );
+            }
         }
 
         @Override
         public LeftTuple findFirstLeftTuple( Predicate<LeftTuple> lefttTuplePredicate ) {
             return Stream.of( partitionedTuples )
+                         .filter( Objects::nonNull )
                          .map( t -> t.findFirstLeftTuple( lefttTuplePredicate ) )
                          .filter( Objects::nonNull )
                          .findFirst()
@@ -866,17 +907,19 @@ public class DefaultFactHandle extends AbstractBaseLinkedListNode<DefaultFactHan
 
         @Override
         public LeftTuple getFirstLeftTuple(int partition) {
-            return partitionedTuples[partition].getFirstLeftTuple();
+            return partitionedTuples[partition] != null ? partitionedTuples[partition].getFirstLeftTuple() : null;
         }
 
         @Override
         public void setFirstLeftTuple( LeftTuple firstLeftTuple, int partition ) {
-            partitionedTuples[partition].setFirstLeftTuple(firstLeftTuple);
+            if (firstLeftTuple != null || partitionedTuples[partition] != null) {
+                getPartitionTuples( partition ).setFirstLeftTuple( firstLeftTuple );
+            }
         }
 
         @Override
         public RightTuple getFirstRightTuple(int partition) {
-            return partitionedTuples[partition].getFirstRightTuple();
+            return partitionedTuples[partition] != null ? partitionedTuples[partition].getFirstRightTuple() : null;
         }
     }
 
@@ -939,9 +982,7 @@ public class DefaultFactHandle extends AbstractBaseLinkedListNode<DefaultFactHan
 
     @Override
     public LinkedTuples detachLinkedTuplesForPartition(int i) {
-        LinkedTuples detached = ( (CompositeLinkedTuples) linkedTuples ).partitionedTuples[i];
-        ( (CompositeLinkedTuples) linkedTuples ).partitionedTuples[i] = new SingleLinkedTuples();
-        return detached;
+        return ( (CompositeLinkedTuples) linkedTuples ).detachPartitionTuples( i );
     }
 
     @Override
@@ -37,6 +37,7 @@ public abstract class MultipleBetaConstraint implements BetaConstraints {
     protected boolean[]                 indexed;
     protected IndexPrecedenceOption     indexPrecedenceOption;
     protected transient boolean         disableIndexing;
+    protected transient boolean         rangeIndex;
 
     private transient Boolean           leftUpdateOptimizationAllowed;
 
@@ -46,6 +47,7 @@ public abstract class MultipleBetaConstraint implements BetaConstraints {
                                    RuleBaseConfiguration conf,
                                    boolean disableIndexing) {
         this(constraints, conf.getIndexPrecedenceOption(), disableIndexing);
+        this.rangeIndex = conf.isRangeIndex();
     }
 
     protected MultipleBetaConstraint( BetaNodeFieldConstraint[] constraints,
@@ -74,6 +76,7 @@ public abstract class MultipleBetaConstraint implements BetaConstraints {
         if ( disableIndexing || (!config.isIndexLeftBetaMemory() && !config.isIndexRightBetaMemory()) ) {
             indexed = new boolean[constraints.length];
         } else {
+            rangeIndex = config.isRangeIndex();
             int depth = config.getCompositeKeyDepth();
             if ( !compositeAllowed( constraints, betaNodeType ) ) {
                 // UnificationRestrictions cannot be allowed in composite indexes
@@ -85,7 +88,7 @@ public abstract class MultipleBetaConstraint implements BetaConstraints {
     }
 
     public final void initIndexes(int depth, short betaNodeType) {
-        indexed = isIndexableForNode(indexPrecedenceOption, betaNodeType, depth, constraints);
+        indexed = isIndexableForNode(indexPrecedenceOption, betaNodeType, depth, constraints, rangeIndex);
     }
 
     public final boolean isIndexed() {
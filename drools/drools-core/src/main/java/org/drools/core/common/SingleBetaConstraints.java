@@ -44,6 +44,8 @@ public class SingleBetaConstraints
 
     private transient boolean disableIndex;
 
+    private transient boolean rangeIndex;
+
     public SingleBetaConstraints() {
 
     }
@@ -75,12 +77,13 @@ public class SingleBetaConstraints
         if ((disableIndex) || (!config.isIndexLeftBetaMemory() && !config.isIndexRightBetaMemory())) {
             this.indexed = false;
         } else {
+            rangeIndex = config.isRangeIndex();
             initIndexes(config.getCompositeKeyDepth(), betaNodeType);
         }
     }
 
     public void initIndexes(int depth, short betaNodeType) {
-        indexed = depth >= 1 && IndexUtil.isIndexableForNode(betaNodeType, constraint);
+        indexed = depth >= 1 && IndexUtil.isIndexableForNode(betaNodeType, constraint, rangeIndex);
     }
 
     public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
@@ -98,6 +101,7 @@ public class SingleBetaConstraints
         if (constraint instanceof MutableTypeConstraint && ((MutableTypeConstraint) constraint).setInUse()) {
             SingleBetaConstraints clone = new SingleBetaConstraints(constraint.cloneIfInUse(), null, disableIndex);
             clone.indexed = indexed;
+            clone.rangeIndex = rangeIndex;
             return clone;
         }
         return this;
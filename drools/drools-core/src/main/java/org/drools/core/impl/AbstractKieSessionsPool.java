@@ -16,6 +16,8 @@
 
 package org.drools.core.impl;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -44,6 +46,13 @@ public abstract class AbstractKieSessionsPool implements KieSessionsPool {
         pools.clear();
     }
 
+    /**
+     * Returns the pools of sessions created so far, one for each distinct session configuration
+     */
+    public Collection<StatefulSessionPool> getStatefulSessionPools() {
+        return Collections.unmodifiableCollection( pools.values() );
+    }
+
     protected StatefulSessionPool getPool( KieSessionConfiguration conf, boolean stateless) {
         return getPool( null, conf, stateless);
     }
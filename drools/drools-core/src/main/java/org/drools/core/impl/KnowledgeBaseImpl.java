@@ -326,6 +326,14 @@ public class KnowledgeBaseImpl
         return getPackage(packageName).getRule( queryName );
     }
 
+    /**
+     * Returns the pool backing the sessions created by this kie base when it is configured with a
+     * {@link org.kie.api.conf.SessionsPoolOption}, null otherwise
+     */
+    public KieSessionsPool getSessionsPool() {
+        return sessionPool;
+    }
+
     public KieSessionsPool newKieSessionsPool( int initialSize) {
         return new KieSessionsPoolImpl(this, initialSize);
     }
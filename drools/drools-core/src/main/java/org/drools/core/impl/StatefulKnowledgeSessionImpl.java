@@ -1103,7 +1103,10 @@ public class StatefulKnowledgeSessionImpl extends AbstractRuntime
         this.opCounter.set(0);
         this.lastIdleTimestamp.set( -1 );
 
-        this.defaultEntryPoint.reset();
+        // pooled sessions are reused, so facts inserted through named entry points must be discarded as well
+        for ( WorkingMemoryEntryPoint ep : this.entryPoints.values() ) {
+            ep.reset();
+        }
         updateEntryPointsCache();
 
         this.timerService.reset();
@@ -16,6 +16,7 @@
 
 package org.drools.core.impl;
 
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Supplier;
 
 import org.drools.core.util.ScalablePool;
@@ -25,9 +26,14 @@ public class StatefulSessionPool {
     private final KnowledgeBaseImpl kbase;
     private final ScalablePool<StatefulKnowledgeSessionImpl> pool;
 
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder acquireTime = new LongAdder();
+    private final LongAdder resetCount = new LongAdder();
+    private final LongAdder resetTime = new LongAdder();
+
     public StatefulSessionPool( KnowledgeBaseImpl kbase, int initialSize, Supplier<StatefulKnowledgeSessionImpl> supplier ) {
         this.kbase = kbase;
-        this.pool = new ScalablePool<>(initialSize, supplier, s -> s.reset(), s -> s.fromPool(null).dispose());
+        this.pool = new ScalablePool<>(initialSize, supplier, this::reset, s -> s.fromPool(null).dispose());
     }
 
     public KnowledgeBaseImpl getKieBase() {
@@ -35,7 +41,11 @@ public class StatefulSessionPool {
     }
 
     public StatefulKnowledgeSessionImpl get() {
-        return pool.get().fromPool( this );
+        long start = System.nanoTime();
+        StatefulKnowledgeSessionImpl session = pool.get().fromPool( this );
+        acquireTime.add( System.nanoTime() - start );
+        acquireCount.increment();
+        return session;
     }
 
     public void release(StatefulKnowledgeSessionImpl session) {
@@ -45,4 +55,48 @@ public class StatefulSessionPool {
     public void shutdown() {
         pool.shutdown();
     }
+
+    private void reset(StatefulKnowledgeSessionImpl session) {
+        long start = System.nanoTime();
+        session.reset();
+        resetTime.add( System.nanoTime() - start );
+        resetCount.increment();
+    }
+
+    /**
+     * Returns the number of sessions created by this pool, either in use or available
+     */
+    public int getSize() {
+        return pool.size();
+    }
+
+    /**
+     * Returns the number of sessions currently available for reuse
+     */
+    public int getAvailable() {
+        return pool.available();
+    }
+
+    public long getAcquireCount() {
+        return acquireCount.sum();
+    }
+
+    /**
+     * Returns the total time spent getting sessions from this pool, including the creation
+     * of new sessions when none was available
+     */
+    public long getAcquireTimeNanos() {
+        return acquireTime.sum();
+    }
+
+    public long getResetCount() {
+        return resetCount.sum();
+    }
+
+    /**
+     * Returns the total time spent resetting sessions released to this pool
+     */
+    public long getResetTimeNanos() {
+        return resetTime.sum();
+    }
 }
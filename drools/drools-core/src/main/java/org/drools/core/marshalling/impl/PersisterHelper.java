@@ -51,6 +51,7 @@ import org.kie.api.marshalling.ObjectMarshallingStrategy.Context;
 
 import com.google.protobuf.ByteString;
 import com.google.protobuf.ByteString.Output;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.ExtensionRegistry;
 import com.google.protobuf.Message;
 
@@ -209,6 +210,15 @@ public class PersisterHelper {
     
     public static void writeToStreamWithHeader( MarshallerWriteContext context,
                                                 Message payload ) throws IOException {
+        context.stream.write( buildHeader( context, payload ).toByteArray() );
+    }
+
+    /**
+     * Builds the header wrapping given payload, including the strategies used by the context
+     * and the signature, without writing it to the context stream.
+     */
+    public static ProtobufMessages.Header buildHeader( MarshallerWriteContext context,
+                                                      Message payload ) throws IOException {
         ProtobufMessages.Header.Builder _header = ProtobufMessages.Header.newBuilder();
         _header.setVersion( ProtobufMessages.Version.newBuilder()
                                             .setVersionMajor( Drools.getMajorVersion() )
@@ -220,11 +230,11 @@ public class PersisterHelper {
 
         writeRuntimeDefinedClasses( context, _header );
 
-        byte[] buff = payload.toByteArray();
+        ByteString buff = payload.toByteString();
         sign( _header, buff );
-        _header.setPayload( ByteString.copyFrom( buff ) );
+        _header.setPayload( buff );
 
-        context.stream.write( _header.build().toByteArray() );
+        return _header.build();
     }
 
     public static void writeRuntimeDefinedClasses( MarshallerWriteContext context,
@@ -271,13 +281,13 @@ public class PersisterHelper {
     }
 
     private static void sign(ProtobufMessages.Header.Builder _header,
-                             byte[] buff ) {
+                             ByteString buff ) {
         KeyStoreHelper helper = new KeyStoreHelper();
         if (helper.isSigned()) {
             try {
                 _header.setSignature( ProtobufMessages.Signature.newBuilder()
                                       .setKeyAlias( helper.getPvtKeyAlias() )
-                                      .setSignature( ByteString.copyFrom( helper.signDataWithPrivateKey( buff ) ) )
+                                      .setSignature( ByteString.copyFrom( helper.signDataWithPrivateKey( buff.toByteArray() ) ) )
                                       .build() );
             } catch (Exception e) {
                 throw new RuntimeException( "Error signing session: " + e.getMessage(),
@@ -289,10 +299,8 @@ public class PersisterHelper {
     private static ProtobufMessages.Header loadStrategiesCheckSignature(MarshallerReaderContext context, ProtobufMessages.Header _header) throws ClassNotFoundException, IOException {
         loadStrategiesIndex( context, _header );
 
-        byte[] sessionbuff = _header.getPayload().toByteArray();
-
         // should we check version as well here?
-        checkSignature( _header, sessionbuff );
+        checkSignature( _header, _header.getPayload() );
         
         return _header;
     }
@@ -305,6 +313,17 @@ public class PersisterHelper {
 
         return loadStrategiesCheckSignature(context, _header);
     }
+
+    /**
+     * Reads the header directly from given input, for callers that do not frame the header in the context stream.
+     */
+    public static ProtobufMessages.Header readFromInputWithHeader( MarshallerReaderContext context, CodedInputStream input, ExtensionRegistry registry ) throws IOException, ClassNotFoundException {
+        // same as preloading, do not limit the message size
+        input.setSizeLimit( Integer.MAX_VALUE );
+        ProtobufMessages.Header _header = ProtobufMessages.Header.parseFrom( input, registry );
+
+        return loadStrategiesCheckSignature(context, _header);
+    }
     
     /* Method that preloads the source stream into a byte array to bypass the message size limitations in Protobuf unmarshalling.
        (Protobuf does not enforce a message size limit when unmarshalling from a byte array)
@@ -360,7 +379,7 @@ public class PersisterHelper {
     }
 
     private static void checkSignature(Header _header,
-                                       byte[] sessionbuff) {
+                                       ByteString sessionbuff) {
         KeyStoreHelper helper = new KeyStoreHelper();
         boolean signed = _header.hasSignature();
         if ( helper.isSigned() != signed ) {
@@ -375,7 +394,7 @@ public class PersisterHelper {
             }
             try {
                 if ( !helper.checkDataWithPublicKey( _header.getSignature().getKeyAlias(),
-                                                     sessionbuff,
+                                                     sessionbuff.toByteArray(),
                                                      _header.getSignature().getSignature().toByteArray() ) ) {
                     throw new RuntimeException( "Signature does not match serialized package. This is a security violation. Deserialisation aborted." );
                 }
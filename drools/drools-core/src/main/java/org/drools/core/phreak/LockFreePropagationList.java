@@ -0,0 +1,105 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.core.phreak;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.drools.core.common.InternalWorkingMemory;
+
+/**
+ * Multiple producers single consumer propagation list. The producers push the entries on top of a stack
+ * with a compare and set, while the engine thread takes the whole stack at once and reverses it, so the
+ * entries are still propagated in insertion order.
+ * The list monitor is only acquired when an entry is added to an empty list, to wake up the engine thread
+ * possibly waiting on it in fire until halt.
+ */
+public class LockFreePropagationList extends SynchronizedPropagationList {
+
+    private final AtomicReference<PropagationEntry> top = new AtomicReference<PropagationEntry>();
+
+    private volatile boolean hasEntriesDeferringExpiration = false;
+
+    public LockFreePropagationList(InternalWorkingMemory workingMemory) {
+        super(workingMemory);
+    }
+
+    @Override
+    void internalAddEntry( PropagationEntry entry ) {
+        PropagationEntry currentTop;
+        do {
+            currentTop = top.get();
+            entry.setNext( currentTop );
+        } while ( !top.compareAndSet( currentTop, entry ) );
+
+        if ( entry.defersExpiration() ) {
+            hasEntriesDeferringExpiration = true;
+        }
+        if ( currentTop == null ) {
+            notifyWaitOnRest();
+        }
+    }
+
+    @Override
+    public boolean hasEntriesDeferringExpiration() {
+        return hasEntriesDeferringExpiration;
+    }
+
+    @Override
+    public PropagationEntry takeAll() {
+        // reset before taking the entries: a flag raised meanwhile can only be conservative
+        hasEntriesDeferringExpiration = false;
+        return reverse( top.getAndSet( null ) );
+    }
+
+    @Override
+    public synchronized void reset() {
+        top.set( null );
+        super.reset();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return top.get() == null;
+    }
+
+    @Override
+    public Iterator<PropagationEntry> iterator() {
+        // the entries in the stack are not modified until taken, so they can be safely visited
+        List<PropagationEntry> entries = new ArrayList<PropagationEntry>();
+        for ( PropagationEntry entry = top.get(); entry != null; entry = entry.getNext() ) {
+            entries.add( entry );
+        }
+        List<PropagationEntry> ordered = new ArrayList<PropagationEntry>( entries.size() );
+        for ( int i = entries.size() - 1; i >= 0; i-- ) {
+            ordered.add( entries.get( i ) );
+        }
+        return ordered.iterator();
+    }
+
+    private static PropagationEntry reverse( PropagationEntry entry ) {
+        PropagationEntry reversed = null;
+        while ( entry != null ) {
+            PropagationEntry next = entry.getNext();
+            entry.setNext( reversed );
+            reversed = entry;
+            entry = next;
+        }
+        return reversed;
+    }
+}
@@ -199,11 +199,13 @@ public class PhreakJoinNode {
 
             // first check our index (for indexed nodes only) hasn't changed and we are returning the same bucket
             // if rightTuple is null, we assume there was a bucket change and that bucket is empty
+            // a comparison index spans many buckets, so its propagations are always deleted and matched again
             if (rtm.isIndexed() && !it.isFullIterator()) {
+                boolean comparisonIndex = rtm.getIndexType().isComparison();
                 // our index has changed, so delete all the previous propagations
                 for (LeftTuple childLeftTuple = leftTuple.getFirstChild(); childLeftTuple != null; ) {
                     LeftTuple nextChild = childLeftTuple.getHandleNext();
-                    if (rightTuple == null || rightTuple.getMemory() != childLeftTuple.getRightParent().getMemory()) {
+                    if (comparisonIndex || rightTuple == null || rightTuple.getMemory() != childLeftTuple.getRightParent().getMemory()) {
                         RuleNetworkEvaluator.unlinkAndDeleteChildLeftTuple( childLeftTuple, trgLeftTuples, stagedLeftTuples );
                     }
                     childLeftTuple = nextChild;
@@ -304,7 +306,8 @@ public class PhreakJoinNode {
                 // first check our index (for indexed nodes only) hasn't changed and we are returning the same bucket
                 // We assume a bucket change if leftTuple == null
                 LeftTuple childLeftTuple = rightTuple.getFirstChild();
-                if ( childLeftTuple != null && ltm.isIndexed() && !it.isFullIterator() && ( leftTuple == null || ( leftTuple.getMemory() != childLeftTuple.getLeftParent().getMemory() ) ) ) {
+                if ( childLeftTuple != null && ltm.isIndexed() && !it.isFullIterator() &&
+                     ( leftTuple == null || ltm.getIndexType().isComparison() || ( leftTuple.getMemory() != childLeftTuple.getLeftParent().getMemory() ) ) ) {
                     // our index has changed, so delete all the previous propagations
                     while ( childLeftTuple != null ) {
                         childLeftTuple.setPropagationContext( rightTuple.getPropagationContext() );
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.core.reteoo.compiled;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.drools.core.base.ClassObjectType;
+import org.drools.core.impl.InternalKnowledgeBase;
+import org.drools.core.reteoo.AlphaNode;
+import org.drools.core.reteoo.BetaNode;
+import org.drools.core.reteoo.EntryPointNode;
+import org.drools.core.reteoo.LeftInputAdapterNode;
+import org.drools.core.reteoo.ObjectTypeNode;
+import org.drools.core.reteoo.WindowNode;
+import org.drools.core.rule.IndexableConstraint;
+import org.drools.core.spi.InternalReadAccessor;
+import org.kie.api.KieBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link CompiledNetwork} generated and compiled ahead of time for the {@link ObjectTypeNode} of a given
+ * entry point and class. Generated networks refer to the nodes by their ids, so a network is only installed
+ * when the alpha network of the node it was generated from has exactly the same shape, as recorded by its
+ * fingerprint. Object type nodes without a matching network keep using the interpreted propagation.
+ */
+public class PrecompiledNetwork {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrecompiledNetwork.class);
+
+    private final String entryPoint;
+    private final String className;
+    private final String fingerprint;
+    private final Function<InternalReadAccessor, CompiledNetwork> factory;
+
+    public PrecompiledNetwork(String entryPoint, String className, String fingerprint, Function<InternalReadAccessor, CompiledNetwork> factory) {
+        this.entryPoint = entryPoint;
+        this.className = className;
+        this.fingerprint = fingerprint;
+        this.factory = factory;
+    }
+
+    public String getEntryPoint() {
+        return entryPoint;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Installs the given networks on the matching object type nodes of the kie base
+     *
+     * @param kieBase kie base built from the same rules the networks were generated from
+     * @param networks networks to install
+     * @return number of networks actually installed
+     */
+    public static int install(KieBase kieBase, PrecompiledNetwork... networks) {
+        Map<String, PrecompiledNetwork> networksByNode = new HashMap<>();
+        for (PrecompiledNetwork network : networks) {
+            networksByNode.put(key(network.getEntryPoint(), network.getClassName()), network);
+        }
+
+        int installed = 0;
+        for (EntryPointNode entryPointNode : ((InternalKnowledgeBase) kieBase).getRete().getEntryPointNodes().values()) {
+            for (ObjectTypeNode objectTypeNode : entryPointNode.getObjectTypeNodes().values()) {
+                if (!(objectTypeNode.getObjectType() instanceof ClassObjectType)) {
+                    continue;
+                }
+                String className = ((ClassObjectType) objectTypeNode.getObjectType()).getClassName();
+                PrecompiledNetwork network = networksByNode.get(key(entryPointNode.getEntryPoint().getEntryPointId(), className));
+                if (network == null) {
+                    continue;
+                }
+                FingerprintHandler handler = new FingerprintHandler();
+                ObjectTypeNodeParser parser = new ObjectTypeNodeParser(objectTypeNode);
+                parser.accept(handler);
+                if (!network.getFingerprint().equals(handler.getFingerprint())) {
+                    logger.warn("Alpha network of {} does not match the one it was compiled from, using the interpreted network", className);
+                    continue;
+                }
+                IndexableConstraint indexableConstraint = parser.getIndexableConstraint();
+                objectTypeNode.setCompiledNetwork(network.factory.apply(indexableConstraint != null ? indexableConstraint.getFieldExtractor() : null));
+                installed++;
+            }
+        }
+        logger.debug("Installed {} of {} precompiled alpha networks", installed, networks.length);
+        return installed;
+    }
+
+    /**
+     * Returns a string describing the shape of the alpha network below the given node: the ids and types
+     * of its nodes, the hashed values and how the nodes are nested
+     *
+     * @param objectTypeNode node to describe
+     * @return fingerprint of the alpha network
+     */
+    public static String fingerprint(ObjectTypeNode objectTypeNode) {
+        FingerprintHandler handler = new FingerprintHandler();
+        new ObjectTypeNodeParser(objectTypeNode).accept(handler);
+        return handler.getFingerprint();
+    }
+
+    private static String key(String entryPoint, String className) {
+        return entryPoint + ":" + className;
+    }
+
+    private static class FingerprintHandler extends NetworkHandlerAdaptor {
+
+        private final StringBuilder builder = new StringBuilder();
+
+        public String getFingerprint() {
+            return builder.toString();
+        }
+
+        @Override
+        public void startObjectTypeNode(ObjectTypeNode objectTypeNode) {
+            builder.append("O").append(objectTypeNode.getId()).append('(');
+        }
+
+        @Override
+        public void endObjectTypeNode(ObjectTypeNode objectTypeNode) {
+            builder.append(')');
+        }
+
+        @Override
+        public void startNonHashedAlphaNode(AlphaNode alphaNode) {
+            builder.append("A").append(alphaNode.getId()).append('(');
+        }
+
+        @Override
+        public void endNonHashedAlphaNode(AlphaNode alphaNode) {
+            builder.append(')');
+        }
+
+        @Override
+        public void startHashedAlphaNode(AlphaNode hashedAlpha, Object hashedValue) {
+            builder.append("H").append(hashedAlpha.getId()).append('=').append(hashedValue).append('(');
+        }
+
+        @Override
+        public void endHashedAlphaNode(AlphaNode hashedAlpha, Object hashedValue) {
+            builder.append(')');
+        }
+
+        @Override
+        public void nullCaseAlphaNodeStart(AlphaNode hashedAlpha) {
+            builder.append("N").append(hashedAlpha.getId()).append('(');
+        }
+
+        @Override
+        public void nullCaseAlphaNodeEnd(AlphaNode hashedAlpha) {
+            builder.append(')');
+        }
+
+        @Override
+        public void startBetaNode(BetaNode betaNode) {
+            builder.append("B").append(betaNode.getId()).append(';');
+        }
+
+        @Override
+        public void startLeftInputAdapterNode(LeftInputAdapterNode leftInputAdapterNode) {
+            builder.append("L").append(leftInputAdapterNode.getId()).append(';');
+        }
+
+        @Override
+        public void startWindowNode(WindowNode windowNode) {
+            builder.append("W").append(windowNode.getId()).append(';');
+        }
+    }
+}
@@ -65,6 +65,20 @@ public class ScalablePool<T> {
         pool.offer( t );
     }
 
+    /**
+     * Returns the number of resources created by this pool, either in use or available
+     */
+    public int size() {
+        return resources.size();
+    }
+
+    /**
+     * Returns the number of resources currently available in this pool
+     */
+    public int available() {
+        return pool.size();
+    }
+
     public void shutdown() {
         for (T t : resources) {
             disposer.accept( t );
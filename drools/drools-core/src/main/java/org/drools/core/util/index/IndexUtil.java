@@ -41,7 +41,6 @@ import org.kie.internal.conf.IndexPrecedenceOption;
 public class IndexUtil {
 
     private static final boolean USE_COMPARISON_INDEX = true;
-    private static final boolean USE_RANGE_INDEX = USE_COMPARISON_INDEX && false;
 
     public static boolean compositeAllowed(BetaNodeFieldConstraint[] constraints, short betaNodeType) {
         // 1) If there is 1 or more unification restrictions it cannot be composite
@@ -74,42 +73,60 @@ public class IndexUtil {
         return constraint instanceof IndexableConstraint && ((IndexableConstraint)constraint).isIndexable(nodeType);
     }
 
+    private static boolean isIndexable(BetaNodeFieldConstraint constraint, short nodeType, boolean rangeIndex) {
+        return isIndexable(constraint, nodeType) ||
+               ( constraint instanceof IndexableConstraint && ((IndexableConstraint)constraint).getConstraintType().isIndexableForNode(nodeType, rangeIndex) );
+    }
+
     private static boolean canHaveRangeIndex(short nodeType) {
         return USE_COMPARISON_INDEX && ( nodeType == NodeTypeEnums.NotNode || nodeType == NodeTypeEnums.ExistsNode );
     }
 
+    private static boolean canHaveRangeIndex(short nodeType, boolean rangeIndex) {
+        // join nodes have to visit all the matching tuples and not only the first one, so they need the range index option
+        return canHaveRangeIndex(nodeType) || ( USE_COMPARISON_INDEX && rangeIndex && nodeType == NodeTypeEnums.JoinNode );
+    }
+
     public static boolean isIndexableForNode(short nodeType, BetaNodeFieldConstraint constraint) {
+        return isIndexableForNode(nodeType, constraint, false);
+    }
+
+    public static boolean isIndexableForNode(short nodeType, BetaNodeFieldConstraint constraint, boolean rangeIndex) {
         if ( !(constraint instanceof IndexableConstraint) ) {
             return false;
         }
 
         ConstraintType constraintType = ((IndexableConstraint)constraint).getConstraintType();
-        return constraintType.isIndexableForNode(nodeType);
+        return constraintType.isIndexableForNode(nodeType, rangeIndex);
     }
 
     public static boolean[] isIndexableForNode(IndexPrecedenceOption indexPrecedenceOption, short nodeType, int keyDepth, BetaNodeFieldConstraint[] constraints) {
+        return isIndexableForNode(indexPrecedenceOption, nodeType, keyDepth, constraints, false);
+    }
+
+    public static boolean[] isIndexableForNode(IndexPrecedenceOption indexPrecedenceOption, short nodeType, int keyDepth, BetaNodeFieldConstraint[] constraints, boolean rangeIndex) {
         if (keyDepth < 1) {
             return new boolean[constraints.length];
         }
 
         return indexPrecedenceOption == IndexPrecedenceOption.EQUALITY_PRIORITY ?
-                findIndexableWithEqualityPriority(nodeType, keyDepth, constraints) :
-                findIndexableWithPatternOrder(nodeType, keyDepth, constraints);
+                findIndexableWithEqualityPriority(nodeType, keyDepth, constraints, rangeIndex) :
+                findIndexableWithPatternOrder(nodeType, keyDepth, constraints, rangeIndex);
     }
 
-    private static boolean[] findIndexableWithEqualityPriority(short nodeType, int keyDepth, BetaNodeFieldConstraint[] constraints) {
+    private static boolean[] findIndexableWithEqualityPriority(short nodeType, int keyDepth, BetaNodeFieldConstraint[] constraints, boolean rangeIndex) {
         boolean[] indexable = new boolean[constraints.length];
         if (hasEqualIndexable(keyDepth, indexable, constraints)) {
             return indexable;
         }
 
-        if (!canHaveRangeIndex(nodeType)) {
+        if (!canHaveRangeIndex(nodeType, rangeIndex)) {
             return indexable;
         }
 
         for (int i = 0; i < constraints.length; i++) {
-            if (isIndexable(constraints[i], nodeType)) {
-                sortRangeIndexable(constraints, indexable, i);
+            if (isIndexable(constraints[i], nodeType, rangeIndex)) {
+                sortRangeIndexable(constraints, indexable, i, rangeIndex);
                 break;
             }
         }
@@ -117,14 +134,14 @@ public class IndexUtil {
         return indexable;
     }
 
-    private static boolean[] findIndexableWithPatternOrder(short nodeType, int keyDepth, BetaNodeFieldConstraint[] constraints) {
+    private static boolean[] findIndexableWithPatternOrder(short nodeType, int keyDepth, BetaNodeFieldConstraint[] constraints, boolean rangeIndex) {
         boolean[] indexable = new boolean[constraints.length];
         for (int i = 0; i < constraints.length; i++) {
-            if (isIndexable(constraints[i], nodeType)) {
+            if (isIndexable(constraints[i], nodeType, rangeIndex)) {
                 if (isEqualIndexable(constraints[i])) {
                     sortEqualIndexable(keyDepth, indexable, constraints, i);
                 } else {
-                    sortRangeIndexable(constraints, indexable, i);
+                    sortRangeIndexable(constraints, indexable, i, rangeIndex);
                 }
                 break;
             }
@@ -152,8 +169,8 @@ public class IndexUtil {
         return hasEqualIndexable;
     }
 
-    private static void sortRangeIndexable(BetaNodeFieldConstraint[] constraints, boolean[] indexable, int i) {
-        int dualConstraintPosition = findDualConstraint(constraints, i);
+    private static void sortRangeIndexable(BetaNodeFieldConstraint[] constraints, boolean[] indexable, int i, boolean rangeIndex) {
+        int dualConstraintPosition = rangeIndex ? findDualConstraint(constraints, i) : -1;
         swap(constraints, i, 0);
         indexable[0] = true;
         if (dualConstraintPosition > 0) {
@@ -163,17 +180,13 @@ public class IndexUtil {
     }
 
     private static int findDualConstraint(BetaNodeFieldConstraint[] constraints, int comparisonPos) {
-        if ( !(USE_RANGE_INDEX && constraints[comparisonPos] instanceof MvelConstraint) ) {
+        if ( !(constraints[comparisonPos] instanceof IndexableConstraint) ) {
             return -1;
         }
-        MvelConstraint firstConstraint = (MvelConstraint) constraints[comparisonPos];
-        String leftValue = getLeftValueInExpression(firstConstraint.getExpression());
+        IndexableConstraint firstConstraint = (IndexableConstraint) constraints[comparisonPos];
         for (int i = comparisonPos+1; i < constraints.length; i++) {
-            if (constraints[i] instanceof MvelConstraint) {
-                MvelConstraint dualConstraint = (MvelConstraint) constraints[i];
-                if (isDual(firstConstraint, leftValue, dualConstraint)) {
-                    return i;
-                }
+            if (constraints[i] instanceof IndexableConstraint && isDual(firstConstraint, (IndexableConstraint) constraints[i])) {
+                return i;
             }
         }
         return -1;
@@ -238,6 +251,10 @@ public class IndexUtil {
         }
 
         public boolean isIndexableForNode(short nodeType) {
+            return isIndexableForNode(nodeType, false);
+        }
+
+        public boolean isIndexableForNode(short nodeType, boolean rangeIndex) {
             switch (this) {
                 case EQUAL:
                     return true;
@@ -245,7 +262,7 @@ public class IndexUtil {
                 case UNKNOWN:
                     return false;
                 default:
-                    return canHaveRangeIndex(nodeType);
+                    return canHaveRangeIndex(nodeType, rangeIndex);
             }
         }
 
@@ -291,7 +308,7 @@ public class IndexUtil {
             return Collections.emptyList();
         }
 
-        Factory.IndexSpec indexSpec = new Factory.IndexSpec(config.getIndexPrecedenceOption(), keyDepth, betaNode.getType(), betaNode.getConstraints());
+        Factory.IndexSpec indexSpec = new Factory.IndexSpec(config.getIndexPrecedenceOption(), keyDepth, betaNode.getType(), betaNode.getConstraints(), config.isRangeIndex());
         List<String> indexedProps = new ArrayList<String>();
         for (FieldIndex fieldIndex : indexSpec.indexes) {
             indexedProps.add( getter2property(fieldIndex.getExtractor().getNativeReadMethodName()) );
@@ -310,7 +327,7 @@ public class IndexUtil {
                                        nodeType );
             }
 
-            IndexSpec indexSpec = new IndexSpec(config.getIndexPrecedenceOption(), keyDepth, nodeType, constraints);
+            IndexSpec indexSpec = new IndexSpec(config.getIndexPrecedenceOption(), keyDepth, nodeType, constraints, config.isRangeIndex());
             return new BetaMemory( createLeftMemory(config, indexSpec),
                                    createRightMemory(config, indexSpec),
                                    createContext(constraints),
@@ -331,7 +348,6 @@ public class IndexUtil {
             }
 
             if (indexSpec.constraintType == ConstraintType.RANGE) {
-                // missing TreeMap based implementation for range indexes
                 return new RightTupleIndexRangeRBTree( indexSpec.ascendingConstraintType, indexSpec.indexes[0],
                                                        indexSpec.descendingConstraintType, indexSpec.indexes[1] );
             }
@@ -356,7 +372,6 @@ public class IndexUtil {
             }
 
             if (indexSpec.constraintType == ConstraintType.RANGE) {
-                // missing TreeMap based implementation for range indexes
                 return new LeftTupleIndexRangeRBTree( indexSpec.ascendingConstraintType, indexSpec.indexes[0],
                                                       indexSpec.descendingConstraintType, indexSpec.indexes[1] );
             }
@@ -379,14 +394,14 @@ public class IndexUtil {
             private ConstraintType ascendingConstraintType = null;
             private ConstraintType descendingConstraintType = null;
 
-            private IndexSpec(IndexPrecedenceOption indexPrecedenceOption, int keyDepth, short nodeType, BetaNodeFieldConstraint[] constraints) {
-                init(indexPrecedenceOption, keyDepth, nodeType, constraints);
+            private IndexSpec(IndexPrecedenceOption indexPrecedenceOption, int keyDepth, short nodeType, BetaNodeFieldConstraint[] constraints, boolean rangeIndex) {
+                init(indexPrecedenceOption, keyDepth, nodeType, constraints, rangeIndex);
             }
 
-            private void init(IndexPrecedenceOption indexPrecedenceOption, int keyDepth, short nodeType, BetaNodeFieldConstraint[] constraints) {
+            private void init(IndexPrecedenceOption indexPrecedenceOption, int keyDepth, short nodeType, BetaNodeFieldConstraint[] constraints, boolean rangeIndex) {
                 int firstIndexableConstraint = indexPrecedenceOption == IndexPrecedenceOption.EQUALITY_PRIORITY ?
-                        determineTypeWithEqualityPriority(nodeType, constraints) :
-                        determineTypeWithPatternOrder(nodeType, constraints);
+                        determineTypeWithEqualityPriority(nodeType, constraints, rangeIndex) :
+                        determineTypeWithPatternOrder(nodeType, constraints, rangeIndex);
 
                 if (constraintType == ConstraintType.EQUAL) {
                     List<FieldIndex> indexList = new ArrayList<FieldIndex>();
@@ -402,34 +417,28 @@ public class IndexUtil {
 
                 } else if (constraintType.isComparison()) {
                     // look for a dual constraint to create a range index
-                    if (USE_RANGE_INDEX && constraints[firstIndexableConstraint] instanceof MvelConstraint) {
-                        MvelConstraint firstConstraint = (MvelConstraint) constraints[firstIndexableConstraint];
-                        String leftValue = getLeftValueInExpression(firstConstraint.getExpression());
-                        for (int i = firstIndexableConstraint+1; i < constraints.length; i++) {
-                            if (constraints[i] instanceof MvelConstraint) {
-                                MvelConstraint dualConstraint = (MvelConstraint) constraints[i];
-                                if (isDual(firstConstraint, leftValue, dualConstraint)) {
-                                    constraintType = ConstraintType.RANGE;
-                                    if (firstConstraint.getConstraintType().isAscending()) {
-                                        ascendingConstraintType = firstConstraint.getConstraintType();
-                                        descendingConstraintType = dualConstraint.getConstraintType();
-                                        indexes = new FieldIndex[]{ firstConstraint.getFieldIndex(), dualConstraint.getFieldIndex() };
-                                    } else {
-                                        ascendingConstraintType = dualConstraint.getConstraintType();
-                                        descendingConstraintType = firstConstraint.getConstraintType();
-                                        indexes = new FieldIndex[]{ dualConstraint.getFieldIndex(), firstConstraint.getFieldIndex() };
-                                    }
-                                    return;
-                                }
-                            }
+                    int dualConstraintPosition = rangeIndex ? findDualConstraint(constraints, firstIndexableConstraint) : -1;
+                    if (dualConstraintPosition > 0) {
+                        IndexableConstraint firstConstraint = (IndexableConstraint) constraints[firstIndexableConstraint];
+                        IndexableConstraint dualConstraint = (IndexableConstraint) constraints[dualConstraintPosition];
+                        constraintType = ConstraintType.RANGE;
+                        if (firstConstraint.getConstraintType().isAscending()) {
+                            ascendingConstraintType = firstConstraint.getConstraintType();
+                            descendingConstraintType = dualConstraint.getConstraintType();
+                            indexes = new FieldIndex[]{ firstConstraint.getFieldIndex(), dualConstraint.getFieldIndex() };
+                        } else {
+                            ascendingConstraintType = dualConstraint.getConstraintType();
+                            descendingConstraintType = firstConstraint.getConstraintType();
+                            indexes = new FieldIndex[]{ dualConstraint.getFieldIndex(), firstConstraint.getFieldIndex() };
                         }
+                        return;
                     }
 
                     indexes = new FieldIndex[]{ ((IndexableConstraint)constraints[firstIndexableConstraint]).getFieldIndex() };
                 }
             }
 
-            private int determineTypeWithEqualityPriority(short nodeType, BetaNodeFieldConstraint[] constraints) {
+            private int determineTypeWithEqualityPriority(short nodeType, BetaNodeFieldConstraint[] constraints, boolean rangeIndex) {
                 int indexedConstraintPos = 0;
                 for (int i = 0; i < constraints.length; i++) {
                     if (constraints[i] instanceof IndexableConstraint) {
@@ -438,7 +447,7 @@ public class IndexUtil {
                         if (type == ConstraintType.EQUAL) {
                             constraintType = type;
                             return i;
-                        } else if (constraintType == ConstraintType.UNKNOWN && type.isIndexableForNode(nodeType)) {
+                        } else if (constraintType == ConstraintType.UNKNOWN && type.isIndexableForNode(nodeType, rangeIndex)) {
                             constraintType = type;
                             indexedConstraintPos = i;
                         }
@@ -447,10 +456,10 @@ public class IndexUtil {
                 return indexedConstraintPos;
             }
 
-            private int determineTypeWithPatternOrder(short nodeType, BetaNodeFieldConstraint[] constraints) {
+            private int determineTypeWithPatternOrder(short nodeType, BetaNodeFieldConstraint[] constraints, boolean rangeIndex) {
                 for (int i = 0; i < constraints.length; i++) {
                     ConstraintType type = ConstraintType.getType(constraints[i]);
-                    if ( type.isIndexableForNode(nodeType) ) {
+                    if ( type.isIndexableForNode(nodeType, rangeIndex) ) {
                         constraintType = type;
                         return i;
                     }
@@ -461,10 +470,27 @@ public class IndexUtil {
         }
     }
 
-    private static boolean isDual(MvelConstraint firstConstraint, String leftValue, MvelConstraint dualConstraint) {
-        return dualConstraint.getConstraintType().isComparison() &&
-                dualConstraint.getConstraintType().isAscending() != firstConstraint.getConstraintType().isAscending() &&
-                leftValue.equals( getLeftValueInExpression(dualConstraint.getExpression()) );
+    private static boolean isDual(IndexableConstraint firstConstraint, IndexableConstraint dualConstraint) {
+        ConstraintType firstType = firstConstraint.getConstraintType();
+        ConstraintType dualType = dualConstraint.getConstraintType();
+        if ( !firstType.isComparison() || !dualType.isComparison() || firstType.isAscending() == dualType.isAscending() ||
+             firstConstraint.isUnification() || dualConstraint.isUnification() ||
+             !hasDeclaration(firstConstraint) || !hasDeclaration(dualConstraint) ) {
+            return false;
+        }
+
+        // both constraints have to compare the same property of the right fact
+        if (firstConstraint instanceof MvelConstraint && dualConstraint instanceof MvelConstraint) {
+            return getLeftValueInExpression( ((MvelConstraint) firstConstraint).getExpression() )
+                    .equals( getLeftValueInExpression( ((MvelConstraint) dualConstraint).getExpression() ) );
+        }
+        return firstConstraint.getFieldExtractor() != null &&
+                firstConstraint.getFieldExtractor().equals( dualConstraint.getFieldExtractor() );
+    }
+
+    private static boolean hasDeclaration(IndexableConstraint constraint) {
+        FieldIndex fieldIndex = constraint.getFieldIndex();
+        return fieldIndex != null && fieldIndex.getDeclaration() != null;
     }
 
     private static String getLeftValueInExpression(String expression) {
@@ -31,9 +31,17 @@ import org.drools.core.util.FastIterator;
 import org.drools.core.util.Iterator;
 import org.drools.core.util.RBTree;
 
+/**
+ * Left memory indexed on a pair of dual comparison constraints, like <code>value &gt; $a.low, value &lt; $a.high</code>.
+ * The left tuples are bucketed by their lower bound first and then by their upper bound, so that given a right tuple
+ * only the lower bounds preceding its value are visited and, for each of them, only the upper bounds following it.
+ */
 public class LeftTupleIndexRangeRBTree implements Externalizable, TupleMemory {
 
-    private RBTree<Comparable<Comparable>, RBTree<Comparable<Comparable>, TupleList>> tree;
+    private RBTree<Comparable<Comparable>, RBTree<Comparable<Comparable>, Bucket>> tree;
+
+    // left tuples with a null bound can never be matched, they are only reachable through the full iterator
+    private Bucket nullBucket;
 
     private AbstractHashTable.FieldIndex ascendingIndex;
     private IndexUtil.ConstraintType ascendingConstraintType;
@@ -43,6 +51,7 @@ public class LeftTupleIndexRangeRBTree implements Externalizable, TupleMemory {
 
 
     private transient TupleFastIterator tupleFastIterator;
+    private transient TupleFullFastIterator tupleFullFastIterator;
 
     private int size;
 
@@ -56,12 +65,13 @@ public class LeftTupleIndexRangeRBTree implements Externalizable, TupleMemory {
         this.ascendingConstraintType = ascendingConstraintType;
         this.descendingIndex = descendingIndex;
         this.descendingConstraintType = descendingConstraintType;
-        tree = new RBTree<Comparable<Comparable>, RBTree<Comparable<Comparable>, TupleList>>();
+        tree = new RBTree<Comparable<Comparable>, RBTree<Comparable<Comparable>, Bucket>>();
     }
 
 
     public void writeExternal(ObjectOutput out) throws IOException {
         out.writeObject( tree );
+        out.writeObject( nullBucket );
         out.writeObject( ascendingIndex );
         out.writeObject( ascendingConstraintType );
         out.writeObject( descendingIndex );
@@ -70,7 +80,8 @@ public class LeftTupleIndexRangeRBTree implements Externalizable, TupleMemory {
     }
 
     public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
-        tree = (RBTree<Comparable<Comparable>, RBTree<Comparable<Comparable>, TupleList>>) in.readObject();
+        tree = (RBTree<Comparable<Comparable>, RBTree<Comparable<Comparable>, Bucket>>) in.readObject();
+        nullBucket = (Bucket) in.readObject();
         ascendingIndex = (AbstractHashTable.FieldIndex) in.readObject();
         ascendingConstraintType = (IndexUtil.ConstraintType) in.readObject();
         descendingIndex = (AbstractHashTable.FieldIndex) in.readObject();
@@ -81,22 +92,38 @@ public class LeftTupleIndexRangeRBTree implements Externalizable, TupleMemory {
     public void add(Tuple tuple) {
         Comparable lowerBound = getLeftAscendingIndexedValue(tuple);
         Comparable upperBound = getLeftDescendingIndexedValue(tuple);
-        RBTree<Comparable<Comparable>, TupleList> nestedTree = tree.lookup(lowerBound);
-        if (nestedTree == null) {
-            nestedTree = new RBTree<Comparable<Comparable>, TupleList>();
-            tree.insert(lowerBound, nestedTree);
-        }
-        TupleList list = nestedTree.lookup(upperBound);
-        if (list == null) {
-            list = new TupleList();
-            nestedTree.insert(upperBound, list);
+        Bucket bucket;
+        if (lowerBound == null || upperBound == null) {
+            if (nullBucket == null) {
+                nullBucket = new Bucket(null, null, null);
+            }
+            bucket = nullBucket;
+        } else {
+            RBTree<Comparable<Comparable>, Bucket> nestedTree = tree.lookup(lowerBound);
+            if (nestedTree == null) {
+                nestedTree = new RBTree<Comparable<Comparable>, Bucket>();
+                tree.insert(lowerBound, nestedTree);
+            }
+            bucket = nestedTree.lookup(upperBound);
+            if (bucket == null) {
+                bucket = new Bucket(lowerBound, upperBound, nestedTree);
+                nestedTree.insert(upperBound, bucket);
+            }
         }
-        list.add(tuple);
+        bucket.add(tuple);
         size++;
     }
 
     public void remove(Tuple tuple) {
-        tuple.getMemory().remove(tuple);
+        // the bounds are taken from the bucket, as the tuple may already have been modified
+        Bucket bucket = (Bucket) tuple.getMemory();
+        bucket.remove(tuple);
+        if (bucket.isEmpty() && bucket.nestedTree != null) {
+            bucket.nestedTree.delete(bucket.upperBound);
+            if (bucket.nestedTree.isEmpty()) {
+                tree.delete(bucket.lowerBound);
+            }
+        }
         size--;
     }
 
@@ -114,68 +141,33 @@ public class LeftTupleIndexRangeRBTree implements Externalizable, TupleMemory {
     }
 
     public Entry[] toArray() {
-        FastIterator it = tree.fastIterator();
-        if (it == null) {
-            return new Entry[0];
-        }
-
-        List<Comparable> toBeRemoved = new ArrayList<Comparable>();
-        List<Comparable> nestedToBeRemoved = new ArrayList<Comparable>();
         List<Tuple> result = new ArrayList<Tuple>();
-
-        RBTree.Node<Comparable<Comparable>, RBTree<Comparable<Comparable>, TupleList>> node = null;
-        RBTree.Node<Comparable<Comparable>, TupleList> nestedNode = null;
-
-        while ( (node = (RBTree.Node<Comparable<Comparable>, RBTree<Comparable<Comparable>, TupleList>>) it.next( node )) != null ) {
-            nestedToBeRemoved.clear();
-            RBTree<Comparable<Comparable>, TupleList> nestedTree = node.value;
-            FastIterator nestedIt = nestedTree.fastIterator();
-
-            while ( (nestedNode = (RBTree.Node<Comparable<Comparable>, TupleList>) nestedIt.next( nestedNode )) != null ) {
-                TupleList list = nestedNode.value;
-                int listSize = list.size();
-                if (listSize == 0) {
-                    nestedToBeRemoved.add(nestedNode.key);
-                } else {
-                    Tuple entry = list.getFirst();
-                    while (entry != null) {
-                        result.add(entry);
-                        entry = (Tuple) entry.getNext();
-                    }
-                }
-            }
-
-            for (Comparable key : nestedToBeRemoved) {
-                nestedTree.delete(key);
-            }
-
-            if (nestedTree.isEmpty()) {
-                toBeRemoved.add(node.key);
-            }
+        FastIterator it = fullFastIterator();
+        for (Tuple entry = getFirstTuple(); entry != null; entry = (Tuple) it.next(entry)) {
+            result.add(entry);
         }
-
-        for (Comparable key : toBeRemoved) {
-            tree.delete(key);
-        }
-
         return result.toArray(new Tuple[result.size()]);
     }
 
-    public Tuple getFirst(Tuple tuple) {
-        Comparable key = getRightIndexedValue(tuple);
-        return getFirst(key);
+    public Tuple getFirst(Tuple rightTuple) {
+        Comparable value = getRightIndexedValue(rightTuple);
+        // the fast iterator is always retrieved before the first tuple, so it can continue from this value
+        ((TupleFastIterator) fastIterator()).value = value;
+        return value == null ? null : getFirst(tree.first(), value);
     }
 
     public Iterator<Tuple> iterator() {
-        TupleList list = tree.first().value.first().value;
-        Tuple firstTuple = list != null ? list.getFirst() : null;
-        return new FastIterator.IteratorAdapter(fastIterator(), firstTuple);
+        return new FastIterator.IteratorAdapter(fullFastIterator(), getFirstTuple());
     }
 
     public boolean contains(Tuple tuple) {
         Comparable lowerBound = getLeftAscendingIndexedValue(tuple);
-        RBTree<Comparable<Comparable>, TupleList> nestedTree = tree.lookup(lowerBound);
-        return nestedTree == null ? false : nestedTree.lookup(getLeftDescendingIndexedValue(tuple)) != null;
+        Comparable upperBound = getLeftDescendingIndexedValue(tuple);
+        if (lowerBound == null || upperBound == null) {
+            return nullBucket != null && !nullBucket.isEmpty();
+        }
+        RBTree<Comparable<Comparable>, Bucket> nestedTree = tree.lookup(lowerBound);
+        return nestedTree != null && nestedTree.lookup(upperBound) != null;
     }
 
     public FastIterator fastIterator() {
@@ -186,135 +178,144 @@ public class LeftTupleIndexRangeRBTree implements Externalizable, TupleMemory {
     }
 
     public FastIterator fullFastIterator() {
-        if ( tupleFastIterator == null ) {
-            tupleFastIterator = new TupleFastIterator();
+        if ( tupleFullFastIterator == null ) {
+            tupleFullFastIterator = new TupleFullFastIterator();
         }
-        return tupleFastIterator;
+        return tupleFullFastIterator;
     }
 
     public FastIterator fullFastIterator(Tuple tuple) {
-        FastIterator fastIterator = fullFastIterator();
-        fastIterator.next(getNext(tuple));
-        return fastIterator;
+        return fullFastIterator();
     }
 
     private Comparable getLeftAscendingIndexedValue(Tuple tuple) {
-        return (Comparable) ascendingIndex.getDeclaration().getExtractor().getValue( tuple.get( ascendingIndex.getDeclaration() ).getObject() );
+        return (Comparable) ascendingIndex.getDeclaration().getExtractor().getValue( tuple.getObject( ascendingIndex.getDeclaration() ) );
     }
 
     private Comparable getLeftDescendingIndexedValue(Tuple tuple) {
-        return (Comparable) descendingIndex.getDeclaration().getExtractor().getValue( tuple.get( descendingIndex.getDeclaration() ).getObject() );
+        return (Comparable) descendingIndex.getDeclaration().getExtractor().getValue( tuple.getObject( descendingIndex.getDeclaration() ) );
     }
 
     private Comparable getRightIndexedValue(Tuple tuple) {
         return (Comparable) ascendingIndex.getExtractor().getValue( tuple.getFactHandle().getObject() );
     }
 
-    private Tuple getFirst(Comparable key) {
-        RBTree.Node<Comparable<Comparable>, RBTree<Comparable<Comparable>, TupleList>> nestedNode = null;
-        RBTree.Node<Comparable<Comparable>, TupleList> firstNode;
-
-        boolean findNextNestedNode = true;
-        while (true) {
-            if (findNextNestedNode) {
-                switch (ascendingConstraintType) {
-                    case GREATER_THAN:
-                        nestedNode = tree.findNearestNode(key, false, RBTree.Boundary.UPPER);
-                        break;
-                    case GREATER_OR_EQUAL:
-                        nestedNode = tree.findNearestNode(key, true, RBTree.Boundary.UPPER);
-                        break;
-                    default:
-                        throw new UnsupportedOperationException("Cannot call remove constraint of type: " + ascendingConstraintType);
-                }
+    /**
+     * Visits the lower bounds, starting from the given one, as long as they precede the value
+     * and returns the first tuple whose upper bound follows it
+     */
+    private Tuple getFirst(RBTree.Node<Comparable<Comparable>, RBTree<Comparable<Comparable>, Bucket>> node, Comparable value) {
+        boolean upperBoundEqual = descendingConstraintType == IndexUtil.ConstraintType.LESS_OR_EQUAL;
+        for (; node != null && isAboveLowerBound(value, node.key); node = tree.findNearestNode(node.key, false, RBTree.Boundary.LOWER)) {
+            RBTree.Node<Comparable<Comparable>, Bucket> nestedNode = node.value.findNearestNode(value, upperBoundEqual, RBTree.Boundary.LOWER);
+            if (nestedNode != null) {
+                return nestedNode.value.getFirst();
             }
+        }
+        return null;
+    }
 
-            findNextNestedNode = true;
-            if (nestedNode == null) {
-                return null;
-            }
-            if (nestedNode.value.isEmpty()) {
-                tree.delete(nestedNode.key);
-                continue;
-            }
+    private boolean isAboveLowerBound(Comparable value, Comparable lowerBound) {
+        int compResult = value.compareTo(lowerBound);
+        return compResult > 0 || (compResult == 0 && ascendingConstraintType == IndexUtil.ConstraintType.GREATER_OR_EQUAL);
+    }
 
-            RBTree<Comparable<Comparable>, TupleList> nestedTree = nestedNode.value;
-            while (true) {
-                switch (descendingConstraintType) {
-                    case LESS_THAN:
-                        firstNode = nestedTree.findNearestNode(key, false, RBTree.Boundary.LOWER);
-                        break;
-                    case LESS_OR_EQUAL:
-                        firstNode = nestedTree.findNearestNode(key, true, RBTree.Boundary.LOWER);
-                        break;
-                    default:
-                        throw new UnsupportedOperationException("Cannot call remove constraint of type: " + descendingConstraintType);
-                }
-
-                if (firstNode != null && firstNode.value.size() == 0) {
-                    nestedTree.delete(firstNode.key);
-                    firstNode = null;
-                }
-
-                if (firstNode == null) {
-                    nestedNode = tree.findNearestNode(nestedNode.key, false, RBTree.Boundary.UPPER);
-                    if (nestedNode == null) {
-                        return null;
-                    }
-                    findNextNestedNode = false;
-                    break;
-                }
-
-                return firstNode.value.getFirst();
-            }
-        }
+    private Tuple getFirstTuple() {
+        RBTree.Node<Comparable<Comparable>, RBTree<Comparable<Comparable>, Bucket>> node = tree.first();
+        return node != null ? node.value.first().value.getFirst() : getFirstNullTuple();
     }
 
-    private Entry getNext(Tuple tuple) {
-        Tuple next = (Tuple) tuple.getNext();
-        if (next != null) {
-            return next;
-        }
+    private Tuple getFirstNullTuple() {
+        return nullBucket == null ? null : nullBucket.getFirst();
+    }
 
-        Comparable ascendingKey = getLeftAscendingIndexedValue(tuple);
-        Comparable descendingKey = getLeftDescendingIndexedValue(tuple);
-
-        RBTree<Comparable<Comparable>, TupleList> nestedTree = tree.lookup(ascendingKey);
-        while (nestedTree != null) {
-            while (true) {
-                RBTree.Node<Comparable<Comparable>, TupleList> nextNode = nestedTree.findNearestNode(descendingKey, false, RBTree.Boundary.LOWER);
-                if (nextNode == null) {
-                    break;
-                }
-                if (nextNode.value.size() == 0) {
-                    nestedTree.delete(nextNode.key);
-                } else {
-                    return nextNode.value.getFirst();
-                }
-            }
+    public class TupleFastIterator implements FastIterator {
+
+        private Comparable value;
 
-            RBTree.Node<Comparable<Comparable>, RBTree<Comparable<Comparable>, TupleList>> nextNode = tree.findNearestNode(ascendingKey, false, RBTree.Boundary.UPPER);
-            nestedTree = nextNode == null ? null : nextNode.value;
+        public Entry next(Entry object) {
+            if (object == null) {
+                return null;
+            }
+            Tuple tuple = (Tuple) object;
+            Tuple next = (Tuple) tuple.getNext();
+            if (next != null) {
+                return next;
+            }
+            Bucket bucket = (Bucket) tuple.getMemory();
+            if (bucket == null || bucket.nestedTree == null || value == null) {
+                return null;
+            }
+            // all the following upper bounds with the same lower bound still follow the value
+            RBTree.Node<Comparable<Comparable>, Bucket> nestedNode = bucket.nestedTree.findNearestNode(bucket.upperBound, false, RBTree.Boundary.LOWER);
+            if (nestedNode != null) {
+                return nestedNode.value.getFirst();
+            }
+            return getFirst(tree.findNearestNode(bucket.lowerBound, false, RBTree.Boundary.LOWER), value);
         }
 
-        return null;
+        public boolean isFullIterator() {
+            return false;
+        }
     }
 
-    public class TupleFastIterator implements FastIterator {
+    public class TupleFullFastIterator implements FastIterator {
+
         public Entry next(Entry object) {
-            return object == null ? null : getNext((Tuple) object);
+            if (object == null) {
+                return getFirstTuple();
+            }
+            Tuple tuple = (Tuple) object;
+            Tuple next = (Tuple) tuple.getNext();
+            if (next != null) {
+                return next;
+            }
+            Bucket bucket = (Bucket) tuple.getMemory();
+            if (bucket == null || bucket.nestedTree == null) {
+                // the null bucket is always the last one
+                return null;
+            }
+            RBTree.Node<Comparable<Comparable>, Bucket> nestedNode = bucket.nestedTree.findNearestNode(bucket.upperBound, false, RBTree.Boundary.LOWER);
+            if (nestedNode != null) {
+                return nestedNode.value.getFirst();
+            }
+            RBTree.Node<Comparable<Comparable>, RBTree<Comparable<Comparable>, Bucket>> node = tree.findNearestNode(bucket.lowerBound, false, RBTree.Boundary.LOWER);
+            return node != null ? node.value.first().value.getFirst() : getFirstNullTuple();
         }
 
         public boolean isFullIterator() {
-            return false;
+            return true;
         }
     }
 
     public void clear() {
-        tree = new RBTree<Comparable<Comparable>, RBTree<Comparable<Comparable>, TupleList>>();
+        tree = new RBTree<Comparable<Comparable>, RBTree<Comparable<Comparable>, Bucket>>();
+        nullBucket = null;
+        size = 0;
     }
 
     public TupleMemory.IndexType getIndexType() {
         return TupleMemory.IndexType.COMPARISON;
     }
+
+    public static class Bucket extends TupleList {
+
+        private final Comparable lowerBound;
+        private final Comparable upperBound;
+        private final RBTree<Comparable<Comparable>, Bucket> nestedTree;
+
+        public Bucket(Comparable lowerBound, Comparable upperBound, RBTree<Comparable<Comparable>, Bucket> nestedTree) {
+            this.lowerBound = lowerBound;
+            this.upperBound = upperBound;
+            this.nestedTree = nestedTree;
+        }
+
+        public Comparable getLowerBound() {
+            return lowerBound;
+        }
+
+        public Comparable getUpperBound() {
+            return upperBound;
+        }
+    }
 }
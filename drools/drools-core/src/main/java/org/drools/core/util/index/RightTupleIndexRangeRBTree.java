@@ -3,7 +3,7 @@
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
- * 
+ *
  *      http://www.apache.org/licenses/LICENSE-2.0
  *
  * Unless required by applicable law or agreed to in writing, software
@@ -31,9 +31,17 @@ import org.drools.core.util.Iterator;
 import org.drools.core.util.RBTree;
 import org.drools.core.util.index.IndexUtil.ConstraintType;
 
+/**
+ * Right memory indexed on a pair of dual comparison constraints, like <code>value &gt; $a.low, value &lt; $a.high</code>.
+ * The right tuples are bucketed by the value of the constrained property and, given a left tuple, only the buckets
+ * falling between its lower and upper bound are visited.
+ */
 public class RightTupleIndexRangeRBTree implements TupleMemory, Externalizable {
 
-    private RBTree<Comparable<Comparable>, TupleList> tree;
+    private RBTree<Comparable<Comparable>, Bucket> tree;
+
+    // right tuples with a null value can never be in range, they are only reachable through the full iterator
+    private Bucket nullBucket;
 
     private FieldIndex ascendingIndex;
     private ConstraintType ascendingConstraintType;
@@ -41,7 +49,8 @@ public class RightTupleIndexRangeRBTree implements TupleMemory, Externalizable {
     private FieldIndex descendingIndex;
     private ConstraintType descendingConstraintType;
 
-    private RightTupleBoundedFastIterator rightTupleBoundedFastIterator;
+    private transient RightTupleBoundedFastIterator rightTupleBoundedFastIterator;
+    private transient RightTupleFullFastIterator rightTupleFullFastIterator;
 
     private int size;
 
@@ -55,12 +64,13 @@ public class RightTupleIndexRangeRBTree implements TupleMemory, Externalizable {
         this.ascendingConstraintType = ascendingConstraintType;
         this.descendingIndex = descendingIndex;
         this.descendingConstraintType = descendingConstraintType;
-        tree = new RBTree<Comparable<Comparable>, TupleList>();
+        tree = new RBTree<Comparable<Comparable>, Bucket>();
     }
 
 
     public void writeExternal(ObjectOutput out) throws IOException {
         out.writeObject( tree );
+        out.writeObject( nullBucket );
         out.writeObject( ascendingIndex );
         out.writeObject( ascendingConstraintType );
         out.writeObject( descendingIndex );
@@ -69,7 +79,8 @@ public class RightTupleIndexRangeRBTree implements TupleMemory, Externalizable {
     }
 
     public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
-        tree = (RBTree<Comparable<Comparable>, TupleList>) in.readObject();
+        tree = (RBTree<Comparable<Comparable>, Bucket>) in.readObject();
+        nullBucket = (Bucket) in.readObject();
         ascendingIndex = (FieldIndex) in.readObject();
         ascendingConstraintType = (ConstraintType) in.readObject();
         descendingIndex = (FieldIndex) in.readObject();
@@ -79,17 +90,29 @@ public class RightTupleIndexRangeRBTree implements TupleMemory, Externalizable {
 
     public void add(Tuple tuple) {
         Comparable key = getRightIndexedValue(tuple);
-        TupleList list = tree.lookup(key);
-        if (list == null) {
-            list = new TupleList();
-            tree.insert(key, list);
+        Bucket bucket;
+        if (key == null) {
+            if (nullBucket == null) {
+                nullBucket = new Bucket(null);
+            }
+            bucket = nullBucket;
+        } else {
+            bucket = tree.lookup(key);
+            if (bucket == null) {
+                bucket = new Bucket(key);
+                tree.insert(key, bucket);
+            }
         }
-        list.add(tuple);
+        bucket.add(tuple);
         size++;
     }
 
     public void remove(Tuple tuple) {
-        tuple.getMemory().remove(tuple);
+        Bucket bucket = (Bucket) tuple.getMemory();
+        bucket.remove(tuple);
+        if (bucket.isEmpty() && bucket.key != null) {
+            tree.delete(bucket.key);
+        }
         size--;
     }
 
@@ -107,124 +130,92 @@ public class RightTupleIndexRangeRBTree implements TupleMemory, Externalizable {
     }
 
     public Entry[] toArray() {
-        FastIterator it = tree.fastIterator();
-        if (it == null) {
-            return new Entry[0];
-        }
-
-        List<Comparable> toBeRemoved = new ArrayList<Comparable>();
         List<Tuple> result = new ArrayList<Tuple>();
-
-        RBTree.Node<Comparable<Comparable>, TupleList> node;
-        while ( (node = (RBTree.Node<Comparable<Comparable>, TupleList>) it.next( null )) != null ) {
-            TupleList bucket = node.value;
-            if (bucket.size() == 0) {
-                toBeRemoved.add(node.key);
-            } else {
-                Tuple entry = bucket.getFirst();
-                while (entry != null) {
-                    result.add(entry);
-                    entry = (Tuple) entry.getNext();
-                }
-            }
-        }
-
-        for (Comparable key : toBeRemoved) {
-            tree.delete(key);
+        FastIterator it = fullFastIterator();
+        for (Tuple entry = getFirstTuple(); entry != null; entry = (Tuple) it.next(entry)) {
+            result.add(entry);
         }
-
         return result.toArray(new Tuple[result.size()]);
     }
 
     public Tuple getFirst(Tuple leftTuple) {
         Comparable lowerBound = getLeftAscendingIndexedValue(leftTuple);
-        Tuple rightTuple = getNext(lowerBound, true);
-        return rightTuple == null ? null : checkUpperBound(rightTuple, getLeftDescendingIndexedValue(leftTuple));
+        Comparable upperBound = getLeftDescendingIndexedValue(leftTuple);
+        // the bounded iterator is always retrieved before the first tuple, so it can continue up to this upper bound
+        ((RightTupleBoundedFastIterator) fastIterator()).upperBound = upperBound;
+        if (lowerBound == null || upperBound == null) {
+            return null;
+        }
+        RBTree.Node<Comparable<Comparable>, Bucket> firstNode = tree.findNearestNode(lowerBound, ascendingConstraintType == ConstraintType.GREATER_OR_EQUAL, RBTree.Boundary.LOWER);
+        return firstNode == null || !isBelowUpperBound(firstNode.key, upperBound) ? null : firstNode.value.getFirst();
     }
 
-    private Tuple checkUpperBound(Tuple rightTuple, Comparable upperBound) {
-        int compResult = getRightIndexedValue(rightTuple).compareTo(upperBound);
-        return compResult < 0 || (compResult == 0 && descendingConstraintType == ConstraintType.LESS_OR_EQUAL) ? rightTuple : null;
+    private boolean isBelowUpperBound(Comparable key, Comparable upperBound) {
+        int compResult = key.compareTo(upperBound);
+        return compResult < 0 || (compResult == 0 && descendingConstraintType == ConstraintType.LESS_OR_EQUAL);
     }
 
     public Iterator iterator() {
-        TupleList list = tree.first().value;
-        Tuple firstTuple = list != null ? list.getFirst() : null;
-        return new FastIterator.IteratorAdapter(fastIterator(), firstTuple);
+        return new FastIterator.IteratorAdapter(fullFastIterator(), getFirstTuple());
     }
 
     public boolean contains(Tuple tuple) {
         Comparable key = getRightIndexedValue(tuple);
-        return tree.lookup(key) != null;
+        return key == null ? nullBucket != null && !nullBucket.isEmpty() : tree.lookup(key) != null;
     }
 
     public FastIterator fastIterator() {
-        if ( rightTupleBoundedFastIterator != null ) {
+        if ( rightTupleBoundedFastIterator == null ) {
             rightTupleBoundedFastIterator = new RightTupleBoundedFastIterator();
         }
         return rightTupleBoundedFastIterator;
     }
 
     public FastIterator fullFastIterator() {
-        if ( rightTupleBoundedFastIterator != null ) {
-            rightTupleBoundedFastIterator = new RightTupleBoundedFastIterator();
+        if ( rightTupleFullFastIterator == null ) {
+            rightTupleFullFastIterator = new RightTupleFullFastIterator();
         }
-        return rightTupleBoundedFastIterator;
+        return rightTupleFullFastIterator;
     }
 
     public FastIterator fullFastIterator(Tuple tuple) {
-        FastIterator fastIterator = fullFastIterator();
-        Comparable key = getRightIndexedValue(tuple);
-        fastIterator.next(getNext(key, true));
-        return fastIterator;
+        return fullFastIterator();
     }
 
     public IndexType getIndexType() {
         return IndexType.COMPARISON;
     }
 
-    private Tuple getNext(Comparable lowerBound, boolean first) {
-        RBTree.Node<Comparable<Comparable>, TupleList> firstNode;
-        while (true) {
-            switch (ascendingConstraintType) {
-                case GREATER_THAN:
-                    firstNode = tree.findNearestNode(lowerBound, false, RBTree.Boundary.LOWER);
-                    break;
-                case GREATER_OR_EQUAL:
-                    firstNode = tree.findNearestNode(lowerBound, first, RBTree.Boundary.LOWER);
-                    break;
-                default:
-                    throw new UnsupportedOperationException("Cannot call remove constraint of type: " + ascendingConstraintType);
-            }
-            if (firstNode != null && firstNode.value.size() == 0) {
-                tree.delete(firstNode.key);
-            } else {
-                break;
-            }
-        }
-        return firstNode == null ? null : firstNode.value.getFirst();
+    private Tuple getFirstTuple() {
+        RBTree.Node<Comparable<Comparable>, Bucket> firstNode = tree.first();
+        return firstNode != null ? firstNode.value.getFirst() : getFirstNullTuple();
+    }
+
+    private Tuple getFirstNullTuple() {
+        return nullBucket == null ? null : nullBucket.getFirst();
     }
 
     private Comparable getLeftAscendingIndexedValue(Tuple leftTuple) {
-        return (Comparable) ascendingIndex.getDeclaration().getExtractor().getValue(leftTuple.get(ascendingIndex.getDeclaration()).getObject());
+        return (Comparable) ascendingIndex.getDeclaration().getExtractor().getValue( leftTuple.getObject( ascendingIndex.getDeclaration() ) );
     }
 
     private Comparable getLeftDescendingIndexedValue(Tuple leftTuple) {
-        return (Comparable) descendingIndex.getDeclaration().getExtractor().getValue(leftTuple.get(descendingIndex.getDeclaration()).getObject());
+        return (Comparable) descendingIndex.getDeclaration().getExtractor().getValue( leftTuple.getObject( descendingIndex.getDeclaration() ) );
     }
 
     private Comparable getRightIndexedValue(Tuple rightTuple) {
         return (Comparable) ascendingIndex.getExtractor().getValue( rightTuple.getFactHandle().getObject() );
     }
 
+    private Comparable getBucketKey(Tuple rightTuple) {
+        Bucket bucket = (Bucket) rightTuple.getMemory();
+        return bucket != null ? bucket.key : getRightIndexedValue(rightTuple);
+    }
+
     public class RightTupleBoundedFastIterator implements FastIterator {
 
         private Comparable upperBound;
 
-        public void setUpperBound(Tuple leftTuple) {
-            upperBound = getLeftDescendingIndexedValue(leftTuple);
-        }
-
         public Entry next(Entry object) {
             if (object == null) {
                 return null;
@@ -234,9 +225,12 @@ public class RightTupleIndexRangeRBTree implements TupleMemory, Externalizable {
             if (next != null) {
                 return next;
             }
-            Comparable key = getRightIndexedValue(rightTuple);
-            next = getNext(key, false);
-            return next == null ? null : checkUpperBound(next, upperBound);
+            Comparable key = getBucketKey(rightTuple);
+            if (key == null || upperBound == null) {
+                return null;
+            }
+            RBTree.Node<Comparable<Comparable>, Bucket> nextNode = tree.findNearestNode(key, false, RBTree.Boundary.LOWER);
+            return nextNode == null || !isBelowUpperBound(nextNode.key, upperBound) ? null : nextNode.value.getFirst();
         }
 
         public boolean isFullIterator() {
@@ -244,7 +238,47 @@ public class RightTupleIndexRangeRBTree implements TupleMemory, Externalizable {
         }
     }
 
+    public class RightTupleFullFastIterator implements FastIterator {
+
+        public Entry next(Entry object) {
+            if (object == null) {
+                return getFirstTuple();
+            }
+            Tuple rightTuple = (Tuple) object;
+            Tuple next = (Tuple) rightTuple.getNext();
+            if (next != null) {
+                return next;
+            }
+            Comparable key = getBucketKey(rightTuple);
+            if (key == null) {
+                // the null bucket is always the last one
+                return null;
+            }
+            RBTree.Node<Comparable<Comparable>, Bucket> nextNode = tree.findNearestNode(key, false, RBTree.Boundary.LOWER);
+            return nextNode != null ? nextNode.value.getFirst() : getFirstNullTuple();
+        }
+
+        public boolean isFullIterator() {
+            return true;
+        }
+    }
+
     public void clear() {
-        tree = new RBTree<Comparable<Comparable>, TupleList>();
+        tree = new RBTree<Comparable<Comparable>, Bucket>();
+        nullBucket = null;
+        size = 0;
+    }
+
+    public static class Bucket extends TupleList {
+
+        private final Comparable key;
+
+        public Bucket(Comparable key) {
+            this.key = key;
+        }
+
+        public Comparable getKey() {
+            return key;
+        }
     }
 }
@@ -154,6 +154,18 @@ public class ClassAwareObjectStoreTest {
         assertThat(collect(underTest.iterateFactHandles(SuperClass.class))).hasSize(2);
     }
 
+    @ClassAwareObjectStoreParameterizedTest
+    public void handleFromExternalFormIsReconnectedThroughItsClassStore(final ClassAwareObjectStore underTest) {
+        SimpleClass object = new SimpleClass();
+        InternalFactHandle handle = handleFor(object);
+        underTest.addHandle(handle, object);
+        insertObjectWithFactHandle(underTest, new SuperClass());
+
+        DefaultFactHandle external = DefaultFactHandle.createFromExternalFormat(handle.toExternalForm());
+        assertThat(external.getObjectClassName()).isEqualTo(SimpleClass.class.getName());
+        assertThat(underTest.reconnect(external)).isSameAs(handle);
+        assertThat(underTest.getObjectForHandle(external)).isSameAs(object);
+    }
 
     private void insertObjectWithFactHandle(ClassAwareObjectStore underTest, Object objectToInsert) {
         underTest.addHandle(handleFor(objectToInsert), objectToInsert);
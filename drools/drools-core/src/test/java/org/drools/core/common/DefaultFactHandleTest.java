@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.drools.core.common;
+
+import org.drools.core.common.DefaultFactHandle.CompositeLinkedTuples;
+import org.drools.core.common.InternalFactHandle.LinkedTuples;
+import org.drools.core.factmodel.traits.TraitTypeEnum;
+import org.drools.core.test.model.Cheese;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class DefaultFactHandleTest {
+
+    @Test
+    public void testFlags() {
+        DefaultFactHandle handle = new DefaultFactHandle( 1, new Cheese( "stilton", 10 ) );
+        assertTrue( handle.isValid() );
+        assertFalse( handle.isNegated() );
+        assertFalse( handle.isDisconnected() );
+        assertEquals( TraitTypeEnum.NON_TRAIT, handle.getTraitType() );
+
+        handle.setNegated( true );
+        handle.setTraitType( TraitTypeEnum.WRAPPED_TRAITABLE );
+        assertTrue( handle.isNegated() );
+        assertTrue( handle.isValid() );
+        assertTrue( handle.isTraitable() );
+        assertFalse( handle.isTraiting() );
+
+        handle.invalidate();
+        handle.disconnect();
+        handle.setNegated( false );
+        assertFalse( handle.isValid() );
+        assertFalse( handle.isNegated() );
+        assertTrue( handle.isDisconnected() );
+        assertEquals( TraitTypeEnum.WRAPPED_TRAITABLE, handle.getTraitType() );
+    }
+
+    @Test
+    public void testClone() {
+        DefaultFactHandle handle = new DefaultFactHandle( 1, new Cheese( "stilton", 10 ) );
+        handle.setNegated( true );
+        handle.setTraitType( TraitTypeEnum.TRAIT );
+
+        DefaultFactHandle clone = handle.clone();
+        assertTrue( clone.isNegated() );
+        assertTrue( clone.isTraiting() );
+        assertFalse( clone.isDisconnected() );
+    }
+
+    @Test
+    public void testExternalForm() {
+        DefaultFactHandle handle = new DefaultFactHandle( 5, new Cheese( "stilton", 10 ) );
+        handle.setTraitType( TraitTypeEnum.TRAITABLE );
+        assertEquals( Cheese.class.getName(), handle.getObjectClassName() );
+
+        DefaultFactHandle copy = DefaultFactHandle.createFromExternalFormat( handle.toExternalForm() );
+        assertEquals( 5, copy.getId() );
+        assertEquals( handle.getIdentityHashCode(), copy.getIdentityHashCode() );
+        assertEquals( handle.getObjectHashCode(), copy.getObjectHashCode() );
+        assertEquals( TraitTypeEnum.TRAITABLE, copy.getTraitType() );
+        assertTrue( copy.isDisconnected() );
+        assertTrue( copy.isValid() );
+        // the object is not there, but its class name is kept
+        assertEquals( Cheese.class.getName(), copy.getObjectClassName() );
+        assertEquals( handle.toExternalForm(), copy.toExternalForm() );
+
+        // same when the handle is filled by JAXB through its external form property
+        DefaultFactHandle unmarshalled = new DefaultFactHandle();
+        unmarshalled.setExternalForm( handle.getExternalForm() );
+        assertEquals( Cheese.class.getName(), unmarshalled.getObjectClassName() );
+        assertEquals( handle.getExternalForm(), unmarshalled.getExternalForm() );
+    }
+
+    @Test
+    public void testPartitionsWithoutTuples() {
+        CompositeLinkedTuples linkedTuples = new CompositeLinkedTuples();
+        assertNull( linkedTuples.getFirstLeftTuple( 0 ) );
+        assertNull( linkedTuples.getFirstRightTuple( 0 ) );
+        assertNull( linkedTuples.findFirstLeftTuple( t -> true ) );
+        assertNull( linkedTuples.findFirstRightTuple( t -> true ) );
+
+        linkedTuples.forEachLeftTuple( t -> fail( "No left tuples expected" ) );
+        linkedTuples.forEachRightTuple( t -> fail( "No right tuples expected" ) );
+        linkedTuples.setFirstLeftTuple( null, 0 );
+        linkedTuples.clearLeftTuples();
+        linkedTuples.clearRightTuples();
+
+        LinkedTuples clone = linkedTuples.clone();
+        assertNull( clone.getFirstLeftTuple( 0 ) );
+    }
+}
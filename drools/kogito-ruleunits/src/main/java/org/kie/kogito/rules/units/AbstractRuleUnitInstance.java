@@ -16,22 +16,35 @@
 package org.kie.kogito.rules.units;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
+import org.kie.api.event.rule.AgendaEventListener;
+import org.kie.api.event.rule.RuleRuntimeEventListener;
 import org.kie.api.runtime.KieSession;
 import org.kie.api.runtime.rule.EntryPoint;
+import org.kie.api.runtime.rule.QueryResults;
+import org.kie.api.runtime.rule.QueryResultsRow;
 import org.kie.api.time.SessionClock;
 import org.kie.kogito.rules.DataSource;
 import org.kie.kogito.rules.RuleUnit;
 import org.kie.kogito.rules.RuleUnitInstance;
 import org.kie.kogito.rules.RuleUnitData;
+import org.kie.kogito.rules.units.persistence.SessionPersistence;
+import org.kie.kogito.rules.units.persistence.SessionStorage;
 
 public class AbstractRuleUnitInstance<T extends RuleUnitData> implements RuleUnitInstance<T> {
 
     private final T unitMemory;
     private final RuleUnit<T> unit;
     private final KieSession runtime;
+    private final Map<EntryPointDataProcessor, DataSource<?>> subscriptions = new LinkedHashMap<>();
+    private final List<Runnable> disposeActions = new ArrayList<>();
+    private volatile boolean disposed;
+    private SessionPersistence persistence;
 
     public AbstractRuleUnitInstance( RuleUnit<T> unit, T unitMemory, KieSession runtime ) {
         this.unit = unit;
@@ -41,7 +54,41 @@ public class AbstractRuleUnitInstance<T extends RuleUnitData> implements RuleUni
     }
 
     public int fire() {
-        return runtime.fireAllRules();
+        checkNotDisposed();
+        int fired = runtime.fireAllRules();
+        if (persistence != null) {
+            persistence.fired();
+        }
+        return fired;
+    }
+
+    /**
+     * Restores the state of this instance from the given storage, if any, and keeps it there from now on.
+     * It must be invoked before any data is added to the data sources of the unit: restoring replaces the
+     * facts of the session, so the ones already inserted from the data sources would be lost, or inserted
+     * twice when the storage only holds a journal.
+     * The facts restored into the session are not added to the data sources of the unit, that only
+     * receive the ones added to it afterwards.
+     *
+     * @throws IllegalStateException if the session already holds any fact
+     * @see SessionPersistence
+     */
+    public void persistTo( SessionStorage storage, int snapshotInterval ) {
+        checkNotDisposed();
+        if (persistence != null) {
+            throw new IllegalStateException( "Rule unit instance of " + unitMemory.getClass().getCanonicalName() + " is already persisted" );
+        }
+        if (holdsFacts()) {
+            throw new IllegalStateException( "Rule unit instance of " + unitMemory.getClass().getCanonicalName() +
+                    " must be persisted before data is added to its data sources" );
+        }
+        SessionPersistence sessionPersistence = new SessionPersistence( runtime, storage, snapshotInterval );
+        sessionPersistence.restore();
+        persistence = sessionPersistence;
+    }
+
+    public void persistTo( SessionStorage storage ) {
+        persistTo( storage, SessionPersistence.DEFAULT_SNAPSHOT_INTERVAL );
     }
 
     public List<Map<String, Object>> executeQuery( String query, Object... arguments) {
@@ -49,6 +96,17 @@ public class AbstractRuleUnitInstance<T extends RuleUnitData> implements RuleUni
         return runtime.getQueryResults(query, arguments).toList();
     }
 
+    @Override
+    public <R> List<R> executeQuery( Function<QueryResultsRow, R> mapper, String query, Object... arguments) {
+        fire();
+        QueryResults results = runtime.getQueryResults(query, arguments);
+        List<R> mapped = new ArrayList<>( results.size() );
+        for (QueryResultsRow row : results) {
+            mapped.add( mapper.apply( row ) );
+        }
+        return mapped;
+    }
+
     @Override
     public RuleUnit<T> unit() {
         return unit;
@@ -59,31 +117,115 @@ public class AbstractRuleUnitInstance<T extends RuleUnitData> implements RuleUni
         return runtime.getSessionClock();
     }
 
+    @Override
+    public void dispose() {
+        if (disposed) {
+            return;
+        }
+        disposed = true;
+        if (persistence != null) {
+            persistence.close();
+            persistence = null;
+        }
+        // data sources outlive the instance, so they must not keep feeding the session once it is reused
+        subscriptions.forEach( (processor, dataSource) -> {
+            dataSource.unsubscribe( processor );
+            processor.close();
+        } );
+        subscriptions.clear();
+        // listeners are added again each time a session is handed out, they must not survive a reuse from the pool
+        for (AgendaEventListener listener : new ArrayList<>(runtime.getAgendaEventListeners())) {
+            runtime.removeEventListener( listener );
+        }
+        for (RuleRuntimeEventListener listener : new ArrayList<>(runtime.getRuleRuntimeEventListeners())) {
+            runtime.removeEventListener( listener );
+        }
+        runtime.dispose();
+        disposeActions.forEach( Runnable::run );
+        disposeActions.clear();
+    }
+
+    /**
+     * Registers an action run once this instance is disposed, e.g. removing it from the registry it was added to
+     */
+    public void onDispose( Runnable action ) {
+        disposeActions.add( action );
+    }
+
+    private boolean holdsFacts() {
+        if (runtime.getFactCount() > 0) {
+            return true;
+        }
+        for (EntryPoint entryPoint : runtime.getEntryPoints()) {
+            if (entryPoint.getFactCount() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void checkNotDisposed() {
+        if (disposed) {
+            throw new IllegalStateException( "Rule unit instance of " + unitMemory.getClass().getCanonicalName() + " was already disposed" );
+        }
+    }
+
     public T workingMemory() {
         return unitMemory;
     }
 
+    /**
+     * Feeds the given entry point with the data of the given data source until this instance is disposed
+     */
+    protected void subscribe( DataSource<?> dataSource, EntryPoint entryPoint ) {
+        EntryPointDataProcessor processor = new EntryPointDataProcessor( entryPoint );
+        subscriptions.put( processor, dataSource );
+        dataSource.subscribe( processor );
+    }
+
     protected void bind(KieSession runtime, T workingMemory) {
-        try {
-            for (Field f : workingMemory.getClass().getDeclaredFields()) {
-                f.setAccessible(true);
-                Object v = null;
-                v = f.get(workingMemory);
-                String dataSourceName = String.format(
-                        "%s.%s", workingMemory.getClass().getCanonicalName(), f.getName());
-                if ( v instanceof DataSource ) {
-                    DataSource<?> o = ( DataSource<?> ) v;
-                    EntryPoint ep = runtime.getEntryPoint(dataSourceName);
-                    o.subscribe(new EntryPointDataProcessor( ep ));
-                }
-                try {
-                    runtime.setGlobal( dataSourceName, v );
-                } catch (RuntimeException e) {
-                    // ignore if the global doesn't exist
-                }
+        for (BoundField boundField : BOUND_FIELDS.get( workingMemory.getClass() )) {
+            Object v = boundField.get( workingMemory );
+            if ( v instanceof DataSource ) {
+                subscribe( ( DataSource<?> ) v, runtime.getEntryPoint( boundField.dataSourceName ) );
+            }
+            try {
+                runtime.setGlobal( boundField.dataSourceName, v );
+            } catch (RuntimeException e) {
+                // ignore if the global doesn't exist
+            }
+        }
+    }
+
+    // fields and data source names are resolved once per unit class instead of once per instance
+    private static final ClassValue<List<BoundField>> BOUND_FIELDS = new ClassValue<List<BoundField>>() {
+        @Override
+        protected List<BoundField> computeValue( Class<?> type ) {
+            List<BoundField> boundFields = new ArrayList<>();
+            for (Field f : type.getDeclaredFields()) {
+                f.setAccessible( true );
+                boundFields.add( new BoundField( f, type.getCanonicalName() + "." + f.getName() ) );
+            }
+            return boundFields;
+        }
+    };
+
+    private static class BoundField {
+
+        private final Field field;
+        private final String dataSourceName;
+
+        private BoundField( Field field, String dataSourceName ) {
+            this.field = field;
+            this.dataSourceName = dataSourceName;
+        }
+
+        private Object get( Object workingMemory ) {
+            try {
+                return field.get( workingMemory );
+            } catch (IllegalAccessException e) {
+                throw new Error( e );
             }
-        } catch (IllegalAccessException e) {
-            throw new Error(e);
         }
     }
 }
@@ -16,11 +16,13 @@
 
 package org.kie.kogito.rules.units;
 
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.drools.core.WorkingMemoryEntryPoint;
 import org.drools.core.common.InternalFactHandle;
+import org.drools.core.common.NamedEntryPoint;
 import org.drools.core.definitions.rule.impl.RuleImpl;
 import org.drools.core.reteoo.TerminalNode;
 import org.drools.core.spi.Activation;
@@ -33,22 +35,65 @@ import org.kie.kogito.rules.DataProcessor;
 public class EntryPointDataProcessor implements DataProcessor {
     private final EntryPoint entryPoint;
 
-    private final Map<DataHandle, InternalFactHandle> handles = new HashMap<>();
+    private volatile boolean closed;
+
+    // data sources may be fed by threads other than the one firing the rules
+    private final Map<DataHandle, InternalFactHandle> handles = new ConcurrentHashMap<>();
 
     public EntryPointDataProcessor( EntryPoint entryPoint ) {
         this.entryPoint = entryPoint;
     }
 
+    /**
+     * Detaches this processor from its entry point, any change notified afterwards is ignored.
+     * This covers changes notified concurrently with the unsubscription from the data source,
+     * before the session the entry point belongs to is reused.
+     */
+    public void close() {
+        closed = true;
+        handles.clear();
+    }
+
     @Override
     public FactHandle insert(DataHandle handle, Object object) {
+        if (closed) {
+            return null;
+        }
         InternalFactHandle fh = (InternalFactHandle)entryPoint.insert( object );
-        if (handle != null) {
+        if (handle != null && fh != null) {
             handles.put( handle, fh );
         }
         return fh;
     }
 
+    /**
+     * Inserts all the given objects while holding the lock of the entry point, so that the batch
+     * is not interleaved with the insertions of other threads
+     */
+    @Override
+    public void insertAll(Collection objects) {
+        if (closed) {
+            return;
+        }
+        if (!(entryPoint instanceof NamedEntryPoint)) {
+            objects.forEach( entryPoint::insert );
+            return;
+        }
+        NamedEntryPoint namedEntryPoint = (NamedEntryPoint) entryPoint;
+        namedEntryPoint.lock();
+        try {
+            for (Object object : objects) {
+                namedEntryPoint.insert( object );
+            }
+        } finally {
+            namedEntryPoint.unlock();
+        }
+    }
+
     public void update( DataHandle dh, Object obj, BitMask mask, Class<?> modifiedClass, Activation activation) {
+        if (closed) {
+            return;
+        }
         update( handles.get(dh), obj, mask, modifiedClass, activation );
     }
 
@@ -58,15 +103,24 @@ public class EntryPointDataProcessor implements DataProcessor {
 
     @Override
     public void update(DataHandle handle, Object object) {
+        if (closed) {
+            return;
+        }
         entryPoint.update( handles.get(handle), object );
     }
 
     @Override
     public void delete(DataHandle handle) {
+        if (closed) {
+            return;
+        }
         entryPoint.delete( handles.remove(handle) );
     }
 
     public void delete(DataHandle dh, RuleImpl rule, TerminalNode terminalNode, FactHandle.State fhState) {
+        if (closed) {
+            return;
+        }
         delete( handles.get(dh), rule, terminalNode, fhState );
     }
 
@@ -90,6 +90,12 @@ public class FieldDataStore<T> implements SingletonStore<T>,
         }
     }
 
+    @Override
+    public void unsubscribe(DataProcessor processor) {
+        entryPointSubscribers.remove(processor);
+        subscribers.remove(processor);
+    }
+
     @Override
     public void update(InternalFactHandle fh, Object obj, BitMask mask, Class<?> modifiedClass, Activation activation) {
         DataHandle dh = fh.getDataHandle();
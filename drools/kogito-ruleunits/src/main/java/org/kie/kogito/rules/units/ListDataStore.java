@@ -76,6 +76,12 @@ public class ListDataStore<T> implements DataStore<T>,
         store.values().forEach( dh -> internalInsert( dh, processor ) );
     }
 
+    @Override
+    public void unsubscribe(DataProcessor processor) {
+        entryPointSubscribers.remove( processor );
+        subscribers.remove( processor );
+    }
+
     @Override
     public void update( InternalFactHandle fh, Object obj, BitMask mask, Class<?> modifiedClass, Activation activation) {
         DataHandle dh = fh.getDataHandle();
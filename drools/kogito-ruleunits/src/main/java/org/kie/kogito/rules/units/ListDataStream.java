@@ -16,16 +16,41 @@
 
 package org.kie.kogito.rules.units;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.kie.kogito.rules.DataProcessor;
 import org.kie.kogito.rules.DataStream;
 
+/**
+ * A {@link DataStream} that can be fed concurrently by multiple threads. Appended values are retained so
+ * that they are also received by later subscribers; the retention can be bounded, in which case only the
+ * most recent values are replayed to a new subscriber.
+ */
 public class ListDataStream<T> implements DataStream<T> {
 
-    private final ArrayList<T> values = new ArrayList<>();
-    private final List<DataProcessor> subscribers = new ArrayList<>();
+    private final int retention;
+    private final Deque<T> values = new ArrayDeque<>();
+    private final List<DataProcessor> subscribers = new CopyOnWriteArrayList<>();
+
+    public ListDataStream() {
+        this( Integer.MAX_VALUE );
+    }
+
+    /**
+     * @param retention maximum number of values kept for subscribers registered later, 0 to keep none
+     */
+    public ListDataStream( int retention ) {
+        if (retention < 0) {
+            throw new IllegalArgumentException( "Retention cannot be negative: " + retention );
+        }
+        this.retention = retention;
+    }
 
     @SafeVarargs
     public static <T> ListDataStream<T> create(T... ts) {
@@ -38,14 +63,50 @@ public class ListDataStream<T> implements DataStream<T> {
 
     @Override
     public void append(T t) {
-        values.add(t);
-        subscribers.forEach(s -> s.insert(t));
+        Iterator<DataProcessor> current;
+        synchronized (values) {
+            retain( t );
+            // iterators of a copy on write list are snapshots of the subscribers at this point
+            current = subscribers.iterator();
+        }
+        current.forEachRemaining(s -> s.insert(t));
+    }
+
+    @Override
+    public void appendAll(Collection<? extends T> ts) {
+        Iterator<DataProcessor> current;
+        synchronized (values) {
+            ts.forEach( this::retain );
+            current = subscribers.iterator();
+        }
+        current.forEachRemaining(s -> s.insertAll(ts));
     }
 
     @Override
     public void subscribe(DataProcessor subscriber) {
-        subscribers.add(subscriber);
-        values.forEach(subscriber::insert);
+        List<T> replay;
+        // registering and taking the values to replay atomically ensures each value is received exactly once
+        synchronized (values) {
+            subscribers.add(subscriber);
+            replay = new ArrayList<>( values );
+        }
+        if (!replay.isEmpty()) {
+            subscriber.insertAll(replay);
+        }
     }
 
+    @Override
+    public void unsubscribe(DataProcessor subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    private void retain(T t) {
+        if (retention == 0 || t == null) {
+            return;
+        }
+        if (values.size() == retention) {
+            values.removeFirst();
+        }
+        values.addLast(t);
+    }
 }
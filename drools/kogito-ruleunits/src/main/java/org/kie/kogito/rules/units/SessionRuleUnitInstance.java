@@ -19,7 +19,6 @@ package org.kie.kogito.rules.units;
 import org.kie.api.runtime.KieSession;
 import org.kie.kogito.rules.RuleUnit;
 import org.kie.kogito.rules.units.AbstractRuleUnitInstance;
-import org.kie.kogito.rules.units.EntryPointDataProcessor;
 import org.kie.kogito.rules.units.SessionData;
 
 public class SessionRuleUnitInstance extends AbstractRuleUnitInstance<SessionData> {
@@ -29,6 +28,6 @@ public class SessionRuleUnitInstance extends AbstractRuleUnitInstance<SessionDat
     }
 
     protected void bind( KieSession runtime, SessionData memory ) {
-        memory.getDataSource().subscribe(new EntryPointDataProcessor( runtime ));
+        subscribe( memory.getDataSource(), runtime );
     }
 }
\ No newline at end of file
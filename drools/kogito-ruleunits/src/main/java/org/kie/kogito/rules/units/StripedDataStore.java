@@ -0,0 +1,193 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.rules.units;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.drools.core.common.InternalFactHandle;
+import org.drools.core.definitions.rule.impl.RuleImpl;
+import org.drools.core.reteoo.TerminalNode;
+import org.drools.core.ruleunit.InternalStoreCallback;
+import org.drools.core.spi.Activation;
+import org.drools.core.util.bitmask.BitMask;
+import org.kie.api.runtime.rule.FactHandle;
+import org.kie.kogito.rules.DataHandle;
+import org.kie.kogito.rules.DataProcessor;
+import org.kie.kogito.rules.DataStore;
+import org.kie.kogito.rules.units.impl.DataHandleImpl;
+
+/**
+ * A {@link DataStore} that can be modified concurrently by multiple threads. Facts are spread by identity
+ * over a number of independently locked stripes, so that producers working on different facts rarely
+ * contend with each other. Subscribers are notified while the stripe of the fact is locked, so that they
+ * see the changes of a given fact in the same order they were made.
+ */
+public class StripedDataStore<T> implements DataStore<T>,
+                                            InternalStoreCallback {
+
+    private static final int DEFAULT_STRIPES = 16;
+
+    private final Map<Object, DataHandle>[] stripes;
+
+    private final List<EntryPointDataProcessor> entryPointSubscribers = new CopyOnWriteArrayList<>();
+    private final List<DataProcessor<T>> subscribers = new CopyOnWriteArrayList<>();
+
+    public StripedDataStore() {
+        this( DEFAULT_STRIPES );
+    }
+
+    /**
+     * @param concurrencyLevel expected number of threads modifying the store, rounded up to a power of two
+     */
+    public StripedDataStore( int concurrencyLevel ) {
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException( "Concurrency level must be positive: " + concurrencyLevel );
+        }
+        int size = Integer.highestOneBit( concurrencyLevel );
+        if (size < concurrencyLevel) {
+            size <<= 1;
+        }
+        this.stripes = new Map[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new IdentityHashMap<>();
+        }
+    }
+
+    public DataHandle add(T t) {
+        DataHandle dh = new DataHandleImpl( t );
+        Map<Object, DataHandle> stripe = stripeOf( t );
+        synchronized (stripe) {
+            stripe.put( t, dh );
+            entryPointSubscribers.forEach( s -> internalInsert( dh, s ) );
+            subscribers.forEach( s -> internalInsert( dh, s ) );
+        }
+        return dh;
+    }
+
+    @Override
+    public void update(DataHandle handle, T object) {
+        Map<Object, DataHandle> stripe = stripeOf( handle.getObject() );
+        synchronized (stripe) {
+            entryPointSubscribers.forEach( s -> s.update( handle, handle.getObject() ) );
+            subscribers.forEach( s -> s.update( handle, object ) );
+        }
+    }
+
+    @Override
+    public void remove(Object object) {
+        DataHandle handle;
+        Map<Object, DataHandle> stripe = stripeOf( object );
+        synchronized (stripe) {
+            handle = stripe.get( object );
+        }
+        if (handle != null) {
+            remove( handle );
+        }
+    }
+
+    @Override
+    public void remove(DataHandle handle) {
+        Map<Object, DataHandle> stripe = stripeOf( handle.getObject() );
+        synchronized (stripe) {
+            if (stripe.remove( handle.getObject() ) == null) {
+                // already removed by another thread
+                return;
+            }
+            entryPointSubscribers.forEach( s -> s.delete( handle ) );
+            subscribers.forEach( s -> s.delete( handle ) );
+        }
+    }
+
+    @Override
+    public void subscribe(DataProcessor processor) {
+        // all the stripes are locked so that the subscriber receives each fact exactly once
+        lockAndSubscribe( 0, processor );
+    }
+
+    @Override
+    public void unsubscribe(DataProcessor processor) {
+        entryPointSubscribers.remove( processor );
+        subscribers.remove( processor );
+    }
+
+    private void lockAndSubscribe( int index, DataProcessor processor ) {
+        if (index < stripes.length) {
+            synchronized (stripes[index]) {
+                lockAndSubscribe( index + 1, processor );
+            }
+            return;
+        }
+        if (processor instanceof EntryPointDataProcessor) {
+            entryPointSubscribers.add( (EntryPointDataProcessor) processor );
+        } else {
+            subscribers.add( processor );
+        }
+        for (Map<Object, DataHandle> stripe : stripes) {
+            new ArrayList<>( stripe.values() ).forEach( dh -> internalInsert( dh, processor ) );
+        }
+    }
+
+    @Override
+    public void update( InternalFactHandle fh, Object obj, BitMask mask, Class<?> modifiedClass, Activation activation) {
+        DataHandle dh = fh.getDataHandle();
+        Map<Object, DataHandle> stripe = stripeOf( dh.getObject() );
+        synchronized (stripe) {
+            entryPointSubscribers.forEach( s -> s.update( dh, obj, mask, modifiedClass, activation ) );
+            subscribers.forEach( s -> s.update( dh, (T) obj ) );
+        }
+    }
+
+    @Override
+    public void delete( InternalFactHandle fh, RuleImpl rule, TerminalNode terminalNode, FactHandle.State fhState) {
+        DataHandle dh = fh.getDataHandle();
+        Map<Object, DataHandle> stripe = stripeOf( fh.getObject() );
+        synchronized (stripe) {
+            entryPointSubscribers.forEach( s -> s.delete( dh, rule, terminalNode, fhState ) );
+            subscribers.forEach( s -> s.delete( dh ) );
+            stripe.remove( fh.getObject() );
+        }
+    }
+
+    /**
+     * Returns the number of facts currently in this store
+     */
+    public int size() {
+        int size = 0;
+        for (Map<Object, DataHandle> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    private Map<Object, DataHandle> stripeOf( Object object ) {
+        int h = System.identityHashCode( object );
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+
+    private void internalInsert( DataHandle dh, DataProcessor s ) {
+        FactHandle fh = s.insert( dh, dh.getObject() );
+        if (fh != null) {
+            (( InternalFactHandle ) fh).setDataStore( this );
+            (( InternalFactHandle ) fh).setDataHandle( dh );
+        }
+    }
+}
@@ -19,6 +19,7 @@ import org.kie.kogito.Application;
 import org.kie.kogito.rules.RuleUnit;
 import org.kie.kogito.rules.RuleUnitData;
 import org.kie.kogito.rules.RuleUnitInstance;
+import org.kie.kogito.rules.units.AbstractRuleUnitInstance;
 
 public abstract class AbstractRuleUnit<T extends RuleUnitData> implements RuleUnit<T> {
 
@@ -33,7 +34,12 @@ public abstract class AbstractRuleUnit<T extends RuleUnitData> implements RuleUn
     @Override
     public RuleUnitInstance<T> createInstance(T data, String name) {
         RuleUnitInstance<T> instance = internalCreateInstance(data);
-        app.ruleUnits().register( name, instance );
+        if (name != null) {
+            app.ruleUnits().register( name, instance );
+            if (instance instanceof AbstractRuleUnitInstance) {
+                ((AbstractRuleUnitInstance<T>) instance).onDispose( () -> app.ruleUnits().unregister( name, instance ) );
+            }
+        }
         return instance;
     }
 }
@@ -16,8 +16,8 @@
 
 package org.kie.kogito.rules.units.impl;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.kie.kogito.rules.RuleUnit;
 import org.kie.kogito.rules.RuleUnitData;
@@ -26,7 +26,7 @@ import org.kie.kogito.rules.RuleUnits;
 
 public abstract class AbstractRuleUnits implements RuleUnits {
 
-    private Map<String, RuleUnitInstance<?>> unitRegistry = new HashMap<>();
+    private Map<String, RuleUnitInstance<?>> unitRegistry = new ConcurrentHashMap<>();
 
     @Override
     public <T extends RuleUnitData> RuleUnit<T> create( Class<T> clazz) {
@@ -40,6 +40,11 @@ public abstract class AbstractRuleUnits implements RuleUnits {
         unitRegistry.put( name, unitInstance );
     }
 
+    @Override
+    public void unregister(String name, RuleUnitInstance<?> unitInstance) {
+        unitRegistry.remove( name, unitInstance );
+    }
+
     @Override
     public RuleUnitInstance<?> getRegisteredInstance( String name ) {
         return unitRegistry.get(name);
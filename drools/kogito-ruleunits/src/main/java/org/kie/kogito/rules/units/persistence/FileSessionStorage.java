@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.rules.units.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * {@link SessionStorage} keeping the snapshot and the journal of a session in two files of the given directory.
+ * A new snapshot is written to a temporary file and then moved over the previous one, so that a crash
+ * while writing it leaves the previous snapshot in place.
+ */
+public class FileSessionStorage implements SessionStorage {
+
+    static final String SNAPSHOT_FILE = "session.snapshot";
+    static final String JOURNAL_FILE = "session.journal";
+
+    private final Path snapshot;
+    private final Path journal;
+    private final boolean sync;
+
+    public FileSessionStorage(Path directory) throws IOException {
+        this(directory, true);
+    }
+
+    /**
+     * @param directory where the files are kept, created if missing
+     * @param sync whether the files are forced to the storage device on each write, not doing it
+     * is faster but the last changes may be lost if the operating system crashes
+     */
+    public FileSessionStorage(Path directory, boolean sync) throws IOException {
+        Files.createDirectories(directory);
+        this.snapshot = directory.resolve(SNAPSHOT_FILE);
+        this.journal = directory.resolve(JOURNAL_FILE);
+        this.sync = sync;
+    }
+
+    @Override
+    public InputStream readSnapshot() throws IOException {
+        return Files.exists(snapshot) ? new BufferedInputStream(Files.newInputStream(snapshot)) : null;
+    }
+
+    @Override
+    public void writeSnapshot(SnapshotWriter writer) throws IOException {
+        Path tmp = snapshot.resolveSibling(SNAPSHOT_FILE + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp.toFile())) {
+            BufferedOutputStream buffered = new BufferedOutputStream(out);
+            // the writer may close the stream it is given, the file is still needed to sync it
+            writer.writeTo(new NonClosingOutputStream(buffered));
+            buffered.flush();
+            if (sync) {
+                out.getFD().sync();
+            }
+        }
+        Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public InputStream readJournal() throws IOException {
+        return Files.exists(journal) ? new BufferedInputStream(Files.newInputStream(journal)) : null;
+    }
+
+    @Override
+    public void appendJournal(byte[] bytes) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(journal.toFile(), true)) {
+            out.write(bytes);
+            if (sync) {
+                out.getFD().sync();
+            }
+        }
+    }
+
+    @Override
+    public void clearJournal() throws IOException {
+        Files.deleteIfExists(journal);
+    }
+
+    private static class NonClosingOutputStream extends FilterOutputStream {
+
+        private NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,474 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.rules.units.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.drools.core.common.DroolsObjectInputStream;
+import org.drools.core.common.InternalFactHandle;
+import org.drools.core.common.InternalWorkingMemory;
+import org.drools.core.common.NamedEntryPoint;
+import org.drools.core.impl.InternalKnowledgeBase;
+import org.drools.core.reteoo.ObjectTypeNode;
+import org.kie.api.event.rule.AfterMatchFiredEvent;
+import org.kie.api.event.rule.AgendaEventListener;
+import org.kie.api.event.rule.BeforeMatchFiredEvent;
+import org.kie.api.event.rule.DefaultAgendaEventListener;
+import org.kie.api.event.rule.ObjectDeletedEvent;
+import org.kie.api.event.rule.ObjectInsertedEvent;
+import org.kie.api.event.rule.ObjectUpdatedEvent;
+import org.kie.api.event.rule.RuleRuntimeEventListener;
+import org.kie.api.marshalling.Marshaller;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.EntryPoint;
+import org.kie.api.runtime.rule.FactHandle;
+import org.kie.api.time.SessionClock;
+import org.kie.api.time.SessionPseudoClock;
+import org.kie.internal.marshalling.MarshallerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the state of a session in a {@link SessionStorage}, so that it survives a restart.
+ * <p>
+ * Rewriting the whole session on every change would be too expensive for sessions holding many facts, so
+ * only the changes made from outside the rules, i.e. the facts inserted, updated and deleted by the application
+ * and the invocations of fire all rules, are appended to a journal. For a pseudo clock, the time of each change is
+ * recorded as well and the clock is advanced to it while replaying. Every given number of changes a full
+ * snapshot of the session is written and the journal is discarded.
+ * A realtime clock cannot be moved back to the time of the changes, the events would get the time of the replay
+ * instead of their own: so when the rules use events and the session has a realtime clock, a snapshot is written
+ * on every checkpoint and nothing is journaled. Sessions with many events should use a pseudo clock.
+ * The session is restored by loading the last snapshot and replaying the journal on top of it: the changes made
+ * by the rules are not in the journal since they are made again while replaying it.
+ * <p>
+ * The changes are buffered in memory and written to the journal on {@link #checkpoint()}, that is also done
+ * each time the rules are fired.
+ * All facts must be serializable, as for the default marshalling strategy of the sessions.
+ * <p>
+ * Replaying a fire all rules executes again the consequences of the rules it fired. Only the changes they make
+ * to the session are reproduced faithfully: the globals they use must be set before restoring the session, and
+ * any other side effect, like changing the state of a global, sending a message or calling a service, happens
+ * again. Consequences with such side effects must tolerate being executed more than once.
+ * <p>
+ * Restoring replaces the facts of the session, so it must be done before inserting any of them.
+ */
+public class SessionPersistence implements RuleRuntimeEventListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SessionPersistence.class);
+
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 100_000;
+
+    private static final byte END = 0;
+    private static final byte INSERT = 1;
+    private static final byte UPDATE = 2;
+    private static final byte DELETE = 3;
+    private static final byte FIRE = 4;
+
+    private final KieSession session;
+    private final SessionStorage storage;
+    private final int snapshotInterval;
+    private final Marshaller marshaller;
+    // the time of the changes cannot be replayed but it matters to the rules
+    private final boolean snapshotOnCheckpoint;
+
+    // sequence number of the last batch of changes written to the journal or included in the snapshot
+    private long lastBatch;
+    private long journalEntries;
+
+    private ByteArrayOutputStream batchBytes;
+    private ObjectOutputStream batch;
+    private int batchEntries;
+
+    private boolean attached;
+
+    // the thread executing a consequence: the changes it makes come from the rules, even when they go through a data source
+    private volatile Thread consequenceThread;
+
+    private final AgendaEventListener consequenceTracker = new DefaultAgendaEventListener() {
+        @Override
+        public void beforeMatchFired(BeforeMatchFiredEvent event) {
+            consequenceThread = Thread.currentThread();
+        }
+
+        @Override
+        public void afterMatchFired(AfterMatchFiredEvent event) {
+            consequenceThread = null;
+        }
+    };
+
+    public SessionPersistence(KieSession session, SessionStorage storage) {
+        this(session, storage, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * @param session the session to be persisted
+     * @param storage where the session is persisted
+     * @param snapshotInterval how many changes are written to the journal before taking a new snapshot
+     */
+    public SessionPersistence(KieSession session, SessionStorage storage, int snapshotInterval) {
+        if (snapshotInterval <= 0) {
+            throw new IllegalArgumentException("Invalid snapshot interval " + snapshotInterval);
+        }
+        this.session = session;
+        this.storage = storage;
+        this.snapshotInterval = snapshotInterval;
+        this.marshaller = MarshallerFactory.newMarshaller(session.getKieBase());
+        this.snapshotOnCheckpoint = !(session.getSessionClock() instanceof SessionPseudoClock) && hasEvents(session);
+    }
+
+    private static boolean hasEvents(KieSession session) {
+        for (ObjectTypeNode node : ((InternalKnowledgeBase) session.getKieBase()).getRete().getObjectTypeNodes()) {
+            if (node.getObjectType().isEvent()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Restores the session from the storage, when it holds any state, and starts recording its changes.
+     * The state of the session is replaced by the restored one.
+     */
+    public void restore() {
+        if (attached) {
+            throw new IllegalStateException("The session is already persisted");
+        }
+        boolean compact;
+        try {
+            try (InputStream in = storage.readSnapshot()) {
+                if (in != null) {
+                    DataInputStream data = new DataInputStream(in);
+                    lastBatch = data.readLong();
+                    marshaller.unmarshall(data, session);
+                }
+            }
+            try (InputStream in = storage.readJournal()) {
+                compact = in != null && replayJournal(new DataInputStream(in));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot restore the session", e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Cannot restore the session", e);
+        }
+
+        synchronized (this) {
+            attached = true;
+        }
+        session.addEventListener(this);
+        session.addEventListener(consequenceTracker);
+        if (compact || journalEntries >= snapshotInterval || (snapshotOnCheckpoint && journalEntries > 0)) {
+            snapshot();
+        }
+    }
+
+    /**
+     * Stops recording the changes of the session, after writing the pending ones to the journal
+     */
+    public void close() {
+        checkpoint();
+        session.removeEventListener(this);
+        session.removeEventListener(consequenceTracker);
+        synchronized (this) {
+            attached = false;
+        }
+    }
+
+    /**
+     * Records that the rules have been fired and writes the pending changes to the journal
+     */
+    public void fired() {
+        record(FIRE, null, null);
+        checkpoint();
+    }
+
+    /**
+     * Writes the pending changes to the journal, taking a new snapshot instead when enough changes have been
+     * written since the last one, or whenever there are pending changes of a session with events and a realtime clock
+     */
+    public void checkpoint() {
+        synchronized (this) {
+            if (!attached) {
+                return;
+            }
+            if (snapshotOnCheckpoint) {
+                if (batch == null) {
+                    return;
+                }
+            } else {
+                flushBatch();
+                if (journalEntries < snapshotInterval) {
+                    return;
+                }
+            }
+        }
+        snapshot();
+    }
+
+    /**
+     * Writes a snapshot of the whole session and discards the journal
+     */
+    public void snapshot() {
+        // the same locks taken by the marshaller: no change can be made to the session while it is written
+        InternalWorkingMemory wm = (InternalWorkingMemory) session;
+        wm.getLock().lock();
+        lockEntryPoints(wm);
+        try {
+            synchronized (this) {
+                if (snapshotOnCheckpoint) {
+                    // already part of the snapshot
+                    discardBatch();
+                } else {
+                    flushBatch();
+                }
+                long snapshotBatch = lastBatch;
+                storage.writeSnapshot(out -> {
+                    DataOutputStream data = new DataOutputStream(out);
+                    data.writeLong(snapshotBatch);
+                    marshaller.marshall(data, session);
+                });
+                storage.clearJournal();
+                journalEntries = 0;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write the session snapshot", e);
+        } finally {
+            unlockEntryPoints(wm);
+            wm.getLock().unlock();
+        }
+    }
+
+    @Override
+    public void objectInserted(ObjectInsertedEvent event) {
+        // the changes made by the rules are done again when replaying the journal
+        if (event.getRule() == null) {
+            record(INSERT, (InternalFactHandle) event.getFactHandle(), event.getObject());
+        }
+    }
+
+    @Override
+    public void objectUpdated(ObjectUpdatedEvent event) {
+        if (event.getRule() == null) {
+            record(UPDATE, (InternalFactHandle) event.getFactHandle(), event.getObject());
+        }
+    }
+
+    @Override
+    public void objectDeleted(ObjectDeletedEvent event) {
+        if (event.getRule() == null) {
+            record(DELETE, (InternalFactHandle) event.getFactHandle(), null);
+        }
+    }
+
+    private synchronized void record(byte type, InternalFactHandle fh, Object object) {
+        if (!attached || Thread.currentThread() == consequenceThread) {
+            return;
+        }
+        try {
+            if (batch == null) {
+                batchBytes = new ByteArrayOutputStream();
+                batch = new ObjectOutputStream(batchBytes);
+                batch.writeLong(lastBatch + 1);
+            }
+            batch.writeByte(type);
+            batch.writeLong(session.getSessionClock().getCurrentTime());
+            if (fh != null) {
+                batch.writeUTF(fh.getEntryPoint().getEntryPointId());
+                batch.writeLong(fh.getId());
+            }
+            if (type == INSERT || type == UPDATE) {
+                batch.writeObject(object);
+            }
+            // the object is written again as a whole when changed, instead of as a reference to its previous state
+            batch.reset();
+            batchEntries++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write " + object + " to the session journal", e);
+        }
+    }
+
+    /**
+     * Must be invoked holding the lock of this object
+     */
+    private void flushBatch() {
+        if (batch == null) {
+            return;
+        }
+        try {
+            batch.writeByte(END);
+            batch.close();
+            byte[] payload = batchBytes.toByteArray();
+            storage.appendJournal(ByteBuffer.allocate(4 + payload.length).putInt(payload.length).put(payload).array());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write the session journal", e);
+        }
+        lastBatch++;
+        journalEntries += batchEntries;
+        batch = null;
+        batchBytes = null;
+        batchEntries = 0;
+    }
+
+    /**
+     * Must be invoked holding the lock of this object
+     */
+    private void discardBatch() {
+        if (batch != null) {
+            lastBatch++;
+        }
+        batch = null;
+        batchBytes = null;
+        batchEntries = 0;
+    }
+
+    /**
+     * @return true if the journal has to be compacted, because its tail is incomplete or the replayed facts
+     * got different ids than the recorded ones
+     */
+    private boolean replayJournal(DataInputStream in) throws IOException, ClassNotFoundException {
+        ClassLoader classLoader = ((InternalKnowledgeBase) session.getKieBase()).getRootClassLoader();
+        Replay replay = new Replay();
+        while (true) {
+            int first = in.read();
+            if (first < 0) {
+                return replay.diverged;
+            }
+            byte[] payload;
+            try {
+                payload = new byte[( first << 24 ) | ( in.readUnsignedByte() << 16 ) | ( in.readUnsignedByte() << 8 ) | in.readUnsignedByte()];
+                in.readFully(payload);
+            } catch (EOFException e) {
+                // the process stopped while appending it
+                LOGGER.warn("Ignoring the incomplete last batch of changes in the session journal");
+                return true;
+            }
+            ObjectInputStream batchIn = new DroolsObjectInputStream(new ByteArrayInputStream(payload), classLoader);
+            long batchNr = batchIn.readLong();
+            if (batchNr <= lastBatch) {
+                // already part of the snapshot
+                continue;
+            }
+            journalEntries += replay.apply(batchIn);
+            lastBatch = batchNr;
+        }
+    }
+
+    private void lockEntryPoints(InternalWorkingMemory wm) {
+        for (EntryPoint ep : wm.getEntryPoints()) {
+            if (ep instanceof NamedEntryPoint) {
+                ((NamedEntryPoint) ep).lock();
+            }
+        }
+    }
+
+    private void unlockEntryPoints(InternalWorkingMemory wm) {
+        for (EntryPoint ep : wm.getEntryPoints()) {
+            if (ep instanceof NamedEntryPoint) {
+                ((NamedEntryPoint) ep).unlock();
+            }
+        }
+    }
+
+    private class Replay {
+
+        // the handles of the facts inserted while replaying, by the id recorded in the journal
+        private final Map<Long, FactHandle> inserted = new HashMap<>();
+        private Map<Long, FactHandle> restored;
+        private boolean diverged;
+
+        private int apply(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            int count = 0;
+            for (byte type = in.readByte(); type != END; type = in.readByte()) {
+                advanceClock(in.readLong());
+                if (type == FIRE) {
+                    session.fireAllRules();
+                } else {
+                    EntryPoint entryPoint = session.getEntryPoint(in.readUTF());
+                    long id = in.readLong();
+                    switch (type) {
+                        case INSERT:
+                            FactHandle fh = entryPoint.insert(in.readObject());
+                            inserted.put(id, fh);
+                            diverged |= ((InternalFactHandle) fh).getId() != id;
+                            break;
+                        case UPDATE:
+                            Object object = in.readObject();
+                            FactHandle updated = find(id);
+                            if (updated != null) {
+                                entryPoint.update(updated, object);
+                            }
+                            break;
+                        case DELETE:
+                            FactHandle deleted = find(id);
+                            if (deleted != null) {
+                                entryPoint.delete(deleted);
+                            }
+                            inserted.remove(id);
+                            break;
+                        default:
+                            throw new IOException("Unknown change of type " + type + " in the session journal");
+                    }
+                }
+                count++;
+            }
+            return count;
+        }
+
+        private FactHandle find(long id) {
+            FactHandle fh = inserted.get(id);
+            if (fh == null) {
+                if (restored == null) {
+                    restored = new HashMap<>();
+                    for (EntryPoint entryPoint : session.getEntryPoints()) {
+                        for (FactHandle handle : entryPoint.getFactHandles()) {
+                            restored.put(((InternalFactHandle) handle).getId(), handle);
+                        }
+                    }
+                }
+                fh = restored.get(id);
+            }
+            if (fh == null || !((InternalFactHandle) fh).isValid()) {
+                // deleted in the meanwhile by the rules or expired
+                LOGGER.debug("Ignoring change of the fact with id {} in the session journal, the fact is not in the session", id);
+                return null;
+            }
+            return fh;
+        }
+
+        private void advanceClock(long time) {
+            SessionClock clock = session.getSessionClock();
+            if (clock instanceof SessionPseudoClock) {
+                long delta = time - clock.getCurrentTime();
+                if (delta > 0) {
+                    ((SessionPseudoClock) clock).advanceTime(delta, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+}
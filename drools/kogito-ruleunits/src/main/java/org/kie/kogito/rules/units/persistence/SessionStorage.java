@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.rules.units.persistence;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Durable storage used by {@link SessionPersistence}, holding the last snapshot of a session
+ * and the journal of the changes made to it afterwards.
+ */
+public interface SessionStorage {
+
+    /**
+     * @return the last stored snapshot, or null if none was stored yet
+     */
+    InputStream readSnapshot() throws IOException;
+
+    /**
+     * Stores a new snapshot, written by the given writer. The previous snapshot must be
+     * replaced only once the new one has been completely written.
+     */
+    void writeSnapshot(SnapshotWriter writer) throws IOException;
+
+    /**
+     * @return the journal, or null if it is empty
+     */
+    InputStream readJournal() throws IOException;
+
+    /**
+     * Appends the given bytes to the journal, making them durable before returning
+     */
+    void appendJournal(byte[] bytes) throws IOException;
+
+    /**
+     * Discards the journal, invoked once its changes are part of a stored snapshot
+     */
+    void clearJournal() throws IOException;
+
+    interface SnapshotWriter {
+
+        void writeTo(OutputStream out) throws IOException;
+    }
+}
@@ -1,10 +1,14 @@
 package org.kie.kogito.rules.units;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 import org.kie.api.runtime.rule.FactHandle;
 import org.kie.kogito.rules.DataHandle;
 import org.kie.kogito.rules.DataProcessor;
 
+import static java.util.Arrays.asList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class ListDataStreamTest {
@@ -30,12 +34,62 @@ public class ListDataStreamTest {
         assertEquals(3, counter.count);
     }
 
+    @Test
+    public void testAppendAll() {
+        Counter counter = new Counter();
+        ListDataStream<Integer> integers = ListDataStream.create();
+        integers.subscribe(counter);
+        integers.appendAll(asList(10, 20, 30));
+        assertEquals(3, counter.count);
+    }
+
+    @Test
+    public void testBoundedRetention() {
+        ListDataStream<Integer> integers = new ListDataStream<>(2);
+        integers.appendAll(asList(1, 2, 3));
+        Counter counter = new Counter();
+        integers.subscribe(counter);
+        assertEquals(2, counter.count);
+    }
+
+    @Test
+    public void testConcurrentAppend() throws InterruptedException {
+        Counter counter = new Counter();
+        ListDataStream<Integer> integers = new ListDataStream<>(0);
+        integers.subscribe(counter);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    integers.append(i);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(4000, counter.count);
+    }
+
+    @Test
+    public void testUnsubscribe() {
+        Counter counter = new Counter();
+        ListDataStream<Integer> integers = new ListDataStream<>(0);
+        integers.subscribe(counter);
+        integers.append(1);
+        integers.unsubscribe(counter);
+        integers.append(2);
+        assertEquals(1, counter.count);
+    }
+
     private static class Counter<T> implements DataProcessor<T> {
 
         int count = 0;
 
         @Override
-        public FactHandle insert(DataHandle handle, T object) {
+        public synchronized FactHandle insert(DataHandle handle, T object) {
             count++;
             return null;
         }
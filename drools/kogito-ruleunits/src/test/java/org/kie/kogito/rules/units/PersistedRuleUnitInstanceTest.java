@@ -0,0 +1,143 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.rules.units;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.drools.compiler.builder.impl.KnowledgeBuilderImpl;
+import org.drools.core.impl.InternalKnowledgeBase;
+import org.drools.core.impl.KnowledgeBaseFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.kie.api.io.ResourceType;
+import org.kie.api.runtime.KieSession;
+import org.kie.internal.io.ResourceFactory;
+import org.kie.kogito.rules.DataStore;
+import org.kie.kogito.rules.RuleUnitData;
+import org.kie.kogito.rules.RuleUnitInstance;
+import org.kie.kogito.rules.units.impl.AbstractRuleUnit;
+import org.kie.kogito.rules.units.persistence.FileSessionStorage;
+import org.kie.kogito.rules.units.persistence.SessionStorage;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PersistedRuleUnitInstanceTest {
+
+    private static final String DRL =
+            "package org.kie.kogito.rules.units;\n" +
+            "rule HelloWorld when\n" +
+            "    $s : String( this == \"Hello World\" ) from entry-point \"org.kie.kogito.rules.units.PersistedRuleUnitInstanceTest.Strings.strings\"\n" +
+            "then\n" +
+            "    insert( \"it worked!\" );\n" +
+            "end\n";
+
+    @TempDir
+    Path directory;
+
+    private AbstractRuleUnit<Strings> unit;
+    private KieSession session;
+
+    @BeforeEach
+    public void createUnit() {
+        KnowledgeBuilderImpl kbuilder = new KnowledgeBuilderImpl();
+        kbuilder.add(ResourceFactory.newByteArrayResource(DRL.getBytes(StandardCharsets.UTF_8)), ResourceType.DRL);
+        InternalKnowledgeBase kbase = KnowledgeBaseFactory.newKnowledgeBase();
+        kbase.addPackages(kbuilder.getKnowledgePackages());
+
+        unit = new AbstractRuleUnit<Strings>(InterpretedRuleUnit.DummyApplication.INSTANCE) {
+            @Override
+            protected RuleUnitInstance<Strings> internalCreateInstance(Strings data) {
+                session = kbase.newKieSession();
+                return new InterpretedRuleUnitInstance<>(this, data, session);
+            }
+        };
+    }
+
+    @Test
+    public void testDataAddedToDataStoreIsRestored() {
+        Strings strings = new Strings();
+        AbstractRuleUnitInstance<Strings> instance = (AbstractRuleUnitInstance<Strings>) unit.createInstance(strings);
+        instance.persistTo(new FileSessionStorage(directory));
+        strings.strings.add("Hello World");
+        strings.strings.add("Hello");
+        assertEquals(1, instance.fire());
+        List<String> persisted = objects(session);
+        instance.dispose();
+
+        Strings restoredStrings = new Strings();
+        AbstractRuleUnitInstance<Strings> restored = (AbstractRuleUnitInstance<Strings>) unit.createInstance(restoredStrings);
+        restored.persistTo(new FileSessionStorage(directory));
+        assertEquals(asList("Hello", "Hello World", "it worked!"), persisted);
+        assertEquals(persisted, objects(session));
+        assertEquals(0, restored.fire());
+
+        // the restored facts are not in the new data store, the data added to it afterwards feeds the session as usual
+        restoredStrings.strings.add("Hello World");
+        assertEquals(1, restored.fire());
+        assertEquals(asList("Hello", "Hello World", "Hello World", "it worked!", "it worked!"), objects(session));
+        restored.dispose();
+    }
+
+    @Test
+    public void testPersistAfterDataIsAddedFails() throws IOException {
+        Strings strings = new Strings();
+        strings.strings.add("Hello World");
+        AbstractRuleUnitInstance<Strings> instance = (AbstractRuleUnitInstance<Strings>) unit.createInstance(strings);
+
+        SessionStorage storage = new FileSessionStorage(directory);
+        assertThrows(IllegalStateException.class, () -> instance.persistTo(storage));
+        assertNull(storage.readSnapshot());
+        assertNull(storage.readJournal());
+
+        // the facts of the session are left untouched
+        assertEquals(1, instance.fire());
+        assertEquals(asList("Hello World", "it worked!"), objects(session));
+        instance.dispose();
+    }
+
+    @Test
+    public void testPersistAfterFireFails() {
+        Strings strings = new Strings();
+        AbstractRuleUnitInstance<Strings> instance = (AbstractRuleUnitInstance<Strings>) unit.createInstance(strings);
+        strings.strings.add("Hello World");
+        instance.fire();
+
+        assertThrows(IllegalStateException.class, () -> instance.persistTo(new FileSessionStorage(directory)));
+        assertTrue(objects(session).contains("it worked!"));
+        instance.dispose();
+    }
+
+    private static List<String> objects(KieSession session) {
+        List<String> objects = session.getObjects().stream().map(Object::toString).collect(Collectors.toList());
+        session.getEntryPoint("org.kie.kogito.rules.units.PersistedRuleUnitInstanceTest.Strings.strings").getObjects()
+                .forEach(o -> objects.add(o.toString()));
+        return objects.stream().sorted().collect(Collectors.toList());
+    }
+
+    public static class Strings implements RuleUnitData {
+
+        private final DataStore<String> strings = new ListDataStore<>();
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.rules.units;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.drools.compiler.builder.impl.KnowledgeBuilderImpl;
+import org.drools.core.impl.AbstractKieSessionsPool;
+import org.drools.core.impl.InternalKnowledgeBase;
+import org.drools.core.impl.KnowledgeBaseFactory;
+import org.drools.core.impl.KnowledgeBaseImpl;
+import org.drools.core.impl.StatefulSessionPool;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kie.api.KieBaseConfiguration;
+import org.kie.api.conf.SessionsPoolOption;
+import org.kie.api.io.ResourceType;
+import org.kie.api.runtime.KieSession;
+import org.kie.internal.io.ResourceFactory;
+import org.kie.kogito.rules.DataStore;
+import org.kie.kogito.rules.RuleUnitData;
+import org.kie.kogito.rules.RuleUnitInstance;
+import org.kie.kogito.rules.units.impl.AbstractRuleUnit;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PooledRuleUnitInstanceTest {
+
+    private static final String DRL =
+            "package org.kie.kogito.rules.units;\n" +
+            "rule HelloWorld when\n" +
+            "    $s : String( this == \"Hello World\" ) from entry-point \"org.kie.kogito.rules.units.PooledRuleUnitInstanceTest.Strings.strings\"\n" +
+            "then\n" +
+            "    insert( \"it worked!\" );\n" +
+            "end\n";
+
+    private InternalKnowledgeBase kbase;
+    private AbstractRuleUnit<Strings> unit;
+    private final List<KieSession> sessions = new ArrayList<>();
+
+    @BeforeEach
+    public void createPooledKieBase() {
+        KnowledgeBuilderImpl kbuilder = new KnowledgeBuilderImpl();
+        kbuilder.add(ResourceFactory.newByteArrayResource(DRL.getBytes(StandardCharsets.UTF_8)), ResourceType.DRL);
+        KieBaseConfiguration conf = KnowledgeBaseFactory.newKnowledgeBaseConfiguration();
+        conf.setOption(SessionsPoolOption.get(1));
+        kbase = KnowledgeBaseFactory.newKnowledgeBase(conf);
+        kbase.addPackages(kbuilder.getKnowledgePackages());
+
+        unit = new AbstractRuleUnit<Strings>(InterpretedRuleUnit.DummyApplication.INSTANCE) {
+            @Override
+            protected RuleUnitInstance<Strings> internalCreateInstance(Strings data) {
+                KieSession session = kbase.newKieSession();
+                sessions.add(session);
+                return new InterpretedRuleUnitInstance<>(this, data, session);
+            }
+        };
+    }
+
+    @Test
+    public void testDisposedSessionIsReused() {
+        Strings first = new Strings();
+        AbstractRuleUnitInstance<Strings> firstInstance = (AbstractRuleUnitInstance<Strings>) unit.createInstance(first);
+        first.strings.add("Hello World");
+        assertEquals(1, firstInstance.fire());
+        KieSession session = sessions.get(0);
+        assertEquals(asList("Hello World", "it worked!"), objects(session));
+
+        firstInstance.dispose();
+        StatefulSessionPool pool = pool();
+        assertEquals(1, pool.getSize());
+        assertEquals(1, pool.getAvailable());
+        assertEquals(1, pool.getAcquireCount());
+        assertEquals(1, pool.getResetCount());
+        assertThrows(IllegalStateException.class, firstInstance::fire);
+
+        Strings second = new Strings();
+        AbstractRuleUnitInstance<Strings> secondInstance = (AbstractRuleUnitInstance<Strings>) unit.createInstance(second);
+        assertSame(session, sessions.get(1));
+        assertEquals(0, pool.getAvailable());
+        assertEquals(2, pool.getAcquireCount());
+        assertTrue(objects(session).isEmpty());
+
+        // the data source of the disposed instance no longer feeds the reused session
+        first.strings.add("Hello World");
+        assertTrue(objects(session).isEmpty());
+        assertEquals(0, secondInstance.fire());
+
+        second.strings.add("Hello World");
+        assertEquals(1, secondInstance.fire());
+        assertEquals(asList("Hello World", "it worked!"), objects(session));
+
+        secondInstance.dispose();
+        assertEquals(1, pool.getAvailable());
+        assertEquals(2, pool.getResetCount());
+    }
+
+    @Test
+    public void testDisposedInstanceIsUnregistered() {
+        RuleUnitInstance<Strings> instance = unit.createInstance(new Strings(), "pooled");
+        assertSame(instance, InterpretedRuleUnit.DummyApplication.INSTANCE.ruleUnits().getRegisteredInstance("pooled"));
+
+        instance.dispose();
+        assertNull(InterpretedRuleUnit.DummyApplication.INSTANCE.ruleUnits().getRegisteredInstance("pooled"));
+
+        // disposing an instance does not remove another one registered afterwards with the same name
+        RuleUnitInstance<Strings> replaced = unit.createInstance(new Strings(), "pooled");
+        RuleUnitInstance<Strings> other = unit.createInstance(new Strings(), "pooled");
+        replaced.dispose();
+        assertSame(other, InterpretedRuleUnit.DummyApplication.INSTANCE.ruleUnits().getRegisteredInstance("pooled"));
+        other.dispose();
+        assertNull(InterpretedRuleUnit.DummyApplication.INSTANCE.ruleUnits().getRegisteredInstance("pooled"));
+    }
+
+    private StatefulSessionPool pool() {
+        AbstractKieSessionsPool sessionsPool = (AbstractKieSessionsPool) ((KnowledgeBaseImpl) kbase).getSessionsPool();
+        return sessionsPool.getStatefulSessionPools().iterator().next();
+    }
+
+    private static List<String> objects(KieSession session) {
+        List<String> objects = session.getObjects().stream().map(Object::toString).collect(Collectors.toList());
+        session.getEntryPoint("org.kie.kogito.rules.units.PooledRuleUnitInstanceTest.Strings.strings").getObjects()
+                .forEach(o -> objects.add(o.toString()));
+        return objects.stream().sorted().collect(Collectors.toList());
+    }
+
+    public static class Strings implements RuleUnitData {
+
+        private final DataStore<String> strings = new ListDataStore<>();
+    }
+}
@@ -68,6 +68,18 @@ public class SingletonDataStoreTest {
     }
 
 
+    @Test
+    public void testUnsubscribe() {
+        Probe<Integer> probe = new Probe<>();
+        SingletonStore<Integer> integers = new FieldDataStore<>();
+        integers.subscribe(probe);
+        integers.set(1);
+        integers.unsubscribe(probe);
+        integers.set(2);
+        assertEquals(1, probe.value);
+        assertEquals(asList(1), probe.seen);
+    }
+
     private static class Probe<T> implements DataProcessor<T> {
 
         DataHandle handle;
@@ -0,0 +1,90 @@
+package org.kie.kogito.rules.units;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.kie.api.runtime.rule.FactHandle;
+import org.kie.kogito.rules.DataHandle;
+import org.kie.kogito.rules.DataProcessor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class StripedDataStoreTest {
+
+    @Test
+    public void testAddAndRemove() {
+        Counter counter = new Counter();
+        StripedDataStore<String> store = new StripedDataStore<>();
+        store.add("a");
+        store.subscribe(counter);
+        assertEquals(1, counter.inserted);
+
+        DataHandle handle = store.add("b");
+        assertEquals(2, counter.inserted);
+        assertEquals(2, store.size());
+
+        store.remove(handle);
+        store.remove("a");
+        assertEquals(2, counter.deleted);
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void testUnsubscribe() {
+        Counter counter = new Counter();
+        StripedDataStore<String> store = new StripedDataStore<>();
+        store.subscribe(counter);
+        store.add("a");
+        store.unsubscribe(counter);
+        store.add("b");
+        store.remove("a");
+        assertEquals(1, counter.inserted);
+        assertEquals(0, counter.deleted);
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void testConcurrentAdd() throws InterruptedException {
+        Counter counter = new Counter();
+        StripedDataStore<Object> store = new StripedDataStore<>(4);
+        store.subscribe(counter);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    store.add(new Object());
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(4000, store.size());
+        assertEquals(4000, counter.inserted);
+    }
+
+    private static class Counter<T> implements DataProcessor<T> {
+
+        int inserted = 0;
+        int deleted = 0;
+
+        @Override
+        public synchronized FactHandle insert(DataHandle handle, T object) {
+            inserted++;
+            return null;
+        }
+
+        @Override
+        public void update(DataHandle handle, T object) {
+
+        }
+
+        @Override
+        public synchronized void delete(DataHandle handle) {
+            deleted++;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.rules.units.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.drools.compiler.builder.impl.KnowledgeBuilderImpl;
+import org.drools.core.impl.InternalKnowledgeBase;
+import org.drools.core.impl.KnowledgeBaseFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.kie.api.KieBaseConfiguration;
+import org.kie.api.conf.EventProcessingOption;
+import org.kie.api.definition.type.Expires;
+import org.kie.api.definition.type.Role;
+import org.kie.api.io.ResourceType;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.KieSessionConfiguration;
+import org.kie.api.runtime.conf.ClockTypeOption;
+import org.kie.api.runtime.rule.FactHandle;
+import org.kie.api.time.SessionPseudoClock;
+import org.kie.internal.io.ResourceFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SessionPersistenceTest {
+
+    private static final String DRL =
+            "package org.kie.kogito.rules.units.persistence;\n" +
+            "rule Length when\n" +
+            "    $s : String()\n" +
+            "then\n" +
+            "    insert( $s.length() );\n" +
+            "end\n";
+
+    private static final String EVENTS_DRL =
+            "package org.kie.kogito.rules.units.persistence;\n" +
+            "import " + Tick.class.getCanonicalName() + ";\n" +
+            "rule Seen when\n" +
+            "    Tick()\n" +
+            "then\n" +
+            "end\n";
+
+    @TempDir
+    Path directory;
+
+    private InternalKnowledgeBase kbase;
+
+    @BeforeEach
+    public void createKieBase() {
+        kbase = kieBase(DRL, KnowledgeBaseFactory.newKnowledgeBaseConfiguration());
+    }
+
+    @Test
+    public void restoreFromJournal() throws IOException {
+        KieSession session = kbase.newKieSession();
+        SessionPersistence persistence = new SessionPersistence(session, new FileSessionStorage(directory), 1000);
+        persistence.restore();
+
+        FactHandle a = session.insert("a");
+        session.insert("bb");
+        session.fireAllRules();
+        persistence.fired();
+
+        FactHandle c = session.insert("ccc");
+        session.update(c, "dddd");
+        session.delete(a);
+        session.fireAllRules();
+        persistence.fired();
+
+        assertThat(Files.exists(directory.resolve(FileSessionStorage.SNAPSHOT_FILE))).isFalse();
+
+        KieSession restored = restore(new FileSessionStorage(directory));
+        assertThat(objects(restored)).containsExactlyElementsOf(objects(session));
+        assertThat(objects(restored)).containsExactly("1", "2", "4", "bb", "dddd");
+        assertThat(restored.fireAllRules()).isZero();
+    }
+
+    @Test
+    public void restoreFromSnapshotAndJournal() throws IOException {
+        KieSession session = kbase.newKieSession();
+        SessionPersistence persistence = new SessionPersistence(session, new FileSessionStorage(directory), 3);
+        persistence.restore();
+
+        session.insert("a");
+        FactHandle b = session.insert("bb");
+        session.insert("ccc");
+        session.fireAllRules();
+        persistence.fired();
+        assertThat(Files.exists(directory.resolve(FileSessionStorage.SNAPSHOT_FILE))).isTrue();
+        assertThat(Files.exists(directory.resolve(FileSessionStorage.JOURNAL_FILE))).isFalse();
+
+        // changes of a fact restored from the snapshot
+        session.update(b, "eeeee");
+        session.fireAllRules();
+        persistence.fired();
+        assertThat(Files.exists(directory.resolve(FileSessionStorage.JOURNAL_FILE))).isTrue();
+
+        KieSession restored = restore(new FileSessionStorage(directory));
+        assertThat(objects(restored)).containsExactly("1", "2", "3", "5", "a", "ccc", "eeeee");
+        assertThat(restored.fireAllRules()).isZero();
+    }
+
+    @Test
+    public void pendingChangesWrittenOnCheckpoint() throws IOException {
+        KieSession session = kbase.newKieSession();
+        SessionPersistence persistence = new SessionPersistence(session, new FileSessionStorage(directory), 1000);
+        persistence.restore();
+
+        session.insert("a");
+        session.fireAllRules();
+        persistence.fired();
+        // inserted but not fired yet
+        session.insert("bb");
+        persistence.checkpoint();
+
+        KieSession restored = restore(new FileSessionStorage(directory));
+        assertThat(objects(restored)).containsExactly("1", "a", "bb");
+        assertThat(restored.fireAllRules()).isEqualTo(1);
+    }
+
+    @Test
+    public void incompleteJournalTailIgnored() throws IOException {
+        FileSessionStorage storage = new FileSessionStorage(directory);
+        KieSession session = kbase.newKieSession();
+        SessionPersistence persistence = new SessionPersistence(session, storage, 1000);
+        persistence.restore();
+
+        session.insert("a");
+        session.fireAllRules();
+        persistence.fired();
+        // a batch announcing 100 bytes, but cut after 3 of them
+        storage.appendJournal(new byte[] { 0, 0, 0, 100, 1, 2, 3 });
+
+        KieSession restored = restore(storage);
+        assertThat(objects(restored)).containsExactly("1", "a");
+        // the journal is compacted into a new snapshot, so the next batches are not appended after the broken one
+        assertThat(Files.exists(directory.resolve(FileSessionStorage.JOURNAL_FILE))).isFalse();
+        assertThat(storage.readSnapshot()).isNotNull();
+    }
+
+    @Test
+    public void emptyStorage() throws IOException {
+        SessionStorage storage = new FileSessionStorage(directory);
+        assertThat(storage.readSnapshot()).isNull();
+        assertThat(storage.readJournal()).isNull();
+
+        storage.writeSnapshot(out -> out.write(new byte[] { 1, 2, 3 }));
+        assertThat(storage.readSnapshot()).hasSameContentAs(new ByteArrayInputStream(new byte[] { 1, 2, 3 }));
+    }
+
+    @Test
+    public void eventsRestoredWithPseudoClock() throws IOException {
+        kbase = eventsKieBase();
+        KieSessionConfiguration conf = KnowledgeBaseFactory.newKnowledgeSessionConfiguration();
+        conf.setOption(ClockTypeOption.get("pseudo"));
+        KieSession session = kbase.newKieSession(conf, null);
+        SessionPseudoClock clock = session.getSessionClock();
+        SessionPersistence persistence = new SessionPersistence(session, new FileSessionStorage(directory), 1000);
+        persistence.restore();
+
+        session.insert(new Tick("a"));
+        clock.advanceTime(1200, TimeUnit.MILLISECONDS);
+        session.insert(new Tick("b"));
+        session.fireAllRules();
+        persistence.fired();
+        clock.advanceTime(1200, TimeUnit.MILLISECONDS);
+        session.fireAllRules();
+        persistence.fired();
+        assertThat(objects(session)).containsExactly("tick b");
+
+        // the time of the changes is replayed, so the first tick expires again
+        assertThat(Files.exists(directory.resolve(FileSessionStorage.SNAPSHOT_FILE))).isFalse();
+        KieSession restored = restore(new FileSessionStorage(directory), conf);
+        restored.fireAllRules();
+        assertThat(restored.<SessionPseudoClock> getSessionClock().getCurrentTime()).isEqualTo(clock.getCurrentTime());
+        assertThat(objects(restored)).containsExactly("tick b");
+    }
+
+    @Test
+    public void eventsRestoredWithRealtimeClock() throws Exception {
+        kbase = eventsKieBase();
+        KieSession session = kbase.newKieSession();
+        SessionPersistence persistence = new SessionPersistence(session, new FileSessionStorage(directory), 1000);
+        persistence.restore();
+
+        session.insert(new Tick("a"));
+        session.fireAllRules();
+        persistence.fired();
+        // the realtime clock cannot be replayed, so the session is written as a whole with the time of its events
+        assertThat(Files.exists(directory.resolve(FileSessionStorage.SNAPSHOT_FILE))).isTrue();
+        assertThat(Files.exists(directory.resolve(FileSessionStorage.JOURNAL_FILE))).isFalse();
+
+        Thread.sleep(1200);
+        session.insert(new Tick("b"));
+        session.fireAllRules();
+        persistence.fired();
+        assertThat(Files.exists(directory.resolve(FileSessionStorage.JOURNAL_FILE))).isFalse();
+        Thread.sleep(1200);
+
+        // replayed at the restore time the first tick would be kept for two more seconds
+        KieSession restored = restore(new FileSessionStorage(directory), null);
+        restored.fireAllRules();
+        assertThat(objects(restored)).containsExactly("tick b");
+    }
+
+    private KieSession restore(SessionStorage storage) {
+        return restore(storage, null);
+    }
+
+    private KieSession restore(SessionStorage storage, KieSessionConfiguration conf) {
+        KieSession restored = kbase.newKieSession(conf, null);
+        new SessionPersistence(restored, storage, 1000).restore();
+        return restored;
+    }
+
+    private static InternalKnowledgeBase eventsKieBase() {
+        KieBaseConfiguration conf = KnowledgeBaseFactory.newKnowledgeBaseConfiguration();
+        conf.setOption(EventProcessingOption.STREAM);
+        return kieBase(EVENTS_DRL, conf);
+    }
+
+    private static InternalKnowledgeBase kieBase(String drl, KieBaseConfiguration conf) {
+        KnowledgeBuilderImpl kbuilder = new KnowledgeBuilderImpl();
+        kbuilder.add(ResourceFactory.newByteArrayResource(drl.getBytes(StandardCharsets.UTF_8)), ResourceType.DRL);
+        InternalKnowledgeBase kbase = KnowledgeBaseFactory.newKnowledgeBase(conf);
+        kbase.addPackages(kbuilder.getKnowledgePackages());
+        return kbase;
+    }
+
+    private static List<String> objects(KieSession session) {
+        return session.getObjects().stream().map(Object::toString).sorted().collect(Collectors.toList());
+    }
+
+    @Role(Role.Type.EVENT)
+    @Expires("2s")
+    public static class Tick implements Serializable {
+
+        private final String name;
+
+        public Tick(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return "tick " + name;
+        }
+    }
+}
@@ -439,6 +439,7 @@ public class ActivityGenerationModelTest extends JbpmBpmn2TestCase {
         
         byte[] data = marshaller.marhsallProcessInstance(processInstance);
         assertNotNull(data);
+        assertEquals(ProcessInstanceMarshaller.LEAN_FORMAT_VERSION, data[0]);
         
         processInstance = (ProcessInstance<BpmnVariables>) marshaller.unmarshallProcessInstance(data, process);
 
@@ -449,6 +450,45 @@ public class ActivityGenerationModelTest extends JbpmBpmn2TestCase {
         processInstance.completeWorkItem(workItem.getId(), null, SecurityPolicy.of(new StaticIdentityProvider("john")));
         assertEquals(STATE_COMPLETED, processInstance.status());
     }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testUserTaskProcessWithLegacyMarshalling() throws Exception {
+        BpmnProcess process = BpmnProcess.from(new ClassPathResource("BPMN2-UserTask.bpmn2")).get(0);
+
+        ProcessMetaData metaData = ProcessToExecModelGenerator.INSTANCE.generate((WorkflowProcess) process.legacyProcess());
+        String content = metaData.getGeneratedClassModel().toString();
+
+        Map<String, String> classData = new HashMap<>();
+        classData.put("org.drools.bpmn2.UserTaskProcess", content);
+        TestWorkItemHandler workItemHandler = new TestWorkItemHandler();
+
+        Map<String, BpmnProcess> processes = createProcesses(classData, Collections.singletonMap("Human Task", workItemHandler));
+        ProcessInstance<BpmnVariables> processInstance = processes.get("UserTask").createInstance(BpmnVariables.create(Collections.singletonMap("s", "test")));
+
+        processInstance.start();
+        assertEquals(STATE_ACTIVE, processInstance.status());
+
+        ProcessInstanceMarshaller legacyMarshaller;
+        System.setProperty(ProcessInstanceMarshaller.LEGACY_FORMAT_PROPERTY, "true");
+        try {
+            legacyMarshaller = new ProcessInstanceMarshaller();
+        } finally {
+            System.clearProperty(ProcessInstanceMarshaller.LEGACY_FORMAT_PROPERTY);
+        }
+
+        byte[] data = legacyMarshaller.marhsallProcessInstance(processInstance);
+        assertNotNull(data);
+        assertEquals((byte) 0xAC, data[0]);
+
+        // data written in the legacy format is still readable
+        processInstance = (ProcessInstance<BpmnVariables>) new ProcessInstanceMarshaller().unmarshallProcessInstance(data, process);
+
+        WorkItem workItem = workItemHandler.getWorkItem();
+        assertNotNull(workItem);
+        processInstance.completeWorkItem(workItem.getId(), null, SecurityPolicy.of(new StaticIdentityProvider("john")));
+        assertEquals(STATE_COMPLETED, processInstance.status());
+    }
     
     @Test
     public void testCallActivityProcess() throws Exception {
@@ -34,6 +34,9 @@ import org.drools.core.process.instance.impl.WorkItemImpl;
 import org.jbpm.process.instance.impl.workitem.Abort;
 import org.jbpm.process.instance.impl.workitem.Active;
 import org.jbpm.process.instance.impl.workitem.Complete;
+import org.jbpm.workflow.instance.impl.WorkflowProcessInstanceImpl;
+import org.jbpm.workflow.instance.node.WorkItemNodeInstance;
+import org.kie.api.runtime.process.NodeInstance;
 import org.kie.api.runtime.process.ProcessInstance;
 import org.kie.api.runtime.process.WorkItemHandler;
 import org.kie.api.runtime.process.WorkItemNotFoundException;
@@ -70,6 +73,13 @@ public class LightWorkItemManager implements WorkItemManager {
             Transition<?> transition = new TransitionToActive();
             eventSupport.fireBeforeWorkItemTransition(processInstance, workItem, transition, null);
             
+            ParallelWorkItemExecution parallelExecution = ParallelWorkItemExecution.current();
+            if (parallelExecution != null) {
+                parallelExecution.defer(workItem, handler, this, 
+                                        () -> eventSupport.fireAfterWorkItemTransition(processInstance, workItem, transition, null),
+                                        e -> handleDeferredWorkItemFailure(processInstance, workItem, e));
+                return;
+            }
             handler.executeWorkItem(workItem, this);
             
             eventSupport.fireAfterWorkItemTransition(processInstance, workItem, transition, null);
@@ -77,6 +87,20 @@ public class LightWorkItemManager implements WorkItemManager {
                                                     workItem.getName() );
     }    
 
+    private void handleDeferredWorkItemFailure(ProcessInstance processInstance, WorkItem workItem, Exception e) {
+        NodeInstance nodeInstance = null;
+        if (processInstance instanceof WorkflowProcessInstanceImpl) {
+            nodeInstance = ((WorkflowProcessInstanceImpl) processInstance).getNodeInstance(workItem.getNodeInstanceId(), true);
+        }
+        if (nodeInstance instanceof WorkItemNodeInstance) {
+            ((WorkItemNodeInstance) nodeInstance).handleWorkItemException(e);
+        } else if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        } else {
+            throw new IllegalStateException("Unable to execute work item " + workItem.getId(), e);
+        }
+    }
+
     public void internalAddWorkItem(WorkItem workItem) {
         workItems.put(workItem.getId(), workItem);  
     }
@@ -0,0 +1,417 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.instance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.drools.core.process.instance.WorkItem;
+import org.drools.core.process.instance.WorkItemManager;
+import org.kie.api.runtime.process.WorkItemHandler;
+import org.kie.kogito.process.workitem.Policy;
+import org.kie.kogito.process.workitem.Transition;
+import org.kie.kogito.uow.UnitOfWork;
+import org.kie.kogito.uow.UnitOfWorkManager;
+import org.kie.kogito.uow.WorkUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Parallel execution of work item handlers for the branches of a multi-instance node.
+ * <p>
+ * While an execution is active on the current thread, work items are still created and registered
+ * by the engine on that thread but their handlers are not invoked right away. Once all branches
+ * were triggered, the deferred handlers are invoked on a bounded shared executor, at most
+ * <code>limit</code> of them at the same time. Every call handlers make to the work item manager
+ * (like completing the work item) is recorded and applied afterwards on the triggering thread,
+ * in the order work items were created and while holding the process instance lock. Branches
+ * are then continued, and any work items they create are handled the same way in another round.
+ * The process engine is therefore never accessed concurrently, only the handlers run in parallel,
+ * so handlers used with this execution must not access the process instance themselves.
+ * <p>
+ * Handlers see the unit of work of the triggering thread as the current one, work they add to it
+ * is recorded as well and handed to the actual unit of work together with their other calls.
+ * <p>
+ * Size of the shared executor is configured with <code>org.jbpm.multiinstance.parallel.threads</code>
+ * system property and defaults to number of available processors.
+ */
+public class ParallelWorkItemExecution {
+
+    public static final String PARALLEL_METADATA = "customParallel";
+    public static final String PARALLEL_LIMIT_METADATA = "customParallelLimit";
+    public static final String THREADS_PROPERTY = "org.jbpm.multiinstance.parallel.threads";
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelWorkItemExecution.class);
+
+    private static final ThreadLocal<ParallelWorkItemExecution> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> WORKER = new ThreadLocal<>();
+
+    private final int limit;
+    private final UnitOfWorkManager unitOfWorkManager;
+    private final UnitOfWork unitOfWork;
+    private List<DeferredWorkItem> pending = new ArrayList<>();
+
+    private ParallelWorkItemExecution(int limit, UnitOfWorkManager unitOfWorkManager) {
+        this.limit = limit;
+        this.unitOfWorkManager = unitOfWorkManager;
+        this.unitOfWork = unitOfWorkManager.currentUnitOfWork();
+    }
+
+    /**
+     * Returns execution active on current thread
+     * @return active execution or null if work items should be executed right away
+     */
+    public static ParallelWorkItemExecution current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs given trigger with parallel execution of work item handlers and returns once all the work
+     * items created directly or indirectly by the trigger were handled. In case there is an execution
+     * already active on current thread, the trigger joins it and the outer limit applies.
+     * @param limit maximum number of handlers of this execution running at the same time
+     * @param lock lock to be held while results of handlers are applied, usually the process instance
+     * @param unitOfWorkManager manager of the unit of work handlers should see as the current one
+     * @param trigger triggers the branches
+     */
+    public static void execute(int limit, Object lock, UnitOfWorkManager unitOfWorkManager, Runnable trigger) {
+        if (CURRENT.get() != null) {
+            trigger.run();
+            return;
+        }
+        ParallelWorkItemExecution execution = new ParallelWorkItemExecution(Math.max(1, limit), unitOfWorkManager);
+        CURRENT.set(execution);
+        try {
+            trigger.run();
+            execution.drain(lock);
+        } finally {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Defers invocation of the handler for given work item
+     * @param workItem work item to be executed
+     * @param handler handler of the work item
+     * @param manager manager the handler should report to
+     * @param completion invoked on the triggering thread once handler returned and its calls to the manager were applied
+     * @param errorHandler invoked on the triggering thread in case handler failed
+     */
+    public void defer(WorkItem workItem, WorkItemHandler handler, WorkItemManager manager, Runnable completion, Consumer<Exception> errorHandler) {
+        pending.add(new DeferredWorkItem(workItem, handler, new RecordingWorkItemManager(manager), new RecordingUnitOfWork(unitOfWork), completion, errorHandler));
+    }
+
+    private void drain(Object lock) {
+        while (!pending.isEmpty()) {
+            List<DeferredWorkItem> round = pending;
+            pending = new ArrayList<>();
+            logger.debug("Executing {} work items in parallel with limit {}", round.size(), limit);
+            invokeHandlers(round);
+            synchronized (lock) {
+                for (DeferredWorkItem item : round) {
+                    item.apply();
+                }
+            }
+        }
+    }
+
+    private void invokeHandlers(List<DeferredWorkItem> round) {
+        if (round.size() == 1 || Boolean.TRUE.equals(WORKER.get())) {
+            // no need to hand over single work item and avoid waiting for the pool from within the pool
+            round.forEach(this::invoke);
+            return;
+        }
+        Semaphore permits = new Semaphore(limit);
+        List<Future<?>> futures = new ArrayList<>(round.size());
+        try {
+            for (DeferredWorkItem item : round) {
+                permits.acquire();
+                try {
+                    futures.add(ExecutorHolder.EXECUTOR.submit(() -> {
+                        try {
+                            invoke(item);
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                } catch (RejectedExecutionException e) {
+                    permits.release();
+                    invoke(item);
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for work items to be executed", e);
+        } catch (ExecutionException e) {
+            // invoke never throws, handler failures are kept by the deferred work item
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void invoke(DeferredWorkItem item) {
+        unitOfWorkManager.runInUnitOfWork(item.unitOfWork, item::invoke);
+    }
+
+    private static class ExecutorHolder {
+
+        private static final ExecutorService EXECUTOR = createExecutor();
+
+        private static ExecutorService createExecutor() {
+            int threads = Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+            AtomicInteger counter = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread thread = new Thread(() -> {
+                    WORKER.set(Boolean.TRUE);
+                    r.run();
+                }, "jbpm-multi-instance-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+
+    private static class DeferredWorkItem {
+
+        private final WorkItem workItem;
+        private final WorkItemHandler handler;
+        private final RecordingWorkItemManager manager;
+        private final RecordingUnitOfWork unitOfWork;
+        private final Runnable completion;
+        private final Consumer<Exception> errorHandler;
+        private Exception error;
+
+        private DeferredWorkItem(WorkItem workItem, WorkItemHandler handler, RecordingWorkItemManager manager, RecordingUnitOfWork unitOfWork, Runnable completion, Consumer<Exception> errorHandler) {
+            this.workItem = workItem;
+            this.handler = handler;
+            this.manager = manager;
+            this.unitOfWork = unitOfWork;
+            this.completion = completion;
+            this.errorHandler = errorHandler;
+        }
+
+        private void invoke() {
+            try {
+                handler.executeWorkItem(workItem, manager);
+            } catch (Exception e) {
+                error = e;
+            }
+        }
+
+        private void apply() {
+            if (manager.delegate.getWorkItem(workItem.getId()) == null) {
+                // work item was aborted in the meantime e.g. by completion condition of the multi-instance node
+                manager.discard();
+                unitOfWork.discard();
+                return;
+            }
+            unitOfWork.replay();
+            manager.replay();
+            if (error != null) {
+                errorHandler.accept(error);
+            } else {
+                completion.run();
+            }
+        }
+    }
+
+    /*
+     * Records work added by handlers until it is replayed on the actual unit of work, work added
+     * afterwards (e.g. by asynchronous handlers) goes directly to the actual unit of work
+     */
+    private static class RecordingUnitOfWork implements UnitOfWork {
+
+        private final UnitOfWork delegate;
+        private List<WorkUnit<?>> work = new ArrayList<>();
+
+        private RecordingUnitOfWork(UnitOfWork delegate) {
+            this.delegate = delegate;
+        }
+
+        private void replay() {
+            List<WorkUnit<?>> recorded;
+            synchronized (this) {
+                recorded = work;
+                work = null;
+            }
+            recorded.forEach(delegate::intercept);
+        }
+
+        private void discard() {
+            List<WorkUnit<?>> recorded;
+            synchronized (this) {
+                recorded = work;
+                work = null;
+            }
+            recorded.forEach(WorkUnit::abort);
+        }
+
+        @Override
+        public void start() {
+            // started by the triggering thread
+        }
+
+        @Override
+        public void end() {
+            throw new UnsupportedOperationException("Unit of work is ended by the thread that triggered the work items");
+        }
+
+        @Override
+        public void abort() {
+            throw new UnsupportedOperationException("Unit of work is aborted by the thread that triggered the work items");
+        }
+
+        @SuppressWarnings("rawtypes")
+        @Override
+        public void intercept(WorkUnit unit) {
+            synchronized (this) {
+                if (work != null) {
+                    work.add(unit);
+                    return;
+                }
+            }
+            delegate.intercept(unit);
+        }
+    }
+
+    /*
+     * Records all calls that change state of the engine until they are replayed, calls made
+     * afterwards (e.g. by asynchronous handlers) go directly to the actual manager
+     */
+    private static class RecordingWorkItemManager implements WorkItemManager {
+
+        private final WorkItemManager delegate;
+        private List<Consumer<WorkItemManager>> calls = new ArrayList<>();
+
+        private RecordingWorkItemManager(WorkItemManager delegate) {
+            this.delegate = delegate;
+        }
+
+        private void record(Consumer<WorkItemManager> call) {
+            synchronized (this) {
+                if (calls != null) {
+                    calls.add(call);
+                    return;
+                }
+            }
+            call.accept(delegate);
+        }
+
+        private void replay() {
+            List<Consumer<WorkItemManager>> recorded;
+            synchronized (this) {
+                recorded = calls;
+                calls = null;
+            }
+            recorded.forEach(call -> call.accept(delegate));
+        }
+
+        private synchronized void discard() {
+            calls = null;
+        }
+
+        @Override
+        public void completeWorkItem(String id, Map<String, Object> results, Policy<?>... policies) {
+            record(manager -> manager.completeWorkItem(id, results, policies));
+        }
+
+        @Override
+        public void abortWorkItem(String id, Policy<?>... policies) {
+            record(manager -> manager.abortWorkItem(id, policies));
+        }
+
+        @Override
+        public void transitionWorkItem(String id, Transition<?> transition) {
+            record(manager -> manager.transitionWorkItem(id, transition));
+        }
+
+        @Override
+        public void registerWorkItemHandler(String workItemName, WorkItemHandler handler) {
+            record(manager -> manager.registerWorkItemHandler(workItemName, handler));
+        }
+
+        @Override
+        public void internalExecuteWorkItem(WorkItem workItem) {
+            record(manager -> manager.internalExecuteWorkItem(workItem));
+        }
+
+        @Override
+        public void internalAddWorkItem(WorkItem workItem) {
+            record(manager -> manager.internalAddWorkItem(workItem));
+        }
+
+        @Override
+        public void internalAbortWorkItem(String id) {
+            record(manager -> manager.internalAbortWorkItem(id));
+        }
+
+        @Override
+        public void internalCompleteWorkItem(WorkItem workItem) {
+            record(manager -> manager.internalCompleteWorkItem(workItem));
+        }
+
+        @Override
+        public Set<WorkItem> getWorkItems() {
+            return delegate.getWorkItems();
+        }
+
+        @Override
+        public WorkItem getWorkItem(String id) {
+            return delegate.getWorkItem(id);
+        }
+
+        @Override
+        public void clear() {
+            record(WorkItemManager::clear);
+        }
+
+        @Override
+        public void signalEvent(String type, Object event) {
+            record(manager -> manager.signalEvent(type, event));
+        }
+
+        @Override
+        public void signalEvent(String type, Object event, String processInstanceId) {
+            record(manager -> manager.signalEvent(type, event, processInstanceId));
+        }
+
+        @Override
+        public void dispose() {
+            record(WorkItemManager::dispose);
+        }
+
+        @Override
+        public void retryWorkItem(String workItemID, Map<String, Object> params) {
+            record(manager -> manager.retryWorkItem(workItemID, params));
+        }
+    }
+}
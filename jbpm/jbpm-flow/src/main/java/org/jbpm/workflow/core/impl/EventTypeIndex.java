@@ -0,0 +1,165 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workflow.core.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jbpm.process.core.event.EventFilter;
+import org.jbpm.process.core.event.EventTypeFilter;
+import org.jbpm.process.core.event.NonAcceptingEventTypeFilter;
+import org.jbpm.workflow.core.node.AsyncEventNode;
+import org.jbpm.workflow.core.node.BoundaryEventNode;
+import org.jbpm.workflow.core.node.CompositeContextNode;
+import org.jbpm.workflow.core.node.CompositeNode;
+import org.jbpm.workflow.core.node.EventNode;
+import org.jbpm.workflow.core.node.EventNodeInterface;
+import org.jbpm.workflow.core.node.EventSubProcessNode;
+import org.jbpm.workflow.core.node.ForEachNode;
+import org.jbpm.workflow.core.node.StateNode;
+import org.kie.api.definition.process.Node;
+
+/**
+ * Index of the top level nodes of a process that can accept an event, keyed by event type.
+ * <p>
+ * Nodes whose accepted event types are known upfront (event nodes and boundary events with plain
+ * event type filters, event sub processes and composite nodes made of those) are indexed by each
+ * of the types. All other event nodes, e.g. the ones with event types that use <code>#{}</code>
+ * expressions resolved at runtime, prefix based filters or dynamic nodes, are returned for any
+ * event type. Returned nodes keep the order in which they are defined in the process and still
+ * need to be asked if they accept given event.
+ */
+public class EventTypeIndex {
+
+    private final Map<String, List<Node>> nodesByType;
+    private final List<Node> runtimeResolvedNodes;
+
+    private EventTypeIndex(Map<String, List<Node>> nodesByType, List<Node> runtimeResolvedNodes) {
+        this.nodesByType = nodesByType;
+        this.runtimeResolvedNodes = runtimeResolvedNodes;
+    }
+
+    public static EventTypeIndex of(Node[] nodes) {
+        List<Set<String>> nodeTypes = new ArrayList<>(nodes.length);
+        Set<String> allTypes = new LinkedHashSet<>();
+        List<Node> runtimeResolvedNodes = new ArrayList<>();
+        for (Node node : nodes) {
+            // null marks nodes that have to be checked for any event type
+            Set<String> types = Collections.emptySet();
+            if (node instanceof EventNodeInterface) {
+                types = new LinkedHashSet<>();
+                if (collectEventTypes(node, true, types)) {
+                    allTypes.addAll(types);
+                } else {
+                    types = null;
+                    runtimeResolvedNodes.add(node);
+                }
+            }
+            nodeTypes.add(types);
+        }
+
+        Map<String, List<Node>> nodesByType = new HashMap<>();
+        for (String type : allTypes) {
+            List<Node> typeNodes = new ArrayList<>();
+            for (int i = 0; i < nodes.length; i++) {
+                Set<String> types = nodeTypes.get(i);
+                if (types == null || types.contains(type)) {
+                    typeNodes.add(nodes[i]);
+                }
+            }
+            nodesByType.put(type, Collections.unmodifiableList(typeNodes));
+        }
+        return new EventTypeIndex(nodesByType, Collections.unmodifiableList(runtimeResolvedNodes));
+    }
+
+    /**
+     * Returns nodes that might accept event of given type, in the order they are defined in the process
+     * @param type type of the event
+     * @return nodes that need to be checked for given event type
+     */
+    public List<Node> getNodes(String type) {
+        List<Node> nodes = nodesByType.get(type);
+        if (nodes == null) {
+            return runtimeResolvedNodes;
+        }
+        return nodes;
+    }
+
+    /*
+     * Collects all event types the node can accept, returns false in case they cannot be determined upfront.
+     * Only known node types are considered as their acceptsEvent implementation is known to match on
+     * the exact event type, top level boundary events and event sub processes resolve their types at runtime.
+     */
+    private static boolean collectEventTypes(Node node, boolean topLevel, Set<String> types) {
+        Class<?> nodeClass = node.getClass();
+        if (nodeClass == EventNode.class || nodeClass == AsyncEventNode.class || nodeClass == BoundaryEventNode.class) {
+            List<EventFilter> filters = ((EventNode) node).getEventFilters();
+            if (filters.isEmpty()) {
+                // event node without filters accepts any event
+                return false;
+            }
+            boolean resolved = topLevel && nodeClass == BoundaryEventNode.class;
+            for (EventFilter filter : filters) {
+                if (!collectEventTypes(filter, resolved, types)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (nodeClass == EventSubProcessNode.class) {
+            for (EventTypeFilter filter : ((EventSubProcessNode) node).getEventTypeFilters()) {
+                if (!collectEventTypes(filter, topLevel, types)) {
+                    return false;
+                }
+            }
+            return collectNestedEventTypes((CompositeNode) node, types);
+        } else if (nodeClass == CompositeNode.class || nodeClass == CompositeContextNode.class
+                || nodeClass == ForEachNode.class || nodeClass == StateNode.class) {
+            return collectNestedEventTypes((CompositeNode) node, types);
+        }
+        return false;
+    }
+
+    private static boolean collectNestedEventTypes(CompositeNode compositeNode, Set<String> types) {
+        for (Node nested : compositeNode.internalGetNodes()) {
+            if (nested instanceof EventNodeInterface && !collectEventTypes(nested, false, types)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean collectEventTypes(EventFilter filter, boolean resolved, Set<String> types) {
+        if (filter.getClass() == NonAcceptingEventTypeFilter.class) {
+            return true;
+        } else if (filter.getClass() == EventTypeFilter.class) {
+            String type = ((EventTypeFilter) filter).getType();
+            if (type == null) {
+                return true;
+            }
+            if (resolved && type.contains("#{")) {
+                return false;
+            }
+            types.add(type);
+            return true;
+        }
+        return false;
+    }
+}
@@ -36,6 +36,7 @@ public class WorkflowProcessImpl extends ProcessImpl implements WorkflowProcess,
     private boolean autoComplete = false;
     private boolean dynamic = false;
     private org.jbpm.workflow.core.NodeContainer nodeContainer;
+    private transient volatile EventTypeIndex eventTypeIndex;
     
     public WorkflowProcessImpl() {
         nodeContainer = (org.jbpm.workflow.core.NodeContainer) createNodeContainer();
@@ -68,11 +69,27 @@ public class WorkflowProcessImpl extends ProcessImpl implements WorkflowProcess,
     public void removeNode(final Node node) {
         nodeContainer.removeNode(node);
         ((org.jbpm.workflow.core.Node) node).setNodeContainer(null);
+        eventTypeIndex = null;
     }
 
     public void addNode(final Node node) {
         nodeContainer.addNode(node);
         ((org.jbpm.workflow.core.Node) node).setNodeContainer(this);
+        eventTypeIndex = null;
+    }
+
+    /**
+     * Returns index of top level nodes by the event types they accept, the index is built
+     * on first use and rebuilt whenever nodes are added or removed.
+     * @return event type index of this process
+     */
+    public EventTypeIndex getEventTypeIndex() {
+        EventTypeIndex index = eventTypeIndex;
+        if (index == null) {
+            index = EventTypeIndex.of(getNodes());
+            eventTypeIndex = index;
+        }
+        return index;
     }
     
     public boolean isAutoComplete() {
@@ -16,6 +16,7 @@
 
 package org.jbpm.workflow.core.node;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -27,6 +28,7 @@ import org.jbpm.process.core.context.variable.Variable;
 import org.jbpm.process.core.context.variable.VariableScope;
 import org.jbpm.workflow.core.impl.ConnectionImpl;
 import org.jbpm.workflow.core.impl.ExtendedNodeImpl;
+import org.mvel2.MVEL;
 
 /**
  * A for each node.
@@ -47,6 +49,9 @@ public class ForEachNode extends CompositeContextNode {
     private String completionConditionExpression;
     private boolean waitForCompletion = true;
 
+    private transient volatile Serializable compiledCollectionExpression;
+    private transient volatile Serializable compiledCompletionConditionExpression;
+
     public ForEachNode() {
         // Split
         ForEachSplitNode split = new ForEachSplitNode();
@@ -224,6 +229,20 @@ public class ForEachNode extends CompositeContextNode {
 
     public void setCollectionExpression(String collectionExpression) {
         this.collectionExpression = collectionExpression;
+        this.compiledCollectionExpression = null;
+    }
+
+    /**
+     * Returns the collection expression compiled with MVEL, it is compiled on first use
+     * and shared by all instances of this node.
+     */
+    public Serializable getCompiledCollectionExpression() {
+        Serializable compiled = compiledCollectionExpression;
+        if (compiled == null) {
+            compiled = MVEL.compileExpression(collectionExpression);
+            compiledCollectionExpression = compiled;
+        }
+        return compiled;
     }
     
     public String getOutputCollectionExpression() {
@@ -295,8 +314,22 @@ public class ForEachNode extends CompositeContextNode {
 		return completionConditionExpression;
 	}
 
+    /**
+     * Returns the completion condition compiled with MVEL, it is compiled on first use
+     * and shared by all instances of this node.
+     */
+    public Serializable getCompiledCompletionConditionExpression() {
+        Serializable compiled = compiledCompletionConditionExpression;
+        if (compiled == null) {
+            compiled = MVEL.compileExpression(completionConditionExpression);
+            compiledCompletionConditionExpression = compiled;
+        }
+        return compiled;
+    }
+
 	public void setCompletionConditionExpression(
 			String completionConditionExpression) {
 		this.completionConditionExpression = completionConditionExpression;
+		this.compiledCompletionConditionExpression = null;
 	}
 }
@@ -44,6 +44,7 @@ import org.jbpm.process.instance.impl.ProcessInstanceImpl;
 import org.jbpm.util.PatternConstants;
 import org.jbpm.workflow.core.DroolsAction;
 import org.jbpm.workflow.core.impl.NodeImpl;
+import org.jbpm.workflow.core.impl.WorkflowProcessImpl;
 import org.jbpm.workflow.core.node.ActionNode;
 import org.jbpm.workflow.core.node.DynamicNode;
 import org.jbpm.workflow.core.node.EndNode;
@@ -70,6 +71,7 @@ import org.kie.api.runtime.process.ProcessInstance;
 import org.kie.internal.process.CorrelationKey;
 import org.kie.kogito.jobs.DurationExpirationTime;
 import org.kie.kogito.jobs.ProcessInstanceJobDescription;
+import org.kie.kogito.process.impl.marshalling.ProcessInstanceDeltaTracker;
 import org.kie.services.time.TimerInstance;
 import org.mvel2.integration.VariableResolverFactory;
 import org.slf4j.Logger;
@@ -116,6 +118,8 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
     
     private String referenceId;
 
+    private transient ProcessInstanceDeltaTracker deltaTracker;
+
     @Override
     public NodeContainer getNodeContainer() {
         return getWorkflowProcess();
@@ -597,7 +601,8 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
                 return;
             }
 
-            List<NodeInstance> currentView = new ArrayList<>(this.nodeInstances);
+            List<Node> eventNodes = getEventNodes(type);
+            List<NodeInstance> currentView = eventNodes.isEmpty() ? Collections.emptyList() : new ArrayList<>(this.nodeInstances);
 
             try {
                 this.activatingNodeIds = new ArrayList<>();
@@ -613,9 +618,8 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
                         listener.signalEvent(type, event);
                     }
                 }
-                for (Node node : getWorkflowProcess().getNodes()) {
-                    if (node instanceof EventNodeInterface
-                            && ((EventNodeInterface) node).acceptsEvent(type, event, getResolver(node, currentView))) {
+                for (Node node : eventNodes) {
+                    if (((EventNodeInterface) node).acceptsEvent(type, event, getResolver(node, currentView))) {
                         if (node instanceof EventNode && ((EventNode) node).getFrom() == null) {
                             EventNodeInstance eventNodeInstance = (EventNodeInstance) getNodeInstance(node);
                             eventNodeInstance.signalEvent(type, event);
@@ -665,6 +669,19 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
         }
     }
 
+    private List<Node> getEventNodes(String type) {
+        if (getWorkflowProcess() instanceof WorkflowProcessImpl) {
+            return ((WorkflowProcessImpl) getWorkflowProcess()).getEventTypeIndex().getNodes(type);
+        }
+        List<Node> eventNodes = new ArrayList<>();
+        for (Node node : getWorkflowProcess().getNodes()) {
+            if (node instanceof EventNodeInterface) {
+                eventNodes.add(node);
+            }
+        }
+        return eventNodes;
+    }
+
     private Function<String, String> getResolver(Node node, List<NodeInstance> currentView) {
         if (node instanceof DynamicNode) {
             // special handling for dynamic node to allow to resolve variables from individual node instances of the dynamic node
@@ -968,6 +985,18 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
         return this.referenceId;
     }
 
+    /**
+     * Returns the tracker of the persisted state of this process instance
+     * @return tracker or null if changes of this process instance are not tracked
+     */
+    public ProcessInstanceDeltaTracker getDeltaTracker() {
+        return deltaTracker;
+    }
+
+    public void setDeltaTracker(ProcessInstanceDeltaTracker deltaTracker) {
+        this.deltaTracker = deltaTracker;
+    }
+
     private boolean isVariableExpression(String eventType) {
         if (eventType == null) {
             return false;
@@ -28,6 +28,8 @@ import org.drools.core.util.MVELSafeHelper;
 import org.jbpm.process.core.ContextContainer;
 import org.jbpm.process.core.context.variable.VariableScope;
 import org.jbpm.process.instance.ContextInstance;
+import org.jbpm.process.instance.InternalProcessRuntime;
+import org.jbpm.process.instance.ParallelWorkItemExecution;
 import org.jbpm.process.instance.context.variable.VariableScopeInstance;
 import org.jbpm.workflow.core.node.ForEachNode;
 import org.jbpm.workflow.core.node.ForEachNode.ForEachJoinNode;
@@ -38,6 +40,7 @@ import org.jbpm.workflow.instance.impl.NodeInstanceImpl;
 import org.jbpm.workflow.instance.impl.NodeInstanceResolverFactory;
 import org.kie.api.definition.process.Connection;
 import org.kie.api.definition.process.Node;
+import org.kie.kogito.uow.UnitOfWorkManager;
 import org.mvel2.integration.VariableResolver;
 import org.mvel2.integration.impl.SimpleValueResolver;
 
@@ -101,7 +104,7 @@ public class ForEachNodeInstance extends CompositeContextNodeInstance {
             collection = variableScopeInstance.getVariable(collectionExpression);
         } else {
             try {
-                collection = MVELSafeHelper.getEvaluator().eval(collectionExpression, new NodeInstanceResolverFactory(this));
+                collection = MVELSafeHelper.getEvaluator().executeExpression(getForEachNode().getCompiledCollectionExpression(), new NodeInstanceResolverFactory(this));
             } catch (Throwable t) {
                 throw new IllegalArgumentException(
                         "Could not find collection " + collectionExpression);
@@ -148,15 +151,47 @@ public class ForEachNodeInstance extends CompositeContextNodeInstance {
                     variableScopeInstance.setVariable(this, variableName, o);
                     nodeInstances.add(nodeInstance);
                 }
-                for (NodeInstance nodeInstance : nodeInstances) {
-                    logger.debug("Triggering [{}] in multi-instance loop.", nodeInstance.getNodeId());
-                    nodeInstance.trigger(this, getForEachSplitNode().getTo().getToType());
+                if (isParallel()) {
+                    UnitOfWorkManager unitOfWorkManager = ((InternalProcessRuntime) getProcessInstance().getKnowledgeRuntime().getProcessRuntime()).getUnitOfWorkManager();
+                    ParallelWorkItemExecution.execute(getParallelLimit(nodeInstances.size()), getProcessInstance(), unitOfWorkManager, () -> triggerBranches(nodeInstances));
+                } else {
+                    triggerBranches(nodeInstances);
                 }
                 if (!getForEachNode().isWaitForCompletion()) {
                     ForEachNodeInstance.this.triggerCompleted(org.jbpm.workflow.core.Node.CONNECTION_DEFAULT_TYPE, false);
                 }
             }
         }
+
+        private void triggerBranches(List<NodeInstance> nodeInstances) {
+            for (NodeInstance nodeInstance : nodeInstances) {
+                logger.debug("Triggering [{}] in multi-instance loop.", nodeInstance.getNodeId());
+                nodeInstance.trigger(this, getForEachSplitNode().getTo().getToType());
+            }
+        }
+
+        private boolean isParallel() {
+            Object parallel = getForEachNode().getMetaData().get(ParallelWorkItemExecution.PARALLEL_METADATA);
+            if (parallel instanceof Boolean) {
+                return (Boolean) parallel;
+            }
+            return Boolean.parseBoolean(String.valueOf(parallel).trim());
+        }
+
+        private int getParallelLimit(int branches) {
+            Object limit = getForEachNode().getMetaData().get(ParallelWorkItemExecution.PARALLEL_LIMIT_METADATA);
+            if (limit instanceof Number) {
+                return ((Number) limit).intValue();
+            }
+            if (limit == null || String.valueOf(limit).trim().isEmpty()) {
+                return branches;
+            }
+            try {
+                return Integer.parseInt(String.valueOf(limit).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid parallel limit " + limit + " of multi-instance node " + getForEachNode().getName(), e);
+            }
+        }
     }
 
     public class ForEachJoinNodeInstance extends NodeInstanceImpl {
@@ -230,7 +265,7 @@ public class ForEachNodeInstance extends CompositeContextNodeInstance {
                 return false;
             }
             try {
-                Object result = MVELSafeHelper.getEvaluator().eval(expression, new ForEachNodeInstanceResolverFactory(this, tempVariables));
+                Object result = MVELSafeHelper.getEvaluator().executeExpression(getForEachNode().getCompiledCompletionConditionExpression(), new ForEachNodeInstanceResolverFactory(this, tempVariables));
                 if (!(result instanceof Boolean)) {
                     throw new RuntimeException("Completion condition expression must return boolean values: " + result
                                                        + " for expression " + expression);
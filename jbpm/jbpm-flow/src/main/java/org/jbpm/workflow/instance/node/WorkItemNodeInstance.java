@@ -154,21 +154,8 @@ public class WorkItemNodeInstance extends StateBasedNodeInstance implements Even
                 ((WorkItemManager) ((ProcessInstance) getProcessInstance())
                                                                            .getKnowledgeRuntime().getWorkItemManager()).internalExecuteWorkItem(
                                                                                                                                                 (org.drools.core.process.instance.WorkItem) workItem);
-            } catch (WorkItemHandlerNotFoundException wihnfe) {
-                getProcessInstance().setState(ProcessInstance.STATE_ABORTED);
-                throw wihnfe;
-            } catch (ProcessWorkItemHandlerException handlerException) {
-                this.workItemId = workItem.getId();
-                handleWorkItemHandlerException(handlerException, workItem);
             } catch (Exception e) {
-                String exceptionName = e.getClass().getName();
-                ExceptionScopeInstance exceptionScopeInstance = (ExceptionScopeInstance) resolveContextInstance(ExceptionScope.EXCEPTION_SCOPE, exceptionName);
-                if (exceptionScopeInstance == null) {
-                    throw new WorkflowRuntimeException(this, getProcessInstance(), "Unable to execute Action: " + e.getMessage(), e);
-                }
-                // workItemId must be set otherwise cancel activity will not find the right work item
-                this.workItemId = workItem.getId();
-                exceptionScopeInstance.handleException(exceptionName, e);
+                handleWorkItemException(e);
             }
         }
         if (!workItemNode.isWaitForCompletion()) {
@@ -176,6 +163,30 @@ public class WorkItemNodeInstance extends StateBasedNodeInstance implements Even
         }
         this.workItemId = workItem.getId();
     }
+
+    /**
+     * Handles failure of the work item handler, either thrown directly while this node instance was
+     * triggered or reported later when the handler was invoked in parallel with other work items
+     * @param e failure of the work item handler
+     */
+    public void handleWorkItemException(Exception e) {
+        if (e instanceof WorkItemHandlerNotFoundException) {
+            getProcessInstance().setState(ProcessInstance.STATE_ABORTED);
+            throw (WorkItemHandlerNotFoundException) e;
+        } else if (e instanceof ProcessWorkItemHandlerException) {
+            this.workItemId = workItem.getId();
+            handleWorkItemHandlerException((ProcessWorkItemHandlerException) e, workItem);
+        } else {
+            String exceptionName = e.getClass().getName();
+            ExceptionScopeInstance exceptionScopeInstance = (ExceptionScopeInstance) resolveContextInstance(ExceptionScope.EXCEPTION_SCOPE, exceptionName);
+            if (exceptionScopeInstance == null) {
+                throw new WorkflowRuntimeException(this, getProcessInstance(), "Unable to execute Action: " + e.getMessage(), e);
+            }
+            // workItemId must be set otherwise cancel activity will not find the right work item
+            this.workItemId = workItem.getId();
+            exceptionScopeInstance.handleException(exceptionName, e);
+        }
+    }
     
     protected WorkItem newWorkItem() {
         return new WorkItemImpl();
@@ -55,6 +55,8 @@ import org.kie.kogito.process.WorkItem;
 import org.kie.kogito.process.workitem.Policy;
 import org.kie.kogito.process.workitem.Transition;
 import org.kie.kogito.services.uow.ProcessInstanceWorkUnit;
+import org.kie.kogito.uow.UnitOfWork;
+import org.kie.kogito.uow.WorkUnit;
 
 public abstract class AbstractProcessInstance<T extends Model> implements ProcessInstance<T> {
 
@@ -161,7 +163,13 @@ public abstract class AbstractProcessInstance<T extends Model> implements Proces
     
     @SuppressWarnings({"unchecked", "rawtypes"})
     protected void addToUnitOfWork(Consumer<ProcessInstance<T>> action) {
-        ((InternalProcessRuntime) rt).getUnitOfWorkManager().currentUnitOfWork().intercept(new ProcessInstanceWorkUnit(this, action));
+        UnitOfWork unitOfWork = ((InternalProcessRuntime) rt).getUnitOfWorkManager().currentUnitOfWork();
+        unitOfWork.intercept(new ProcessInstanceWorkUnit(this, action));
+        // stores that defer writes need to be flushed after all process instance work
+        WorkUnit flushWork = process.instances.flushWork();
+        if (flushWork != null) {
+            unitOfWork.intercept(flushWork);
+        }
     }
 
     public void abort() {
@@ -15,12 +15,14 @@
 
 package org.kie.kogito.process.impl;
 
+import org.kie.api.runtime.process.WorkItemHandler;
 import org.kie.kogito.jobs.JobsService;
 import org.kie.kogito.process.ProcessConfig;
 import org.kie.kogito.process.ProcessEventListenerConfig;
 import org.kie.kogito.process.WorkItemHandlerConfig;
 import org.kie.kogito.signal.SignalManagerHub;
 import org.kie.kogito.uow.UnitOfWorkManager;
+import org.kie.kogito.uow.UnitOfWorkManagerAware;
 import org.kie.services.signal.DefaultSignalManagerHub;
 
 public class StaticProcessConfig implements ProcessConfig {
@@ -37,6 +39,15 @@ public class StaticProcessConfig implements ProcessConfig {
         this.processEventListenerConfig = processEventListenerConfig;
         this.signalManager = new DefaultSignalManagerHub();
         this.jobsService = jobsService;
+        // handlers completing work items on their own threads need the unit of work manager of the application
+        if (workItemHandlerConfig != null && unitOfWorkManager != null) {
+            for (String name : workItemHandlerConfig.names()) {
+                WorkItemHandler handler = workItemHandlerConfig.forName(name);
+                if (handler instanceof UnitOfWorkManagerAware) {
+                    ((UnitOfWorkManagerAware) handler).setUnitOfWorkManager(unitOfWorkManager);
+                }
+            }
+        }
     }
 
     @Override
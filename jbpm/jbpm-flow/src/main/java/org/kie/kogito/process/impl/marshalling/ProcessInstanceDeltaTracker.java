@@ -0,0 +1,152 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kogito.process.impl.marshalling;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jbpm.marshalling.impl.JBPMMessages;
+
+/**
+ * Tracks the persisted state of a process instance, so that only the variables and node instances
+ * changed since the last write need to be persisted.
+ * <p>
+ * Changes are detected by comparing the marshalled content with the persisted one, which also
+ * covers variables mutated in place. A delta is a regular process instance message that holds
+ * only changed variables and node instances, removed ones are recorded as tombstones holding
+ * just their name or id. All other fields of the process instance are always part of the delta.
+ */
+public class ProcessInstanceDeltaTracker {
+
+    private final Map<String, JBPMMessages.Variable> variables = new HashMap<>();
+    private final Map<String, JBPMMessages.ProcessInstance.NodeInstance> nodeInstances = new HashMap<>();
+    private int deltas;
+    private final String snapshotId;
+
+    public ProcessInstanceDeltaTracker(JBPMMessages.ProcessInstance persisted, int deltas, String snapshotId) {
+        persisted(persisted);
+        this.deltas = deltas;
+        this.snapshotId = snapshotId;
+    }
+
+    /**
+     * Returns the number of deltas written since the last full snapshot
+     * @return number of deltas
+     */
+    public int getDeltas() {
+        return deltas;
+    }
+
+    /**
+     * Returns the id of the full snapshot the deltas apply to
+     * @return snapshot id as computed by {@link ProcessInstanceMarshaller#snapshotId(byte[])}
+     */
+    public String getSnapshotId() {
+        return snapshotId;
+    }
+
+    /**
+     * Computes the delta between the persisted state and given one, which becomes the persisted state.
+     * @param current full process instance message
+     * @return delta message holding only changed variables and node instances
+     */
+    public JBPMMessages.ProcessInstance delta(JBPMMessages.ProcessInstance current) {
+        JBPMMessages.ProcessInstance.Builder _delta = current.toBuilder()
+                .clearVariable()
+                .clearNodeInstance();
+
+        Map<String, JBPMMessages.Variable> removedVariables = new HashMap<>(variables);
+        for (JBPMMessages.Variable _variable : current.getVariableList()) {
+            if (!_variable.equals(removedVariables.remove(_variable.getName()))) {
+                _delta.addVariable(_variable);
+            }
+        }
+        for (String name : removedVariables.keySet()) {
+            _delta.addVariable(JBPMMessages.Variable.newBuilder().setName(name));
+        }
+
+        Map<String, JBPMMessages.ProcessInstance.NodeInstance> removedNodeInstances = new HashMap<>(nodeInstances);
+        for (JBPMMessages.ProcessInstance.NodeInstance _node : current.getNodeInstanceList()) {
+            if (!_node.equals(removedNodeInstances.remove(_node.getId()))) {
+                _delta.addNodeInstance(_node);
+            }
+        }
+        for (String id : removedNodeInstances.keySet()) {
+            _delta.addNodeInstance(JBPMMessages.ProcessInstance.NodeInstance.newBuilder().setId(id));
+        }
+
+        persisted(current);
+        deltas++;
+        return _delta.build();
+    }
+
+    /**
+     * Applies delta on top of given process instance message
+     * @param base snapshot or result of previously applied deltas
+     * @param delta delta to apply
+     * @return full process instance message
+     */
+    public static JBPMMessages.ProcessInstance apply(JBPMMessages.ProcessInstance base, JBPMMessages.ProcessInstance delta) {
+        Map<String, JBPMMessages.Variable> mergedVariables = new LinkedHashMap<>();
+        for (JBPMMessages.Variable _variable : base.getVariableList()) {
+            mergedVariables.put(_variable.getName(), _variable);
+        }
+        for (JBPMMessages.Variable _variable : delta.getVariableList()) {
+            if (_variable.hasValue()) {
+                mergedVariables.put(_variable.getName(), _variable);
+            } else {
+                mergedVariables.remove(_variable.getName());
+            }
+        }
+
+        Map<String, JBPMMessages.ProcessInstance.NodeInstance> mergedNodeInstances = new LinkedHashMap<>();
+        for (JBPMMessages.ProcessInstance.NodeInstance _node : base.getNodeInstanceList()) {
+            mergedNodeInstances.put(_node.getId(), _node);
+        }
+        for (JBPMMessages.ProcessInstance.NodeInstance _node : delta.getNodeInstanceList()) {
+            if (_node.hasContent()) {
+                mergedNodeInstances.put(_node.getId(), _node);
+            } else {
+                mergedNodeInstances.remove(_node.getId());
+            }
+        }
+        // same order as written in full snapshots
+        List<JBPMMessages.ProcessInstance.NodeInstance> sortedNodeInstances = new ArrayList<>(mergedNodeInstances.values());
+        sortedNodeInstances.sort((o1, o2) -> o1.getId().compareTo(o2.getId()));
+
+        return delta.toBuilder()
+                .clearVariable()
+                .addAllVariable(mergedVariables.values())
+                .clearNodeInstance()
+                .addAllNodeInstance(sortedNodeInstances)
+                .build();
+    }
+
+    private void persisted(JBPMMessages.ProcessInstance persisted) {
+        variables.clear();
+        for (JBPMMessages.Variable _variable : persisted.getVariableList()) {
+            variables.put(_variable.getName(), _variable);
+        }
+        nodeInstances.clear();
+        for (JBPMMessages.ProcessInstance.NodeInstance _node : persisted.getNodeInstanceList()) {
+            nodeInstances.put(_node.getId(), _node);
+        }
+    }
+}
@@ -17,14 +17,25 @@ package org.kie.kogito.process.impl.marshalling;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.io.ObjectStreamConstants;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collections;
+import java.util.List;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.ExtensionRegistry;
 
 import org.drools.core.impl.EnvironmentImpl;
 import org.drools.core.marshalling.impl.ClassObjectMarshallingStrategyAcceptor;
 import org.drools.core.marshalling.impl.MarshallerReaderContext;
 import org.drools.core.marshalling.impl.PersisterHelper;
 import org.drools.core.marshalling.impl.ProcessMarshallerWriteContext;
+import org.drools.core.marshalling.impl.ProtobufMessages;
 import org.drools.core.marshalling.impl.SerializablePlaceholderResolverStrategy;
 import org.jbpm.marshalling.impl.JBPMMessages;
 import org.jbpm.marshalling.impl.ProcessMarshallerRegistry;
@@ -40,9 +51,36 @@ import org.kie.kogito.process.ProcessInstance;
 import org.kie.kogito.process.impl.AbstractProcess;
 import org.kie.kogito.process.impl.AbstractProcessInstance;
 
+/**
+ * Marshalls process instances to and from bytes.
+ * <p>
+ * Process instances are written in a lean format: a leading format version byte, the process type
+ * and the protobuf header, encoded directly into an exactly sized array without going through
+ * object stream framing. Data written in the legacy object stream format (which always starts with
+ * the object stream magic number) can still be read.
+ * Setting the {@value #LEGACY_FORMAT_PROPERTY} system property to {@code true} keeps writing the legacy format.
+ * <p>
+ * Process instances written or read in the lean format track their persisted state, so that
+ * {@link #marshallProcessInstanceDelta(ProcessInstance)} can write only what changed since then.
+ * Deltas use their own format version and are read back by giving the snapshot followed by all
+ * its deltas to {@link #unmarshallProcessInstance(List, Process)}. Stores can tell which snapshot the deltas
+ * of a process instance apply to by comparing {@link #baseSnapshotId(ProcessInstance)} with the
+ * {@link #snapshotId(byte[])} of the stored snapshot.
+ */
 public class ProcessInstanceMarshaller {
-    
+
+    public static final byte LEAN_FORMAT_VERSION = 2;
+    public static final byte DELTA_FORMAT_VERSION = 3;
+    public static final String LEGACY_FORMAT_PROPERTY = "org.kie.kogito.marshalling.legacy";
+
+    // object stream header required to build marshaller contexts, the lean format does not read from it
+    private static final byte[] EMPTY_OBJECT_STREAM = new byte[]{
+            (byte) (ObjectStreamConstants.STREAM_MAGIC >>> 8), (byte) ObjectStreamConstants.STREAM_MAGIC,
+            (byte) (ObjectStreamConstants.STREAM_VERSION >>> 8), (byte) ObjectStreamConstants.STREAM_VERSION};
+
     private Environment env = new EnvironmentImpl();
+    private final ObjectMarshallingStrategy[] strategies;
+    private final boolean legacyFormat = Boolean.getBoolean(LEGACY_FORMAT_PROPERTY);
     
     public ProcessInstanceMarshaller(ObjectMarshallingStrategy... strategies) {
         ObjectMarshallingStrategy[] strats = null;
@@ -58,12 +96,20 @@ public class ProcessInstanceMarshaller {
             strats[i] = new SerializablePlaceholderResolverStrategy( ClassObjectMarshallingStrategyAcceptor.DEFAULT  );
         }
         
+        this.strategies = strats;
         env.set( EnvironmentName.OBJECT_MARSHALLING_STRATEGIES, strats );
     }
 
     public byte[] marhsallProcessInstance(ProcessInstance<?> processInstance) {
         
         org.kie.api.runtime.process.ProcessInstance legacyProcessInstance = ((AbstractProcessInstance<?>) processInstance).internalGetProcessInstance();
+        if (!legacyFormat) {
+            byte[] data = marshallLean(legacyProcessInstance, false);
+            if (data != null) {
+                return data;
+            }
+        }
+        ((WorkflowProcessInstanceImpl) legacyProcessInstance).setDeltaTracker(null);
         
         try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
         
@@ -95,6 +141,121 @@ public class ProcessInstanceMarshaller {
             throw new RuntimeException("Error while marshalling process instance", e);
         }
     }
+
+    /**
+     * Writes only the changes of the process instance since it was last marshalled or unmarshalled.
+     * Must only be used when {@link #deltaCount(ProcessInstance)} is not negative.
+     * @param processInstance process instance to marshall
+     * @return delta of the process instance
+     */
+    public byte[] marshallProcessInstanceDelta(ProcessInstance<?> processInstance) {
+        if (deltaCount(processInstance) < 0) {
+            throw new IllegalStateException("Changes of process instance " + processInstance.id() + " are not tracked");
+        }
+        return marshallLean(((AbstractProcessInstance<?>) processInstance).internalGetProcessInstance(), true);
+    }
+
+    /**
+     * Returns the number of deltas marshalled since the last full snapshot of the process instance
+     * @param processInstance process instance
+     * @return number of deltas, or -1 when changes of the process instance are not tracked and it must be fully marshalled
+     */
+    public int deltaCount(ProcessInstance<?> processInstance) {
+        org.kie.api.runtime.process.ProcessInstance legacyProcessInstance = ((AbstractProcessInstance<?>) processInstance).internalGetProcessInstance();
+        if (legacyFormat || legacyProcessInstance == null) {
+            return -1;
+        }
+        ProcessInstanceDeltaTracker tracker = ((WorkflowProcessInstanceImpl) legacyProcessInstance).getDeltaTracker();
+        return tracker == null ? -1 : tracker.getDeltas();
+    }
+
+    /**
+     * Returns the id of the snapshot the next delta of the process instance applies to
+     * @param processInstance process instance
+     * @return snapshot id, or null when changes of the process instance are not tracked
+     */
+    public String baseSnapshotId(ProcessInstance<?> processInstance) {
+        org.kie.api.runtime.process.ProcessInstance legacyProcessInstance = ((AbstractProcessInstance<?>) processInstance).internalGetProcessInstance();
+        if (legacyFormat || legacyProcessInstance == null) {
+            return null;
+        }
+        ProcessInstanceDeltaTracker tracker = ((WorkflowProcessInstanceImpl) legacyProcessInstance).getDeltaTracker();
+        return tracker == null ? null : tracker.getSnapshotId();
+    }
+
+    /**
+     * Computes the id of a marshalled snapshot, derived from its content
+     * @param snapshot marshalled snapshot
+     * @return hex encoded id
+     */
+    public static String snapshotId(byte[] snapshot) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(snapshot);
+            StringBuilder id = new StringBuilder(16);
+            for (int i = 0; i < 8; i++) {
+                id.append(Character.forDigit((digest[i] >> 4) & 0xF, 16)).append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return id.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes the process instance in the lean format, returns {@code null} when the process type
+     * is not backed by a protobuf marshaller and the legacy format must be used instead.
+     */
+    protected byte[] marshallLean(org.kie.api.runtime.process.ProcessInstance legacyProcessInstance, boolean delta) {
+        String processType = ((ProcessInstanceImpl) legacyProcessInstance).getProcess().getType();
+        org.jbpm.marshalling.impl.ProcessInstanceMarshaller marshaller = ProcessMarshallerRegistry.INSTANCE.getMarshaller( processType );
+        if ( !(marshaller instanceof ProtobufRuleFlowProcessInstanceMarshaller) ) {
+            return null;
+        }
+        try {
+            ProcessMarshallerWriteContext context = new ProcessMarshallerWriteContext( DiscardingOutputStream.INSTANCE,
+                                                                                   null,
+                                                                                   null,
+                                                                                   null,
+                                                                                   null,
+                                                                                   this.env );
+            context.setProcessInstanceId(legacyProcessInstance.getId());
+            context.setState(legacyProcessInstance.getState());
+            // register all strategies up front so their indexes are the same in snapshots and deltas
+            for (ObjectMarshallingStrategy strategy : strategies) {
+                context.getStrategyIndex( strategy );
+            }
+
+            JBPMMessages.ProcessInstance _instance = (JBPMMessages.ProcessInstance) marshaller.writeProcessInstance( context,
+                                                                                                                   legacyProcessInstance);
+            WorkflowProcessInstanceImpl workflowProcessInstance = (WorkflowProcessInstanceImpl) legacyProcessInstance;
+            ProcessInstanceDeltaTracker tracker = workflowProcessInstance.getDeltaTracker();
+            byte version = LEAN_FORMAT_VERSION;
+            JBPMMessages.ProcessInstance _snapshot = null;
+            if (delta && tracker != null) {
+                _instance = tracker.delta( _instance );
+                version = DELTA_FORMAT_VERSION;
+            } else {
+                _snapshot = _instance;
+            }
+            ProtobufMessages.Header _header = PersisterHelper.buildHeader( context, _instance );
+            context.close();
+
+            byte[] data = new byte[1 + CodedOutputStream.computeStringSizeNoTag( processType ) + _header.getSerializedSize()];
+            data[0] = version;
+            CodedOutputStream output = CodedOutputStream.newInstance( data, 1, data.length - 1 );
+            output.writeStringNoTag( processType );
+            _header.writeTo( output );
+            output.checkNoSpaceLeft();
+
+            if (_snapshot != null) {
+                workflowProcessInstance.setDeltaTracker( new ProcessInstanceDeltaTracker( _snapshot, 0, snapshotId( data ) ) );
+            }
+            workflowProcessInstance.disconnect();
+            return data;
+        } catch (Exception e) {
+            throw new RuntimeException("Error while marshalling process instance", e);
+        }
+    }
     
     public ProcessInstance<?> unmarshallProcessInstance(byte[] data, Process<?> process) {
         
@@ -105,6 +266,9 @@ public class ProcessInstanceMarshaller {
     }
     
     public ProcessInstance<?> unmarshallProcessInstance(byte[] data, Process<?> process, AbstractProcessInstance<?> processInstance) {
+        if (data.length > 0 && data[0] == LEAN_FORMAT_VERSION) {
+            return unmarshallLean(Collections.singletonList(data), process, processInstance);
+        }
         
         org.kie.api.runtime.process.ProcessInstance legacyProcessInstance = null;
         try (ByteArrayInputStream bais = new ByteArrayInputStream( data )) {
@@ -131,4 +295,101 @@ public class ProcessInstanceMarshaller {
             throw new RuntimeException("Error while unmarshalling process instance", e);
         }
     }
+
+    /**
+     * Reads process instance from its snapshot followed by the deltas written after it, in order.
+     * @param parts snapshot and deltas of the process instance
+     * @param process process of the instance
+     * @return unmarshalled process instance
+     */
+    public ProcessInstance<?> unmarshallProcessInstance(List<byte[]> parts, Process<?> process) {
+
+        Model m = (Model) process.createModel();
+        AbstractProcessInstance<?> processInstance = (AbstractProcessInstance<?>) process.createInstance(m);
+
+        return unmarshallProcessInstance(parts, process, processInstance);
+    }
+
+    public ProcessInstance<?> unmarshallProcessInstance(List<byte[]> parts, Process<?> process, AbstractProcessInstance<?> processInstance) {
+        if (parts.size() == 1) {
+            return unmarshallProcessInstance(parts.get(0), process, processInstance);
+        }
+        return unmarshallLean(parts, process, processInstance);
+    }
+
+    protected ProcessInstance<?> unmarshallLean(List<byte[]> parts, Process<?> process, AbstractProcessInstance<?> processInstance) {
+        try {
+            MarshallerReaderContext context = new MarshallerReaderContext( new ByteArrayInputStream( EMPTY_OBJECT_STREAM ),
+                                                                           Collections.singletonMap(process.id(), ((AbstractProcess<?>)process).legacyProcess()),
+                                                                           null,
+                                                                           null,
+                                                                           null,
+                                                                           this.env
+                                                                          );
+            ExtensionRegistry registry = PersisterHelper.buildRegistry( context, null );
+            String processInstanceType = null;
+            JBPMMessages.ProcessInstance _instance = null;
+            boolean trackable = true;
+            for (int i = 0; i < parts.size(); i++) {
+                byte[] data = parts.get(i);
+                byte expectedVersion = i == 0 ? LEAN_FORMAT_VERSION : DELTA_FORMAT_VERSION;
+                if (data.length == 0 || data[0] != expectedVersion) {
+                    throw new IllegalArgumentException("Unexpected format of process instance data at position " + i);
+                }
+                CodedInputStream input = CodedInputStream.newInstance( data, 1, data.length - 1 );
+                processInstanceType = input.readStringRequireUtf8();
+
+                ProtobufMessages.Header _header = PersisterHelper.readFromInputWithHeader( context, input, registry );
+                trackable &= hasStableStrategyIndexes( _header );
+                JBPMMessages.ProcessInstance _part = JBPMMessages.ProcessInstance.parseFrom( _header.getPayload(), registry );
+                _instance = _instance == null ? _part : ProcessInstanceDeltaTracker.apply( _instance, _part );
+            }
+            if (!trackable && parts.size() > 1) {
+                throw new IllegalStateException("Process instance deltas were written with different marshalling strategies");
+            }
+
+            org.jbpm.marshalling.impl.ProcessInstanceMarshaller marshaller = ProcessMarshallerRegistry.INSTANCE.getMarshaller( processInstanceType );
+            context.parameterObject = _instance;
+
+            org.kie.api.runtime.process.ProcessInstance legacyProcessInstance = marshaller.readProcessInstance(context);
+
+            context.close();
+            if (trackable) {
+                ((WorkflowProcessInstanceImpl) legacyProcessInstance).setDeltaTracker( new ProcessInstanceDeltaTracker( _instance, parts.size() - 1, snapshotId( parts.get(0) ) ) );
+            }
+
+            processInstance.internalSetProcessInstance(legacyProcessInstance);
+
+            return processInstance;
+        } catch (Exception e) {
+            throw new RuntimeException("Error while unmarshalling process instance", e);
+        }
+    }
+
+    private boolean hasStableStrategyIndexes(ProtobufMessages.Header _header) {
+        if (_header.getStrategyCount() != strategies.length) {
+            return false;
+        }
+        for (ProtobufMessages.Header.StrategyIndex _entry : _header.getStrategyList()) {
+            if (_entry.getId() >= strategies.length || !strategies[_entry.getId()].getName().equals( _entry.getName() )) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class DiscardingOutputStream extends OutputStream {
+
+        private static final DiscardingOutputStream INSTANCE = new DiscardingOutputStream();
+
+        @Override
+        public void write(int b) throws IOException {
+            // nothing is written to the object stream in the lean format
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            // nothing is written to the object stream in the lean format
+        }
+    }
 }
@@ -16,16 +16,39 @@
 
 package org.jbpm.process;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.drools.core.common.InternalKnowledgeRuntime;
 import org.jbpm.process.core.datatype.impl.type.ObjectDataType;
+import org.jbpm.process.instance.InternalProcessRuntime;
+import org.jbpm.process.instance.ParallelWorkItemExecution;
+import org.jbpm.ruleflow.core.RuleFlowProcess;
 import org.jbpm.ruleflow.core.RuleFlowProcessFactory;
 import org.jbpm.test.util.AbstractBaseTest;
+import org.jbpm.workflow.core.node.ForEachNode;
 import org.junit.jupiter.api.Test;
 import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.process.ProcessInstance;
+import org.kie.api.runtime.process.WorkItem;
+import org.kie.api.runtime.process.WorkItemHandler;
+import org.kie.api.runtime.process.WorkItemManager;
+import org.kie.kogito.uow.UnitOfWork;
+import org.kie.kogito.uow.UnitOfWorkManager;
+import org.kie.kogito.uow.WorkUnit;
 import org.slf4j.LoggerFactory;
 
 public class ForEachTest extends AbstractBaseTest {
@@ -91,4 +114,217 @@ public class ForEachTest extends AbstractBaseTest {
         ksession.startProcess("ParentProcess", parameters);
     }
 
+    @Test
+    public void testParallelWorkItems() {
+        RuleFlowProcessFactory factory = RuleFlowProcessFactory.createProcess("ParallelProcess");
+        factory.variable("list", new ObjectDataType("java.util.List"));
+        factory.variable("listOut", new ObjectDataType("java.util.List"));
+        factory.name("Parallel Process");
+        factory.packageName("org.drools.bpmn2");
+        factory.dynamic(false);
+        factory.version("1.0");
+        factory.visibility("Private");
+        factory.startNode(1).name("StartProcess").done();
+        org.jbpm.ruleflow.core.factory.ForEachNodeFactory forEachNode2 = factory.forEachNode(2);
+        forEachNode2.metaData("UniqueId", "_2");
+        forEachNode2.metaData(ParallelWorkItemExecution.PARALLEL_METADATA, "true");
+        forEachNode2.metaData(ParallelWorkItemExecution.PARALLEL_LIMIT_METADATA, "2");
+        forEachNode2.collectionExpression("list");
+        forEachNode2.variable("x", new ObjectDataType("java.lang.String"));
+        forEachNode2.outputCollectionExpression("listOut");
+        forEachNode2.outputVariable("y", new ObjectDataType("java.lang.String"));
+
+        forEachNode2.workItemNode(5).name("Task").workName("Task").inMapping("Input", "x").outMapping("Output", "y").done();
+        forEachNode2.linkIncomingConnections(5);
+        forEachNode2.linkOutgoingConnections(5);
+
+        forEachNode2.done();
+        factory.endNode(3).name("EndProcess").terminate(true).done();
+        factory.connection(1, 2, "_1-_2");
+        factory.connection(2, 3, "_2-_3");
+        factory.validate();
+
+        Thread caller = Thread.currentThread();
+        Set<Thread> handlerThreads = ConcurrentHashMap.newKeySet();
+        KieSession ksession = createKieSession(factory.getProcess());
+        ksession.getWorkItemManager().registerWorkItemHandler("Task", new WorkItemHandler() {
+
+            @Override
+            public void executeWorkItem(WorkItem workItem, WorkItemManager manager) {
+                handlerThreads.add(Thread.currentThread());
+                manager.completeWorkItem(workItem.getId(), Collections.singletonMap("Output", workItem.getParameter("Input") + "-done"));
+            }
+
+            @Override
+            public void abortWorkItem(WorkItem workItem, WorkItemManager manager) {
+            }
+        });
+
+        List<String> listOut = new ArrayList<String>();
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("list", Arrays.asList("first", "second", "third"));
+        parameters.put("listOut", listOut);
+
+        ProcessInstance processInstance = ksession.startProcess("ParallelProcess", parameters);
+
+        assertEquals(ProcessInstance.STATE_COMPLETED, processInstance.getState());
+        assertEquals(Arrays.asList("first-done", "second-done", "third-done"), listOut);
+        assertFalse(handlerThreads.contains(caller));
+    }
+
+    @Test
+    public void testParallelWorkItemsInUnitOfWork() {
+        RuleFlowProcessFactory factory = RuleFlowProcessFactory.createProcess("ParallelProcess");
+        factory.variable("list", new ObjectDataType("java.util.List"));
+        factory.variable("listOut", new ObjectDataType("java.util.List"));
+        factory.name("Parallel Process");
+        factory.packageName("org.drools.bpmn2");
+        factory.dynamic(false);
+        factory.version("1.0");
+        factory.visibility("Private");
+        factory.startNode(1).name("StartProcess").done();
+        org.jbpm.ruleflow.core.factory.ForEachNodeFactory forEachNode2 = factory.forEachNode(2);
+        forEachNode2.metaData("UniqueId", "_2");
+        // metadata given as typed values rather than strings
+        forEachNode2.metaData(ParallelWorkItemExecution.PARALLEL_METADATA, Boolean.TRUE);
+        forEachNode2.metaData(ParallelWorkItemExecution.PARALLEL_LIMIT_METADATA, 2);
+        forEachNode2.collectionExpression("list");
+        forEachNode2.variable("x", new ObjectDataType("java.lang.String"));
+        forEachNode2.outputCollectionExpression("listOut");
+        forEachNode2.outputVariable("y", new ObjectDataType("java.lang.String"));
+
+        forEachNode2.workItemNode(5).name("Task").workName("Task").inMapping("Input", "x").outMapping("Output", "y").done();
+        forEachNode2.linkIncomingConnections(5);
+        forEachNode2.linkOutgoingConnections(5);
+
+        forEachNode2.done();
+        factory.endNode(3).name("EndProcess").terminate(true).done();
+        factory.connection(1, 2, "_1-_2");
+        factory.connection(2, 3, "_2-_3");
+        factory.validate();
+
+        KieSession ksession = createKieSession(factory.getProcess());
+        UnitOfWorkManager unitOfWorkManager = ((InternalProcessRuntime) ((InternalKnowledgeRuntime) ksession).getProcessRuntime()).getUnitOfWorkManager();
+        Thread caller = Thread.currentThread();
+        Set<Thread> handlerThreads = ConcurrentHashMap.newKeySet();
+        List<String> performed = Collections.synchronizedList(new ArrayList<>());
+        ksession.getWorkItemManager().registerWorkItemHandler("Task", new WorkItemHandler() {
+
+            @Override
+            public void executeWorkItem(WorkItem workItem, WorkItemManager manager) {
+                handlerThreads.add(Thread.currentThread());
+                Object input = workItem.getParameter("Input");
+                // work of the handler belongs to the unit of work of the caller
+                unitOfWorkManager.currentUnitOfWork().intercept(new WorkUnit<Object>() {
+
+                    @Override
+                    public Object data() {
+                        return input;
+                    }
+
+                    @Override
+                    public void perform() {
+                        performed.add(input + "-performed");
+                    }
+                });
+                manager.completeWorkItem(workItem.getId(), Collections.singletonMap("Output", input + "-done"));
+            }
+
+            @Override
+            public void abortWorkItem(WorkItem workItem, WorkItemManager manager) {
+            }
+        });
+
+        List<String> listOut = new ArrayList<String>();
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("list", Arrays.asList("first", "second", "third"));
+        parameters.put("listOut", listOut);
+
+        UnitOfWork unitOfWork = unitOfWorkManager.newUnitOfWork();
+        unitOfWork.start();
+        ProcessInstance processInstance = ksession.startProcess("ParallelProcess", parameters);
+        assertEquals(ProcessInstance.STATE_COMPLETED, processInstance.getState());
+        assertEquals(Arrays.asList("first-done", "second-done", "third-done"), listOut);
+        assertFalse(handlerThreads.contains(caller));
+        // nothing performed until the unit of work ends
+        assertTrue(performed.isEmpty());
+
+        unitOfWork.end();
+        assertEquals(Arrays.asList("first-performed", "second-performed", "third-performed"), performed);
+    }
+
+    @Test
+    public void testCollectionAndCompletionExpressions() {
+        RuleFlowProcessFactory factory = RuleFlowProcessFactory.createProcess("ExpressionProcess");
+        factory.variable("list", new ObjectDataType("java.util.List"));
+        factory.variable("listOut", new ObjectDataType("java.util.List"));
+        factory.name("Expression Process");
+        factory.packageName("org.drools.bpmn2");
+        factory.dynamic(false);
+        factory.version("1.0");
+        factory.visibility("Private");
+        factory.startNode(1).name("StartProcess").done();
+        org.jbpm.ruleflow.core.factory.ForEachNodeFactory forEachNode2 = factory.forEachNode(2);
+        forEachNode2.metaData("UniqueId", "_2");
+        // not a variable name, so evaluated as an expression
+        forEachNode2.collectionExpression("list.subList(1, list.size())");
+        forEachNode2.variable("x", new ObjectDataType("java.lang.String"));
+        forEachNode2.outputCollectionExpression("listOut");
+        forEachNode2.outputVariable("y", new ObjectDataType("java.lang.String"));
+
+        forEachNode2.workItemNode(5).name("Task").workName("Task").inMapping("Input", "x").outMapping("Output", "y").done();
+        forEachNode2.linkIncomingConnections(5);
+        forEachNode2.linkOutgoingConnections(5);
+
+        forEachNode2.done();
+        factory.endNode(3).name("EndProcess").terminate(true).done();
+        factory.connection(1, 2, "_1-_2");
+        factory.connection(2, 3, "_2-_3");
+        factory.validate();
+
+        RuleFlowProcess process = factory.getProcess();
+        ForEachNode forEachNode = (ForEachNode) process.getNode(2);
+        forEachNode.setCompletionConditionExpression("listOut.size() >= 2");
+
+        List<WorkItem> workItems = new ArrayList<>();
+        KieSession ksession = createKieSession(process);
+        ksession.getWorkItemManager().registerWorkItemHandler("Task", new WorkItemHandler() {
+
+            @Override
+            public void executeWorkItem(WorkItem workItem, WorkItemManager manager) {
+                workItems.add(workItem);
+            }
+
+            @Override
+            public void abortWorkItem(WorkItem workItem, WorkItemManager manager) {
+            }
+        });
+
+        // every instance evaluates the expressions compiled once by the node
+        for (List<String> list : Arrays.asList(Arrays.asList("first", "second", "third", "fourth"), Arrays.asList("fifth", "sixth", "seventh"))) {
+            workItems.clear();
+            List<String> listOut = new ArrayList<String>();
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put("list", list);
+            parameters.put("listOut", listOut);
+
+            ProcessInstance processInstance = ksession.startProcess("ExpressionProcess", parameters);
+            assertEquals(list.size() - 1, workItems.size());
+
+            ksession.getWorkItemManager().completeWorkItem(workItems.get(0).getId(), Collections.singletonMap("Output", workItems.get(0).getParameter("Input") + "-done"));
+            assertEquals(ProcessInstance.STATE_ACTIVE, processInstance.getState());
+            ksession.getWorkItemManager().completeWorkItem(workItems.get(1).getId(), Collections.singletonMap("Output", workItems.get(1).getParameter("Input") + "-done"));
+
+            assertEquals(ProcessInstance.STATE_COMPLETED, processInstance.getState());
+            assertEquals(Arrays.asList(list.get(1) + "-done", list.get(2) + "-done"), listOut);
+        }
+
+        assertSame(forEachNode.getCompiledCollectionExpression(), forEachNode.getCompiledCollectionExpression());
+        assertSame(forEachNode.getCompiledCompletionConditionExpression(), forEachNode.getCompiledCompletionConditionExpression());
+
+        // changing an expression drops its compiled form
+        Serializable compiled = forEachNode.getCompiledCollectionExpression();
+        forEachNode.setCollectionExpression("list");
+        assertNotSame(compiled, forEachNode.getCompiledCollectionExpression());
+    }
 }
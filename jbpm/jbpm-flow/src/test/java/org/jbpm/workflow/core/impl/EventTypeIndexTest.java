@@ -0,0 +1,98 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workflow.core.impl;
+
+import org.jbpm.process.core.event.BroadcastEventTypeFilter;
+import org.jbpm.process.core.event.EventTypeFilter;
+import org.jbpm.ruleflow.core.RuleFlowProcess;
+import org.jbpm.workflow.core.node.ActionNode;
+import org.jbpm.workflow.core.node.BoundaryEventNode;
+import org.jbpm.workflow.core.node.CompositeContextNode;
+import org.jbpm.workflow.core.node.EventNode;
+import org.jbpm.workflow.core.node.EventSubProcessNode;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EventTypeIndexTest {
+
+    @Test
+    public void testNodesIndexedByStaticEventType() {
+        RuleFlowProcess process = new RuleFlowProcess();
+        EventNode signal = eventNode(1, new EventTypeFilter(), "signal");
+        ActionNode action = new ActionNode();
+        action.setId(2);
+        EventSubProcessNode subProcess = new EventSubProcessNode();
+        subProcess.setId(3);
+        subProcess.addEvent(filter(new EventTypeFilter(), "Message-order"));
+        CompositeContextNode composite = new CompositeContextNode();
+        composite.setId(4);
+        composite.addNode(eventNode(5, new EventTypeFilter(), "nested"));
+        process.addNode(signal);
+        process.addNode(action);
+        process.addNode(subProcess);
+        process.addNode(composite);
+
+        EventTypeIndex index = process.getEventTypeIndex();
+        assertThat(index.getNodes("signal")).containsExactly(signal);
+        assertThat(index.getNodes("Message-order")).containsExactly(subProcess);
+        assertThat(index.getNodes("nested")).containsExactly(composite);
+        assertThat(index.getNodes("unknown")).isEmpty();
+    }
+
+    @Test
+    public void testRuntimeResolvedNodesReturnedForAnyEventType() {
+        RuleFlowProcess process = new RuleFlowProcess();
+        EventNode signal = eventNode(1, new EventTypeFilter(), "signal");
+        BoundaryEventNode boundary = new BoundaryEventNode();
+        boundary.setId(2);
+        boundary.addEventFilter(filter(new EventTypeFilter(), "Message-#{customerId}"));
+        EventNode escalation = eventNode(3, new BroadcastEventTypeFilter(), "Escalation");
+        EventNode other = eventNode(4, new EventTypeFilter(), "other");
+        process.addNode(signal);
+        process.addNode(boundary);
+        process.addNode(escalation);
+        process.addNode(other);
+
+        EventTypeIndex index = process.getEventTypeIndex();
+        assertThat(index.getNodes("signal")).containsExactly(signal, boundary, escalation);
+        assertThat(index.getNodes("other")).containsExactly(boundary, escalation, other);
+        assertThat(index.getNodes("Message-123")).containsExactly(boundary, escalation);
+    }
+
+    @Test
+    public void testIndexRebuiltWhenNodesChange() {
+        RuleFlowProcess process = new RuleFlowProcess();
+        EventNode signal = eventNode(1, new EventTypeFilter(), "signal");
+        process.addNode(signal);
+        assertThat(process.getEventTypeIndex().getNodes("signal")).containsExactly(signal);
+
+        process.removeNode(signal);
+        assertThat(process.getEventTypeIndex().getNodes("signal")).isEmpty();
+    }
+
+    private EventNode eventNode(long id, EventTypeFilter filter, String type) {
+        EventNode node = new EventNode();
+        node.setId(id);
+        node.addEventFilter(filter(filter, type));
+        return node;
+    }
+
+    private EventTypeFilter filter(EventTypeFilter filter, String type) {
+        filter.setType(type);
+        return filter;
+    }
+}
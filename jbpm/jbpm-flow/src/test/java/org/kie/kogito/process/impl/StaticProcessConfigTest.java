@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.process.impl;
+
+import org.junit.jupiter.api.Test;
+import org.kie.api.runtime.process.WorkItem;
+import org.kie.api.runtime.process.WorkItemHandler;
+import org.kie.api.runtime.process.WorkItemManager;
+import org.kie.kogito.services.uow.CollectingUnitOfWorkFactory;
+import org.kie.kogito.services.uow.DefaultUnitOfWorkManager;
+import org.kie.kogito.uow.UnitOfWorkManager;
+import org.kie.kogito.uow.UnitOfWorkManagerAware;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class StaticProcessConfigTest {
+
+    @Test
+    public void testUnitOfWorkManagerSetOnAwareHandlers() {
+        UnitOfWorkAwareHandler handler = new UnitOfWorkAwareHandler();
+        CachedWorkItemHandlerConfig handlers = new DefaultWorkItemHandlerConfig().register("Async", handler);
+        UnitOfWorkManager unitOfWorkManager = new DefaultUnitOfWorkManager(new CollectingUnitOfWorkFactory());
+
+        new StaticProcessConfig(handlers, new DefaultProcessEventListenerConfig(), unitOfWorkManager, null);
+
+        assertSame(unitOfWorkManager, handler.unitOfWorkManager);
+    }
+
+    private static class UnitOfWorkAwareHandler implements WorkItemHandler, UnitOfWorkManagerAware {
+
+        private UnitOfWorkManager unitOfWorkManager;
+
+        @Override
+        public void setUnitOfWorkManager(UnitOfWorkManager unitOfWorkManager) {
+            this.unitOfWorkManager = unitOfWorkManager;
+        }
+
+        @Override
+        public void executeWorkItem(WorkItem workItem, WorkItemManager manager) {
+        }
+
+        @Override
+        public void abortWorkItem(WorkItem workItem, WorkItemManager manager) {
+        }
+    }
+}
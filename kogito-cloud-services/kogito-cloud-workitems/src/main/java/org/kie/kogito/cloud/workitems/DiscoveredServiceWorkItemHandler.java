@@ -22,40 +22,64 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.util.StdDateFormat;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Request.Builder;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okio.BufferedSink;
 import org.kie.api.runtime.process.WorkItem;
 import org.kie.api.runtime.process.WorkItemHandler;
+import org.kie.api.runtime.process.WorkItemManager;
 import org.kie.kogito.cloud.kubernetes.client.DefaultKogitoKubeClient;
 import org.kie.kogito.cloud.kubernetes.client.KogitoKubeClient;
+import org.kie.kogito.cloud.workitems.service.discovery.CachingServiceDiscovery;
 import org.kie.kogito.cloud.workitems.service.discovery.ServiceDiscovery;
 import org.kie.kogito.cloud.workitems.service.discovery.ServiceDiscoveryFactory;
+import org.kie.kogito.services.uow.UnitOfWorkExecutor;
+import org.kie.kogito.uow.UnitOfWorkManager;
+import org.kie.kogito.uow.UnitOfWorkManagerAware;
+import org.kie.kogito.uow.WorkUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public abstract class DiscoveredServiceWorkItemHandler implements WorkItemHandler {
+public abstract class DiscoveredServiceWorkItemHandler implements WorkItemHandler, UnitOfWorkManagerAware {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DiscoveredServiceWorkItemHandler.class);
 
     protected static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
     protected static final List<String> INTERNAL_FIELDS = Arrays.asList("TaskName", "ActorId", "GroupId", "Priority", "Comment", "Skippable", "Content", "Model", "Namespace");
 
+    public static final int DEFAULT_MAX_CONCURRENT_CALLS_PER_SERVICE = 64;
+
+    private static final int COMPLETION_LOCKS = 64;
+
     private Map<String, ServiceInfo> serviceEndpoints;
+    private Map<String, ServiceCallQueue> serviceCalls = new ConcurrentHashMap<>();
+    private Map<String, AsyncCall> asyncCalls = new ConcurrentHashMap<>();
+    // work items of the same process instance are completed one at a time, whatever the http client thread
+    private final Object[] completionLocks = new Object[COMPLETION_LOCKS];
 
     private OkHttpClient http;
     private ObjectMapper mapper;
     private ServiceDiscovery serviceDiscovery;
     private KogitoKubeClient kubeClient;
+    private UnitOfWorkManager unitOfWorkManager;
+    private int maxConcurrentCallsPerService = DEFAULT_MAX_CONCURRENT_CALLS_PER_SERVICE;
 
     public DiscoveredServiceWorkItemHandler() {
         this(null);
@@ -74,10 +98,14 @@ public abstract class DiscoveredServiceWorkItemHandler implements WorkItemHandle
          */ 
         this.kubeClient = kubeClient;
         this.serviceEndpoints = new ConcurrentHashMap<>();
+        for (int i = 0; i < completionLocks.length; i++) {
+            completionLocks[i] = new Object();
+        }
     }
     
     /**
      * Returns the {@link ServiceDiscovery} reference that will be used during the endpoint discovery.
+     * Discovered endpoints are cached and refreshed in background, see {@link CachingServiceDiscovery}.
      * @return
      */
     protected ServiceDiscovery buildServiceDiscovery() {
@@ -87,7 +115,7 @@ public abstract class DiscoveredServiceWorkItemHandler implements WorkItemHandle
         }
         if (serviceDiscovery == null) {
             LOGGER.debug("Creating and caching a new reference of ServiceDiscoveryFactory");
-            serviceDiscovery = new ServiceDiscoveryFactory(kubeClient).build();
+            serviceDiscovery = new CachingServiceDiscovery(new ServiceDiscoveryFactory(kubeClient).build());
         }
         return serviceDiscovery;
     }
@@ -106,7 +134,12 @@ public abstract class DiscoveredServiceWorkItemHandler implements WorkItemHandle
     protected OkHttpClient buildHttpClient() {
         if (http == null) {
             LOGGER.debug("Creating and caching a new reference of OkHttpClient");
+            Dispatcher dispatcher = new Dispatcher();
+            // asynchronous calls are already limited per service by their call queues
+            dispatcher.setMaxRequests(Integer.MAX_VALUE);
+            dispatcher.setMaxRequestsPerHost(maxConcurrentCallsPerService);
             http = new OkHttpClient.Builder()
+                                             .dispatcher(dispatcher)
                                              .connectTimeout(60, TimeUnit.SECONDS)
                                              .writeTimeout(60, TimeUnit.SECONDS)
                                              .readTimeout(60, TimeUnit.SECONDS)
@@ -126,7 +159,7 @@ public abstract class DiscoveredServiceWorkItemHandler implements WorkItemHandle
     }
 
     /**
-     * Add a new service into the internal registry
+     * Add a new service into the internal registry, registered services are used as they are without being discovered
      * 
      * @param serviceName
      * @param service
@@ -146,6 +179,45 @@ public abstract class DiscoveredServiceWorkItemHandler implements WorkItemHandle
     protected Map<String, ServiceInfo> getServices() {
         return Collections.unmodifiableMap(this.serviceEndpoints);
     }
+
+    /**
+     * Sets the unit of work manager used to complete the work items of asynchronous calls.
+     * When not set the work items are completed without a unit of work and the calls are sent right away.
+     *
+     * @param unitOfWorkManager
+     */
+    @Override
+    public void setUnitOfWorkManager(UnitOfWorkManager unitOfWorkManager) {
+        this.unitOfWorkManager = unitOfWorkManager;
+    }
+
+    /**
+     * Sets the maximum number of asynchronous calls sent at the same time to a single service,
+     * the calls exceeding it are queued until one of the in flight calls receives its response.
+     * It only applies to the services not called yet, while the http client allows as many calls per host.
+     *
+     * @param maxConcurrentCallsPerService
+     */
+    public void setMaxConcurrentCallsPerService(int maxConcurrentCallsPerService) {
+        if (maxConcurrentCallsPerService <= 0) {
+            throw new IllegalArgumentException("Max concurrent calls per service must be positive: " + maxConcurrentCallsPerService);
+        }
+        this.maxConcurrentCallsPerService = maxConcurrentCallsPerService;
+        if (http != null) {
+            http.dispatcher().setMaxRequestsPerHost(maxConcurrentCallsPerService);
+        }
+    }
+
+    /**
+     * Retrieves the metrics of the asynchronous calls made to the given service.
+     *
+     * @param serviceName
+     * @return the metrics or null if the service was never called asynchronously
+     */
+    public ServiceCallMetrics getServiceCallMetrics(String serviceName) {
+        ServiceCallQueue queue = serviceCalls.get(serviceName);
+        return queue == null ? null : queue.metrics;
+    }
     
     /**
      * Looks up service's endpoint (cluster ip + port) using label selector - meaning returns services that have given label.
@@ -154,10 +226,15 @@ public abstract class DiscoveredServiceWorkItemHandler implements WorkItemHandle
      * @return valid endpoint (in URL form) if found or runtime exception in case of no services found
      */
     protected ServiceInfo findEndpoint(String namespace, String service) {
-        LOGGER.debug("Looking for services. Services discovered so far {}", this.serviceEndpoints);
+        LOGGER.debug("Looking for services. Services registered {}", this.serviceEndpoints);
         return this.buildServiceDiscovery().findEndpoint(namespace, service).orElseThrow(() -> new RuntimeException("No endpoint found for service " + service));
     }
 
+    private ServiceInfo resolveEndpoint(String namespace, String service) {
+        ServiceInfo endpoint = serviceEndpoints.get(service);
+        return endpoint != null ? endpoint : findEndpoint(namespace, service);
+    }
+
     /**
      * Discover valid service to be invoked in given namespace and serviceName. Where serviceName is 
      * considered to be a label on the service .It uses service discovery
@@ -176,28 +253,11 @@ public abstract class DiscoveredServiceWorkItemHandler implements WorkItemHandle
         INTERNAL_FIELDS.forEach(field -> data.remove(field));
 
         // discover service endpoint
-        ServiceInfo endpoint = serviceEndpoints.computeIfAbsent(service, (s) -> findEndpoint(namespace, s));
+        ServiceInfo endpoint = resolveEndpoint(namespace, service);
         LOGGER.debug("Found endpoint for service {} with location {}", service, endpoint);
 
         RequestBody body = produceRequestPayload(data);
-        Request request = null;
-
-        switch (method) {
-            case POST:
-                request = producePostRequest(endpoint, body);
-                break;
-            case GET:
-                request = produceGetRequest(endpoint);
-                break;
-            case PUT:
-                request = producePutRequest(endpoint, body);
-                break;
-            case DELETE:
-                request = produceDeleteRequest(endpoint, body);
-                break;
-            default:
-                break;
-        }
+        Request request = produceRequest(endpoint, body, method);
 
         try (Response response = this.buildHttpClient().newCall(request).execute()) {
 
@@ -210,6 +270,148 @@ public abstract class DiscoveredServiceWorkItemHandler implements WorkItemHandle
         }
     }
 
+    /**
+     * Asynchronous variant of {@link #discoverAndCall(WorkItem, String, String, HttpMethods)}. The call is sent
+     * once the current unit of work ends, so only when the state of the process instance waiting for it is stored,
+     * and never if the unit of work is aborted. This method returns right away, the payload is serialized and the
+     * response parsed by the http client threads.
+     * Once the response is received the work item is completed with the returned data, within a new unit of work
+     * if a {@link UnitOfWorkManager} is set. Work items of the same process instance are completed one at a time.
+     * Calls to the same service beyond {@link #setMaxConcurrentCallsPerService(int)} wait for an in flight one to end.
+     * @param workItem work item that this handler is working on
+     * @param manager work item manager used to complete the work item
+     * @param namespace namespace to look up services in
+     * @param serviceName name of the service to look up by - label
+     * @param method http method to be used when calling a service (supports GET, POST, PUT, DELETE)
+     */
+    protected void discoverAndCallAsync(WorkItem workItem, WorkItemManager manager, String namespace, String serviceName, HttpMethods method) {
+        Map<String, Object> data = new HashMap<>(workItem.getParameters());
+        String service = (String) data.remove(serviceName);
+
+        // remove all internal fields before sending
+        INTERNAL_FIELDS.forEach(field -> data.remove(field));
+
+        // discover service endpoint
+        ServiceInfo endpoint = resolveEndpoint(namespace, service);
+        LOGGER.debug("Found endpoint for service {} with location {}", service, endpoint);
+
+        Request request = produceRequest(endpoint, new JsonRequestBody(data), method);
+        AsyncCall asyncCall = new AsyncCall();
+        asyncCalls.put(workItem.getId(), asyncCall);
+        Runnable submit = () -> {
+            ServiceCallQueue queue = serviceCalls.computeIfAbsent(service, s -> new ServiceCallQueue(maxConcurrentCallsPerService));
+            queue.submit(() -> send(workItem, manager, request, queue, asyncCall));
+        };
+        if (unitOfWorkManager == null) {
+            submit.run();
+        } else {
+            unitOfWorkManager.currentUnitOfWork().intercept(WorkUnit.create(submit, Runnable::run, s -> asyncCalls.remove(workItem.getId(), asyncCall)));
+        }
+    }
+
+    private void send(WorkItem workItem, WorkItemManager manager, Request request, ServiceCallQueue queue, AsyncCall asyncCall) {
+        if (asyncCall.cancelled) {
+            queue.callSkipped();
+            return;
+        }
+        Call httpCall = this.buildHttpClient().newCall(request);
+        long start = System.nanoTime();
+        queue.metrics.callStarted();
+        asyncCall.started(httpCall);
+        httpCall.enqueue(new Callback() {
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                failed(call, e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                Map<String, Object> results;
+                try (Response r = response) {
+                    results = produceResultsFromResponse(r);
+                } catch (Exception e) {
+                    failed(call, e);
+                    return;
+                }
+                queue.callEnded(System.nanoTime() - start, true);
+                if (asyncCalls.remove(workItem.getId(), asyncCall)) {
+                    completeAsync(workItem, () -> executeInUnitOfWork(() -> manager.completeWorkItem(workItem.getId(), results)));
+                }
+            }
+
+            private void failed(Call call, Exception e) {
+                queue.callEnded(System.nanoTime() - start, false);
+                // a cancelled call belongs to a work item already aborted
+                if (asyncCalls.remove(workItem.getId(), asyncCall) && !call.isCanceled()) {
+                    completeAsync(workItem, () -> handleAsyncCallFailure(workItem, manager, e));
+                }
+            }
+        });
+    }
+
+    private void completeAsync(WorkItem workItem, Runnable completion) {
+        synchronized (completionLocks[Math.floorMod(Objects.hashCode(workItem.getProcessInstanceId()), completionLocks.length)]) {
+            try {
+                completion.run();
+            } catch (RuntimeException e) {
+                // nobody waits for the http client threads, so the error would otherwise be lost
+                LOGGER.error("Unable to complete work item {} of process instance {} after asynchronous call", workItem.getId(), workItem.getProcessInstanceId(), e);
+            }
+        }
+    }
+
+    /**
+     * Cancels the asynchronous call of the given work item, if any. Its work item is then neither
+     * completed nor aborted by this handler. Subclasses overriding this method must call it.
+     */
+    @Override
+    public void abortWorkItem(WorkItem workItem, WorkItemManager manager) {
+        AsyncCall asyncCall = asyncCalls.remove(workItem.getId());
+        if (asyncCall != null) {
+            LOGGER.debug("Cancelling asynchronous call of aborted work item {}", workItem.getId());
+            asyncCall.cancel();
+        }
+    }
+
+    /**
+     * Invoked when an asynchronous call fails or receives an unsuccessful response, by default aborts the work item.
+     *
+     * @param workItem work item that this handler is working on
+     * @param manager work item manager of the work item
+     * @param error cause of the failure
+     */
+    protected void handleAsyncCallFailure(WorkItem workItem, WorkItemManager manager, Exception error) {
+        LOGGER.error("Asynchronous call for work item {} failed, aborting it", workItem.getId(), error);
+        executeInUnitOfWork(() -> manager.abortWorkItem(workItem.getId()));
+    }
+
+    protected void executeInUnitOfWork(Runnable runnable) {
+        if (unitOfWorkManager == null) {
+            runnable.run();
+            return;
+        }
+        UnitOfWorkExecutor.executeInUnitOfWork(unitOfWorkManager, () -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    protected Request produceRequest(ServiceInfo endpoint, RequestBody body, HttpMethods method) {
+        switch (method) {
+            case POST:
+                return producePostRequest(endpoint, body);
+            case GET:
+                return produceGetRequest(endpoint);
+            case PUT:
+                return producePutRequest(endpoint, body);
+            case DELETE:
+                return produceDeleteRequest(endpoint, body);
+            default:
+                return null;
+        }
+    }
+
     protected RequestBody produceRequestPayload(Map<String, Object> data) {
         if (data == null) {
             return null;
@@ -280,4 +482,133 @@ public abstract class DiscoveredServiceWorkItemHandler implements WorkItemHandle
         }
     }
 
+    /**
+     * Request payload serialized only when the http client sends it, so not by the thread enqueuing the call
+     */
+    private class JsonRequestBody extends RequestBody {
+
+        private final Map<String, Object> data;
+        private byte[] content;
+
+        private JsonRequestBody(Map<String, Object> data) {
+            this.data = data;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return JSON;
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return content().length;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            sink.write(content());
+        }
+
+        private synchronized byte[] content() throws IOException {
+            if (content == null) {
+                content = mapper.writeValueAsBytes(data);
+                LOGGER.debug("Sending body {}", data);
+            }
+            return content;
+        }
+    }
+
+    /**
+     * Asynchronous call of a work item, that can be cancelled before or after being sent
+     */
+    private static class AsyncCall {
+
+        private volatile Call call;
+        private volatile boolean cancelled;
+
+        private void started(Call call) {
+            this.call = call;
+            if (cancelled) {
+                call.cancel();
+            }
+        }
+
+        private void cancel() {
+            cancelled = true;
+            Call started = call;
+            if (started != null) {
+                started.cancel();
+            }
+        }
+    }
+
+    /**
+     * Limits the calls in flight to a single service, the calls exceeding the limit are queued
+     * and sent as soon as the in flight ones end, so that the caller is never blocked
+     */
+    private static class ServiceCallQueue {
+
+        private final ServiceCallMetrics metrics = new ServiceCallMetrics();
+        private final Queue<Runnable> pendingCalls = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger availablePermits;
+
+        private ServiceCallQueue(int maxConcurrentCalls) {
+            this.availablePermits = new AtomicInteger(maxConcurrentCalls);
+        }
+
+        private void submit(Runnable call) {
+            if (tryAcquire()) {
+                send(call);
+            } else {
+                metrics.callQueued();
+                pendingCalls.offer(call);
+                // a permit may have been released meanwhile
+                sendPending();
+            }
+        }
+
+        private void callEnded(long latencyNanos, boolean successful) {
+            metrics.callEnded(latencyNanos, successful);
+            availablePermits.incrementAndGet();
+            sendPending();
+        }
+
+        private void callSkipped() {
+            availablePermits.incrementAndGet();
+            sendPending();
+        }
+
+        private void sendPending() {
+            while (!pendingCalls.isEmpty() && tryAcquire()) {
+                Runnable call = pendingCalls.poll();
+                if (call == null) {
+                    availablePermits.incrementAndGet();
+                } else {
+                    metrics.callDequeued();
+                    send(call);
+                }
+            }
+        }
+
+        private void send(Runnable call) {
+            try {
+                call.run();
+            } catch (RuntimeException e) {
+                availablePermits.incrementAndGet();
+                throw e;
+            }
+        }
+
+        private boolean tryAcquire() {
+            int permits;
+            do {
+                permits = availablePermits.get();
+                if (permits == 0) {
+                    return false;
+                }
+            } while (!availablePermits.compareAndSet(permits, permits - 1));
+            return true;
+        }
+    }
+
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.cloud.workitems;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of the asynchronous calls made to a single service.
+ *
+ * @see DiscoveredServiceWorkItemHandler#getServiceCallMetrics(String)
+ */
+public class ServiceCallMetrics {
+
+    private final AtomicInteger inFlightCalls = new AtomicInteger();
+    private final AtomicInteger queuedCalls = new AtomicInteger();
+    private final AtomicLong completedCalls = new AtomicLong();
+    private final AtomicLong failedCalls = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    /**
+     * @return number of calls sent to the service and still waiting for a response
+     */
+    public int getInFlightCalls() {
+        return inFlightCalls.get();
+    }
+
+    /**
+     * @return number of calls waiting for the concurrency limit of the service before being sent
+     */
+    public int getQueuedCalls() {
+        return queuedCalls.get();
+    }
+
+    /**
+     * @return number of calls that received a successful response
+     */
+    public long getCompletedCalls() {
+        return completedCalls.get();
+    }
+
+    /**
+     * @return number of calls that failed or received an unsuccessful response
+     */
+    public long getFailedCalls() {
+        return failedCalls.get();
+    }
+
+    /**
+     * @return average time between sending a call and receiving its response, failed calls included
+     */
+    public long getAverageLatency(TimeUnit unit) {
+        long calls = completedCalls.get() + failedCalls.get();
+        return calls == 0 ? 0 : unit.convert(totalLatencyNanos.get() / calls, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return longest time between sending a call and receiving its response, failed calls included
+     */
+    public long getMaxLatency(TimeUnit unit) {
+        return unit.convert(maxLatencyNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    void callQueued() {
+        queuedCalls.incrementAndGet();
+    }
+
+    void callDequeued() {
+        queuedCalls.decrementAndGet();
+    }
+
+    void callStarted() {
+        inFlightCalls.incrementAndGet();
+    }
+
+    void callEnded(long latencyNanos, boolean successful) {
+        inFlightCalls.decrementAndGet();
+        if (successful) {
+            completedCalls.incrementAndGet();
+        } else {
+            failedCalls.incrementAndGet();
+        }
+        totalLatencyNanos.addAndGet(latencyNanos);
+        maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+    }
+
+    @Override
+    public String toString() {
+        return "ServiceCallMetrics [inFlightCalls=" + inFlightCalls + ", queuedCalls=" + queuedCalls + ", completedCalls=" + completedCalls +
+                ", failedCalls=" + failedCalls + ", maxLatencyNanos=" + maxLatencyNanos + "]";
+    }
+}
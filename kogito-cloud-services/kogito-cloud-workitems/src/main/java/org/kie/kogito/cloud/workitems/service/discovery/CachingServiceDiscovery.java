@@ -0,0 +1,299 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.cloud.workitems.service.discovery;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.kie.kogito.cloud.workitems.ServiceInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link ServiceDiscovery} caching the endpoints found by another one.
+ * <p>
+ * Endpoints are kept for a given time to live and, while they are being used, are periodically refreshed in background
+ * so that a redeployed service is picked up without the callers waiting for the Kubernetes API.
+ * Failed or empty lookups are cached as well, for a time growing exponentially with the consecutive failures, to not
+ * flood the cluster API with queries for a missing service. When a lookup fails, a previously found endpoint is kept
+ * until it expires. Entries, found or not, that are no longer requested are evicted by the background refresh once expired.
+ */
+public class CachingServiceDiscovery implements ServiceDiscovery {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachingServiceDiscovery.class);
+
+    public static final long DEFAULT_TTL_MILLIS = 60_000;
+    public static final long DEFAULT_REFRESH_INTERVAL_MILLIS = 20_000;
+    public static final long DEFAULT_MIN_BACKOFF_MILLIS = 1_000;
+    public static final long DEFAULT_MAX_BACKOFF_MILLIS = 60_000;
+
+    private static final int MAX_BACKOFF_SHIFT = 20;
+
+    private final ServiceDiscovery delegate;
+    private final long ttlNanos;
+    private final long refreshIntervalMillis;
+    private final long minBackoffNanos;
+    private final long maxBackoffNanos;
+
+    private final Map<CacheKey, CacheEntry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+
+    private ScheduledExecutorService refresher;
+
+    public CachingServiceDiscovery(final ServiceDiscovery delegate) {
+        this(delegate, DEFAULT_TTL_MILLIS, DEFAULT_REFRESH_INTERVAL_MILLIS, DEFAULT_MIN_BACKOFF_MILLIS, DEFAULT_MAX_BACKOFF_MILLIS);
+    }
+
+    /**
+     * @param delegate the {@link ServiceDiscovery} actually looking up the endpoints
+     * @param ttlMillis how long a found endpoint is used before being looked up again
+     * @param refreshIntervalMillis how often the endpoints in use are refreshed in background, 0 to disable it
+     * @param minBackoffMillis how long a failed or empty lookup is cached the first time
+     * @param maxBackoffMillis upper limit of the time a failed or empty lookup is cached, after consecutive failures
+     */
+    public CachingServiceDiscovery(final ServiceDiscovery delegate, long ttlMillis, long refreshIntervalMillis, long minBackoffMillis, long maxBackoffMillis) {
+        if (ttlMillis <= 0 || refreshIntervalMillis < 0 || minBackoffMillis <= 0 || maxBackoffMillis < minBackoffMillis) {
+            throw new IllegalArgumentException("Invalid cache configuration: ttl " + ttlMillis + ", refresh interval " + refreshIntervalMillis +
+                                                       ", backoff " + minBackoffMillis + "-" + maxBackoffMillis);
+        }
+        this.delegate = Objects.requireNonNull(delegate);
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        this.minBackoffNanos = TimeUnit.MILLISECONDS.toNanos(minBackoffMillis);
+        this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(maxBackoffMillis);
+    }
+
+    @Override
+    public Optional<ServiceInfo> findEndpoint(String namespace, String labelKey, String labelValue) {
+        CacheEntry entry = entries.computeIfAbsent(new CacheKey(namespace, labelKey, labelValue), CacheEntry::new);
+        long now = System.nanoTime();
+        entry.lastAccess = now;
+        CachedEndpoint cached = entry.cached;
+        if (cached != null && cached.isValid(now)) {
+            (cached.endpoint.isPresent() ? hits : negativeHits).incrementAndGet();
+            return cached.endpoint;
+        }
+        return load(entry);
+    }
+
+    @Override
+    public Optional<ServiceInfo> findEndpoint(String namespace, String service) {
+        return this.findEndpoint(namespace, service, null);
+    }
+
+    /**
+     * Discards the cached endpoint, so that it is looked up again on the next request.
+     */
+    public void invalidate(String namespace, String labelKey, String labelValue) {
+        entries.remove(new CacheKey(namespace, labelKey, labelValue));
+    }
+
+    public void invalidate(String namespace, String service) {
+        this.invalidate(namespace, service, null);
+    }
+
+    /**
+     * Stops the background refresh, the cache keeps working looking up the expired endpoints on demand.
+     */
+    public synchronized void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getNegativeHits() {
+        return negativeHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getRefreshes() {
+        return refreshes.get();
+    }
+
+    public long getRefreshFailures() {
+        return refreshFailures.get();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private Optional<ServiceInfo> load(CacheEntry entry) {
+        CachedEndpoint cached;
+        synchronized (entry) {
+            // another thread may have loaded it meanwhile
+            cached = entry.cached;
+            if (cached != null && cached.isValid(System.nanoTime())) {
+                return cached.endpoint;
+            }
+            misses.incrementAndGet();
+            lookup(entry);
+            cached = entry.cached;
+        }
+        startRefresher();
+        return cached.endpoint;
+    }
+
+    /**
+     * Must be invoked holding the entry lock
+     */
+    private boolean lookup(CacheEntry entry) {
+        CacheKey key = entry.key;
+        Optional<ServiceInfo> endpoint;
+        try {
+            endpoint = delegate.findEndpoint(key.namespace, key.labelKey, key.labelValue);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Failed to look up endpoint in namespace {} with labels {}:{}: {}", key.namespace, key.labelKey, key.labelValue, e.getMessage());
+            LOGGER.debug("Error while looking up endpoint", e);
+            endpoint = null;
+        }
+
+        long now = System.nanoTime();
+        if (endpoint != null && endpoint.isPresent()) {
+            entry.failures = 0;
+            entry.cached = new CachedEndpoint(endpoint, now + ttlNanos);
+            return true;
+        }
+
+        long backoff = Math.min(maxBackoffNanos, minBackoffNanos << Math.min(entry.failures, MAX_BACKOFF_SHIFT));
+        entry.failures++;
+        CachedEndpoint previous = entry.cached;
+        if (endpoint == null && previous != null && previous.endpoint.isPresent() && previous.isValid(now)) {
+            // keep the endpoint found before until it expires
+            return false;
+        }
+        entry.cached = new CachedEndpoint(Optional.empty(), now + backoff);
+        return false;
+    }
+
+    private synchronized void startRefresher() {
+        if (refresher == null && refreshIntervalMillis > 0) {
+            refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "kogito-service-discovery-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            refresher.scheduleWithFixedDelay(this::refresh, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Looks up again the found endpoints used since they were cached, the entries not used anymore are evicted once expired
+     */
+    private void refresh() {
+        for (CacheEntry entry : entries.values()) {
+            long now = System.nanoTime();
+            CachedEndpoint cached = entry.cached;
+            if (now - entry.lastAccess > ttlNanos) {
+                if (cached == null || !cached.isValid(now)) {
+                    entries.remove(entry.key, entry);
+                }
+                continue;
+            }
+            if (cached == null || !cached.endpoint.isPresent()) {
+                // failed lookups are retried on demand, after their backoff
+                continue;
+            }
+            synchronized (entry) {
+                if (lookup(entry)) {
+                    refreshes.incrementAndGet();
+                } else {
+                    refreshFailures.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private static class CacheKey {
+
+        private final String namespace;
+        private final String labelKey;
+        private final String labelValue;
+
+        private CacheKey(String namespace, String labelKey, String labelValue) {
+            this.namespace = namespace;
+            this.labelKey = labelKey;
+            this.labelValue = labelValue;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return Objects.equals(namespace, other.namespace) && Objects.equals(labelKey, other.labelKey) && Objects.equals(labelValue, other.labelValue);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(namespace, labelKey, labelValue);
+        }
+    }
+
+    private static class CacheEntry {
+
+        private final CacheKey key;
+
+        private volatile CachedEndpoint cached;
+        private volatile long lastAccess;
+        private int failures;
+
+        private CacheEntry(CacheKey key) {
+            this.key = key;
+            this.lastAccess = System.nanoTime();
+        }
+    }
+
+    /**
+     * Result of a lookup along with its expiration, replaced as a whole so that readers never see one without the other
+     */
+    private static class CachedEndpoint {
+
+        private final Optional<ServiceInfo> endpoint;
+        private final long expiresAt;
+
+        private CachedEndpoint(Optional<ServiceInfo> endpoint, long expiresAt) {
+            this.endpoint = endpoint;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isValid(long now) {
+            return expiresAt - now > 0;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.cloud.workitems;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kie.api.runtime.process.WorkItem;
+import org.kie.api.runtime.process.WorkItemHandler;
+import org.kie.api.runtime.process.WorkItemManager;
+import org.kie.kogito.process.workitem.Policy;
+import org.kie.kogito.services.uow.CollectingUnitOfWorkFactory;
+import org.kie.kogito.services.uow.DefaultUnitOfWorkManager;
+import org.kie.kogito.uow.UnitOfWork;
+import org.kie.kogito.uow.UnitOfWorkManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Asynchronous calls sent through a real http client to a local http server
+ */
+public class AsyncServiceCallTest {
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile CountDownLatch requestReceived = new CountDownLatch(1);
+    private volatile CountDownLatch releaseResponse = new CountDownLatch(0);
+
+    private UnitOfWorkManager unitOfWorkManager;
+    private DiscoveredServiceWorkItemHandler handler;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/test", this::respond);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        unitOfWorkManager = new DefaultUnitOfWorkManager(new CollectingUnitOfWorkFactory());
+        handler = new AsyncDiscoveredServiceWorkItemHandler();
+        handler.addServices("test", new ServiceInfo("http://localhost:" + server.getAddress().getPort() + "/test", null));
+        handler.setUnitOfWorkManager(unitOfWorkManager);
+    }
+
+    @AfterEach
+    public void stopServer() {
+        releaseResponse.countDown();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testCallSentOnceUnitOfWorkEnds() throws Exception {
+        RecordingWorkItemManager manager = new RecordingWorkItemManager(1);
+
+        UnitOfWork unitOfWork = unitOfWorkManager.newUnitOfWork();
+        unitOfWork.start();
+        handler.discoverAndCallAsync(workItem("1", "p1"), manager, "", "service", HttpMethods.POST);
+        // nothing is sent while the state of the process instance may still be rolled back
+        assertThat(requestReceived.await(200, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(handler.getServiceCallMetrics("test")).isNull();
+        unitOfWork.end();
+
+        assertThat(manager.done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(manager.completed).containsExactly("1");
+        assertThat(manager.results).containsExactly(Collections.singletonMap("test", "fake"));
+        assertThat(requests.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testCallNotSentWhenUnitOfWorkAborted() throws Exception {
+        RecordingWorkItemManager manager = new RecordingWorkItemManager(1);
+
+        UnitOfWork unitOfWork = unitOfWorkManager.newUnitOfWork();
+        unitOfWork.start();
+        handler.discoverAndCallAsync(workItem("1", "p1"), manager, "", "service", HttpMethods.POST);
+        unitOfWork.abort();
+
+        assertThat(requestReceived.await(200, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(requests.get()).isZero();
+        assertThat(manager.completed).isEmpty();
+    }
+
+    @Test
+    public void testAbortCancelsInFlightCall() throws Exception {
+        releaseResponse = new CountDownLatch(1);
+        RecordingWorkItemManager manager = new RecordingWorkItemManager(1);
+        WorkItem workItem = workItem("1", "p1");
+
+        handler.discoverAndCallAsync(workItem, manager, "", "service", HttpMethods.POST);
+        assertThat(requestReceived.await(5, TimeUnit.SECONDS)).isTrue();
+        handler.abortWorkItem(workItem, manager);
+        releaseResponse.countDown();
+
+        // the work item was aborted by the engine, the handler neither completes nor aborts it
+        assertThat(manager.done.await(500, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(manager.completed).isEmpty();
+        assertThat(manager.aborted).isEmpty();
+        assertThat(handler.getServiceCallMetrics("test").getInFlightCalls()).isZero();
+    }
+
+    @Test
+    public void testQueuedCallCancelledBeforeBeingSent() throws Exception {
+        releaseResponse = new CountDownLatch(1);
+        handler.setMaxConcurrentCallsPerService(1);
+        RecordingWorkItemManager manager = new RecordingWorkItemManager(2);
+        WorkItem queued = workItem("2", "p1");
+
+        handler.discoverAndCallAsync(workItem("1", "p1"), manager, "", "service", HttpMethods.POST);
+        handler.discoverAndCallAsync(queued, manager, "", "service", HttpMethods.POST);
+        assertThat(requestReceived.await(5, TimeUnit.SECONDS)).isTrue();
+        handler.abortWorkItem(queued, manager);
+        // the permit of the cancelled call is given to the next one
+        handler.discoverAndCallAsync(workItem("3", "p1"), manager, "", "service", HttpMethods.POST);
+        releaseResponse.countDown();
+
+        assertThat(manager.done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(manager.completed).containsExactlyInAnyOrder("1", "3");
+        assertThat(requests.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testCompletionsSerializedPerProcessInstance() throws Exception {
+        int calls = 8;
+        RecordingWorkItemManager manager = new RecordingWorkItemManager(calls);
+        manager.completionTime = 20;
+
+        for (int i = 0; i < calls; i++) {
+            handler.discoverAndCallAsync(workItem(String.valueOf(i), "p1"), manager, "", "service", HttpMethods.POST);
+        }
+
+        assertThat(manager.done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(manager.completed).hasSize(calls);
+        assertThat(manager.maxConcurrentCompletions.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testCompletionFailureDoesNotStopOtherCalls() throws Exception {
+        handler.setMaxConcurrentCallsPerService(1);
+        RecordingWorkItemManager manager = new RecordingWorkItemManager(1);
+        manager.failing = "1";
+
+        handler.discoverAndCallAsync(workItem("1", "p1"), manager, "", "service", HttpMethods.POST);
+        handler.discoverAndCallAsync(workItem("2", "p2"), manager, "", "service", HttpMethods.POST);
+
+        assertThat(manager.done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(manager.completed).containsExactly("2");
+        ServiceCallMetrics metrics = handler.getServiceCallMetrics("test");
+        assertThat(metrics.getCompletedCalls()).isEqualTo(2);
+        assertThat(metrics.getInFlightCalls()).isZero();
+    }
+
+    @Test
+    public void testCallsToSameHostBeyondHttpClientDefaults() throws Exception {
+        // the http client alone would only send 5 calls at once to the same host
+        int calls = 10;
+        releaseResponse = new CountDownLatch(1);
+        requestReceived = new CountDownLatch(calls);
+        RecordingWorkItemManager manager = new RecordingWorkItemManager(calls);
+
+        for (int i = 0; i < calls; i++) {
+            handler.discoverAndCallAsync(workItem(String.valueOf(i), "p" + i), manager, "", "service", HttpMethods.POST);
+        }
+        assertThat(requestReceived.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(handler.getServiceCallMetrics("test").getInFlightCalls()).isEqualTo(calls);
+        releaseResponse.countDown();
+
+        assertThat(manager.done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(manager.completed).hasSize(calls);
+    }
+
+    @Test
+    public void testUnitOfWorkAbortedWhenEndFails() {
+        UnitOfWorkManager failingManager = mock(UnitOfWorkManager.class);
+        UnitOfWork unitOfWork = mock(UnitOfWork.class);
+        when(failingManager.newUnitOfWork()).thenReturn(unitOfWork);
+        doThrow(new IllegalStateException("store unavailable")).when(unitOfWork).end();
+        handler.setUnitOfWorkManager(failingManager);
+
+        assertThatThrownBy(() -> handler.executeInUnitOfWork(() -> {})).isInstanceOf(IllegalStateException.class);
+        verify(unitOfWork).start();
+        verify(unitOfWork).abort();
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        requestReceived.countDown();
+        try {
+            releaseResponse.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        byte[] body = "{\"test\" : \"fake\"}".getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static WorkItem workItem(String id, String processInstanceId) {
+        WorkItem workItem = mock(WorkItem.class);
+        when(workItem.getId()).thenReturn(id);
+        when(workItem.getProcessInstanceId()).thenReturn(processInstanceId);
+        when(workItem.getParameters()).thenReturn(Collections.singletonMap("service", "test"));
+        return workItem;
+    }
+
+    private static class RecordingWorkItemManager implements WorkItemManager {
+
+        private final List<String> completed = new CopyOnWriteArrayList<>();
+        private final List<Map<String, Object>> results = new CopyOnWriteArrayList<>();
+        private final List<String> aborted = new CopyOnWriteArrayList<>();
+        private final AtomicInteger concurrentCompletions = new AtomicInteger();
+        private final AtomicInteger maxConcurrentCompletions = new AtomicInteger();
+        private final CountDownLatch done;
+        private volatile long completionTime;
+        private volatile String failing;
+
+        private RecordingWorkItemManager(int expectedCompletions) {
+            this.done = new CountDownLatch(expectedCompletions);
+        }
+
+        @Override
+        public void completeWorkItem(String id, Map<String, Object> results, Policy<?>... policies) {
+            int concurrent = concurrentCompletions.incrementAndGet();
+            maxConcurrentCompletions.accumulateAndGet(concurrent, Math::max);
+            try {
+                if (id.equals(failing)) {
+                    throw new IllegalStateException("Process instance of work item " + id + " is gone");
+                }
+                Thread.sleep(completionTime);
+                completed.add(id);
+                this.results.add(results);
+                done.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                concurrentCompletions.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void abortWorkItem(String id, Policy<?>... policies) {
+            aborted.add(id);
+            done.countDown();
+        }
+
+        @Override
+        public void registerWorkItemHandler(String workItemName, WorkItemHandler handler) {
+        }
+    }
+
+    private static class AsyncDiscoveredServiceWorkItemHandler extends DiscoveredServiceWorkItemHandler {
+
+        @Override
+        public void executeWorkItem(WorkItem workItem, WorkItemManager manager) {
+        }
+    }
+}
@@ -18,8 +18,10 @@ package org.kie.kogito.cloud.workitems;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Protocol;
@@ -34,11 +36,18 @@ import org.kie.api.runtime.process.WorkItem;
 import org.kie.api.runtime.process.WorkItemManager;
 import org.kie.kogito.cloud.kubernetes.client.KogitoKubeClient;
 import org.kie.kogito.cloud.workitems.service.discovery.ServiceDiscovery;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class DiscoveredServiceWorkItemHandlerTest {
@@ -59,6 +68,101 @@ public class DiscoveredServiceWorkItemHandlerTest {
         when(workItem.getParameters()).thenReturn(Collections.singletonMap("service", "test"));
         
         Call call = mock(Call.class);
+        Response response = response(200);
+
+        when(call.execute()).thenReturn(response);
+        when(httpClient.newCall(any())).thenReturn(call);
+        
+        Map<String, Object> results = handler.discoverAndCall(workItem, "", "service", HttpMethods.POST);
+        
+        assertThat(results).isNotNull().containsKey("test").containsValue("fake");
+    }
+
+    @Test
+    public void testAsyncCallCompletesWorkItem() throws IOException {
+        DiscoveredServiceWorkItemHandler handler = new TestDiscoveredServiceWorkItemHandler("test", "http://testhost:9000");
+
+        WorkItem workItem = workItem("1");
+        WorkItemManager manager = mock(WorkItemManager.class);
+        Call call = mock(Call.class);
+        when(httpClient.newCall(any())).thenReturn(call);
+
+        handler.discoverAndCallAsync(workItem, manager, "", "service", HttpMethods.POST);
+
+        // the engine thread is released before the response arrives
+        ArgumentCaptor<Callback> callback = ArgumentCaptor.forClass(Callback.class);
+        verify(call).enqueue(callback.capture());
+        verify(manager, never()).completeWorkItem(anyString(), anyMapOf(String.class, Object.class));
+        assertThat(handler.getServiceCallMetrics("test").getInFlightCalls()).isEqualTo(1);
+
+        callback.getValue().onResponse(call, response(200));
+
+        verify(manager).completeWorkItem(eq("1"), eq(Collections.singletonMap("test", "fake")));
+        ServiceCallMetrics metrics = handler.getServiceCallMetrics("test");
+        assertThat(metrics.getInFlightCalls()).isZero();
+        assertThat(metrics.getCompletedCalls()).isEqualTo(1);
+        assertThat(metrics.getMaxLatency(TimeUnit.NANOSECONDS)).isGreaterThanOrEqualTo(metrics.getAverageLatency(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void testAsyncCallFailureAbortsWorkItem() throws IOException {
+        DiscoveredServiceWorkItemHandler handler = new TestDiscoveredServiceWorkItemHandler("test", "http://testhost:9000");
+
+        WorkItem workItem = workItem("1");
+        WorkItemManager manager = mock(WorkItemManager.class);
+        Call call = mock(Call.class);
+        when(httpClient.newCall(any())).thenReturn(call);
+
+        handler.discoverAndCallAsync(workItem, manager, "", "service", HttpMethods.POST);
+
+        ArgumentCaptor<Callback> callback = ArgumentCaptor.forClass(Callback.class);
+        verify(call).enqueue(callback.capture());
+        callback.getValue().onResponse(call, response(500));
+
+        verify(manager).abortWorkItem("1");
+        verify(manager, never()).completeWorkItem(anyString(), anyMapOf(String.class, Object.class));
+        assertThat(handler.getServiceCallMetrics("test").getFailedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    public void testAsyncCallsLimitedPerService() throws IOException {
+        DiscoveredServiceWorkItemHandler handler = new TestDiscoveredServiceWorkItemHandler("test", "http://testhost:9000");
+        handler.setMaxConcurrentCallsPerService(1);
+
+        WorkItemManager manager = mock(WorkItemManager.class);
+        Call call = mock(Call.class);
+        when(httpClient.newCall(any())).thenReturn(call);
+
+        handler.discoverAndCallAsync(workItem("1"), manager, "", "service", HttpMethods.POST);
+        handler.discoverAndCallAsync(workItem("2"), manager, "", "service", HttpMethods.POST);
+
+        // second call waits for the first one to end
+        ArgumentCaptor<Callback> callback = ArgumentCaptor.forClass(Callback.class);
+        verify(call, times(1)).enqueue(callback.capture());
+        assertThat(handler.getServiceCallMetrics("test").getQueuedCalls()).isEqualTo(1);
+
+        callback.getValue().onResponse(call, response(200));
+
+        verify(call, times(2)).enqueue(callback.capture());
+        ServiceCallMetrics metrics = handler.getServiceCallMetrics("test");
+        assertThat(metrics.getQueuedCalls()).isZero();
+        assertThat(metrics.getInFlightCalls()).isEqualTo(1);
+
+        callback.getValue().onResponse(call, response(200));
+
+        verify(manager).completeWorkItem(eq("1"), anyMapOf(String.class, Object.class));
+        verify(manager).completeWorkItem(eq("2"), anyMapOf(String.class, Object.class));
+        assertThat(metrics.getCompletedCalls()).isEqualTo(2);
+    }
+
+    private WorkItem workItem(String id) {
+        WorkItem workItem = mock(WorkItem.class);
+        when(workItem.getId()).thenReturn(id);
+        when(workItem.getParameters()).thenReturn(Collections.singletonMap("service", "test"));
+        return workItem;
+    }
+
+    private Response response(int code) {
         ResponseBody body = new ResponseBody() {
             private String content = "{\"test\" : \"fake\"}";
             @Override
@@ -78,15 +182,8 @@ public class DiscoveredServiceWorkItemHandlerTest {
                 return content.length();
             }
         };
-        Response response = new Response.Builder().body(body).protocol(Protocol.HTTP_1_1).message("test").request(new Request.Builder().url("http://localhost:9000").build()).code(200).build();
-                
-     
-        when(call.execute()).thenReturn(response);
-        when(httpClient.newCall(any())).thenReturn(call);
-        
-        Map<String, Object> results = handler.discoverAndCall(workItem, "", "service", HttpMethods.POST);
-        
-        assertThat(results).isNotNull().containsKey("test").containsValue("fake");
+        Response response = new Response.Builder().body(body).protocol(Protocol.HTTP_1_1).message("test").request(new Request.Builder().url("http://localhost:9000").build()).code(code).build();
+        return response;
     }
     
     private class TestDiscoveredServiceWorkItemHandler extends DiscoveredServiceWorkItemHandler {
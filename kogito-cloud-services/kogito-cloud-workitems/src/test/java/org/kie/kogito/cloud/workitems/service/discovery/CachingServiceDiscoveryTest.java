@@ -0,0 +1,160 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.cloud.workitems.service.discovery;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.kie.kogito.cloud.workitems.ServiceInfo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CachingServiceDiscoveryTest {
+
+    private static final String NAMESPACE = "mockns";
+
+    private final TestServiceDiscovery delegate = new TestServiceDiscovery();
+    private CachingServiceDiscovery discovery;
+
+    @AfterEach
+    public void after() {
+        discovery.shutdown();
+    }
+
+    @Test
+    public void cachedEndpoint() {
+        discovery = new CachingServiceDiscovery(delegate, 60_000, 0, 1_000, 1_000);
+        delegate.url = "http://service-v1";
+
+        assertThat(discovery.findEndpoint(NAMESPACE, "service")).hasValueSatisfying(s -> assertThat(s.getUrl()).isEqualTo("http://service-v1"));
+        delegate.url = "http://service-v2";
+        assertThat(discovery.findEndpoint(NAMESPACE, "service")).hasValueSatisfying(s -> assertThat(s.getUrl()).isEqualTo("http://service-v1"));
+
+        assertThat(delegate.lookups.get()).isEqualTo(1);
+        assertThat(discovery.getMisses()).isEqualTo(1);
+        assertThat(discovery.getHits()).isEqualTo(1);
+
+        discovery.invalidate(NAMESPACE, "service");
+        assertThat(discovery.findEndpoint(NAMESPACE, "service")).hasValueSatisfying(s -> assertThat(s.getUrl()).isEqualTo("http://service-v2"));
+        assertThat(delegate.lookups.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void expiredEndpoint() throws InterruptedException {
+        discovery = new CachingServiceDiscovery(delegate, 50, 0, 1_000, 1_000);
+        delegate.url = "http://service-v1";
+
+        assertThat(discovery.findEndpoint(NAMESPACE, "service")).isPresent();
+        delegate.url = "http://service-v2";
+        Thread.sleep(100);
+
+        assertThat(discovery.findEndpoint(NAMESPACE, "service")).hasValueSatisfying(s -> assertThat(s.getUrl()).isEqualTo("http://service-v2"));
+        assertThat(discovery.getMisses()).isEqualTo(2);
+    }
+
+    @Test
+    public void endpointRefreshedInBackground() throws InterruptedException {
+        discovery = new CachingServiceDiscovery(delegate, 60_000, 20, 1_000, 1_000);
+        delegate.url = "http://service-v1";
+
+        assertThat(discovery.findEndpoint(NAMESPACE, "service")).isPresent();
+        delegate.url = "http://service-v2";
+
+        for (int i = 0; i < 100 && discovery.getRefreshes() == 0; i++) {
+            Thread.sleep(20);
+        }
+        assertThat(discovery.getRefreshes()).isPositive();
+        assertThat(discovery.findEndpoint(NAMESPACE, "service")).hasValueSatisfying(s -> assertThat(s.getUrl()).isEqualTo("http://service-v2"));
+        assertThat(discovery.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    public void failedRefreshKeepsEndpoint() throws InterruptedException {
+        discovery = new CachingServiceDiscovery(delegate, 60_000, 20, 1_000, 1_000);
+        delegate.url = "http://service-v1";
+
+        assertThat(discovery.findEndpoint(NAMESPACE, "service")).isPresent();
+        delegate.failure = new RuntimeException("cluster API unavailable");
+
+        for (int i = 0; i < 100 && discovery.getRefreshFailures() == 0; i++) {
+            Thread.sleep(20);
+        }
+        assertThat(discovery.getRefreshFailures()).isPositive();
+        assertThat(discovery.findEndpoint(NAMESPACE, "service")).hasValueSatisfying(s -> assertThat(s.getUrl()).isEqualTo("http://service-v1"));
+    }
+
+    @Test
+    public void missingEndpointCachedWithBackoff() throws InterruptedException {
+        discovery = new CachingServiceDiscovery(delegate, 60_000, 0, 100, 1_000);
+
+        assertThat(discovery.findEndpoint(NAMESPACE, "service")).isEmpty();
+        assertThat(discovery.findEndpoint(NAMESPACE, "service")).isEmpty();
+        assertThat(delegate.lookups.get()).isEqualTo(1);
+        assertThat(discovery.getNegativeHits()).isEqualTo(1);
+
+        // first backoff elapsed, the second one is longer
+        Thread.sleep(150);
+        assertThat(discovery.findEndpoint(NAMESPACE, "service")).isEmpty();
+        assertThat(delegate.lookups.get()).isEqualTo(2);
+        Thread.sleep(100);
+        assertThat(discovery.findEndpoint(NAMESPACE, "service")).isEmpty();
+        assertThat(delegate.lookups.get()).isEqualTo(2);
+
+        delegate.url = "http://service-v1";
+        Thread.sleep(200);
+        assertThat(discovery.findEndpoint(NAMESPACE, "service")).isPresent();
+        assertThat(delegate.lookups.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void unusedMissingEndpointsEvicted() throws InterruptedException {
+        discovery = new CachingServiceDiscovery(delegate, 50, 20, 10, 10);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(discovery.findEndpoint(NAMESPACE, "service-" + i)).isEmpty();
+        }
+        assertThat(discovery.size()).isEqualTo(10);
+
+        for (int i = 0; i < 100 && discovery.size() > 0; i++) {
+            Thread.sleep(20);
+        }
+        assertThat(discovery.size()).isZero();
+    }
+
+    private static class TestServiceDiscovery implements ServiceDiscovery {
+
+        private final AtomicInteger lookups = new AtomicInteger();
+        private volatile String url;
+        private volatile RuntimeException failure;
+
+        @Override
+        public Optional<ServiceInfo> findEndpoint(String namespace, String labelKey, String labelValue) {
+            lookups.incrementAndGet();
+            if (failure != null) {
+                throw failure;
+            }
+            return url == null ? Optional.empty() : Optional.of(new ServiceInfo(url, Collections.emptyMap()));
+        }
+
+        @Override
+        public Optional<ServiceInfo> findEndpoint(String namespace, String service) {
+            return findEndpoint(namespace, service, null);
+        }
+    }
+}
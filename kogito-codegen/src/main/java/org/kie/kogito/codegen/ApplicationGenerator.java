@@ -36,6 +36,8 @@ import com.github.javaparser.ast.body.VariableDeclarator;
 import com.github.javaparser.ast.expr.MethodCallExpr;
 import com.github.javaparser.ast.expr.NameExpr;
 import com.github.javaparser.ast.expr.SimpleName;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.IfStmt;
 import com.github.javaparser.ast.type.ClassOrInterfaceType;
 import javax.lang.model.SourceVersion;
 import org.kie.kogito.Config;
@@ -44,10 +46,13 @@ import org.kie.kogito.codegen.metadata.Labeler;
 import org.kie.kogito.codegen.metadata.MetaDataWriter;
 import org.kie.kogito.codegen.metadata.PrometheusLabeler;
 import org.kie.kogito.event.EventPublisher;
+import org.kie.kogito.services.event.impl.AsyncEventPublishing.OverflowPolicy;
+import org.kie.kogito.services.event.impl.BaseEventManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static com.github.javaparser.StaticJavaParser.parse;
+import static com.github.javaparser.StaticJavaParser.parseStatement;
 
 public class ApplicationGenerator {
 
@@ -133,6 +138,7 @@ public class ApplicationGenerator {
             eventPublishersDeclarator = new VariableDeclarator(new ClassOrInterfaceType(null, new SimpleName(annotator.multiInstanceInjectionType()), NodeList.nodeList(new ClassOrInterfaceType(null, EventPublisher.class.getCanonicalName()))), "eventPublishers");
 
             annotator.withConfigInjection("kogito.service.url", kogitoServiceField);
+            addAsyncEventsConfig(cls);
         } else {
             eventPublishersDeclarator = new VariableDeclarator(new ClassOrInterfaceType(null, new SimpleName(List.class.getCanonicalName()), NodeList.nodeList(new ClassOrInterfaceType(null, EventPublisher.class.getCanonicalName()))), "eventPublishers");
             kogitoServiceField.getVariable(0).setInitializer(new MethodCallExpr(new NameExpr(Optional.class.getCanonicalName()), "empty"));
@@ -172,6 +178,27 @@ public class ApplicationGenerator {
         return compilationUnit;
     }
 
+    /*
+     * Publishes events asynchronously when kogito.events.async.queue-capacity is configured
+     */
+    private void addAsyncEventsConfig(ClassOrInterfaceDeclaration cls) {
+        cls.addMember(annotator.optionalConfigField("kogito.events.async.queue-capacity", "eventsAsyncQueueCapacity", Integer.class));
+        cls.addMember(annotator.optionalConfigField("kogito.events.async.threads", "eventsAsyncThreads", Integer.class));
+        cls.addMember(annotator.optionalConfigField("kogito.events.async.batch-size", "eventsAsyncBatchSize", Integer.class));
+        cls.addMember(annotator.optionalConfigField("kogito.events.async.overflow-policy", "eventsAsyncOverflowPolicy", String.class));
+
+        BlockStmt processSetup = cls.findFirst(MethodDeclaration.class, md -> md.getNameAsString().equals("setup"))
+                .flatMap(md -> md.findFirst(IfStmt.class))
+                .map(ifStmt -> ifStmt.getThenStmt().asBlockStmt())
+                .orElseThrow(() -> new NoSuchElementException("setup method template not found"));
+        processSetup.addStatement(parseStatement(
+                "if (eventsAsyncQueueCapacity.isPresent() && unitOfWorkManager().eventManager() instanceof " + BaseEventManager.class.getCanonicalName() + ") {" +
+                "    ((" + BaseEventManager.class.getCanonicalName() + ") unitOfWorkManager().eventManager()).enableAsyncPublishing(" +
+                "        eventsAsyncQueueCapacity.get(), eventsAsyncThreads.orElse(1), eventsAsyncBatchSize.orElse(100)," +
+                "        " + OverflowPolicy.class.getCanonicalName() + ".valueOf(eventsAsyncOverflowPolicy.orElse(\"BLOCK\").toUpperCase()));" +
+                "}"));
+    }
+
     public ApplicationGenerator withDependencyInjection(DependencyInjectionAnnotator annotator) {
         this.annotator = annotator;
         configGenerator.withDependencyInjection(annotator);
@@ -17,16 +17,21 @@ package org.kie.kogito.codegen.di;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.FieldDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
 import com.github.javaparser.ast.expr.ArrayInitializerExpr;
 import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.expr.MethodCallExpr;
 import com.github.javaparser.ast.expr.Name;
+import com.github.javaparser.ast.expr.SimpleName;
 import com.github.javaparser.ast.expr.SingleMemberAnnotationExpr;
 import com.github.javaparser.ast.expr.StringLiteralExpr;
 import com.github.javaparser.ast.nodeTypes.NodeWithAnnotations;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
 
 /**
  * Generic abstraction for dependency injection annotations that allow to
@@ -119,6 +124,22 @@ public interface DependencyInjectionAnnotator {
      */
     void withConfigInjection(String configKey, String defaultValue, NodeWithAnnotations<?> node);
     
+    /**
+     * Creates a field of type {@code Optional} injected with given configuration parameter, which is empty
+     * when the parameter is not defined
+     * @param configKey name of the configuration property to be injected
+     * @param name name of the field
+     * @param type type of the configuration property
+     * @return complete field declaration
+     */
+    default FieldDeclaration optionalConfigField(String configKey, String name, Class<?> type) {
+        FieldDeclaration field = new FieldDeclaration().addVariable(new VariableDeclarator()
+                .setType(new ClassOrInterfaceType(null, new SimpleName(Optional.class.getCanonicalName()), NodeList.nodeList(new ClassOrInterfaceType(null, type.getCanonicalName()))))
+                .setName(name));
+        withConfigInjection(configKey, field);
+        return field;
+    }
+    
     /**
      * Annotates and enhances method used to produce messages 
      * @param produceMethod method to be annotated
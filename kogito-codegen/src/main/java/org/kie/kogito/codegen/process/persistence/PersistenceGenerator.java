@@ -35,7 +35,9 @@ import com.github.javaparser.ast.body.ConstructorDeclaration;
 import com.github.javaparser.ast.body.FieldDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.BooleanLiteralExpr;
 import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.IntegerLiteralExpr;
 import com.github.javaparser.ast.expr.MethodCallExpr;
 import com.github.javaparser.ast.expr.NameExpr;
 import com.github.javaparser.ast.expr.NullLiteralExpr;
@@ -63,6 +65,9 @@ import org.kie.kogito.codegen.process.persistence.proto.ProtoGenerator;
 public class PersistenceGenerator extends AbstractGenerator {
     
     private static final String TEMPLATE_NAME = "templateName";
+    private static final String BATCH_WRITES = "batchWritesEnabled";
+    private static final String NEAR_CACHE_SIZE = "nearCacheSizeValue";
+    private static final String DELTA_COMPACTION = "deltaCompactionValue";
     private static final String KOGITO_APPLICATION_PROTO = "kogito-application.proto";
 
     private final File targetDirectory;
@@ -177,6 +182,10 @@ public class PersistenceGenerator extends AbstractGenerator {
                 
                 persistenceProviderClazz.addMember(templateNameField);
                 persistenceProviderClazz.addMember(templateNameMethod);
+                
+                addOptionalConfigMethod(persistenceProviderClazz, BATCH_WRITES, Boolean.class, boolean.class, "kogito.persistence.infinispan.batch", "batchWrites", new BooleanLiteralExpr(false));
+                addOptionalConfigMethod(persistenceProviderClazz, NEAR_CACHE_SIZE, Integer.class, int.class, "kogito.persistence.infinispan.nearcache.size", "nearCacheSize", new IntegerLiteralExpr("0"));
+                addOptionalConfigMethod(persistenceProviderClazz, DELTA_COMPACTION, Integer.class, int.class, "kogito.persistence.infinispan.delta.compaction", "deltaCompaction", new IntegerLiteralExpr("0"));
             }
             List<String> variableMarshallers = new ArrayList<>();  
             // handler process variable marshallers
@@ -256,6 +265,25 @@ public class PersistenceGenerator extends AbstractGenerator {
         return generatedFiles;
     }   
 
+    /*
+     * Adds an optional config injected field and a method returning its value or the given default
+     */
+    private void addOptionalConfigMethod(ClassOrInterfaceDeclaration clazz, String fieldName, Class<?> fieldType, Class<?> returnType, String configKey, String methodName, Expression defaultValue) {
+        FieldDeclaration field = annotator.optionalConfigField(configKey, fieldName, fieldType);
+        
+        BlockStmt methodBody = new BlockStmt();
+        methodBody.addStatement(new ReturnStmt(new MethodCallExpr(new NameExpr(fieldName), "orElse").addArgument(defaultValue)));
+        
+        MethodDeclaration method = new MethodDeclaration()
+                .addModifier(Keyword.PUBLIC)
+                .setName(methodName)
+                .setType(returnType)
+                .setBody(methodBody);
+        
+        clazz.addMember(field);
+        clazz.addMember(method);
+    }
+
     @Override
     public void updateConfig(ConfigGenerator cfg) {
     }
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2019 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kogito.codegen.rules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.javaparser.ast.expr.StringLiteralExpr;
+import org.drools.compiler.commons.jci.compilers.CompilationResult;
+import org.drools.compiler.commons.jci.compilers.JavaCompiler;
+import org.drools.compiler.commons.jci.compilers.JavaCompilerFactory;
+import org.drools.compiler.compiler.io.memory.MemoryFileSystem;
+import org.drools.compiler.reteoo.compiled.ObjectTypeNodeCompiler;
+import org.drools.compiler.rule.builder.dialect.java.JavaDialectConfiguration;
+import org.drools.core.InitialFact;
+import org.drools.core.base.ClassObjectType;
+import org.drools.core.impl.InternalKnowledgeBase;
+import org.drools.core.reteoo.EntryPointNode;
+import org.drools.core.reteoo.ObjectTypeNode;
+import org.drools.core.reteoo.compiled.PrecompiledNetwork;
+import org.drools.model.Model;
+import org.drools.modelcompiler.builder.GeneratedFile;
+import org.drools.modelcompiler.builder.KieBaseBuilder;
+import org.kie.api.KieBase;
+import org.kie.api.builder.model.KieBaseModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Generates a compiled alpha network for every object type node of the kie bases of the project.
+ * <p>
+ * The generated executable model is compiled in memory and the kie bases are built from it exactly as the
+ * generated <code>ProjectRuntime</code> does at runtime, then the sources of the compiled networks are
+ * generated for the resulting object type nodes. <code>ProjectRuntime</code> installs them on the kie bases
+ * it creates, so that inserting facts does not walk the interpreted alpha network anymore.
+ */
+public class CompiledNetworkGenerator {
+
+    public static final String ALPHA_NETWORK_COMPILER_PROP = "kogito.rules.alpha-network-compiler";
+
+    private static final Logger logger = LoggerFactory.getLogger(CompiledNetworkGenerator.class);
+
+    private static final String NETWORKS_PACKAGE = "org.drools.project.model.network";
+
+    private static final JavaCompiler JAVA_COMPILER = JavaCompilerFactory.INSTANCE.loadCompiler(JavaDialectConfiguration.CompilerType.NATIVE, "1.8");
+
+    private final ClassLoader contextClassLoader;
+    private final Map<String, List<NetworkSource>> networksByKieBase = new LinkedHashMap<>();
+
+    public CompiledNetworkGenerator(ClassLoader contextClassLoader) {
+        this.contextClassLoader = contextClassLoader;
+    }
+
+    /**
+     * Generates the compiled networks of the given kie bases. In case the model cannot be built at this stage
+     * no network is generated and the kie bases keep using the interpreted alpha network.
+     *
+     * @param modelFiles generated executable model
+     * @param kBaseModels kie bases of the project
+     * @param modelsByKieBase model class of each kie base built from a rule unit
+     * @return generated sources of the compiled networks
+     */
+    public List<org.kie.kogito.codegen.GeneratedFile> generate(Collection<GeneratedFile> modelFiles, Map<String, KieBaseModel> kBaseModels, Map<String, String> modelsByKieBase) {
+        List<org.kie.kogito.codegen.GeneratedFile> generatedFiles = new ArrayList<>();
+        networksByKieBase.clear();
+        try {
+            ClassLoader modelClassLoader = compileModel(modelFiles);
+            for (KieBaseModel kBaseModel : kBaseModels.values()) {
+                String model = modelsByKieBase.get(kBaseModel.getName());
+                List<Model> models = new ArrayList<>();
+                for (String modelClass : model != null ? Arrays.asList(model) : modelsByKieBase.values()) {
+                    models.add((Model) modelClassLoader.loadClass(modelClass).newInstance());
+                }
+                KieBase kieBase = KieBaseBuilder.createKieBaseFromModel(models, kBaseModel);
+                generateNetworks(kBaseModel.getName(), kieBase, generatedFiles);
+            }
+        } catch (Exception | LinkageError e) {
+            logger.warn("Unable to generate compiled alpha network, rules will use the interpreted one", e);
+            networksByKieBase.clear();
+            return new ArrayList<>();
+        }
+        return generatedFiles;
+    }
+
+    public boolean isEmpty() {
+        return networksByKieBase.isEmpty();
+    }
+
+    /**
+     * Returns the source of the <code>ProjectRuntime</code> method installing the generated networks on a kie base
+     *
+     * @return source of the <code>installCompiledNetworks(String, KieBase)</code> method
+     */
+    public String toInstallCompiledNetworksMethod() {
+        StringBuilder sb = new StringBuilder(
+                "    private KieBase installCompiledNetworks(String kieBaseName, KieBase kieBase) {\n" +
+                "        switch (kieBaseName) {\n");
+        for (Map.Entry<String, List<NetworkSource>> entry : networksByKieBase.entrySet()) {
+            sb.append("            case ").append(literal(entry.getKey())).append(":\n");
+            sb.append("                ").append(PrecompiledNetwork.class.getCanonicalName()).append(".install(kieBase");
+            for (NetworkSource network : entry.getValue()) {
+                sb.append(",\n                        new ").append(PrecompiledNetwork.class.getCanonicalName()).append("(")
+                        .append(literal(network.entryPoint)).append(", ")
+                        .append(literal(network.className)).append(", ")
+                        .append(literal(network.fingerprint)).append(", ")
+                        .append(network.networkClassName).append("::new)");
+            }
+            sb.append(");\n");
+            sb.append("                break;\n");
+        }
+        sb.append(
+                "        }\n" +
+                "        return kieBase;\n" +
+                "    }\n");
+        return sb.toString();
+    }
+
+    private ClassLoader compileModel(Collection<GeneratedFile> modelFiles) {
+        MemoryFileSystem srcMfs = new MemoryFileSystem();
+        MemoryFileSystem trgMfs = new MemoryFileSystem();
+        List<String> sources = new ArrayList<>();
+        for (GeneratedFile file : modelFiles) {
+            if (file.getPath().endsWith(".java")) {
+                sources.add(file.getPath());
+                srcMfs.write(file.getPath(), file.getData());
+            }
+        }
+        CompilationResult result = JAVA_COMPILER.compile(sources.toArray(new String[sources.size()]), srcMfs, trgMfs, contextClassLoader);
+        if (result.getErrors().length > 0) {
+            throw new IllegalStateException("Unable to compile executable model: " + Arrays.toString(result.getErrors()));
+        }
+        return new ModelClassLoader(contextClassLoader, trgMfs);
+    }
+
+    private void generateNetworks(String kieBaseName, KieBase kieBase, List<org.kie.kogito.codegen.GeneratedFile> generatedFiles) {
+        String packageName = NETWORKS_PACKAGE + "." + toIdentifier(kieBaseName);
+        List<NetworkSource> networks = new ArrayList<>();
+        for (EntryPointNode entryPointNode : ((InternalKnowledgeBase) kieBase).getRete().getEntryPointNodes().values()) {
+            for (ObjectTypeNode objectTypeNode : entryPointNode.getObjectTypeNodes().values()) {
+                if (!(objectTypeNode.getObjectType() instanceof ClassObjectType) || InitialFact.class.isAssignableFrom(objectTypeNode.getObjectType().getClassType())) {
+                    continue;
+                }
+                ObjectTypeNodeCompiler.SourceGenerated source = ObjectTypeNodeCompiler.generateSource(objectTypeNode, packageName);
+                generatedFiles.add(new org.kie.kogito.codegen.GeneratedFile(org.kie.kogito.codegen.GeneratedFile.Type.RULE,
+                                                                            source.className.replace('.', '/') + ".java",
+                                                                            source.source));
+                networks.add(new NetworkSource(entryPointNode.getEntryPoint().getEntryPointId(),
+                                               ((ClassObjectType) objectTypeNode.getObjectType()).getClassName(),
+                                               PrecompiledNetwork.fingerprint(objectTypeNode),
+                                               source.className));
+            }
+        }
+        if (!networks.isEmpty()) {
+            networksByKieBase.put(kieBaseName, networks);
+        }
+    }
+
+    private static String toIdentifier(String name) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : name.toCharArray()) {
+            sb.append(Character.isJavaIdentifierPart(c) && c != '$' ? c : '_');
+        }
+        if (sb.length() == 0 || !Character.isJavaIdentifierStart(sb.charAt(0))) {
+            sb.insert(0, '_');
+        }
+        return sb.toString();
+    }
+
+    private static String literal(String value) {
+        return new StringLiteralExpr().setString(value).toString();
+    }
+
+    private static class NetworkSource {
+
+        private final String entryPoint;
+        private final String className;
+        private final String fingerprint;
+        private final String networkClassName;
+
+        private NetworkSource(String entryPoint, String className, String fingerprint, String networkClassName) {
+            this.entryPoint = entryPoint;
+            this.className = className;
+            this.fingerprint = fingerprint;
+            this.networkClassName = networkClassName;
+        }
+    }
+
+    private static class ModelClassLoader extends ClassLoader {
+
+        private final MemoryFileSystem classes;
+
+        private ModelClassLoader(ClassLoader parent, MemoryFileSystem classes) {
+            super(parent);
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.getBytes(name.replace('.', '/') + ".class");
+            if (bytes == null) {
+                return super.findClass(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
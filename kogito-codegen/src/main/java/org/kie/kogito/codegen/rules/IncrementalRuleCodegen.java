@@ -330,6 +330,11 @@ public class IncrementalRuleCodegen extends AbstractGenerator {
                     modelSourceClass.generate()));
 
             ProjectSourceClass projectSourceClass = new ProjectSourceClass(modelMethod);
+            if (isAlphaNetworkCompilerEnabled()) {
+                CompiledNetworkGenerator compiledNetworks = new CompiledNetworkGenerator(contextClassLoader);
+                generatedFiles.addAll(compiledNetworks.generate(modelFiles, kieModuleModel.getKieBaseModels(), modelsByUnit));
+                projectSourceClass.withCompiledNetworks(compiledNetworks);
+            }
             if (annotator != null) {
                 projectSourceClass.withDependencyInjection("@" + annotator.applicationComponentType());
             }
@@ -343,6 +348,12 @@ public class IncrementalRuleCodegen extends AbstractGenerator {
         return generatedFiles;
     }
 
+    private boolean isAlphaNetworkCompilerEnabled() {
+        return context != null && context.getApplicationProperty(CompiledNetworkGenerator.ALPHA_NETWORK_COMPILER_PROP)
+                .map(Boolean::parseBoolean)
+                .orElse(false);
+    }
+
     private void addUnitConfToKieModule(RuleUnitDescription ruleUnitDescription) {
         KieBaseModel unitKieBaseModel = kieModuleModel.newKieBaseModel(ruleUnit2KieBaseName(ruleUnitDescription.getCanonicalName()));
         unitKieBaseModel.setEventProcessingMode(org.kie.api.conf.EventProcessingOption.CLOUD);
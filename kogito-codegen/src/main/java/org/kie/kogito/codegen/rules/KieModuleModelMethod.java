@@ -59,6 +59,17 @@ public class KieModuleModelMethod {
     }
 
     public String toGetKieBaseMethods() {
+        return toGetKieBaseMethods(null);
+    }
+
+    /**
+     * @param kieBaseDecorator name of a method applied to each kie base once it has been created, if any
+     */
+    public String toGetKieBaseMethods(String kieBaseDecorator) {
+        String createKieBase = "KieBaseBuilder.createKieBaseFromModel( model.getModelsForKieBase( n ), model.getKieModuleModel().getKieBaseModels().get( n ) )";
+        if (kieBaseDecorator != null) {
+            createKieBase = kieBaseDecorator + "(n, " + createKieBase + ")";
+        }
         return
                 "    @Override\n" +
                 "    public KieBase getKieBase() {\n" +
@@ -69,7 +80,7 @@ public class KieModuleModelMethod {
                 "\n" +
                 "    @Override\n" +
                 "    public KieBase getKieBase(String name) {\n" +
-                "        return kbases.computeIfAbsent(name, n -> KieBaseBuilder.createKieBaseFromModel( model.getModelsForKieBase( n ), model.getKieModuleModel().getKieBaseModels().get( n ) ));\n" +
+                "        return kbases.computeIfAbsent(name, n -> " + createKieBase + ");\n" +
                 "    }\n";
     }
 
@@ -115,8 +126,15 @@ public class KieModuleModelMethod {
     }
 
     public String toKieSessionConfMethod() {
+        // configurations are cached because sessions pools are keyed by configuration instance
         StringBuilder sb = new StringBuilder(
+                "    private final java.util.Map<String, org.kie.api.runtime.KieSessionConfiguration> confs = new java.util.concurrent.ConcurrentHashMap<>();\n" +
+                "\n" +
                 "    private org.kie.api.runtime.KieSessionConfiguration getConfForSession(String sessionName) {\n" +
+                "        return confs.computeIfAbsent(sessionName, this::createConfForSession);\n" +
+                "    }\n" +
+                "\n" +
+                "    private org.kie.api.runtime.KieSessionConfiguration createConfForSession(String sessionName) {\n" +
                 "        org.drools.core.SessionConfigurationImpl conf = new org.drools.core.SessionConfigurationImpl();\n" +
                 "        switch (sessionName) {\n"
         );
@@ -15,6 +15,7 @@ public class ProjectSourceClass {
 
     final KieModuleModelMethod modelMethod;
     private String dependencyInjection = "";
+    private CompiledNetworkGenerator compiledNetworks;
 
     public ProjectSourceClass(KieModuleModelMethod modelMethod) {
         this.modelMethod = modelMethod;
@@ -24,6 +25,12 @@ public class ProjectSourceClass {
         this.dependencyInjection = dependencyInjection;
         return this;
     }
+
+    public ProjectSourceClass withCompiledNetworks(CompiledNetworkGenerator compiledNetworks) {
+        this.compiledNetworks = compiledNetworks;
+        return this;
+    }
+
     public String generate() {
         StringBuilder sb = new StringBuilder();
         sb.append(
@@ -38,9 +45,15 @@ public class ProjectSourceClass {
                         "public class ProjectRuntime implements " + KieRuntimeBuilder.class.getCanonicalName() + " {\n" +
                         "\n" +
                         "    private final ProjectModel model = new ProjectModel();\n" +
-                        "    private final java.util.Map<String, KieBase> kbases = new java.util.HashMap<>();\n" +
+                        "    private final java.util.Map<String, KieBase> kbases = new java.util.concurrent.ConcurrentHashMap<>();\n" +
                         "\n");
-        sb.append(modelMethod.toGetKieBaseMethods());
+        if (compiledNetworks != null && !compiledNetworks.isEmpty()) {
+            sb.append(modelMethod.toGetKieBaseMethods("installCompiledNetworks"));
+            sb.append("\n");
+            sb.append(compiledNetworks.toInstallCompiledNetworksMethod());
+        } else {
+            sb.append(modelMethod.toGetKieBaseMethods());
+        }
         sb.append("\n");
         sb.append(modelMethod.toNewKieSessionMethods());
         sb.append("\n");
@@ -120,12 +120,6 @@ public class QueryEndpointGenerator implements FileGenerator {
         queryMethod.getParameter( 0 ).setType(ruleUnit.getCanonicalName() + "DTO");
         setGeneric(queryMethod.getType(), returnType);
 
-        Statement statement = queryMethod
-                .getBody()
-                .orElseThrow(() -> new NoSuchElementException("A method declaration doesn't contain a body!"))
-                .getStatement( 0 );
-        statement.findAll( VariableDeclarator.class ).forEach( decl -> setUnitGeneric( decl.getType() ) );
-
         MethodDeclaration queryMethodSingle = clazz.getMethodsByName( "executeQueryFirst" ).get(0);
         queryMethodSingle.getParameter( 0 ).setType(ruleUnit.getCanonicalName() + "DTO");
         queryMethodSingle.setType( toNonPrimitiveType( returnType ) );
@@ -17,7 +17,6 @@ package org.kie.kogito.codegen.rules;
 
 import java.lang.reflect.Field;
 
-import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.Modifier;
 import com.github.javaparser.ast.NodeList;
@@ -26,7 +25,6 @@ import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.expr.MethodCallExpr;
 import com.github.javaparser.ast.expr.NameExpr;
-import com.github.javaparser.ast.expr.ObjectCreationExpr;
 import com.github.javaparser.ast.expr.StringLiteralExpr;
 import com.github.javaparser.ast.stmt.BlockStmt;
 import com.github.javaparser.ast.type.ClassOrInterfaceType;
@@ -38,7 +36,6 @@ import org.kie.kogito.codegen.FileGenerator;
 import org.kie.kogito.conf.DefaultEntryPoint;
 import org.kie.kogito.conf.EntryPoint;
 import org.kie.kogito.rules.units.AbstractRuleUnitInstance;
-import org.kie.kogito.rules.units.EntryPointDataProcessor;
 
 public class RuleUnitInstanceGenerator implements FileGenerator {
 
@@ -99,14 +96,14 @@ public class RuleUnitInstanceGenerator implements FileGenerator {
                     Expression fieldAccessor =
                             new MethodCallExpr(new NameExpr("value"), methodName);
 
-                    // .subscribe( new EntryPointDataProcessor(runtime.getEntryPoint()) )
+                    // subscribe( value.$method(), runtime.getEntryPoint() )
 
                     String entryPointName = getEntryPointName(ruleUnitDescription, propertyName);
-                    MethodCallExpr drainInto = new MethodCallExpr(fieldAccessor, "subscribe")
-                            .addArgument(new ObjectCreationExpr(null, StaticJavaParser.parseClassOrInterfaceType( EntryPointDataProcessor.class.getName() ), NodeList.nodeList(
-                                    new MethodCallExpr(
-                                            new NameExpr("runtime"), "getEntryPoint",
-                                            NodeList.nodeList(new StringLiteralExpr( entryPointName ))))));
+                    MethodCallExpr drainInto = new MethodCallExpr(null, "subscribe", NodeList.nodeList(
+                            fieldAccessor,
+                            new MethodCallExpr(
+                                    new NameExpr("runtime"), "getEntryPoint",
+                                    NodeList.nodeList(new StringLiteralExpr( entryPointName )))));
 //                            new MethodReferenceExpr().setScope(new NameExpr("runtime")).setIdentifier("insert"));
 
                     methodBlock.addStatement(drainInto);
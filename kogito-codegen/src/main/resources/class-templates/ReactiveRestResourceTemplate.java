@@ -66,9 +66,9 @@ public class $Type$ReactiveResource {
 
     @GET()
     @Produces(MediaType.APPLICATION_JSON)
-    public CompletionStage<List<$Type$Output>> getResources_$name$() {
+    public CompletionStage<List<$Type$Output>> getResources_$name$(@QueryParam("page") @DefaultValue("0") int page, @QueryParam("size") @DefaultValue("10") int size, @QueryParam("after") String after) {
         return CompletableFuture.supplyAsync(() -> {
-            return process.instances().values().stream()
+            return (after != null ? process.instances().valuesAfter(after, size) : process.instances().values(page, size)).stream()
                     .map(pi -> mapOutput(new $Type$Output(), pi.variables()))
                  .collect(Collectors.toList());
         });   
@@ -63,8 +63,8 @@ public class $Type$Resource {
 
     @GET()
     @Produces(MediaType.APPLICATION_JSON)
-    public List<$Type$Output> getResources_$name$() {
-        return process.instances().values().stream()
+    public List<$Type$Output> getResources_$name$(@QueryParam("page") @DefaultValue("0") int page, @QueryParam("size") @DefaultValue("10") int size, @QueryParam("after") String after) {
+        return (after != null ? process.instances().valuesAfter(after, size) : process.instances().values(page, size)).stream()
                 .map(pi -> mapOutput(new $Type$Output(), pi.variables()))
                 .collect(Collectors.toList());
     }
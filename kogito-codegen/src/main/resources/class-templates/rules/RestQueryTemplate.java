@@ -1,7 +1,6 @@
 package com.myspace.demo;
 
 import java.util.List;
-import java.util.Map;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.POST;
@@ -9,10 +8,8 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 
+import org.kie.api.runtime.rule.QueryResultsRow;
 import org.kie.kogito.rules.RuleUnit;
-import org.kie.kogito.rules.RuleUnitInstance;
-
-import static java.util.stream.Collectors.toList;
 
 @Path("/$endpointName$")
 public class $unit$Query$name$Endpoint {
@@ -29,8 +26,7 @@ public class $unit$Query$name$Endpoint {
     @Produces(MediaType.APPLICATION_JSON)
     @Consumes(MediaType.APPLICATION_JSON)
     public List<$ReturnType$> executeQuery($UnitTypeDTO$ unitDTO) {
-        RuleUnitInstance<$UnitType$> instance = ruleUnit.createInstance(unitDTO.get());
-        return instance.executeQuery( "$queryName$" ).stream().map( this::toResult ).collect( toList() );
+        return ruleUnit.executeQuery( unitDTO.get(), this::toResult, "$queryName$" );
     }
 
     @POST()
@@ -42,7 +38,7 @@ public class $unit$Query$name$Endpoint {
         return results.isEmpty() ? null : results.get(0);
     }
 
-    private $ReturnType$ toResult(Map<String, Object> tuple) {
+    private $ReturnType$ toResult(QueryResultsRow tuple) {
         return ($ReturnType$) tuple.get("");
     }
 }
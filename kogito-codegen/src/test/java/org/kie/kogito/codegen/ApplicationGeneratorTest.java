@@ -91,7 +91,8 @@ public class ApplicationGeneratorTest {
         final ApplicationGenerator initialAppGenerator = new ApplicationGenerator(PACKAGE_NAME, new File("target"));
         final ApplicationGenerator appGenerator = initialAppGenerator.withDependencyInjection(new CDIDependencyInjectionAnnotator());
         assertThat(appGenerator).isSameAs(initialAppGenerator);
-        assertCompilationUnit(appGenerator.compilationUnit(), true, 4);
+        // injected kogito.events.async.* configuration fields
+        assertCompilationUnit(appGenerator.compilationUnit(), true, 8);
     }
 
     @Test
@@ -152,6 +152,24 @@ public class RuleUnitCompilerTest extends AbstractCodegenTest {
         assertTrue( results.containsAll( asList(45, 47) ) );
     }
 
+    @Test
+    public void testStatelessRuleUnitQuery() throws Exception {
+        Application application = generateCodeRulesOnly("org/kie/kogito/codegen/unit/RuleUnitQuery.drl");
+
+        AdultUnit adults = new AdultUnit();
+
+        adults.getPersons().add(new Person( "Mario", 45 ));
+        adults.getPersons().add(new Person( "Marilena", 47 ));
+        adults.getPersons().add(new Person( "Sofia", 7 ));
+
+        RuleUnit<AdultUnit> unit = application.ruleUnits().create(AdultUnit.class);
+
+        List<String> results = unit.executeQuery( adults, row -> (String) row.get("$name"), "FindAdults" );
+
+        assertEquals( 2, results.size() );
+        assertTrue( results.containsAll( asList("Mario", "Marilena") ) );
+    }
+
     @Test
     public void testRuleUnitExecutor() throws Exception {
         Application application = generateCodeRulesOnly(
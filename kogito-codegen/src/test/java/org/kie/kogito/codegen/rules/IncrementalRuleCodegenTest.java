@@ -19,6 +19,7 @@ import java.io.File;
 import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.List;
+import java.util.Properties;
 
 import org.drools.compiler.compiler.DecisionTableFactory;
 import org.drools.compiler.compiler.DecisionTableProvider;
@@ -27,10 +28,12 @@ import org.junit.jupiter.api.Test;
 import org.kie.api.internal.utils.ServiceRegistry;
 import org.kie.api.io.ResourceType;
 import org.kie.kogito.codegen.GeneratedFile;
+import org.kie.kogito.codegen.GeneratorContext;
 
 import static java.util.Arrays.asList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class IncrementalRuleCodegenTest {
 
@@ -115,6 +118,26 @@ public class IncrementalRuleCodegenTest {
         assertRules(1, 1, 1, generatedFiles.size());
     }
 
+    @Test
+    public void generateCompiledAlphaNetwork() {
+        IncrementalRuleCodegen incrementalRuleCodegen =
+                IncrementalRuleCodegen.ofFiles(
+                        Collections.singleton(
+                                new File("src/test/resources/org/kie/kogito/codegen/unit/RuleUnit.drl")));
+        incrementalRuleCodegen.setPackageName("com.acme");
+        Properties properties = new Properties();
+        properties.setProperty(CompiledNetworkGenerator.ALPHA_NETWORK_COMPILER_PROP, "true");
+        incrementalRuleCodegen.setContext(GeneratorContext.ofProperties(properties));
+
+        List<GeneratedFile> generatedFiles = incrementalRuleCodegen.generate();
+        assertTrue(generatedFiles.stream().anyMatch(f -> f.relativePath().startsWith("org/drools/project/model/network/")));
+        GeneratedFile projectRuntime = generatedFiles.stream()
+                .filter(f -> f.relativePath().equals("org/drools/project/model/ProjectRuntime.java"))
+                .findFirst()
+                .get();
+        assertTrue(new String(projectRuntime.contents()).contains("installCompiledNetworks"));
+    }
+
     @Test
     public void generateCepRule() {
         IncrementalRuleCodegen incrementalRuleCodegen =